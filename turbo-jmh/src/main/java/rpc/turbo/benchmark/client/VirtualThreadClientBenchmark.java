@@ -0,0 +1,117 @@
+package rpc.turbo.benchmark.client;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.netty.util.ResourceLeakDetector;
+import io.netty.util.ResourceLeakDetector.Level;
+import rpc.turbo.benchmark.service.UserService;
+import rpc.turbo.client.TurboClient;
+import rpc.turbo.config.HostPort;
+import rpc.turbo.config.client.AppConfig;
+import rpc.turbo.discover.DirectConnectDiscover;
+import rpc.turbo.util.concurrent.VirtualThreadUtils;
+
+/**
+ * 同步调用（join）吞吐量对比：10k 平台线程 vs 10k 虚拟线程，<br>
+ * 需要先启动 {@link rpc.turbo.benchmark.server.RpcServerBenchmark}，虚拟线程需要 jdk21
+ * 
+ * @author Hank
+ *
+ */
+public class VirtualThreadClientBenchmark {
+
+	public static final int CONCURRENCY = 10000;
+	public static final long DURATION_SECONDS = 30;
+
+	private final TurboClient client;
+	private final UserService userService;
+
+	public VirtualThreadClientBenchmark(boolean virtualThreadCallback) throws Exception {
+		DirectConnectDiscover discover = new DirectConnectDiscover();
+		discover.init(List.of(new HostPort("127.0.0.1", 8080)));
+
+		AppConfig appConfig = new AppConfig();
+		appConfig.setGroup("shop");
+		appConfig.setApp("auth");
+		appConfig.setSerializer("rpc.turbo.serialization.kryo.KryoSerializer");
+		appConfig.setMaxRequestWait(CONCURRENCY * 2);
+		appConfig.setConnectPerServer(4);
+		appConfig.setVirtualThreadCallback(virtualThreadCallback);
+		appConfig.setDiscover(discover);
+
+		client = new TurboClient();
+		client.addConnect(appConfig);
+		client.register(UserService.class);
+		userService = client.getService(UserService.class);
+	}
+
+	/**
+	 * 
+	 * @param threadFactory
+	 * @return 每秒调用次数
+	 */
+	public long run(ThreadFactory threadFactory) throws InterruptedException {
+		LongAdder counter = new LongAdder();
+		CountDownLatch latch = new CountDownLatch(CONCURRENCY);
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(DURATION_SECONDS);
+
+		for (int i = 0; i < CONCURRENCY; i++) {
+			final long id = i;
+
+			threadFactory.newThread(() -> {
+				try {
+					while (System.nanoTime() < deadline) {
+						userService.getUser(id).join();
+						counter.increment();
+					}
+				} catch (Throwable t) {
+					t.printStackTrace();
+				} finally {
+					latch.countDown();
+				}
+			}).start();
+		}
+
+		latch.await();
+
+		return counter.sum() / DURATION_SECONDS;
+	}
+
+	public void close() throws IOException {
+		client.close();
+	}
+
+	public static void main(String[] args) throws Exception {
+		ResourceLeakDetector.setLevel(Level.DISABLED);
+
+		VirtualThreadClientBenchmark platform = new VirtualThreadClientBenchmark(false);
+		long platformOps = platform.run(runnable -> {
+			Thread thread = new Thread(runnable);
+			thread.setDaemon(true);
+			return thread;
+		});
+		platform.close();
+
+		System.out.println("platform threads: " + platformOps + " ops/s");
+
+		ThreadFactory virtualThreadFactory = VirtualThreadUtils.factory("benchmark");
+		if (virtualThreadFactory == null) {
+			System.out.println("virtual thread is not supported");
+			System.exit(0);
+		}
+
+		VirtualThreadClientBenchmark virtual = new VirtualThreadClientBenchmark(true);
+		long virtualOps = virtual.run(virtualThreadFactory);
+		virtual.close();
+
+		System.out.println("virtual threads: " + virtualOps + " ops/s");
+
+		System.exit(0);
+	}
+
+}
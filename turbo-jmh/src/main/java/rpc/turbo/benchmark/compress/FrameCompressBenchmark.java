@@ -0,0 +1,112 @@
+package rpc.turbo.benchmark.compress;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.protostuff.ByteBufOutput;
+import io.protostuff.Schema;
+import io.protostuff.runtime.RuntimeSchema;
+import rpc.turbo.benchmark.bean.Page;
+import rpc.turbo.benchmark.bean.User;
+import rpc.turbo.benchmark.service.UserService;
+import rpc.turbo.benchmark.service.UserServiceServerImpl;
+import rpc.turbo.compress.Compressor;
+import rpc.turbo.compress.CompressorFactory;
+
+/**
+ * frame 压缩使用的 {@link Compressor}，数据为 listUser 的 protostuff 序列化结果，<br>
+ * EventLoop 单线程使用，所以是 Scope.Thread
+ * 
+ * @author Hank
+ *
+ */
+@State(Scope.Thread)
+public class FrameCompressBenchmark {
+
+	@Param({ "LZ4", "SNAPPY", "GZIP" })
+	public String compressType;
+
+	@SuppressWarnings("rawtypes")
+	private final Schema<Page> userPageSchema = RuntimeSchema.getSchema(Page.class);
+	private final UserService userService = new UserServiceServerImpl();
+
+	private Compressor compressor;
+	private ByteBuf rawBuffer;
+	private ByteBuf compressedBuffer;
+	private ByteBuf decompressedBuffer;
+	private int rawLength;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		compressor = CompressorFactory.createCompressor(CompressorFactory.parse(compressType));
+
+		rawBuffer = PooledByteBufAllocator.DEFAULT.directBuffer(1024 * 1024);
+		userPageSchema.writeTo(new ByteBufOutput(rawBuffer), userService.listUser(0).join());
+		rawLength = rawBuffer.readableBytes();
+
+		compressedBuffer = PooledByteBufAllocator.DEFAULT.directBuffer(compressor.maxCompressedLength(rawLength));
+		decompressedBuffer = PooledByteBufAllocator.DEFAULT.directBuffer(rawLength);
+
+		compress();
+
+		System.out.println(compressType + " raw: " + rawLength + ", compressed: "
+				+ compressedBuffer.readableBytes());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		rawBuffer.release();
+		compressedBuffer.release();
+		decompressedBuffer.release();
+		compressor.close();
+	}
+
+	@Benchmark
+	@BenchmarkMode({ Mode.Throughput })
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public void compress() throws IOException {
+		rawBuffer.readerIndex(0);
+		compressedBuffer.clear();
+
+		compressor.compress(rawBuffer, compressedBuffer);
+	}
+
+	@Benchmark
+	@BenchmarkMode({ Mode.Throughput })
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public void decompress() throws IOException {
+		compressedBuffer.readerIndex(0);
+		decompressedBuffer.clear();
+
+		compressor.decompress(compressedBuffer, decompressedBuffer, rawLength);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()//
+				.include(FrameCompressBenchmark.class.getSimpleName())//
+				.warmupIterations(5)//
+				.measurementIterations(5)//
+				.forks(1)//
+				.build();
+
+		new Runner(opt).run();
+	}
+
+}
@@ -0,0 +1,126 @@
+package rpc.turbo.benchmark.future;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import rpc.turbo.annotation.TurboService;
+import rpc.turbo.protocol.Request;
+import rpc.turbo.protocol.Response;
+import rpc.turbo.transport.client.future.FutureContainer;
+import rpc.turbo.transport.client.future.RequestWithFuture;
+import rpc.turbo.util.SystemClock;
+
+/**
+ * 时间轮 vs 全量扫描，EventLoop 单线程使用，所以是 Scope.Thread
+ * 
+ * @author Hank
+ *
+ */
+@State(Scope.Thread)
+public class ExpireJobBenchmark {
+
+	@Param({ "1000", "10000", "100000" })
+	public int inFlight;
+
+	private FutureContainer wheelContainer;
+	private ScanFutureContainer scanContainer;
+
+	private int requestId;
+	private final Response response = new Response();
+
+	@Setup(Level.Trial)
+	public void setup() {
+		wheelContainer = new FutureContainer(inFlight);
+		scanContainer = new ScanFutureContainer();
+
+		for (requestId = 0; requestId < inFlight; requestId++) {
+			wheelContainer.add(newRequest(requestId));
+			scanContainer.add(newRequest(requestId));
+		}
+	}
+
+	private static RequestWithFuture newRequest(int requestId) {
+		Request request = new Request();
+		request.setRequestId(requestId);
+
+		long expireTime = SystemClock.fast().mills() + TurboService.DEFAULT_TIME_OUT;
+		return new RequestWithFuture(request, new CompletableFuture<>(), expireTime);
+	}
+
+	/**
+	 * 一次过期检查，在途请求都未过期
+	 */
+	@Benchmark
+	@BenchmarkMode({ Mode.Throughput })
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public void wheelExpireJob() {
+		wheelContainer.doExpireJob();
+	}
+
+	/**
+	 * 一次过期检查，在途请求都未过期，不限制扫描时间
+	 */
+	@Benchmark
+	@BenchmarkMode({ Mode.Throughput })
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public void scanExpireJob() {
+		scanContainer.doExpireJob(Long.MAX_VALUE >>> 1);
+	}
+
+	/**
+	 * 发出一个请求，同时收到最早一个请求的响应，在途数量保持不变
+	 */
+	@Benchmark
+	@BenchmarkMode({ Mode.Throughput })
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public void wheelAddAndNotify() {
+		wheelContainer.add(newRequest(requestId));
+
+		response.setRequestId(requestId - inFlight);
+		wheelContainer.notifyResponse(response);
+
+		requestId++;
+	}
+
+	/**
+	 * 发出一个请求，同时收到最早一个请求的响应，在途数量保持不变
+	 */
+	@Benchmark
+	@BenchmarkMode({ Mode.Throughput })
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public void scanAddAndNotify() {
+		scanContainer.add(newRequest(requestId));
+
+		response.setRequestId(requestId - inFlight);
+		scanContainer.notifyResponse(response);
+
+		requestId++;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()//
+				.include(ExpireJobBenchmark.class.getSimpleName())//
+				.warmupIterations(5)//
+				.measurementIterations(5)//
+				.threads(1)//
+				.forks(1)//
+				.build();
+
+		new Runner(opt).run();
+	}
+
+}
@@ -0,0 +1,87 @@
+package rpc.turbo.benchmark.future;
+
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap.PrimitiveEntry;
+import rpc.turbo.protocol.Response;
+import rpc.turbo.transport.client.exception.ResponseTimeoutException;
+import rpc.turbo.transport.client.future.RequestWithFuture;
+import rpc.turbo.util.SystemClock;
+
+/**
+ * 时间轮之前的实现，周期性全量扫描，仅用于对比
+ * 
+ * @author Hank
+ *
+ */
+public final class ScanFutureContainer {
+
+	private final IntObjectHashMap<RequestWithFuture> futureMap = //
+			new IntObjectHashMap<>();
+
+	public void add(RequestWithFuture requestWithFuture) {
+		if (requestWithFuture.getFuture().isDone()) {
+			return;
+		}
+
+		futureMap.put(requestWithFuture.getRequestId(), requestWithFuture);
+	}
+
+	public void notifyResponse(Response response) {
+		if (response == null) {
+			return;
+		}
+
+		RequestWithFuture requestWithFuture = futureMap.remove(response.getRequestId());
+
+		if (requestWithFuture == null) {
+			return;
+		}
+
+		CompletableFuture<Response> future = requestWithFuture.getFuture();
+
+		if (!future.isDone()) {
+			future.complete(response);
+		}
+	}
+
+	/**
+	 * 删除过期任务
+	 * 
+	 * @param maxTime
+	 *            毫秒，超时则跳出
+	 */
+	public void doExpireJob(long maxTime) {
+		long finishTime = SystemClock.fast().mills() + maxTime;
+
+		Iterator<PrimitiveEntry<RequestWithFuture>> iterator//
+				= futureMap.entries().iterator();
+
+		while (iterator.hasNext()) {
+			RequestWithFuture requestWithFuture = iterator.next().value();
+
+			long now = SystemClock.fast().mills();
+
+			// 防止执行过长时间
+			if (now > finishTime) {
+				break;
+			}
+
+			if (now < requestWithFuture.getExpireTime()) {
+				continue;
+			}
+
+			iterator.remove();
+
+			CompletableFuture<Response> future = requestWithFuture.getFuture();
+
+			if (future.isDone()) {
+				return;
+			} else {
+				future.completeExceptionally(ResponseTimeoutException.NONE_STACK_TRACE);
+			}
+		}
+	}
+}
@@ -3,7 +3,10 @@ package rpc.turbo.benchmark.loadbalance;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
 import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
 import org.openjdk.jmh.annotations.Benchmark;
@@ -17,10 +20,15 @@ import org.openjdk.jmh.runner.RunnerException;
 import org.openjdk.jmh.runner.options.Options;
 import org.openjdk.jmh.runner.options.OptionsBuilder;
 
+import rpc.turbo.loadbalance.HashKeys;
 import rpc.turbo.loadbalance.LoadBalance;
+import rpc.turbo.loadbalance.MaglevTable;
+import rpc.turbo.loadbalance.P2CLoadBalance;
+import rpc.turbo.loadbalance.PeakEwmaLoadBalance;
 import rpc.turbo.loadbalance.RandomLoadBalance;
 import rpc.turbo.loadbalance.RoundRobinLoadBalance;
 import rpc.turbo.loadbalance.Weightable;
+import rpc.turbo.util.concurrent.LatencyHistogram;
 
 @State(Scope.Benchmark)
 public class LoadBalanceBenchmark {
@@ -35,6 +43,17 @@ public class LoadBalanceBenchmark {
 	private final LoadBalance<Weightable> randomLoadBalance100 = new RandomLoadBalance<>();
 	private final LoadBalance<Weightable> roundRobinLoadBalance100 = new RoundRobinLoadBalance<>();
 
+	private final LoadBalance<Weightable> p2cLoadBalance1 = new P2CLoadBalance<>();
+	private final LoadBalance<Weightable> p2cLoadBalance10 = new P2CLoadBalance<>();
+	private final LoadBalance<Weightable> p2cLoadBalance100 = new P2CLoadBalance<>();
+
+	private final LoadBalance<Weightable> peakEwmaLoadBalance1 = new PeakEwmaLoadBalance<>();
+	private final LoadBalance<Weightable> peakEwmaLoadBalance10 = new PeakEwmaLoadBalance<>();
+	private final LoadBalance<Weightable> peakEwmaLoadBalance100 = new PeakEwmaLoadBalance<>();
+
+	private final MaglevTable<Weightable> maglevTable10 = new MaglevTable<>(loadBeans(10),
+			weightable -> "127.0.0.1:" + (8000 + ((WeightBean) weightable).index), MaglevTable.DEFAULT_LOAD_FACTOR);
+
 	public LoadBalanceBenchmark() {
 		List<Weightable> weightables = new ArrayList<>();
 		for (int i = 0; i < 1; i++) {
@@ -59,6 +78,26 @@ public class LoadBalanceBenchmark {
 
 		randomLoadBalance100.setWeightables(weightables);
 		roundRobinLoadBalance100.setWeightables(weightables);
+
+		p2cLoadBalance1.setWeightables(loadBeans(1));
+		p2cLoadBalance10.setWeightables(loadBeans(10));
+		p2cLoadBalance100.setWeightables(loadBeans(100));
+
+		peakEwmaLoadBalance1.setWeightables(loadBeans(1));
+		peakEwmaLoadBalance10.setWeightables(loadBeans(10));
+		peakEwmaLoadBalance100.setWeightables(loadBeans(100));
+	}
+
+	private static List<Weightable> loadBeans(int count) {
+		List<Weightable> weightables = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			LoadBean loadBean = new LoadBean(i, 100);
+			loadBean.inFlight.set(i % 7);// 让比较的两个分支都能走到
+			loadBean.setLatencyEwma(1_000_000D + i % 5 * 100_000D);
+			weightables.add(loadBean);
+		}
+
+		return weightables;
 	}
 
 	@Benchmark
@@ -109,6 +148,114 @@ public class LoadBalanceBenchmark {
 		return roundRobinLoadBalance100.select();
 	}
 
+	@Benchmark
+	@BenchmarkMode({ Mode.Throughput })
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public Weightable p2cLoadBalance1() {
+		return p2cLoadBalance1.select();
+	}
+
+	@Benchmark
+	@BenchmarkMode({ Mode.Throughput })
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public Weightable p2cLoadBalance10() {
+		return p2cLoadBalance10.select();
+	}
+
+	@Benchmark
+	@BenchmarkMode({ Mode.Throughput })
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public Weightable p2cLoadBalance100() {
+		return p2cLoadBalance100.select();
+	}
+
+	@Benchmark
+	@BenchmarkMode({ Mode.Throughput })
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public Weightable peakEwmaLoadBalance1() {
+		return peakEwmaLoadBalance1.select();
+	}
+
+	@Benchmark
+	@BenchmarkMode({ Mode.Throughput })
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public Weightable peakEwmaLoadBalance10() {
+		return peakEwmaLoadBalance10.select();
+	}
+
+	@Benchmark
+	@BenchmarkMode({ Mode.Throughput })
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public Weightable peakEwmaLoadBalance100() {
+		return peakEwmaLoadBalance100.select();
+	}
+
+	@Benchmark
+	@BenchmarkMode({ Mode.Throughput })
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public Weightable maglevTable10() {
+		return maglevTable10.select(HashKeys.hash(ThreadLocalRandom.current().nextInt(100_000)));
+	}
+
+	/**
+	 * 模拟一个慢节点时的请求延迟，每个节点是单线程的先进先出队列，<br>
+	 * 节点0的平均服务时间是其他节点的10倍，请求按泊松过程到达，总负载为集群能力的70%
+	 * 
+	 * @param name
+	 * @param loadBalance
+	 */
+	private static void simulateSlowNode(String name, LoadBalance<Weightable> loadBalance) {
+		final int nodeCount = 10;
+		final int requestCount = 200_000;
+		final double serviceNanos = 1_000_000D;
+		final double slowServiceNanos = 10 * serviceNanos;
+
+		List<Weightable> weightables = loadBeans(nodeCount);
+		weightables.forEach(weightable -> {
+			LoadBean loadBean = (LoadBean) weightable;
+			loadBean.inFlight.set(0);
+			loadBean.setLatencyEwma(0D);
+		});
+		loadBalance.setWeightables(weightables);
+
+		double capacity = (nodeCount - 1) / serviceNanos + 1 / slowServiceNanos;
+		double arrivalNanos = 1 / (capacity * 0.7);
+
+		Random random = new Random(0);
+		long[] busyUntil = new long[nodeCount];
+		// {完成时间, 节点, 到达时间}
+		PriorityQueue<long[]> completions = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+		LatencyHistogram histogram = new LatencyHistogram();
+		int[] counts = new int[nodeCount];
+
+		long now = 0;
+		for (int i = 0; i < requestCount; i++) {
+			now += (long) (-Math.log(1 - random.nextDouble()) * arrivalNanos);
+
+			while (!completions.isEmpty() && completions.peek()[0] <= now) {
+				long[] completion = completions.poll();
+				LoadBean done = (LoadBean) weightables.get((int) completion[1]);
+				done.inFlight.decrementAndGet();
+				done.observe(completion[0], completion[0] - completion[2]);
+			}
+
+			LoadBean loadBean = (LoadBean) loadBalance.select();
+			int index = loadBean.index;
+			double mean = index == 0 ? slowServiceNanos : serviceNanos;
+
+			long finish = Math.max(now, busyUntil[index]) + (long) (-Math.log(1 - random.nextDouble()) * mean);
+			busyUntil[index] = finish;
+
+			loadBean.inFlight.incrementAndGet();
+			completions.add(new long[] { finish, index, now });
+
+			histogram.record(finish - now);
+			counts[index]++;
+		}
+
+		System.out.println(name + " slowNodeShare: " + (100 * counts[0] / requestCount) + "%, " + histogram);
+	}
+
 	public static void main(String[] args) throws RunnerException {
 		LoadBalance<Weightable> randomLoadBalance100 = new RandomLoadBalance<>();
 		LoadBalance<Weightable> roundRobinLoadBalance100 = new RoundRobinLoadBalance<>();
@@ -144,6 +291,11 @@ public class LoadBalanceBenchmark {
 		map.replaceAll((k, v) -> (int) Math.round(v / 5000D));
 		System.out.println("roundRobinLoadBalance100: " + map);
 
+		simulateSlowNode("randomLoadBalance", new RandomLoadBalance<>());
+		simulateSlowNode("roundRobinLoadBalance", new RoundRobinLoadBalance<>());
+		simulateSlowNode("p2cLoadBalance", new P2CLoadBalance<>());
+		simulateSlowNode("peakEwmaLoadBalance", new PeakEwmaLoadBalance<>());
+
 		Options opt = new OptionsBuilder()//
 				.include(LoadBalanceBenchmark.class.getSimpleName())//
 				.warmupIterations(5)//
@@ -0,0 +1,53 @@
+package rpc.turbo.benchmark.loadbalance;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rpc.turbo.loadbalance.LatencyLoadable;
+import rpc.turbo.loadbalance.PeakEwma;
+
+public class LoadBean extends WeightBean implements LatencyLoadable {
+
+	public final AtomicInteger inFlight = new AtomicInteger();
+
+	/** 模拟时间下的 peak EWMA，只在单线程模拟中使用 */
+	private double latencyEwma;
+	private long stamp;
+
+	public LoadBean(int index, int weight) {
+		super(index, weight);
+	}
+
+	@Override
+	public int inFlight() {
+		return inFlight.get();
+	}
+
+	@Override
+	public double latencyEwma() {
+		return latencyEwma;
+	}
+
+	public void setLatencyEwma(double latencyEwma) {
+		this.latencyEwma = latencyEwma;
+	}
+
+	/**
+	 * 按模拟时间记录一次延迟，算法同 {@link PeakEwma}
+	 * 
+	 * @param now
+	 *            模拟时间，纳秒
+	 * @param latency
+	 *            纳秒
+	 */
+	public void observe(long now, long latency) {
+		double weight = Math.exp(-(now - stamp) / (double) PeakEwma.DEFAULT_DECAY_NANOS);
+		stamp = now;
+
+		if (latency > latencyEwma) {
+			latencyEwma = latency;
+		} else {
+			latencyEwma = latencyEwma * weight + latency * (1D - weight);
+		}
+	}
+
+}
@@ -126,6 +126,35 @@ public class KryoSerializer extends Serializer {
 		RecycleUtils.release(response);
 	}
 
+	@Override
+	public boolean isSupportedSerializedResult() {
+		return true;
+	}
+
+	@Override
+	public void writeResult(ByteBuf byteBuf, Object result) throws IOException {
+		kryoContext().writeClassAndObject(byteBuf, result);
+	}
+
+	@Override
+	public void writeResponse(ByteBuf prefix, ByteBuf suffix, Response response, int payloadLength)
+			throws IOException {
+		final int beginWriterIndex = prefix.writerIndex();
+
+		prefix.writeInt(0);
+		prefix.writeInt(response.getRequestId());
+		prefix.writeByte(response.getStatusCode());
+		tracerSerializer.write(prefix, response.getTracer());
+
+		// result 在最后，payload 直接跟在后面
+		int finishWriterIndex = prefix.writerIndex();
+		int length = finishWriterIndex - beginWriterIndex - TurboConstants.HEADER_FIELD_LENGTH + payloadLength;
+
+		prefix.setInt(beginWriterIndex, length);
+
+		RecycleUtils.release(response);
+	}
+
 	public Response readResponse(ByteBuf byteBuf) throws IOException {
 
 		// System.out.println("response content: " + new
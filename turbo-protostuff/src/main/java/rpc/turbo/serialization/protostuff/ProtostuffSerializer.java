@@ -168,6 +168,46 @@ public class ProtostuffSerializer extends Serializer {
 		RecycleUtils.release(response);
 	}
 
+	@Override
+	public boolean isSupportedSerializedResult() {
+		return true;
+	}
+
+	/**
+	 * 输出为只有 result 的 Response
+	 */
+	@Override
+	public void writeResult(ByteBuf byteBuf, Object result) throws IOException {
+		ByteBufOutput output = getOrUpdate(OUTPUT_ATTACHMENT_INDEX, OUTPUT_SUPPLIER);
+		output.setByteBuf(byteBuf);
+
+		Response response = new Response();
+		response.setResult(result);
+
+		responseSchema.writeTo(output, response);
+	}
+
+	/**
+	 * payload 为只有 result 的 Response，suffix 为没有 result 的 Response，<br>
+	 * 反序列化时后出现的字段会覆盖前面的，合起来就是一个完整的 Response
+	 */
+	@Override
+	public void writeResponse(ByteBuf prefix, ByteBuf suffix, Response response, int payloadLength)
+			throws IOException {
+		final int beginWriterIndex = suffix.writerIndex();
+
+		ByteBufOutput output = getOrUpdate(OUTPUT_ATTACHMENT_INDEX, OUTPUT_SUPPLIER);
+		output.setByteBuf(suffix);
+
+		response.setResult(null);
+		responseSchema.writeTo(output, response);
+
+		int suffixLength = suffix.writerIndex() - beginWriterIndex;
+		prefix.writeInt(payloadLength + suffixLength);
+
+		RecycleUtils.release(response);
+	}
+
 	public Response readResponse(ByteBuf byteBuf) throws IOException {
 
 		// System.out.println("response content: " + new
@@ -209,6 +249,10 @@ public class ProtostuffSerializer extends Serializer {
 	 * @return
 	 */
 	private Schema<MethodParam> schema(int serviceId) {
+		if (serviceId < 0) {// 内部控制请求，低频使用
+			return schema(getMethodParamClass(serviceId));
+		}
+
 		Schema<MethodParam> schema = fastServerSchemaMap.get(serviceId);
 
 		if (schema != null) {
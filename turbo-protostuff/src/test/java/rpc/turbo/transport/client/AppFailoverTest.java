@@ -0,0 +1,125 @@
+package rpc.turbo.transport.client;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import rpc.turbo.client.TurboClient;
+import rpc.turbo.config.HostPort;
+import rpc.turbo.config.client.AppConfig;
+import rpc.turbo.config.server.ServerConfig;
+import rpc.turbo.discover.DirectConnectDiscover;
+import rpc.turbo.invoke.ServerInvokerFactory;
+import rpc.turbo.server.TurboServer;
+
+/**
+ * 缓存、合并请求时，远程调用失败也要执行调用方的失败回退
+ *
+ * @author Hank
+ *
+ */
+public class AppFailoverTest {
+	private static final HostPort SERVER_ADDRESS = new HostPort("127.0.0.1", 18701);
+
+	private static final FailoverServiceImpl serviceImpl = new FailoverServiceImpl();
+	private static TurboServer server;
+	private static TurboClient client;
+	private static FailoverService service;
+
+	@BeforeClass
+	public static void start() throws Exception {
+		server = new TurboServer(new ServerConfig("test", "failover"), new ServerInvokerFactory("test", "failover"));
+		server.registerService(Map.of(FailoverService.class, serviceImpl));
+		server.startRpcServer(SERVER_ADDRESS);
+
+		DirectConnectDiscover discover = new DirectConnectDiscover();
+		discover.init(List.of(SERVER_ADDRESS));
+
+		AppConfig appConfig = new AppConfig();
+		appConfig.setGroup("test");
+		appConfig.setApp("failover");
+		appConfig.setDiscover(discover);
+
+		client = new TurboClient();
+		client.addConnect(appConfig);
+		client.register(FailoverService.class);
+		client.setFailover(FailoverService.class, null);// 使用接口默认方法
+
+		service = client.getService(FailoverService.class);
+	}
+
+	@AfterClass
+	public static void stop() throws Exception {
+		client.close();
+		server.close();
+	}
+
+	@Before
+	public void reset() {
+		serviceImpl.calls.set(0);
+		serviceImpl.fail = false;
+	}
+
+	@Test
+	public void cachedFailover() throws Exception {
+		serviceImpl.fail = true;
+		assertEquals("failover1", service.cached(1).get());
+
+		// 失败及回退的结果都不缓存
+		serviceImpl.fail = false;
+		assertEquals("remote1", service.cached(1).get());
+		assertEquals(2, serviceImpl.calls.get());
+
+		assertEquals("remote1", service.cached(1).get());
+		assertEquals(2, serviceImpl.calls.get());
+	}
+
+	@Test
+	public void coalescedFailover() throws Exception {
+		serviceImpl.fail = true;
+
+		List<CompletableFuture<String>> futures = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			futures.add(service.coalesced(1));
+		}
+
+		// 共享的请求失败，每个调用方各自执行回退
+		for (CompletableFuture<String> future : futures) {
+			assertEquals("failover1", future.get());
+		}
+
+		assertEquals(1, serviceImpl.calls.get());
+	}
+
+	@Test
+	public void cachedWithoutParam() throws Exception {
+		assertEquals("remote", service.cachedConfig().get());
+		assertEquals("remote", service.cachedConfig().get());
+		assertEquals("remote", service.cachedConfig().get());
+
+		assertEquals(1, serviceImpl.calls.get());
+	}
+
+	@Test
+	public void coalescedWithoutParam() throws Exception {
+		List<CompletableFuture<String>> futures = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			futures.add(service.coalescedConfig());
+		}
+
+		for (CompletableFuture<String> future : futures) {
+			assertEquals("remote", future.get());
+		}
+
+		assertEquals(1, serviceImpl.calls.get());
+	}
+
+}
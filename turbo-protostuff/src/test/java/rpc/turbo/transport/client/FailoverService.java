@@ -0,0 +1,33 @@
+package rpc.turbo.transport.client;
+
+import java.util.concurrent.CompletableFuture;
+
+import rpc.turbo.annotation.TurboService;
+
+@TurboService(version = "1.0.0")
+public interface FailoverService {
+
+	/**
+	 * 默认方法为失败回退
+	 */
+	@TurboService(version = "1.0.0", cacheTtl = 60000)
+	default CompletableFuture<String> cached(int id) {
+		return CompletableFuture.completedFuture("failover" + id);
+	}
+
+	@TurboService(version = "1.0.0", coalesce = true)
+	default CompletableFuture<String> coalesced(int id) {
+		return CompletableFuture.completedFuture("failover" + id);
+	}
+
+	@TurboService(version = "1.0.0", cacheTtl = 60000)
+	default CompletableFuture<String> cachedConfig() {
+		return CompletableFuture.completedFuture("failover");
+	}
+
+	@TurboService(version = "1.0.0", coalesce = true)
+	default CompletableFuture<String> coalescedConfig() {
+		return CompletableFuture.completedFuture("failover");
+	}
+
+}
@@ -0,0 +1,50 @@
+package rpc.turbo.transport.client;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class FailoverServiceImpl implements FailoverService {
+
+	final AtomicInteger calls = new AtomicInteger();
+	volatile boolean fail = false;
+
+	@Override
+	public CompletableFuture<String> cached(int id) {
+		calls.incrementAndGet();
+
+		if (fail) {
+			return CompletableFuture.failedFuture(new IllegalStateException("server error"));
+		}
+
+		return CompletableFuture.completedFuture("remote" + id);
+	}
+
+	@Override
+	public CompletableFuture<String> coalesced(int id) {
+		calls.incrementAndGet();
+
+		// 延迟返回，保证调用方的请求都在途中
+		return CompletableFuture.supplyAsync(() -> {
+			if (fail) {
+				throw new IllegalStateException("server error");
+			}
+
+			return "remote" + id;
+		}, CompletableFuture.delayedExecutor(200, TimeUnit.MILLISECONDS));
+	}
+
+	@Override
+	public CompletableFuture<String> cachedConfig() {
+		calls.incrementAndGet();
+		return CompletableFuture.completedFuture("remote");
+	}
+
+	@Override
+	public CompletableFuture<String> coalescedConfig() {
+		calls.incrementAndGet();
+		return CompletableFuture.supplyAsync(() -> "remote",
+				CompletableFuture.delayedExecutor(200, TimeUnit.MILLISECONDS));
+	}
+
+}
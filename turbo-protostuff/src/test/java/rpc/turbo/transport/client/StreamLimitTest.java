@@ -0,0 +1,142 @@
+package rpc.turbo.transport.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import rpc.turbo.client.TurboClient;
+import rpc.turbo.config.HostPort;
+import rpc.turbo.config.client.AppConfig;
+import rpc.turbo.config.server.ServerConfig;
+import rpc.turbo.discover.DirectConnectDiscover;
+import rpc.turbo.invoke.ServerInvokerFactory;
+import rpc.turbo.server.TurboServer;
+
+/**
+ * 流式请求在并发限制的队列中等待时，credit 和取消不能先于请求到达服务端
+ *
+ * @author Hank
+ *
+ */
+public class StreamLimitTest {
+	private static final HostPort SERVER_ADDRESS = new HostPort("127.0.0.1", 18702);
+
+	private static final StreamServiceImpl serviceImpl = new StreamServiceImpl();
+	private static TurboServer server;
+	private static TurboClient client;
+	private static StreamService service;
+
+	@BeforeClass
+	public static void start() throws Exception {
+		server = new TurboServer(new ServerConfig("test", "stream"), new ServerInvokerFactory("test", "stream"));
+		server.registerService(Map.of(StreamService.class, serviceImpl));
+		server.startRpcServer(SERVER_ADDRESS);
+
+		DirectConnectDiscover discover = new DirectConnectDiscover();
+		discover.init(List.of(SERVER_ADDRESS));
+
+		AppConfig appConfig = new AppConfig();
+		appConfig.setGroup("test");
+		appConfig.setApp("stream");
+		appConfig.setMaxRequestWait(1);// 只有一个在途请求名额
+		appConfig.setStreamWindow(4);
+		appConfig.setDiscover(discover);
+
+		client = new TurboClient();
+		client.addConnect(appConfig);
+		client.register(StreamService.class);
+
+		service = client.getService(StreamService.class);
+	}
+
+	@AfterClass
+	public static void stop() throws Exception {
+		client.close();
+		server.close();
+	}
+
+	@Before
+	public void reset() {
+		serviceImpl.cancelled.set(0);
+	}
+
+	private static final class Collector implements Flow.Subscriber<Integer> {
+		private final int take;
+		private final CompletableFuture<Integer> result = new CompletableFuture<>();
+		private Flow.Subscription subscription;
+		private int count = 0;
+
+		private Collector(int take) {
+			this.take = take;
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+
+			if (take == 0) {
+				subscription.cancel();
+				result.complete(count);
+			} else {
+				subscription.request(Long.MAX_VALUE);
+			}
+		}
+
+		@Override
+		public void onNext(Integer item) {
+			count++;
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			result.completeExceptionally(throwable);
+		}
+
+		@Override
+		public void onComplete() {
+			result.complete(count);
+		}
+	}
+
+	@Test
+	public void creditWhileQueued() throws Exception {
+		CompletableFuture<String> slow = service.slow();
+
+		// 名额被占用，流式请求在队列中等待，订阅时的 credit 要等请求发出后再发送
+		Collector collector = new Collector(-1);
+		service.range(100).get().subscribe(collector);
+		assertFalse(slow.isDone());
+
+		assertEquals(100, collector.result.get(5, TimeUnit.SECONDS).intValue());
+		assertEquals("slow", slow.get());
+	}
+
+	@Test
+	public void cancelWhileQueued() throws Exception {
+		CompletableFuture<String> slow = service.slow();
+
+		Collector collector = new Collector(0);
+		service.range(100).get().subscribe(collector);
+		assertEquals(0, collector.result.get().intValue());
+		assertEquals("slow", slow.get());
+
+		// 请求发出后服务端收到取消
+		long deadline = System.currentTimeMillis() + 5000;
+		while (serviceImpl.cancelled.get() == 0 && System.currentTimeMillis() < deadline) {
+			TimeUnit.MILLISECONDS.sleep(10);
+		}
+
+		assertEquals(1, serviceImpl.cancelled.get());
+	}
+
+}
@@ -0,0 +1,17 @@
+package rpc.turbo.transport.client;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+import rpc.turbo.annotation.TurboService;
+
+@TurboService(version = "1.0.0")
+public interface StreamService {
+
+	@TurboService(version = "1.0.0")
+	CompletableFuture<String> slow();
+
+	@TurboService(version = "1.0.0")
+	CompletableFuture<Flow.Publisher<Integer>> range(int count);
+
+}
@@ -0,0 +1,60 @@
+package rpc.turbo.transport.client;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class StreamServiceImpl implements StreamService {
+
+	final AtomicInteger cancelled = new AtomicInteger();
+
+	@Override
+	public CompletableFuture<String> slow() {
+		// 延迟返回，占住在途请求名额
+		return CompletableFuture.supplyAsync(() -> "slow", CompletableFuture.delayedExecutor(300, TimeUnit.MILLISECONDS));
+	}
+
+	@Override
+	public CompletableFuture<Flow.Publisher<Integer>> range(int count) {
+		Flow.Publisher<Integer> publisher = subscriber -> subscriber.onSubscribe(new Flow.Subscription() {
+			private final AtomicLong requested = new AtomicLong();
+			private final AtomicInteger wip = new AtomicInteger();
+			private volatile boolean stopped = false;
+			private int emitted = 0;
+
+			@Override
+			public void request(long n) {
+				requested.addAndGet(n);
+
+				if (wip.getAndIncrement() != 0) {
+					return;
+				}
+
+				do {
+					while (!stopped && emitted < count && requested.get() > 0) {
+						requested.decrementAndGet();
+						subscriber.onNext(emitted++);
+					}
+
+					if (!stopped && emitted == count) {
+						stopped = true;
+						subscriber.onComplete();
+					}
+				} while (wip.decrementAndGet() != 0);
+			}
+
+			@Override
+			public void cancel() {
+				if (!stopped) {
+					stopped = true;
+					cancelled.incrementAndGet();
+				}
+			}
+		});
+
+		return CompletableFuture.completedFuture(publisher);
+	}
+
+}
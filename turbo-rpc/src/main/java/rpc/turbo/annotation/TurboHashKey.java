@@ -0,0 +1,24 @@
+package rpc.turbo.annotation;
+
+import static java.lang.annotation.ElementType.PARAMETER;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * 标记路由用的参数，同一个值的请求会尽量发往同一个服务端，以提高服务端本地缓存的命中率<br>
+ * 一个方法最多标记一个参数，参数类型只能是整数、String、枚举，<br>
+ * 或者 hashCode 在不同进程中保持一致的类型，不能是 float、double、boolean<br>
+ * 使用带有界负载的 Maglev 一致性哈希，节点过载时会溢出到其他节点，节点变化时只有少量的值改变路由
+ * 
+ * @author Hank
+ *
+ */
+@Documented
+@Retention(RUNTIME)
+@Target({ PARAMETER })
+public @interface TurboHashKey {
+
+}
@@ -8,6 +8,9 @@ import java.lang.annotation.Documented;
 import java.lang.annotation.Retention;
 import java.lang.annotation.Target;
 
+import rpc.turbo.config.Priority;
+import rpc.turbo.config.server.ExecutorMode;
+
 /**
  * 服务接口声明，以及服务接口、方法配置，<br>
  * 当接口中包含公开的默认方法时自动注册为failover<br>
@@ -27,6 +30,14 @@ public @interface TurboService {
 	public static final String DEFAULT_VERSION = "1.0.0";
 	public static final long DEFAULT_TIME_OUT = 5 * 1000L;
 	public static final boolean DEFAULT_IGNORE = false;
+	public static final long DEFAULT_HEDGE_DELAY = -1L;
+	public static final int DEFAULT_HEDGE_BUDGET = 10;
+	public static final int DEFAULT_RETRIES = -1;
+	public static final long DEFAULT_RETRY_BACKOFF = 10L;
+	public static final long DEFAULT_CACHE_TTL = -1L;
+	public static final int DEFAULT_CACHE_SIZE = 1000;
+	public static final int DEFAULT_BATCH_SIZE = -1;
+	public static final long DEFAULT_BATCH_WINDOW = 1000L;
 
 	/**
 	 * for METHOD and TYPE, RPC服务方法版本<br>
@@ -78,4 +89,119 @@ public @interface TurboService {
 	 */
 	String rest() default "";
 
+	/**
+	 * for METHOD and TYPE, 服务端执行方式<br>
+	 * method有则用method的，method没有则使用class的，都没有则使用ServerConfig中的executor.mode
+	 * 
+	 * @return
+	 */
+	ExecutorMode executor() default ExecutorMode.DEFAULT;
+
+	/**
+	 * for METHOD and TYPE, 实现中有阻塞操作（比如jdbc），不需要再用supplyAsync包装，<br>
+	 * executor未设置时会在虚拟线程中执行，相当于executor = ExecutorMode.VIRTUAL
+	 * 
+	 * @return
+	 */
+	boolean blocking() default false;
+
+	/**
+	 * for METHOD and TYPE, 独立线程池的线程数量，仅executor为DEDICATED、VIRTUAL时有效，<br>
+	 * 小于1时使用ServerConfig中的executor.threads
+	 * 
+	 * @return
+	 */
+	int executorThreads() default -1;
+
+	/**
+	 * for METHOD and TYPE, 排队上限，超过后直接拒绝，仅executor不为IO时有效，<br>
+	 * 虚拟线程时为最大并发数量，小于1时使用ServerConfig中的executor.queueSize
+	 * 
+	 * @return
+	 */
+	int executorQueueSize() default -1;
+
+	/**
+	 * for METHOD and TYPE, 请求优先级，客户端按优先级分通道发送，服务端线程池中按优先级排队<br>
+	 * method有则用method的，method没有则使用class的，都没有则为NORMAL
+	 * 
+	 * @return
+	 */
+	Priority priority() default Priority.DEFAULT;
+
+	/**
+	 * for METHOD and TYPE, 对冲请求延迟，millseconds，只用于幂等的方法<br>
+	 * 主请求超过该时间还没有返回时向另一个服务端再发一次，先成功返回的为准<br>
+	 * 小于0不启用，等于0时使用该方法观测到的p95，<br>
+	 * method有则用method的，method没有则使用class的，都没有则不启用
+	 * 
+	 * @return
+	 */
+	long hedgeDelay() default DEFAULT_HEDGE_DELAY;
+
+	/**
+	 * for METHOD and TYPE, 对冲请求最多占正常请求的百分比，防止过载时放大压力，<br>
+	 * 与hedgeDelay取自同一个注解
+	 * 
+	 * @return
+	 */
+	int hedgeBudget() default DEFAULT_HEDGE_BUDGET;
+
+	/**
+	 * for METHOD and TYPE, 失败后换一个服务端重试的最大次数，只用于幂等的方法<br>
+	 * 重试受App的retry.budget限制，小于0时使用class的，都没有则不重试
+	 * 
+	 * @return
+	 */
+	int retries() default DEFAULT_RETRIES;
+
+	/**
+	 * for METHOD and TYPE, 重试的退避时间基数，millseconds，<br>
+	 * 第n次重试前随机等待 0 ~ retryBackoff * 2^(n-1)，与retries取自同一个注解
+	 * 
+	 * @return
+	 */
+	long retryBackoff() default DEFAULT_RETRY_BACKOFF;
+
+	/**
+	 * for METHOD and TYPE, 客户端缓存返回值的时间，millseconds，只用于读多写少、返回值不会被修改的方法<br>
+	 * 以全部参数为key，参数必须实现equals、hashCode，null及失败的结果不缓存<br>
+	 * 小于1不启用，method有则用method的，method没有则使用class的，都没有则不启用
+	 * 
+	 * @return
+	 */
+	long cacheTtl() default DEFAULT_CACHE_TTL;
+
+	/**
+	 * for METHOD and TYPE, 客户端最多缓存多少个返回值，超过后按 W-TinyLFU 淘汰，<br>
+	 * 与cacheTtl取自同一个注解
+	 * 
+	 * @return
+	 */
+	int cacheSize() default DEFAULT_CACHE_SIZE;
+
+	/**
+	 * for METHOD and TYPE, 客户端合并参数相同的在途请求，只发送一次，所有调用方共享结果，<br>
+	 * 只用于幂等的方法，参数必须实现equals、hashCode，method、class任意一个为true则启用
+	 * 
+	 * @return
+	 */
+	boolean coalesce() default false;
+
+	/**
+	 * for METHOD and TYPE, 客户端把短时间内的多个调用合并为一个批量请求发送，服务端依次执行后合并响应，<br>
+	 * 达到batchSize或者距第一个调用超过batchWindow时发送，按参数路由的方法不合并，启用后不再对冲、重试<br>
+	 * 小于2不启用，method有则用method的，method没有则使用class的，都没有则不启用
+	 * 
+	 * @return
+	 */
+	int batchSize() default DEFAULT_BATCH_SIZE;
+
+	/**
+	 * for METHOD and TYPE, 批量请求最多等待多久，microseconds，与batchSize取自同一个注解
+	 * 
+	 * @return
+	 */
+	long batchWindow() default DEFAULT_BATCH_WINDOW;
+
 }
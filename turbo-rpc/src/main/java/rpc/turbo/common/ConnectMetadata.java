@@ -0,0 +1,111 @@
+package rpc.turbo.common;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 建立连接时交换的服务端元数据，一次往返取回所有内置服务的结果<br>
+ * 客户端带上已知的 hash，未变化时服务端只返回 hash，不再返回具体内容
+ *
+ * @author Hank
+ *
+ */
+public class ConnectMetadata {
+
+	/** 内容的hash，服务端相同时不同实例的hash也相同 */
+	private long hash;
+	/** 已注册的RPC类，classString */
+	private List<String> classRegisterList;
+	/** 已注册的RPC方法，key:methodString, value:serviceId */
+	private Map<String, Integer> methodRegisterMap;
+	/** 已注册的 classId */
+	private Map<String, Integer> classIdMap;
+	/** 服务端支持的压缩类型，按优先级排序 */
+	private List<Integer> compressTypeList;
+
+	public ConnectMetadata() {
+	}
+
+	public ConnectMetadata(long hash, List<String> classRegisterList, Map<String, Integer> methodRegisterMap,
+			Map<String, Integer> classIdMap, List<Integer> compressTypeList) {
+		this.hash = hash;
+		this.classRegisterList = classRegisterList;
+		this.methodRegisterMap = methodRegisterMap;
+		this.classIdMap = classIdMap;
+		this.compressTypeList = compressTypeList;
+	}
+
+	/**
+	 * 只有hash的元数据，表示与客户端已知的相同
+	 *
+	 * @param hash
+	 * @return
+	 */
+	public static ConnectMetadata unchanged(long hash) {
+		ConnectMetadata metadata = new ConnectMetadata();
+		metadata.hash = hash;
+
+		return metadata;
+	}
+
+	public long getHash() {
+		return hash;
+	}
+
+	public void setHash(long hash) {
+		this.hash = hash;
+	}
+
+	/**
+	 * 是否与客户端已知的相同，此时只有hash，其他内容都为null
+	 *
+	 * @return
+	 */
+	public boolean isUnchanged() {
+		return methodRegisterMap == null;
+	}
+
+	public List<String> getClassRegisterList() {
+		return classRegisterList;
+	}
+
+	public void setClassRegisterList(List<String> classRegisterList) {
+		this.classRegisterList = classRegisterList;
+	}
+
+	public Map<String, Integer> getMethodRegisterMap() {
+		return methodRegisterMap;
+	}
+
+	public void setMethodRegisterMap(Map<String, Integer> methodRegisterMap) {
+		this.methodRegisterMap = methodRegisterMap;
+	}
+
+	public Map<String, Integer> getClassIdMap() {
+		return classIdMap;
+	}
+
+	public void setClassIdMap(Map<String, Integer> classIdMap) {
+		this.classIdMap = classIdMap;
+	}
+
+	public List<Integer> getCompressTypeList() {
+		return compressTypeList;
+	}
+
+	public void setCompressTypeList(List<Integer> compressTypeList) {
+		this.compressTypeList = compressTypeList;
+	}
+
+	@Override
+	public String toString() {
+		return "ConnectMetadata{" + //
+				"hash=" + Long.toHexString(hash) + //
+				", classRegisterList=" + classRegisterList + //
+				", methodRegisterMap=" + methodRegisterMap + //
+				", classIdMap=" + classIdMap + //
+				", compressTypeList=" + compressTypeList + //
+				'}';
+	}
+
+}
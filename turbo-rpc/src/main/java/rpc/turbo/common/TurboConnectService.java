@@ -20,6 +20,8 @@ public interface TurboConnectService {
 	public static final int SERVICE_METHOD_REGISTER = 2;
 	public static final int SERVICE_REST_REGISTER = 3;
 	public static final int SERVICE_CLASS_ID_REGISTER = 4;
+	public static final int SERVICE_COMPRESS_REGISTER = 5;
+	public static final int SERVICE_CONNECT_METADATA = 6;
 
 	/**
 	 * 固定死顺序，保证serviceId为预设值
@@ -29,7 +31,9 @@ public interface TurboConnectService {
 			"getClassRegisterList", SERVICE_CLASS_REGISTER, //
 			"getMethodRegisterMap", SERVICE_METHOD_REGISTER, //
 			"getRestRegisterList", SERVICE_REST_REGISTER, //
-			"getClassIdMap", SERVICE_CLASS_ID_REGISTER);
+			"getClassIdMap", SERVICE_CLASS_ID_REGISTER, //
+			"getCompressTypeList", SERVICE_COMPRESS_REGISTER, //
+			"getConnectMetadata", SERVICE_CONNECT_METADATA);
 
 	/**
 	 * 心跳，true is ok
@@ -73,4 +77,28 @@ public interface TurboConnectService {
 	@TurboService(version = "1.0.0", rest = "/class-id/list")
 	CompletableFuture<Map<String, Integer>> getClassIdMap();
 
+	/**
+	 * 获取服务端支持的压缩类型，按优先级排序，空表示不支持压缩，<br>
+	 * 客户端选定后在每个连接上发送一个空的压缩 frame 通知服务端，之后双方超过阈值的数据都会压缩
+	 * 
+	 * @return {@link rpc.turbo.protocol.CompressType}
+	 */
+	@TurboService(version = "1.0.0", rest = "/compress/list")
+	default CompletableFuture<List<Integer>> getCompressTypeList() {
+		return CompletableFuture.completedFuture(List.of());
+	}
+
+	/**
+	 * 一次获取 classRegisterList、methodRegisterMap、classIdMap、compressTypeList，<br>
+	 * 内置服务在交换 classId 之前调用，返回值不会分配 classId
+	 * 
+	 * @param knownHash
+	 *            客户端已知的 {@link ConnectMetadata#getHash()}，相同时只返回hash，没有时为0
+	 * @return
+	 */
+	@TurboService(version = "1.0.0", rest = "/connect/metadata")
+	default CompletableFuture<ConnectMetadata> getConnectMetadata(long knownHash) {
+		return CompletableFuture.completedFuture(null);
+	}
+
 }
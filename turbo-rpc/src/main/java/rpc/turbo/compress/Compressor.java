@@ -0,0 +1,56 @@
+package rpc.turbo.compress;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * 压缩器，有状态，非线程安全，每个连接独享一个实例
+ * 
+ * @author Hank
+ *
+ */
+public abstract class Compressor implements Closeable {
+
+	/**
+	 * 压缩类型
+	 * 
+	 * @return {@link rpc.turbo.protocol.CompressType}
+	 */
+	public abstract byte type();
+
+	/**
+	 * 压缩后的最大长度
+	 * 
+	 * @param length
+	 *            原始长度
+	 * @return
+	 */
+	public abstract int maxCompressedLength(int length);
+
+	/**
+	 * 压缩 src 中全部可读的数据，写入到 dst 中
+	 * 
+	 * @param src
+	 * @param dst
+	 * @throws IOException
+	 */
+	public abstract void compress(ByteBuf src, ByteBuf dst) throws IOException;
+
+	/**
+	 * 解压 src 中全部可读的数据，写入到 dst 中
+	 * 
+	 * @param src
+	 * @param dst
+	 * @param rawLength
+	 *            原始长度
+	 * @throws IOException
+	 */
+	public abstract void decompress(ByteBuf src, ByteBuf dst, int rawLength) throws IOException;
+
+	@Override
+	public void close() {
+	}
+
+}
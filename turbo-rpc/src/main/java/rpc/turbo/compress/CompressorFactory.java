@@ -0,0 +1,141 @@
+package rpc.turbo.compress;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import rpc.turbo.protocol.CompressType;
+
+/**
+ * 压缩器工厂方法
+ * 
+ * @author Hank
+ *
+ */
+public final class CompressorFactory {
+	private static final Log logger = LogFactory.getLog(CompressorFactory.class);
+
+	private static final boolean LZ4_SUPPORTED;
+
+	static {
+		boolean lz4Supported;
+
+		try {
+			Class.forName("net.jpountz.lz4.LZ4Factory");
+			lz4Supported = true;
+		} catch (Throwable t) {
+			lz4Supported = false;
+		}
+
+		LZ4_SUPPORTED = lz4Supported;
+	}
+
+	private CompressorFactory() {
+	}
+
+	/**
+	 * 当前运行时是否支持该压缩类型
+	 * 
+	 * @param type
+	 *            {@link CompressType}
+	 * @return
+	 */
+	public static boolean isSupported(byte type) {
+		switch (type) {
+		case CompressType.LZ4:
+			return LZ4_SUPPORTED;
+		case CompressType.SNAPPY:
+		case CompressType.GZIP:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * 创建一个 Compressor
+	 * 
+	 * @param type
+	 *            {@link CompressType}
+	 * @return
+	 */
+	public static Compressor createCompressor(byte type) {
+		if (!isSupported(type)) {
+			throw new IllegalArgumentException("not support this compress type: " + type);
+		}
+
+		switch (type) {
+		case CompressType.LZ4:
+			return new Lz4Compressor();
+		case CompressType.SNAPPY:
+			return new SnappyCompressor();
+		default:
+			return new GzipCompressor();
+		}
+	}
+
+	/**
+	 * 压缩类型
+	 * 
+	 * @param name
+	 *            LZ4, SNAPPY, GZIP
+	 * @return {@link CompressType}
+	 */
+	public static byte parse(String name) {
+		switch (name.trim().toUpperCase()) {
+		case "NO":
+			return CompressType.NO;
+		case "LZ4":
+			return CompressType.LZ4;
+		case "SNAPPY":
+			return CompressType.SNAPPY;
+		case "GZIP":
+			return CompressType.GZIP;
+		default:
+			throw new IllegalArgumentException("unknown compress type: " + name);
+		}
+	}
+
+	/**
+	 * 解析配置中的压缩类型列表，保留顺序，忽略当前运行时不支持的
+	 * 
+	 * @param names
+	 *            LZ4, SNAPPY, GZIP
+	 * @return {@link CompressType}
+	 */
+	public static byte[] parse(List<String> names) {
+		if (names == null || names.isEmpty()) {
+			return new byte[0];
+		}
+
+		List<Byte> types = new ArrayList<>(names.size());
+
+		for (String name : names) {
+			byte type = parse(name);
+
+			if (type == CompressType.NO || types.contains(type)) {
+				continue;
+			}
+
+			if (!isSupported(type)) {
+				if (logger.isWarnEnabled()) {
+					logger.warn("compress type " + name + " is not supported, lz4 requires lz4-java, ignored");
+				}
+
+				continue;
+			}
+
+			types.add(type);
+		}
+
+		byte[] array = new byte[types.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = types.get(i);
+		}
+
+		return array;
+	}
+
+}
@@ -0,0 +1,103 @@
+package rpc.turbo.compress;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import rpc.turbo.protocol.CompressType;
+
+/**
+ * 使用 jdk 自带的 deflate 实现，只有 zlib 头，不带 gzip 文件头<br>
+ * 压缩率最高，速度最慢，适合带宽非常紧张的场景
+ * 
+ * @author Hank
+ *
+ */
+final class GzipCompressor extends Compressor {
+	private static final int BUFFER_SIZE = 8 * 1024;
+
+	private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+	private final Inflater inflater = new Inflater();
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+
+	@Override
+	public byte type() {
+		return CompressType.GZIP;
+	}
+
+	@Override
+	public int maxCompressedLength(int length) {
+		// zlib compressBound
+		return length + (length >>> 12) + (length >>> 14) + (length >>> 25) + 13 + 6;
+	}
+
+	@Override
+	public void compress(ByteBuf src, ByteBuf dst) throws IOException {
+		int length = src.readableBytes();
+
+		if (src.hasArray()) {
+			deflater.setInput(src.array(), src.arrayOffset() + src.readerIndex(), length);
+		} else {
+			deflater.setInput(ByteBufUtil.getBytes(src, src.readerIndex(), length, false));
+		}
+
+		deflater.finish();
+
+		try {
+			while (!deflater.finished()) {
+				int count = deflater.deflate(buffer);
+				dst.writeBytes(buffer, 0, count);
+			}
+		} finally {
+			deflater.reset();
+		}
+
+		src.skipBytes(length);
+	}
+
+	@Override
+	public void decompress(ByteBuf src, ByteBuf dst, int rawLength) throws IOException {
+		int length = src.readableBytes();
+
+		if (src.hasArray()) {
+			inflater.setInput(src.array(), src.arrayOffset() + src.readerIndex(), length);
+		} else {
+			inflater.setInput(ByteBufUtil.getBytes(src, src.readerIndex(), length, false));
+		}
+
+		int remaining = rawLength;
+
+		try {
+			while (remaining > 0 && !inflater.finished()) {
+				int count = inflater.inflate(buffer, 0, Math.min(buffer.length, remaining));
+
+				if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+
+				dst.writeBytes(buffer, 0, count);
+				remaining -= count;
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("gzip decompress error", e);
+		} finally {
+			inflater.reset();
+		}
+
+		if (remaining != 0) {
+			throw new IOException("gzip decompress error, raw length: " + rawLength + ", remaining: " + remaining);
+		}
+
+		src.skipBytes(length);
+	}
+
+	@Override
+	public void close() {
+		deflater.end();
+		inflater.end();
+	}
+
+}
@@ -0,0 +1,72 @@
+package rpc.turbo.compress;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import io.netty.buffer.ByteBuf;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import rpc.turbo.protocol.CompressType;
+
+/**
+ * lz4 block 格式，需要 lz4-java
+ * 
+ * @author Hank
+ *
+ */
+final class Lz4Compressor extends Compressor {
+
+	private static final LZ4Factory factory = LZ4Factory.fastestInstance();
+
+	private final LZ4Compressor compressor = factory.fastCompressor();
+	private final LZ4FastDecompressor decompressor = factory.fastDecompressor();
+
+	@Override
+	public byte type() {
+		return CompressType.LZ4;
+	}
+
+	@Override
+	public int maxCompressedLength(int length) {
+		return compressor.maxCompressedLength(length);
+	}
+
+	@Override
+	public void compress(ByteBuf src, ByteBuf dst) throws IOException {
+		int length = src.readableBytes();
+		dst.ensureWritable(maxCompressedLength(length));
+
+		ByteBuffer in = src.nioBuffer(src.readerIndex(), length);
+		ByteBuffer out = dst.nioBuffer(dst.writerIndex(), dst.writableBytes());
+
+		int compressedLength = compressor.compress(in, in.position(), length, out, out.position(), out.remaining());
+
+		src.skipBytes(length);
+		dst.writerIndex(dst.writerIndex() + compressedLength);
+	}
+
+	@Override
+	public void decompress(ByteBuf src, ByteBuf dst, int rawLength) throws IOException {
+		int length = src.readableBytes();
+		dst.ensureWritable(rawLength);
+
+		ByteBuffer in = src.nioBuffer(src.readerIndex(), length);
+		ByteBuffer out = dst.nioBuffer(dst.writerIndex(), rawLength);
+
+		int readLength;
+		try {
+			readLength = decompressor.decompress(in, in.position(), out, out.position(), rawLength);
+		} catch (Exception e) {
+			throw new IOException("lz4 decompress error", e);
+		}
+
+		if (readLength != length) {
+			throw new IOException("lz4 decompress error, compressed length: " + length + ", read: " + readLength);
+		}
+
+		src.skipBytes(length);
+		dst.writerIndex(dst.writerIndex() + rawLength);
+	}
+
+}
@@ -0,0 +1,70 @@
+package rpc.turbo.compress;
+
+import java.io.IOException;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.compression.Snappy;
+import rpc.turbo.protocol.CompressType;
+
+/**
+ * 使用 netty 自带的纯 java snappy 实现，无需额外依赖<br>
+ * 其编码的 offset 最大只支持 2 个字节，所以按 32k 分块压缩，格式为: [int 块长度][snappy 块]...
+ * 
+ * @author Hank
+ *
+ */
+final class SnappyCompressor extends Compressor {
+	private static final int MAX_CHUNK_LENGTH = Short.MAX_VALUE;
+
+	private final Snappy snappy = new Snappy();
+
+	@Override
+	public byte type() {
+		return CompressType.SNAPPY;
+	}
+
+	@Override
+	public int maxCompressedLength(int length) {
+		int chunks = (length + MAX_CHUNK_LENGTH - 1) / MAX_CHUNK_LENGTH;
+		return length + length / 6 + chunks * (32 + 4);
+	}
+
+	@Override
+	public void compress(ByteBuf src, ByteBuf dst) throws IOException {
+		while (src.isReadable()) {
+			int chunkLength = Math.min(MAX_CHUNK_LENGTH, src.readableBytes());
+
+			int lengthIndex = dst.writerIndex();
+			dst.writeInt(0);
+
+			// netty 的实现要求 readerIndex 从 0 开始
+			snappy.encode(src.readSlice(chunkLength), dst, chunkLength);
+			snappy.reset();
+
+			dst.setInt(lengthIndex, dst.writerIndex() - lengthIndex - 4);
+		}
+	}
+
+	@Override
+	public void decompress(ByteBuf src, ByteBuf dst, int rawLength) throws IOException {
+		int start = dst.writerIndex();
+		dst.ensureWritable(rawLength);
+
+		try {
+			while (src.isReadable()) {
+				int chunkLength = src.readInt();
+				snappy.decode(src.readSlice(chunkLength), dst);
+				snappy.reset();
+			}
+		} catch (Exception e) {
+			snappy.reset();
+			throw new IOException("snappy decompress error", e);
+		}
+
+		if (dst.writerIndex() - start != rawLength) {
+			throw new IOException("snappy decompress error, raw length: " + rawLength + ", actual: "
+					+ (dst.writerIndex() - start));
+		}
+	}
+
+}
@@ -0,0 +1,49 @@
+package rpc.turbo.config;
+
+import rpc.turbo.annotation.TurboService;
+
+/**
+ * 客户端批量请求配置，同一个方法的调用攒够 maxSize 个或者等待超过 window 时合并为一个请求发送
+ * 
+ * @author Hank
+ *
+ */
+public final class BatchConfig {
+	/** 一个批量请求最多包含多少个调用 */
+	public final int maxSize;
+	/** 第一个调用最多等待多久，microseconds */
+	public final long window;
+
+	/**
+	 * 
+	 * @param maxSize
+	 *            一个批量请求最多包含多少个调用，大于1
+	 * @param window
+	 *            第一个调用最多等待多久，microseconds，大于0
+	 */
+	public BatchConfig(int maxSize, long window) {
+		if (maxSize < 2) {
+			throw new IllegalArgumentException("maxSize must > 1, " + maxSize);
+		}
+
+		if (window < 1) {
+			throw new IllegalArgumentException("window must > 0, " + window);
+		}
+
+		this.maxSize = maxSize;
+		this.window = window;
+	}
+
+	public BatchConfig(int maxSize) {
+		this(maxSize, TurboService.DEFAULT_BATCH_WINDOW);
+	}
+
+	@Override
+	public String toString() {
+		return "BatchConfig{" + //
+				"maxSize=" + maxSize + //
+				", window=" + window + //
+				'}';
+	}
+
+}
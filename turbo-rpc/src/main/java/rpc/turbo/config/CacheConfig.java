@@ -0,0 +1,49 @@
+package rpc.turbo.config;
+
+import rpc.turbo.annotation.TurboService;
+
+/**
+ * 客户端缓存配置，以全部参数为key缓存返回值，写入 ttl 后过期，超过容量时按 W-TinyLFU 淘汰
+ * 
+ * @author Hank
+ *
+ */
+public final class CacheConfig {
+	/** 写入后多久过期，millseconds */
+	public final long ttl;
+	/** 最多缓存多少个返回值 */
+	public final int maximumSize;
+
+	/**
+	 * 
+	 * @param ttl
+	 *            写入后多久过期，millseconds，大于0
+	 * @param maximumSize
+	 *            最多缓存多少个返回值，大于0
+	 */
+	public CacheConfig(long ttl, int maximumSize) {
+		if (ttl < 1) {
+			throw new IllegalArgumentException("ttl must > 0, " + ttl);
+		}
+
+		if (maximumSize < 1) {
+			throw new IllegalArgumentException("maximumSize must > 0, " + maximumSize);
+		}
+
+		this.ttl = ttl;
+		this.maximumSize = maximumSize;
+	}
+
+	public CacheConfig(long ttl) {
+		this(ttl, TurboService.DEFAULT_CACHE_SIZE);
+	}
+
+	@Override
+	public String toString() {
+		return "CacheConfig{" + //
+				"ttl=" + ttl + //
+				", maximumSize=" + maximumSize + //
+				'}';
+	}
+
+}
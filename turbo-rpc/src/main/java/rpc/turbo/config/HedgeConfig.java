@@ -0,0 +1,49 @@
+package rpc.turbo.config;
+
+import rpc.turbo.annotation.TurboService;
+
+/**
+ * 对冲请求配置，主请求超过 delay 还没有返回时向另一个服务端再发一次，先返回的为准
+ * 
+ * @author Hank
+ *
+ */
+public final class HedgeConfig {
+	/** 对冲延迟，millseconds，0表示使用该方法观测到的p95 */
+	public final long delay;
+	/** 对冲请求最多占正常请求的百分比 */
+	public final int budgetPercent;
+
+	/**
+	 * 
+	 * @param delay
+	 *            对冲延迟，millseconds，0表示使用该方法观测到的p95
+	 * @param budgetPercent
+	 *            对冲请求最多占正常请求的百分比，1 ~ 100
+	 */
+	public HedgeConfig(long delay, int budgetPercent) {
+		if (delay < 0) {
+			throw new IllegalArgumentException("delay must >= 0, " + delay);
+		}
+
+		if (budgetPercent < 1 || budgetPercent > 100) {
+			throw new IllegalArgumentException("budgetPercent must in [1, 100], " + budgetPercent);
+		}
+
+		this.delay = delay;
+		this.budgetPercent = budgetPercent;
+	}
+
+	public HedgeConfig(long delay) {
+		this(delay, TurboService.DEFAULT_HEDGE_BUDGET);
+	}
+
+	@Override
+	public String toString() {
+		return "HedgeConfig{" + //
+				"delay=" + delay + //
+				", budgetPercent=" + budgetPercent + //
+				'}';
+	}
+
+}
@@ -22,6 +22,20 @@ public class MethodConfig {
 	public final boolean ignore;
 	/** rest路径 */
 	public final String rest;
+	/** 请求优先级 */
+	public final Priority priority;
+	/** 按一致性哈希路由的参数位置，-1表示不按参数路由 */
+	public final int hashKeyIndex;
+	/** 对冲请求配置，null表示不启用 */
+	public final HedgeConfig hedge;
+	/** 重试配置，null表示不重试 */
+	public final RetryConfig retry;
+	/** 客户端缓存配置，null表示不缓存 */
+	public final CacheConfig cache;
+	/** 是否合并参数相同的在途请求 */
+	public final boolean coalesce;
+	/** 批量请求配置，null表示不合并 */
+	public final BatchConfig batch;
 
 	/**
 	 * @param method
@@ -34,14 +48,69 @@ public class MethodConfig {
 		this.timeout = timeout(method);
 		this.ignore = ignore(method);
 		this.rest = rest(method);
+		this.priority = InvokerUtils.getPriority(method);
+		this.hashKeyIndex = InvokerUtils.getHashKeyIndex(method);
+		this.hedge = InvokerUtils.getHedgeConfig(method);
+		this.retry = InvokerUtils.getRetryConfig(method);
+		this.cache = InvokerUtils.getCacheConfig(method);
+		this.coalesce = InvokerUtils.isCoalesce(method);
+		this.batch = InvokerUtils.getBatchConfig(method);
 	}
 
 	public MethodConfig(Method method, String version, long timeout, boolean ignore, String rest) {
+		this(method, version, timeout, ignore, rest, InvokerUtils.getPriority(method));
+	}
+
+	public MethodConfig(Method method, String version, long timeout, boolean ignore, String rest,
+			Priority priority) {
+		this(method, version, timeout, ignore, rest, priority, InvokerUtils.getHashKeyIndex(method));
+	}
+
+	public MethodConfig(Method method, String version, long timeout, boolean ignore, String rest,
+			Priority priority, int hashKeyIndex) {
+		this(method, version, timeout, ignore, rest, priority, hashKeyIndex, InvokerUtils.getHedgeConfig(method));
+	}
+
+	public MethodConfig(Method method, String version, long timeout, boolean ignore, String rest,
+			Priority priority, int hashKeyIndex, HedgeConfig hedge) {
+		this(method, version, timeout, ignore, rest, priority, hashKeyIndex, hedge,
+				InvokerUtils.getRetryConfig(method));
+	}
+
+	public MethodConfig(Method method, String version, long timeout, boolean ignore, String rest,
+			Priority priority, int hashKeyIndex, HedgeConfig hedge, RetryConfig retry) {
+		this(method, version, timeout, ignore, rest, priority, hashKeyIndex, hedge, retry,
+				InvokerUtils.getCacheConfig(method));
+	}
+
+	public MethodConfig(Method method, String version, long timeout, boolean ignore, String rest,
+			Priority priority, int hashKeyIndex, HedgeConfig hedge, RetryConfig retry, CacheConfig cache) {
+		this(method, version, timeout, ignore, rest, priority, hashKeyIndex, hedge, retry, cache,
+				InvokerUtils.isCoalesce(method));
+	}
+
+	public MethodConfig(Method method, String version, long timeout, boolean ignore, String rest,
+			Priority priority, int hashKeyIndex, HedgeConfig hedge, RetryConfig retry, CacheConfig cache,
+			boolean coalesce) {
+		this(method, version, timeout, ignore, rest, priority, hashKeyIndex, hedge, retry, cache, coalesce,
+				InvokerUtils.getBatchConfig(method));
+	}
+
+	public MethodConfig(Method method, String version, long timeout, boolean ignore, String rest,
+			Priority priority, int hashKeyIndex, HedgeConfig hedge, RetryConfig retry, CacheConfig cache,
+			boolean coalesce, BatchConfig batch) {
 		this.method = method;
 		this.version = version;
 		this.timeout = timeout;
 		this.ignore = ignore;
 		this.rest = rest;
+		this.priority = priority;
+		this.hashKeyIndex = hashKeyIndex;
+		this.hedge = hedge;
+		this.retry = retry;
+		this.cache = cache;
+		this.coalesce = coalesce;
+		this.batch = batch;
 	}
 
 	private String version(Method method) {
@@ -115,6 +184,13 @@ public class MethodConfig {
 				", timeout=" + timeout + //
 				", ignore=" + ignore + //
 				", rest='" + rest + '\'' + //
+				", priority=" + priority + //
+				", hashKeyIndex=" + hashKeyIndex + //
+				", hedge=" + hedge + //
+				", retry=" + retry + //
+				", cache=" + cache + //
+				", coalesce=" + coalesce + //
+				", batch=" + batch + //
 				'}';
 	}
 }
@@ -0,0 +1,58 @@
+package rpc.turbo.config;
+
+/**
+ * 请求优先级，服务端、客户端通用<br>
+ * 客户端每个连接的每个优先级有独立的发送队列，总是先发送高优先级的请求，<br>
+ * 服务端在线程池中排队时也总是先执行高优先级的请求
+ * 
+ * @author Hank
+ *
+ */
+public enum Priority {
+	/** 未设置，使用上一级的配置，最后为 NORMAL */
+	DEFAULT(1),
+
+	/** 延迟敏感的调用 */
+	HIGH(0),
+
+	/** 普通调用 */
+	NORMAL(1),
+
+	/** 批量任务等不在乎延迟的调用 */
+	LOW(2);
+
+	/** 优先级通道数量 */
+	public static final int LANES = 3;
+
+	private final int lane;
+
+	private Priority(int lane) {
+		this.lane = lane;
+	}
+
+	/**
+	 * 所在的通道，越小优先级越高，DEFAULT 与 NORMAL 相同
+	 * 
+	 * @return 0 ~ LANES-1
+	 */
+	public int lane() {
+		return lane;
+	}
+
+	/**
+	 * 通道对应的优先级
+	 * 
+	 * @param lane
+	 * @return
+	 */
+	public static Priority ofLane(int lane) {
+		switch (lane) {
+		case 0:
+			return HIGH;
+		case 2:
+			return LOW;
+		default:
+			return NORMAL;
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package rpc.turbo.config;
+
+import rpc.turbo.annotation.TurboService;
+
+/**
+ * 重试配置，请求失败后换一个服务端重试，重试前随机退避
+ * 
+ * @author Hank
+ *
+ */
+public final class RetryConfig {
+	/** 最大重试次数 */
+	public final int maxRetries;
+	/** 退避时间基数，millseconds */
+	public final long backoff;
+
+	/**
+	 * 
+	 * @param maxRetries
+	 *            最大重试次数，大于0
+	 * @param backoff
+	 *            退避时间基数，millseconds，第n次重试前随机等待 0 ~ backoff * 2^(n-1)
+	 */
+	public RetryConfig(int maxRetries, long backoff) {
+		if (maxRetries < 1) {
+			throw new IllegalArgumentException("maxRetries must > 0, " + maxRetries);
+		}
+
+		if (backoff < 0) {
+			throw new IllegalArgumentException("backoff must >= 0, " + backoff);
+		}
+
+		this.maxRetries = maxRetries;
+		this.backoff = backoff;
+	}
+
+	public RetryConfig(int maxRetries) {
+		this(maxRetries, TurboService.DEFAULT_RETRY_BACKOFF);
+	}
+
+	@Override
+	public String toString() {
+		return "RetryConfig{" + //
+				"maxRetries=" + maxRetries + //
+				", backoff=" + backoff + //
+				'}';
+	}
+
+}
@@ -12,8 +12,72 @@ public class TurboConstants {
 	public static final int MAX_FRAME_LENGTH = 1024 * 1024 * 2;
 
 	/**
-	 * 请求过期扫描间隔，毫秒
+	 * 压缩 frame 的标记，设置在长度字段的最高位
 	 */
-	public static final long EXPIRE_PERIOD = 100;
+	public static final int COMPRESS_FLAG = 0x80000000;
+
+	/**
+	 * 批量 frame 的标记，设置在长度字段的次高位:<br>
+	 * [int 长度|BATCH_FLAG][int requestId][int 数量][多个完整的 request/response frame]
+	 */
+	public static final int BATCH_FLAG = 0x40000000;
+
+	/**
+	 * 压缩 frame 头长度: [长度|标记][压缩类型][原始长度]
+	 */
+	public static final int COMPRESS_HEADER_LENGTH = HEADER_FIELD_LENGTH + 1 + 4;
+
+	/**
+	 * 请求过期检查间隔，同时也是过期时间轮的刻度，毫秒
+	 */
+	public static final long EXPIRE_PERIOD = 10;
+
+	/**
+	 * 流式调用的 credit 控制请求使用的 serviceId，requestId 为对应的流式请求，<br>
+	 * 参数为 {@link rpc.turbo.param.StreamCreditParam}，服务端不会对其响应
+	 */
+	public static final int STREAM_CREDIT_SERVICE_ID = -1;
+
+	/**
+	 * 批量请求使用的 serviceId，仅在内存中使用，不会出现在序列化后的 frame 中
+	 * 
+	 * @see rpc.turbo.protocol.BatchRequest
+	 */
+	public static final int BATCH_SERVICE_ID = -2;
+
+	/**
+	 * 流式调用默认的 credit 窗口大小，即客户端最多缓存的元素数量
+	 */
+	public static final int DEFAULT_STREAM_WINDOW = 64;
+
+	/**
+	 * 重试请求默认最多占正常请求的百分比
+	 */
+	public static final int DEFAULT_RETRY_BUDGET = 10;
+
+	/**
+	 * 每个服务器默认的最大在途请求数
+	 */
+	public static final int DEFAULT_MAX_REQUEST_WAIT = 10000;
+
+	/**
+	 * 每个服务器默认的等待在途请求名额的最大请求数
+	 */
+	public static final int DEFAULT_MAX_REQUEST_QUEUE = 10000;
+
+	/**
+	 * 自适应在途请求上限的默认初始值
+	 */
+	public static final int DEFAULT_INITIAL_CONCURRENCY = 100;
+
+	/**
+	 * 建立连接默认的超时时间，millseconds
+	 */
+	public static final int DEFAULT_CONNECT_TIMEOUT = 3000;
+
+	/**
+	 * 默认同时建立连接的服务器数量
+	 */
+	public static final int DEFAULT_CONNECT_CONCURRENCY = 64;
 
 }
@@ -1,6 +1,8 @@
 package rpc.turbo.config.client;
 
+import static rpc.turbo.config.ConfigUtils.getBooleanOrElse;
 import static rpc.turbo.config.ConfigUtils.getIntOrElse;
+import static rpc.turbo.config.ConfigUtils.getStringListOrElse;
 import static rpc.turbo.config.ConfigUtils.getStringOrElse;
 
 import java.lang.reflect.InvocationTargetException;
@@ -12,6 +14,7 @@ import com.typesafe.config.Config;
 import rpc.turbo.annotation.TurboService;
 import rpc.turbo.config.ConfigException;
 import rpc.turbo.config.HostPort;
+import rpc.turbo.config.TurboConstants;
 import rpc.turbo.discover.DirectConnectDiscover;
 import rpc.turbo.discover.Discover;
 import rpc.turbo.loadbalance.LoadBalanceFactory;
@@ -25,9 +28,23 @@ public class AppConfig {
 	private String serializer = "rpc.turbo.serialization.protostuff.ProtostuffSerializer";
 	private int globalTimeout = 0;
 	private int maxRequestWait = 0;
+	private int maxRequestQueue = TurboConstants.DEFAULT_MAX_REQUEST_QUEUE;
+	private boolean adaptiveConcurrency = false;
+	private int minConcurrency = 8;
 	private int connectPerServer = 1;
+	private int connectTimeout = TurboConstants.DEFAULT_CONNECT_TIMEOUT;
+	private int connectConcurrency = TurboConstants.DEFAULT_CONNECT_CONCURRENCY;
 	private int serverErrorThreshold = 16;
 	private int connectErrorThreshold = 2 * serverErrorThreshold / connectPerServer;
+	private int flushLatencyBudget = 0;
+	private boolean virtualThreadCallback = false;
+	private List<String> compressTypes = List.of();
+	private int compressThreshold = 4096;
+	private int streamWindow = TurboConstants.DEFAULT_STREAM_WINDOW;
+	private int retryBudget = TurboConstants.DEFAULT_RETRY_BUDGET;
+	private String metadataSnapshot = null;
+	private CircuitBreakerConfig circuitBreaker = new CircuitBreakerConfig();
+	private SlowStartConfig slowStart = new SlowStartConfig();
 	private LoadBalanceFactory<Weightable> loadBalanceFactory = new RoundRobinLoadBalanceFactory<>();
 	private Discover discover;
 
@@ -71,6 +88,45 @@ public class AppConfig {
 		this.maxRequestWait = maxRequestWait;
 	}
 
+	/**
+	 * 在途请求达到上限时，每个服务器最多排队等待的请求数量，超过后直接失败
+	 * 
+	 * @return
+	 */
+	public int getMaxRequestQueue() {
+		return maxRequestQueue;
+	}
+
+	public void setMaxRequestQueue(int maxRequestQueue) {
+		this.maxRequestQueue = maxRequestQueue;
+	}
+
+	/**
+	 * 是否根据rtt自动调整每个服务器的在途请求上限，maxRequestWait为上限的最大值
+	 * 
+	 * @return
+	 */
+	public boolean isAdaptiveConcurrency() {
+		return adaptiveConcurrency;
+	}
+
+	public void setAdaptiveConcurrency(boolean adaptiveConcurrency) {
+		this.adaptiveConcurrency = adaptiveConcurrency;
+	}
+
+	/**
+	 * 自适应时在途请求上限的最小值
+	 * 
+	 * @return
+	 */
+	public int getMinConcurrency() {
+		return minConcurrency;
+	}
+
+	public void setMinConcurrency(int minConcurrency) {
+		this.minConcurrency = minConcurrency;
+	}
+
 	public int getConnectPerServer() {
 		return connectPerServer;
 	}
@@ -79,6 +135,32 @@ public class AppConfig {
 		this.connectPerServer = connectPerServer;
 	}
 
+	/**
+	 * 建立一个连接的超时时间，millseconds
+	 * 
+	 * @return
+	 */
+	public int getConnectTimeout() {
+		return connectTimeout;
+	}
+
+	public void setConnectTimeout(int connectTimeout) {
+		this.connectTimeout = connectTimeout;
+	}
+
+	/**
+	 * 最多同时建立连接(包括获取元数据)的服务器数量，服务器很多时防止瞬间发起大量连接
+	 * 
+	 * @return
+	 */
+	public int getConnectConcurrency() {
+		return connectConcurrency;
+	}
+
+	public void setConnectConcurrency(int connectConcurrency) {
+		this.connectConcurrency = connectConcurrency;
+	}
+
 	public int getServerErrorThreshold() {
 		return serverErrorThreshold;
 	}
@@ -95,6 +177,126 @@ public class AppConfig {
 		this.connectErrorThreshold = connectErrorThreshold;
 	}
 
+	/**
+	 * 自适应批量发送的延迟预算，微秒，小于1时不开启
+	 * 
+	 * @return
+	 */
+	public int getFlushLatencyBudget() {
+		return flushLatencyBudget;
+	}
+
+	public void setFlushLatencyBudget(int flushLatencyBudget) {
+		this.flushLatencyBudget = flushLatencyBudget;
+	}
+
+	/**
+	 * 是否在虚拟线程中完成返回给调用方的future，<br>
+	 * 开启后回调中可以放心的join其它远程调用，阻塞的是虚拟线程而不是IO线程，运行时不支持虚拟线程时不生效
+	 * 
+	 * @return
+	 */
+	public boolean isVirtualThreadCallback() {
+		return virtualThreadCallback;
+	}
+
+	public void setVirtualThreadCallback(boolean virtualThreadCallback) {
+		this.virtualThreadCallback = virtualThreadCallback;
+	}
+
+	/**
+	 * 支持的压缩类型，按优先级排序: LZ4, SNAPPY, GZIP，为空时不压缩，<br>
+	 * 建立连接时选择第一个服务端也支持的类型，LZ4 需要 lz4-java
+	 * 
+	 * @return
+	 */
+	public List<String> getCompressTypes() {
+		return compressTypes;
+	}
+
+	public void setCompressTypes(List<String> compressTypes) {
+		this.compressTypes = compressTypes;
+	}
+
+	/**
+	 * 压缩阈值，字节，超过该大小的数据才会压缩
+	 * 
+	 * @return
+	 */
+	public int getCompressThreshold() {
+		return compressThreshold;
+	}
+
+	public void setCompressThreshold(int compressThreshold) {
+		this.compressThreshold = compressThreshold;
+	}
+
+	/**
+	 * 流式调用的 credit 窗口，即每个流式调用客户端最多缓存的元素数量
+	 * 
+	 * @return
+	 */
+	public int getStreamWindow() {
+		return streamWindow;
+	}
+
+	public void setStreamWindow(int streamWindow) {
+		this.streamWindow = streamWindow;
+	}
+
+	/**
+	 * 重试请求最多占正常请求的百分比，整个App共用，0 ~ 100，为0时不重试
+	 * 
+	 * @return
+	 */
+	public int getRetryBudget() {
+		return retryBudget;
+	}
+
+	public void setRetryBudget(int retryBudget) {
+		this.retryBudget = retryBudget;
+	}
+
+	/**
+	 * 保存服务端元数据快照的目录，null表示不保存<br>
+	 * 启动时直接使用快照中的元数据，之后再向服务端校验，快照过期时校验完成前的请求可能调用到错误的方法
+	 * 
+	 * @return
+	 */
+	public String getMetadataSnapshot() {
+		return metadataSnapshot;
+	}
+
+	public void setMetadataSnapshot(String metadataSnapshot) {
+		this.metadataSnapshot = metadataSnapshot;
+	}
+
+	/**
+	 * 每个服务器的熔断配置
+	 * 
+	 * @return
+	 */
+	public CircuitBreakerConfig getCircuitBreaker() {
+		return circuitBreaker;
+	}
+
+	public void setCircuitBreaker(CircuitBreakerConfig circuitBreaker) {
+		this.circuitBreaker = circuitBreaker;
+	}
+
+	/**
+	 * 新加入、恢复的服务器的预热配置
+	 * 
+	 * @return
+	 */
+	public SlowStartConfig getSlowStart() {
+		return slowStart;
+	}
+
+	public void setSlowStart(SlowStartConfig slowStart) {
+		this.slowStart = slowStart;
+	}
+
 	public LoadBalanceFactory<Weightable> getLoadBalanceFactory() {
 		return loadBalanceFactory;
 	}
@@ -118,9 +320,23 @@ public class AppConfig {
 				", app='" + app + '\'' + //
 				", globalTimeout=" + globalTimeout + //
 				", maxRequestWait=" + maxRequestWait + //
+				", maxRequestQueue=" + maxRequestQueue + //
+				", adaptiveConcurrency=" + adaptiveConcurrency + //
+				", minConcurrency=" + minConcurrency + //
 				", connectPerServer=" + connectPerServer + //
+				", connectTimeout=" + connectTimeout + //
+				", connectConcurrency=" + connectConcurrency + //
 				", serverErrorThreshold=" + serverErrorThreshold + //
 				", connectErrorThreshold=" + connectErrorThreshold + //
+				", flushLatencyBudget=" + flushLatencyBudget + //
+				", virtualThreadCallback=" + virtualThreadCallback + //
+				", compressTypes=" + compressTypes + //
+				", compressThreshold=" + compressThreshold + //
+				", streamWindow=" + streamWindow + //
+				", retryBudget=" + retryBudget + //
+				", metadataSnapshot=" + metadataSnapshot + //
+				", circuitBreaker=" + circuitBreaker + //
+				", slowStart=" + slowStart + //
 				", loadBalanceFactory=" + loadBalanceFactory.getClass().getName() + //
 				", discover=" + discover.getClass().getName() + //
 				'}';
@@ -154,11 +370,26 @@ public class AppConfig {
 		String group = getStringOrElse(config, "group", TurboService.DEFAULT_GROUP);
 		String app = getStringOrElse(config, "app", TurboService.DEFAULT_GROUP);
 		int globalTimeout = getIntOrElse(config, "globalTimeout", 0);
-		int maxRequestWait = getIntOrElse(config, "maxRequestWait", 10000);
+		int maxRequestWait = getIntOrElse(config, "maxRequestWait", TurboConstants.DEFAULT_MAX_REQUEST_WAIT);
+		int maxRequestQueue = getIntOrElse(config, "maxRequestQueue", TurboConstants.DEFAULT_MAX_REQUEST_QUEUE);
+		boolean adaptiveConcurrency = getBooleanOrElse(config, "adaptiveConcurrency", false);
+		int minConcurrency = getIntOrElse(config, "minConcurrency", 8);
 		int connectPerServer = getIntOrElse(config, "connectPerServer", 1);
+		int connectTimeout = getIntOrElse(config, "connect.timeout", TurboConstants.DEFAULT_CONNECT_TIMEOUT);
+		int connectConcurrency = getIntOrElse(config, "connect.concurrency",
+				TurboConstants.DEFAULT_CONNECT_CONCURRENCY);
 		int serverErrorThreshold = getIntOrElse(config, "serverErrorThreshold", 16);
 		int connectErrorThreshold = getIntOrElse(config, "connectErrorThreshold",
 				2 * serverErrorThreshold / connectPerServer);
+		int flushLatencyBudget = getIntOrElse(config, "flushLatencyBudget", 0);
+		boolean virtualThreadCallback = getBooleanOrElse(config, "virtualThreadCallback", false);
+		List<String> compressTypes = getStringListOrElse(config, "compress.types", List.of());
+		int compressThreshold = getIntOrElse(config, "compress.threshold", 4096);
+		int streamWindow = getIntOrElse(config, "stream.window", TurboConstants.DEFAULT_STREAM_WINDOW);
+		int retryBudget = getIntOrElse(config, "retry.budget", TurboConstants.DEFAULT_RETRY_BUDGET);
+		String metadataSnapshot = getStringOrElse(config, "metadata.snapshot", null);
+		CircuitBreakerConfig circuitBreaker = CircuitBreakerConfig.parse(config);
+		SlowStartConfig slowStart = SlowStartConfig.parse(config);
 
 		String serializerClass = config.getString("serializer.class");
 
@@ -191,9 +422,23 @@ public class AppConfig {
 		appConfig.setSerializer(serializerClass);
 		appConfig.setGlobalTimeout(globalTimeout);
 		appConfig.setMaxRequestWait(maxRequestWait);
+		appConfig.setMaxRequestQueue(maxRequestQueue);
+		appConfig.setAdaptiveConcurrency(adaptiveConcurrency);
+		appConfig.setMinConcurrency(minConcurrency);
 		appConfig.setConnectPerServer(connectPerServer);
+		appConfig.setConnectTimeout(connectTimeout);
+		appConfig.setConnectConcurrency(connectConcurrency);
 		appConfig.setServerErrorThreshold(serverErrorThreshold);
 		appConfig.setConnectErrorThreshold(connectErrorThreshold);
+		appConfig.setFlushLatencyBudget(flushLatencyBudget);
+		appConfig.setVirtualThreadCallback(virtualThreadCallback);
+		appConfig.setCompressTypes(compressTypes);
+		appConfig.setCompressThreshold(compressThreshold);
+		appConfig.setStreamWindow(streamWindow);
+		appConfig.setRetryBudget(retryBudget);
+		appConfig.setMetadataSnapshot(metadataSnapshot);
+		appConfig.setCircuitBreaker(circuitBreaker);
+		appConfig.setSlowStart(slowStart);
 		appConfig.setLoadBalanceFactory(loadBalanceFactory);
 		appConfig.setDiscover(discover);
 
@@ -0,0 +1,157 @@
+package rpc.turbo.config.client;
+
+import static rpc.turbo.config.ConfigUtils.getIntOrElse;
+
+import com.typesafe.config.Config;
+
+/**
+ * 熔断配置，每个服务器一个熔断器<br>
+ * 滑动窗口内失败率或慢调用率超过阈值、或连续失败达到 serverErrorThreshold 时打开，<br>
+ * 打开 openDuration 后进入半开状态，放行 halfOpenCalls 个探测请求，都成功则关闭，有失败则重新打开
+ *
+ * @author Hank
+ *
+ */
+public class CircuitBreakerConfig {
+	/** 滑动窗口长度，millseconds */
+	private int window = 10000;
+	/** 窗口内至少多少个请求才计算失败率 */
+	private int minimumCalls = 20;
+	/** 失败率阈值，百分比，大于100时不按失败率熔断 */
+	private int failureRate = 50;
+	/** 慢调用阈值，millseconds，小于1时不统计慢调用 */
+	private int slowCallDuration = 0;
+	/** 慢调用率阈值，百分比 */
+	private int slowCallRate = 100;
+	/** 打开状态持续时间，millseconds */
+	private int openDuration = 5000;
+	/** 半开状态放行的探测请求数量 */
+	private int halfOpenCalls = 3;
+
+	/**
+	 * 滑动窗口长度，millseconds
+	 *
+	 * @return
+	 */
+	public int getWindow() {
+		return window;
+	}
+
+	public void setWindow(int window) {
+		this.window = window;
+	}
+
+	/**
+	 * 窗口内至少多少个请求才计算失败率、慢调用率
+	 *
+	 * @return
+	 */
+	public int getMinimumCalls() {
+		return minimumCalls;
+	}
+
+	public void setMinimumCalls(int minimumCalls) {
+		this.minimumCalls = minimumCalls;
+	}
+
+	/**
+	 * 失败率阈值，百分比，大于100时不按失败率熔断
+	 *
+	 * @return
+	 */
+	public int getFailureRate() {
+		return failureRate;
+	}
+
+	public void setFailureRate(int failureRate) {
+		this.failureRate = failureRate;
+	}
+
+	/**
+	 * 慢调用阈值，millseconds，小于1时不统计慢调用
+	 *
+	 * @return
+	 */
+	public int getSlowCallDuration() {
+		return slowCallDuration;
+	}
+
+	public void setSlowCallDuration(int slowCallDuration) {
+		this.slowCallDuration = slowCallDuration;
+	}
+
+	/**
+	 * 慢调用率阈值，百分比
+	 *
+	 * @return
+	 */
+	public int getSlowCallRate() {
+		return slowCallRate;
+	}
+
+	public void setSlowCallRate(int slowCallRate) {
+		this.slowCallRate = slowCallRate;
+	}
+
+	/**
+	 * 打开状态持续时间，之后进入半开状态，millseconds
+	 *
+	 * @return
+	 */
+	public int getOpenDuration() {
+		return openDuration;
+	}
+
+	public void setOpenDuration(int openDuration) {
+		this.openDuration = openDuration;
+	}
+
+	/**
+	 * 半开状态放行的探测请求数量
+	 *
+	 * @return
+	 */
+	public int getHalfOpenCalls() {
+		return halfOpenCalls;
+	}
+
+	public void setHalfOpenCalls(int halfOpenCalls) {
+		this.halfOpenCalls = halfOpenCalls;
+	}
+
+	@Override
+	public String toString() {
+		return "CircuitBreakerConfig{" + //
+				"window=" + window + //
+				", minimumCalls=" + minimumCalls + //
+				", failureRate=" + failureRate + //
+				", slowCallDuration=" + slowCallDuration + //
+				", slowCallRate=" + slowCallRate + //
+				", openDuration=" + openDuration + //
+				", halfOpenCalls=" + halfOpenCalls + //
+				'}';
+	}
+
+	static CircuitBreakerConfig parse(Config config) {
+		CircuitBreakerConfig circuitBreakerConfig = new CircuitBreakerConfig();
+
+		if (!config.hasPath("circuitBreaker")) {
+			return circuitBreakerConfig;
+		}
+
+		config = config.getConfig("circuitBreaker");
+
+		circuitBreakerConfig.setWindow(getIntOrElse(config, "window", circuitBreakerConfig.window));
+		circuitBreakerConfig.setMinimumCalls(getIntOrElse(config, "minimumCalls", circuitBreakerConfig.minimumCalls));
+		circuitBreakerConfig.setFailureRate(getIntOrElse(config, "failureRate", circuitBreakerConfig.failureRate));
+		circuitBreakerConfig
+				.setSlowCallDuration(getIntOrElse(config, "slowCallDuration", circuitBreakerConfig.slowCallDuration));
+		circuitBreakerConfig.setSlowCallRate(getIntOrElse(config, "slowCallRate", circuitBreakerConfig.slowCallRate));
+		circuitBreakerConfig.setOpenDuration(getIntOrElse(config, "openDuration", circuitBreakerConfig.openDuration));
+		circuitBreakerConfig
+				.setHalfOpenCalls(getIntOrElse(config, "halfOpenCalls", circuitBreakerConfig.halfOpenCalls));
+
+		return circuitBreakerConfig;
+	}
+
+}
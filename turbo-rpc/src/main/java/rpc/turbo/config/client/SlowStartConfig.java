@@ -0,0 +1,87 @@
+package rpc.turbo.config.client;
+
+import static rpc.turbo.config.ConfigUtils.getBooleanOrElse;
+import static rpc.turbo.config.ConfigUtils.getIntOrElse;
+
+import com.typesafe.config.Config;
+
+/**
+ * 预热(slow start)配置，运行中新加入或者从僵尸状态恢复的服务器，<br>
+ * 实际权重在 window 内从 minWeight% 逐渐增大到配置的权重，防止刚启动的服务器被打满
+ *
+ * @author Hank
+ *
+ */
+public class SlowStartConfig {
+	/** 预热时长，millseconds，小于1时不预热 */
+	private int window = 0;
+	/** 预热开始时的权重比例，百分比 */
+	private int minWeight = 10;
+	/** 是否按指数增长，否则线性增长 */
+	private boolean exponential = false;
+
+	/**
+	 * 预热时长，millseconds，小于1时不预热
+	 *
+	 * @return
+	 */
+	public int getWindow() {
+		return window;
+	}
+
+	public void setWindow(int window) {
+		this.window = window;
+	}
+
+	/**
+	 * 预热开始时的权重比例，百分比，1~100
+	 *
+	 * @return
+	 */
+	public int getMinWeight() {
+		return minWeight;
+	}
+
+	public void setMinWeight(int minWeight) {
+		this.minWeight = minWeight;
+	}
+
+	/**
+	 * 是否按指数增长，开始时增长慢，接近结束时增长快，否则线性增长
+	 *
+	 * @return
+	 */
+	public boolean isExponential() {
+		return exponential;
+	}
+
+	public void setExponential(boolean exponential) {
+		this.exponential = exponential;
+	}
+
+	@Override
+	public String toString() {
+		return "SlowStartConfig{" + //
+				"window=" + window + //
+				", minWeight=" + minWeight + //
+				", exponential=" + exponential + //
+				'}';
+	}
+
+	static SlowStartConfig parse(Config config) {
+		SlowStartConfig slowStartConfig = new SlowStartConfig();
+
+		if (!config.hasPath("slowStart")) {
+			return slowStartConfig;
+		}
+
+		config = config.getConfig("slowStart");
+
+		slowStartConfig.setWindow(getIntOrElse(config, "window", slowStartConfig.window));
+		slowStartConfig.setMinWeight(getIntOrElse(config, "minWeight", slowStartConfig.minWeight));
+		slowStartConfig.setExponential(getBooleanOrElse(config, "exponential", slowStartConfig.exponential));
+
+		return slowStartConfig;
+	}
+
+}
@@ -0,0 +1,24 @@
+package rpc.turbo.config.server;
+
+/**
+ * 服务端业务方法执行方式
+ * 
+ * @author Hank
+ *
+ */
+public enum ExecutorMode {
+	/** 未设置，使用上一级的配置 */
+	DEFAULT,
+
+	/** 直接在 IO 线程中执行，仅适用于不会阻塞的实现 */
+	IO,
+
+	/** 在所有服务共享的有界线程池中执行 */
+	SHARED,
+
+	/** 在独立的有界线程池中执行，设置在接口上时整个接口共用一个，设置在方法上时该方法独用一个 */
+	DEDICATED,
+
+	/** 每个请求一个虚拟线程，运行时不支持虚拟线程时退化为 DEDICATED */
+	VIRTUAL
+}
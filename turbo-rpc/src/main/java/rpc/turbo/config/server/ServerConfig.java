@@ -1,5 +1,7 @@
 package rpc.turbo.config.server;
 
+import static rpc.turbo.config.ConfigUtils.getIntOrElse;
+import static rpc.turbo.config.ConfigUtils.getStringListOrElse;
 import static rpc.turbo.config.ConfigUtils.getStringOrElse;
 
 import java.util.HashMap;
@@ -25,6 +27,11 @@ public class ServerConfig {
 	private String serializer = "rpc.turbo.serialization.protostuff.ProtostuffSerializer";
 	private JsonMapper jsonMapper = new JacksonMapper();
 	private List<RegisterConfig> registers;
+	private ExecutorMode executorMode = ExecutorMode.IO;
+	private int executorThreads = Runtime.getRuntime().availableProcessors() * 4;
+	private int executorQueueSize = 1024;
+	private List<String> compressTypes = List.of();
+	private int compressThreshold = 4096;
 
 	public ServerConfig() {
 	}
@@ -90,6 +97,71 @@ public class ServerConfig {
 		this.registers = registers;
 	}
 
+	/**
+	 * 默认的服务端执行方式，可以被 {@link TurboService#executor()} 覆盖
+	 * 
+	 * @return
+	 */
+	public ExecutorMode getExecutorMode() {
+		return executorMode;
+	}
+
+	public void setExecutorMode(ExecutorMode executorMode) {
+		this.executorMode = executorMode;
+	}
+
+	/**
+	 * 共享线程池的线程数量，也是独立线程池的默认线程数量
+	 * 
+	 * @return
+	 */
+	public int getExecutorThreads() {
+		return executorThreads;
+	}
+
+	public void setExecutorThreads(int executorThreads) {
+		this.executorThreads = executorThreads;
+	}
+
+	/**
+	 * 线程池的默认排队上限，虚拟线程时为默认的最大并发数量
+	 * 
+	 * @return
+	 */
+	public int getExecutorQueueSize() {
+		return executorQueueSize;
+	}
+
+	public void setExecutorQueueSize(int executorQueueSize) {
+		this.executorQueueSize = executorQueueSize;
+	}
+
+	/**
+	 * 支持的压缩类型，按优先级排序: LZ4, SNAPPY, GZIP，为空时不压缩，LZ4 需要 lz4-java
+	 * 
+	 * @return
+	 */
+	public List<String> getCompressTypes() {
+		return compressTypes;
+	}
+
+	public void setCompressTypes(List<String> compressTypes) {
+		this.compressTypes = compressTypes;
+	}
+
+	/**
+	 * 压缩阈值，字节，超过该大小的数据才会压缩
+	 * 
+	 * @return
+	 */
+	public int getCompressThreshold() {
+		return compressThreshold;
+	}
+
+	public void setCompressThreshold(int compressThreshold) {
+		this.compressThreshold = compressThreshold;
+	}
+
 	@Override
 	public String toString() {
 		return "ServerConfig{" + //
@@ -100,6 +172,11 @@ public class ServerConfig {
 				", serializer='" + serializer.getClass().getName() + '\'' + //
 				", jsonMapper='" + jsonMapper.getClass().getName() + '\'' + //
 				", registers=" + registers + //
+				", executorMode=" + executorMode + //
+				", executorThreads=" + executorThreads + //
+				", executorQueueSize=" + executorQueueSize + //
+				", compressTypes=" + compressTypes + //
+				", compressThreshold=" + compressThreshold + //
 				'}';
 	}
 
@@ -129,6 +206,20 @@ public class ServerConfig {
 			throw new ConfigException(t);
 		}
 
+		ExecutorMode executorMode;
+		try {
+			executorMode = ExecutorMode.valueOf(getStringOrElse(config, "executor.mode", "IO").toUpperCase());
+		} catch (Throwable t) {
+			throw new ConfigException(t);
+		}
+
+		int executorThreads = getIntOrElse(config, "executor.threads",
+				Runtime.getRuntime().availableProcessors() * 4);
+		int executorQueueSize = getIntOrElse(config, "executor.queueSize", 1024);
+
+		List<String> compressTypes = getStringListOrElse(config, "compress.types", List.of());
+		int compressThreshold = getIntOrElse(config, "compress.threshold", 4096);
+
 		List<? extends Config> registerConfigList = config.getConfigList("registers");
 
 		List<RegisterConfig> registers = registerConfigList//
@@ -168,6 +259,11 @@ public class ServerConfig {
 		serverConfig.setSerializer(serializerClass);
 		serverConfig.setJsonMapper(jsonMapper);
 		serverConfig.setRegisters(registers);
+		serverConfig.setExecutorMode(executorMode);
+		serverConfig.setExecutorThreads(executorThreads);
+		serverConfig.setExecutorQueueSize(executorQueueSize);
+		serverConfig.setCompressTypes(compressTypes);
+		serverConfig.setCompressThreshold(compressThreshold);
 
 		return serverConfig;
 	}
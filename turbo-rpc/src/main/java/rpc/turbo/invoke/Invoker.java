@@ -2,6 +2,7 @@ package rpc.turbo.invoke;
 
 import java.lang.reflect.Method;
 
+import rpc.turbo.config.Priority;
 import rpc.turbo.param.MethodParam;
 
 public interface Invoker<T> {
@@ -64,4 +65,22 @@ public interface Invoker<T> {
 		return false;
 	}
 
+	/**
+	 * 是否为流式方法
+	 * 
+	 * @see InvokerUtils#isStreamMethod(Method)
+	 */
+	default public boolean isStream() {
+		return false;
+	}
+
+	/**
+	 * 请求优先级
+	 * 
+	 * @see InvokerUtils#getPriority(Method)
+	 */
+	default public Priority getPriority() {
+		return Priority.NORMAL;
+	}
+
 }
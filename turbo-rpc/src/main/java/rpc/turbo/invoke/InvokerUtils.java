@@ -1,12 +1,22 @@
 package rpc.turbo.invoke;
 
+import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.concurrent.Flow;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import com.google.common.base.Strings;
 
+import rpc.turbo.annotation.TurboHashKey;
 import rpc.turbo.annotation.TurboService;
+import rpc.turbo.config.BatchConfig;
+import rpc.turbo.config.CacheConfig;
+import rpc.turbo.config.HedgeConfig;
+import rpc.turbo.config.Priority;
+import rpc.turbo.config.RetryConfig;
 
 public interface InvokerUtils {
 
@@ -167,6 +177,197 @@ public interface InvokerUtils {
 		return restPath + "?v=" + version;
 	}
 
+	/**
+	 * 请求优先级，method有则用method的，method没有则使用class的，都没有则为NORMAL
+	 * 
+	 * @param method
+	 *            不能为空
+	 * 
+	 * @return 不会返回 DEFAULT
+	 */
+	public static Priority getPriority(Method method) {
+		TurboService config = method.getAnnotation(TurboService.class);
+
+		if (config != null && config.priority() != Priority.DEFAULT) {
+			return config.priority();
+		}
+
+		config = method.getDeclaringClass().getAnnotation(TurboService.class);
+
+		if (config != null && config.priority() != Priority.DEFAULT) {
+			return config.priority();
+		}
+
+		return Priority.NORMAL;
+	}
+
+	/**
+	 * 对冲请求配置，method有则用method的，method没有则使用class的
+	 * 
+	 * @param method
+	 *            不能为空
+	 * 
+	 * @return 不启用时返回null
+	 */
+	public static HedgeConfig getHedgeConfig(Method method) {
+		TurboService config = method.getAnnotation(TurboService.class);
+
+		if (config == null || config.hedgeDelay() == TurboService.DEFAULT_HEDGE_DELAY) {
+			config = method.getDeclaringClass().getAnnotation(TurboService.class);
+		}
+
+		if (config == null || config.hedgeDelay() < 0) {
+			return null;
+		}
+
+		return new HedgeConfig(config.hedgeDelay(), config.hedgeBudget());
+	}
+
+	/**
+	 * 重试配置，method有则用method的，method没有则使用class的
+	 * 
+	 * @param method
+	 *            不能为空
+	 * 
+	 * @return 不重试时返回null
+	 */
+	public static RetryConfig getRetryConfig(Method method) {
+		TurboService config = method.getAnnotation(TurboService.class);
+
+		if (config == null || config.retries() < 0) {
+			config = method.getDeclaringClass().getAnnotation(TurboService.class);
+		}
+
+		if (config == null || config.retries() < 1) {
+			return null;
+		}
+
+		return new RetryConfig(config.retries(), config.retryBackoff());
+	}
+
+	/**
+	 * 客户端缓存配置，method有则用method的，method没有则使用class的
+	 * 
+	 * @param method
+	 *            不能为空
+	 * 
+	 * @return 不缓存时返回null
+	 */
+	public static CacheConfig getCacheConfig(Method method) {
+		TurboService config = method.getAnnotation(TurboService.class);
+
+		if (config == null || config.cacheTtl() == TurboService.DEFAULT_CACHE_TTL) {
+			config = method.getDeclaringClass().getAnnotation(TurboService.class);
+		}
+
+		if (config == null || config.cacheTtl() < 1) {
+			return null;
+		}
+
+		return new CacheConfig(config.cacheTtl(), config.cacheSize());
+	}
+
+	/**
+	 * 是否合并参数相同的在途请求，method、class任意一个为true则启用
+	 * 
+	 * @param method
+	 *            不能为空
+	 * 
+	 * @return
+	 */
+	public static boolean isCoalesce(Method method) {
+		TurboService config = method.getAnnotation(TurboService.class);
+
+		if (config != null && config.coalesce()) {
+			return true;
+		}
+
+		config = method.getDeclaringClass().getAnnotation(TurboService.class);
+
+		return config != null && config.coalesce();
+	}
+
+	/**
+	 * 批量请求配置，method有则用method的，method没有则使用class的
+	 * 
+	 * @param method
+	 *            不能为空
+	 * 
+	 * @return 不启用时返回null
+	 */
+	public static BatchConfig getBatchConfig(Method method) {
+		TurboService config = method.getAnnotation(TurboService.class);
+
+		if (config == null || config.batchSize() == TurboService.DEFAULT_BATCH_SIZE) {
+			config = method.getDeclaringClass().getAnnotation(TurboService.class);
+		}
+
+		if (config == null || config.batchSize() < 2) {
+			return null;
+		}
+
+		return new BatchConfig(config.batchSize(), Math.max(1L, config.batchWindow()));
+	}
+
+	/**
+	 * 标记了 {@link TurboHashKey} 的参数位置
+	 * 
+	 * @param method
+	 *            不能为空
+	 * 
+	 * @return 没有时返回-1
+	 */
+	public static int getHashKeyIndex(Method method) {
+		Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+		Class<?>[] parameterTypes = method.getParameterTypes();
+		int index = -1;
+
+		for (int i = 0; i < parameterAnnotations.length; i++) {
+			for (Annotation annotation : parameterAnnotations[i]) {
+				if (!(annotation instanceof TurboHashKey)) {
+					continue;
+				}
+
+				if (index >= 0) {
+					throw new RuntimeException("only one parameter can be annotated with @TurboHashKey, " + method);
+				}
+
+				Class<?> type = parameterTypes[i];
+				if (type == float.class || type == double.class || type == boolean.class) {
+					throw new RuntimeException("@TurboHashKey not support the type " + type + ", " + method);
+				}
+
+				index = i;
+			}
+		}
+
+		return index;
+	}
+
+	/**
+	 * 是否为流式方法，即返回值为 CompletableFuture&lt;Flow.Publisher&lt;T&gt;&gt;
+	 * 
+	 * @param method
+	 *            不能为空
+	 * 
+	 * @return
+	 */
+	public static boolean isStreamMethod(Method method) {
+		Type returnType = method.getGenericReturnType();
+
+		if (!(returnType instanceof ParameterizedType)) {
+			return false;
+		}
+
+		Type resultType = ((ParameterizedType) returnType).getActualTypeArguments()[0];
+
+		if (resultType instanceof ParameterizedType) {
+			resultType = ((ParameterizedType) resultType).getRawType();
+		}
+
+		return Flow.Publisher.class.equals(resultType);
+	}
+
 	public static Class<?> toClass(String serviceClassName) {
 		try {
 			return Class.forName(serviceClassName.split("#")[2]);
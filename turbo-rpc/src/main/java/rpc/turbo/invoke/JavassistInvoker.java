@@ -18,6 +18,7 @@ import javassist.CtField;
 import javassist.CtMethod;
 import javassist.CtNewMethod;
 import javassist.Modifier;
+import rpc.turbo.config.Priority;
 import rpc.turbo.param.EmptyMethodParam;
 import rpc.turbo.param.MethodParam;
 import rpc.turbo.param.MethodParamClassFactory;
@@ -47,6 +48,8 @@ public class JavassistInvoker<T> implements Invoker<T> {
 	private final Invoker<T> realInvoker;
 
 	private final boolean supportHttpForm;
+	private final boolean stream;
+	private final Priority priority;
 
 	/**
 	 * 
@@ -104,6 +107,8 @@ public class JavassistInvoker<T> implements Invoker<T> {
 		}
 
 		supportHttpForm = _supportHttpForm;
+		stream = InvokerUtils.isStreamMethod(method);
+		priority = InvokerUtils.getPriority(method);
 
 		parameterNames = new String[parameterCount];
 		Parameter[] parameters = method.getParameters();
@@ -212,6 +217,16 @@ public class JavassistInvoker<T> implements Invoker<T> {
 		return supportHttpForm;
 	}
 
+	@Override
+	public boolean isStream() {
+		return stream;
+	}
+
+	@Override
+	public Priority getPriority() {
+		return priority;
+	}
+
 	private Invoker<T> generateRealInvoker() throws Exception {
 		final String invokerClassName = "rpc.turbo.invoke.generate.Invoker_"//
 				+ serviceId + "_" //
@@ -11,6 +11,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -23,8 +24,11 @@ import org.apache.commons.logging.LogFactory;
 
 import com.google.common.base.Strings;
 import com.google.common.collect.Streams;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 
 import rpc.turbo.annotation.TurboService;
+import rpc.turbo.common.ConnectMetadata;
 import rpc.turbo.common.TurboConnectService;
 import rpc.turbo.server.TurboConnectServiceServerImpl;
 import rpc.turbo.util.FastMap;
@@ -57,6 +61,10 @@ public class ServerInvokerFactory {
 	private final AtomicInteger classIdGenerator = new AtomicInteger();
 	private final ConcurrentMap<String, Integer> classIdMap = new ConcurrentHashMap<>();
 
+	private volatile List<Integer> compressTypeList = List.of();
+	/** 注册服务、修改压缩类型时清空，下次获取时重新生成 */
+	private volatile ConnectMetadata connectMetadata;
+
 	public ServerInvokerFactory(String group, String app) {
 		this.group = group;
 		this.app = app;
@@ -153,6 +161,8 @@ public class ServerInvokerFactory {
 
 		invokerMap.addAll(invokers);
 		putRestInvoker(invokers);
+
+		connectMetadata = null;
 	}
 
 	// copy on write
@@ -257,9 +267,11 @@ public class ServerInvokerFactory {
 			});
 		}
 
-		// 注册classId
-		for (Method method : allMethods) {
-			registerClassId(method);
+		// 注册classId，内置服务在交换classId之前调用，不能使用classId
+		if (!TurboConnectService.class.equals(clazz)) {
+			for (Method method : allMethods) {
+				registerClassId(method);
+			}
 		}
 
 		Stream<JavassistInvoker<T>> invokerStream = methodStream//
@@ -312,6 +324,89 @@ public class ServerInvokerFactory {
 		return classIdMap;
 	}
 
+	/**
+	 * 获取支持的压缩类型，按优先级排序
+	 * 
+	 * @return {@link rpc.turbo.protocol.CompressType}
+	 */
+	public List<Integer> getCompressTypeList() {
+		return compressTypeList;
+	}
+
+	/**
+	 * 设置支持的压缩类型
+	 * 
+	 * @param compressTypes
+	 *            {@link rpc.turbo.protocol.CompressType}，按优先级排序
+	 */
+	public void setCompressTypes(byte[] compressTypes) {
+		List<Integer> list = new ArrayList<>(compressTypes.length);
+
+		for (int i = 0; i < compressTypes.length; i++) {
+			list.add((int) compressTypes[i]);
+		}
+
+		compressTypeList = list;
+		connectMetadata = null;
+	}
+
+	/**
+	 * 获取建立连接时需要的全部元数据
+	 * 
+	 * @return
+	 */
+	public ConnectMetadata getConnectMetadata() {
+		ConnectMetadata metadata = connectMetadata;
+
+		if (metadata != null) {
+			return metadata;
+		}
+
+		synchronized (this) {
+			metadata = connectMetadata;
+
+			if (metadata == null) {
+				metadata = createConnectMetadata();
+				connectMetadata = metadata;
+			}
+
+			return metadata;
+		}
+	}
+
+	private ConnectMetadata createConnectMetadata() {
+		List<String> classRegisterList = getClassRegisterList();
+		Map<String, Integer> methodRegisterMap = getMethodRegisterMap();
+		Map<String, Integer> classIdMap = new HashMap<>(getClassIdMap());
+		List<Integer> compressTypeList = getCompressTypeList();
+
+		// 按固定顺序计算，相同的服务端不同的实例hash相同
+		Hasher hasher = Hashing.murmur3_128().newHasher();
+
+		classRegisterList.stream().sorted().forEach(clazz -> hasher.putUnencodedChars(clazz).putByte((byte) 0));
+		hasher.putByte((byte) 1);
+
+		new TreeMap<>(methodRegisterMap).forEach((method, serviceId) -> {
+			hasher.putUnencodedChars(method).putInt(serviceId);
+		});
+		hasher.putByte((byte) 2);
+
+		new TreeMap<>(classIdMap).forEach((className, classId) -> {
+			hasher.putUnencodedChars(className).putInt(classId);
+		});
+		hasher.putByte((byte) 3);
+
+		compressTypeList.forEach(hasher::putInt);
+
+		long hash = hasher.hash().asLong();
+
+		if (hash == 0L) {// 0 表示客户端没有已知的hash
+			hash = 1L;
+		}
+
+		return new ConnectMetadata(hash, classRegisterList, methodRegisterMap, classIdMap, compressTypeList);
+	}
+
 	/**
 	 * 获取已注册的rest服务列表
 	 * 
@@ -0,0 +1,57 @@
+package rpc.turbo.loadbalance;
+
+/**
+ * 计算路由用的哈希值，结果在不同进程中保持一致，整数与其包装类型结果相同
+ * 
+ * @author Hank
+ *
+ */
+public final class HashKeys {
+
+	private HashKeys() {
+	}
+
+	/**
+	 * murmur3 的 fmix64
+	 * 
+	 * @param key
+	 * @return
+	 */
+	public static long hash(long key) {
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+
+		return key;
+	}
+
+	/**
+	 * 
+	 * @param key
+	 *            整数、String、枚举，或者 hashCode 在不同进程中保持一致的类型
+	 * @return
+	 */
+	public static long hash(Object key) {
+		if (key == null) {
+			return 0L;
+		}
+
+		if (key instanceof Long || key instanceof Integer //
+				|| key instanceof Short || key instanceof Byte) {
+			return hash(((Number) key).longValue());
+		}
+
+		if (key instanceof Character) {
+			return hash((long) (Character) key);
+		}
+
+		if (key instanceof Enum) {// Enum.hashCode 在不同进程中不一致
+			return hash(((Enum<?>) key).name().hashCode());
+		}
+
+		return hash(key.hashCode());
+	}
+
+}
@@ -0,0 +1,20 @@
+package rpc.turbo.loadbalance;
+
+/**
+ * 除在途请求数外还能提供响应延迟的 Loadable，供 {@link PeakEwmaLoadBalance} 使用
+ * 
+ * @author Hank
+ *
+ */
+public interface LatencyLoadable extends Loadable {
+
+	/**
+	 * 响应延迟的 peak EWMA，单位纳秒，没有观测值时返回0，<br>
+	 * 会被频繁调用，实现必须足够廉价
+	 * 
+	 * @return
+	 * 
+	 * @see PeakEwma
+	 */
+	double latencyEwma();
+}
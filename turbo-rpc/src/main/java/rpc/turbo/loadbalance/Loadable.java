@@ -0,0 +1,17 @@
+package rpc.turbo.loadbalance;
+
+/**
+ * 能够提供实时负载的 Weightable，供按负载选择的 LoadBalance 使用
+ * 
+ * @author Hank
+ *
+ */
+public interface Loadable extends Weightable {
+
+	/**
+	 * 在途请求数量，会被频繁调用，实现必须足够廉价
+	 * 
+	 * @return
+	 */
+	int inFlight();
+}
@@ -0,0 +1,174 @@
+package rpc.turbo.loadbalance;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * 带有界负载的 Maglev 一致性哈希表，不可变，线程安全<br>
+ * 每个节点按自己的名字生成槽位的排列，按权重轮流占位，节点变化时只有少量槽位改变归属，<br>
+ * 选出的节点是 {@link Loadable} 且在途请求数超过 平均值 * loadFactor 时，顺序查找下一个槽位
+ * 
+ * @author Hank
+ *
+ * @param <T>
+ *            必须为Weightable子类，是Loadable子类时才有负载上限
+ */
+public final class MaglevTable<T extends Weightable> {
+	/** 素数，节点数量不超过160时，每个节点都有100个以上的槽位 */
+	public static final int TABLE_SIZE = 16381;
+	/** 负载上限为平均值的倍数 */
+	public static final double DEFAULT_LOAD_FACTOR = 1.25D;
+
+	private static final HashFunction OFFSET_HASH = Hashing.murmur3_128(0);
+	private static final HashFunction SKIP_HASH = Hashing.murmur3_128(1);
+
+	private final Object[] nodes;
+	private final int[] weights;
+	private final int weightSum;
+	private final double loadFactor;
+	private final int[] table;
+
+	/**
+	 * 
+	 * @param weightables
+	 *            权重小于1的会被忽略
+	 * @param nameFunction
+	 *            节点名称，决定节点在表中的位置，与顺序无关
+	 * @param loadFactor
+	 *            负载上限为平均值的倍数，必须大于1
+	 */
+	public MaglevTable(List<T> weightables, Function<T, String> nameFunction, double loadFactor) {
+		if (loadFactor <= 1D) {
+			throw new IllegalArgumentException("loadFactor must > 1, " + loadFactor);
+		}
+
+		this.loadFactor = loadFactor;
+
+		List<T> list = new ArrayList<>(weightables.size());
+		for (T t : weightables) {
+			if (t != null && t.weight() > 0) {
+				list.add(t);
+			}
+		}
+
+		list.sort(Comparator.comparing(nameFunction));
+
+		int size = list.size();
+		this.nodes = list.toArray();
+		this.weights = new int[size];
+
+		int sum = 0;
+		int maxWeight = 0;
+		for (int i = 0; i < size; i++) {
+			weights[i] = list.get(i).weight();
+			sum += weights[i];
+			maxWeight = Math.max(maxWeight, weights[i]);
+		}
+
+		this.weightSum = sum;
+		this.table = new int[size == 0 ? 0 : TABLE_SIZE];
+
+		if (size == 0) {
+			return;
+		}
+
+		int[] offsets = new int[size];
+		int[] skips = new int[size];
+		int[] nexts = new int[size];
+		double[] credits = new double[size];
+
+		for (int i = 0; i < size; i++) {
+			String name = nameFunction.apply(list.get(i));
+			offsets[i] = (int) Long.remainderUnsigned(OFFSET_HASH.hashString(name, StandardCharsets.UTF_8).asLong(),
+					TABLE_SIZE);
+			skips[i] = (int) Long.remainderUnsigned(SKIP_HASH.hashString(name, StandardCharsets.UTF_8).asLong(),
+					TABLE_SIZE - 1) + 1;
+		}
+
+		for (int i = 0; i < TABLE_SIZE; i++) {
+			table[i] = -1;
+		}
+
+		int filled = 0;
+		while (filled < TABLE_SIZE) {
+			for (int i = 0; i < size && filled < TABLE_SIZE; i++) {
+				credits[i] += (double) weights[i] / maxWeight;
+
+				if (credits[i] < 1D) {
+					continue;
+				}
+
+				credits[i] -= 1D;
+
+				int slot;
+				do {
+					slot = (int) ((offsets[i] + (long) nexts[i] * skips[i]) % TABLE_SIZE);
+					nexts[i]++;
+				} while (table[slot] >= 0);
+
+				table[slot] = i;
+				filled++;
+			}
+		}
+	}
+
+	/**
+	 * 节点数量
+	 * 
+	 * @return
+	 */
+	public int size() {
+		return nodes.length;
+	}
+
+	/**
+	 * 
+	 * @param hash
+	 *            使用 {@link HashKeys} 计算
+	 * @return 没有节点时返回null
+	 */
+	@SuppressWarnings("unchecked")
+	public T select(long hash) {
+		if (nodes.length == 0) {
+			return null;
+		}
+
+		int slot = (int) Long.remainderUnsigned(hash, TABLE_SIZE);
+		T node = (T) nodes[table[slot]];
+
+		if (nodes.length == 1 || !(node instanceof Loadable)) {
+			return node;
+		}
+
+		int inFlight = ((Loadable) node).inFlight();
+		if (inFlight == 0) {// 绝大多数情况
+			return node;
+		}
+
+		long total = 1;// 算上本次请求
+		for (int i = 0; i < nodes.length; i++) {
+			total += ((Loadable) nodes[i]).inFlight();
+		}
+
+		for (int i = 0; i < TABLE_SIZE; i++) {
+			int index = table[(slot + i) % TABLE_SIZE];
+			Loadable loadable = (Loadable) nodes[index];
+
+			// 按权重分配的上限
+			double limit = Math.ceil(loadFactor * total * weights[index] / weightSum);
+
+			if (loadable.inFlight() < limit) {
+				return (T) loadable;
+			}
+		}
+
+		return node;
+	}
+
+}
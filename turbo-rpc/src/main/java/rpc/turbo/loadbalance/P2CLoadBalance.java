@@ -0,0 +1,94 @@
+package rpc.turbo.loadbalance;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Power of Two Choices，按权重随机选出两个，取在途请求少的那个<br>
+ * 比较的是 在途请求数/权重，慢节点的在途请求会堆积，自然就分到更少的请求，<br>
+ * 元素不是 {@link Loadable} 时退化为 {@link RandomLoadBalance}
+ * 
+ * @author Hank
+ *
+ * @param <T>
+ *            必须为Weightable子类，最好为Loadable子类
+ */
+public class P2CLoadBalance<T extends Weightable> implements LoadBalance<T> {
+
+	protected volatile WeightableGroup<T> weightableGroup = null;
+
+	@Override
+	public void setWeightables(List<T> weightables) {
+		weightableGroup = new WeightableGroup<>(weightables);
+	}
+
+	@Override
+	public T select() {
+		final WeightableGroup<T> weightableGroup = this.weightableGroup;
+
+		if (weightableGroup == null) {
+			return null;
+		}
+
+		int sum = weightableGroup.sum();
+
+		if (sum < 1) {
+			return weightableGroup.get(0);
+		}
+
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		T first = pick(weightableGroup, random, sum);
+
+		if (!(first instanceof Loadable)) {
+			return first;
+		}
+
+		T second = pick(weightableGroup, random, sum);
+
+		if (second == first) {// 再给一次机会，权重悬殊时仍可能相同
+			second = pick(weightableGroup, random, sum);
+
+			if (second == first) {
+				return first;
+			}
+		}
+
+		if (!(second instanceof Loadable)) {
+			return first;
+		}
+
+		if (preferFirst((Loadable) first, (Loadable) second)) {
+			return first;
+		} else {
+			return second;
+		}
+	}
+
+	/**
+	 * 按权重随机选出一个候选，预热中的按预热比例接受
+	 */
+	private T pick(WeightableGroup<T> weightableGroup, ThreadLocalRandom random, int sum) {
+		T selected = weightableGroup.get(random.nextInt(sum + 1));
+
+		for (int i = 1; i < Warmable.MAX_WARMUP_SELECT_TIMES && !Warmable.accept(selected); i++) {
+			selected = weightableGroup.get(random.nextInt(sum + 1));
+		}
+
+		return selected;
+	}
+
+	/**
+	 * 两个候选中是否选择第一个，负载相同时选择第一个
+	 * 
+	 * @param a
+	 *            第一个候选
+	 * @param b
+	 *            第二个候选
+	 * @return
+	 */
+	protected boolean preferFirst(Loadable a, Loadable b) {
+		// a.inFlight / a.weight <= b.inFlight / b.weight
+		return (long) a.inFlight() * b.weight() <= (long) b.inFlight() * a.weight();
+	}
+
+}
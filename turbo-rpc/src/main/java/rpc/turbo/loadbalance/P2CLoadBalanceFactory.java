@@ -0,0 +1,10 @@
+package rpc.turbo.loadbalance;
+
+public class P2CLoadBalanceFactory<T extends Weightable> implements LoadBalanceFactory<T> {
+
+	@Override
+	public LoadBalance<T> newLoadBalance() {
+		return new P2CLoadBalance<>();
+	}
+
+}
@@ -0,0 +1,89 @@
+package rpc.turbo.loadbalance;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 响应延迟的 peak EWMA(exponentially weighted moving average)，线程安全<br>
+ * 观测值大于当前值时直接取观测值，否则按时间衰减的权重平滑，<br>
+ * 所以变慢能立即反映出来，恢复则需要一段时间，<br>
+ * 读取时按距上次观测的时间衰减，长时间没有请求的节点会重新获得试探的机会
+ * 
+ * @author Hank
+ *
+ */
+public final class PeakEwma {
+	public static final long DEFAULT_DECAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+	private final double decayNanos;
+
+	private volatile long stamp = System.nanoTime();
+	private volatile double cost = 0D;
+
+	public PeakEwma() {
+		this(DEFAULT_DECAY_NANOS);
+	}
+
+	/**
+	 * 
+	 * @param decayNanos
+	 *            衰减时间，旧观测值的权重每经过 decayNanos 衰减为原来的 1/e
+	 */
+	public PeakEwma(long decayNanos) {
+		if (decayNanos < 1) {
+			throw new IllegalArgumentException("decayNanos must > 0, " + decayNanos);
+		}
+
+		this.decayNanos = decayNanos;
+	}
+
+	/**
+	 * 记录一次响应延迟
+	 * 
+	 * @param latencyNanos
+	 *            纳秒
+	 */
+	public synchronized void observe(long latencyNanos) {
+		long now = System.nanoTime();
+		double weight = weight(now - stamp);
+
+		stamp = now;
+
+		if (latencyNanos > cost) {
+			cost = latencyNanos;
+		} else {
+			cost = cost * weight + latencyNanos * (1D - weight);
+		}
+	}
+
+	/**
+	 * 当前值，不加锁，与 observe 并发时可能读到相邻两次观测混合的结果
+	 * 
+	 * @return 纳秒，没有观测值时返回0
+	 */
+	public double get() {
+		double cost = this.cost;
+
+		if (cost == 0D) {
+			return 0D;
+		}
+
+		return cost * weight(System.nanoTime() - stamp);
+	}
+
+	private double weight(long elapsedNanos) {
+		if (elapsedNanos <= 0) {
+			return 1D;
+		}
+
+		return Math.exp(-elapsedNanos / decayNanos);
+	}
+
+	@Override
+	public String toString() {
+		return "PeakEwma{" + //
+				"decayNanos=" + (long) decayNanos + //
+				", cost=" + (long) get() + //
+				'}';
+	}
+
+}
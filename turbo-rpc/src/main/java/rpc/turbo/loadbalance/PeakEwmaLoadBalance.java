@@ -0,0 +1,41 @@
+package rpc.turbo.loadbalance;
+
+/**
+ * Power of Two Choices + peak EWMA，参考 Finagle 的实现<br>
+ * 得分为 延迟的peak EWMA * (在途请求数 + 1) / 权重，取得分低的那个，<br>
+ * 慢节点的延迟会立即体现在得分中，不必等错误计数触发僵尸判定，<br>
+ * 还没有延迟观测值的节点只允许一个在途请求，<br>
+ * 元素不是 {@link LatencyLoadable} 时退化为 {@link P2CLoadBalance}
+ * 
+ * @author Hank
+ *
+ * @param <T>
+ *            必须为Weightable子类，最好为LatencyLoadable子类
+ */
+public class PeakEwmaLoadBalance<T extends Weightable> extends P2CLoadBalance<T> {
+
+	/** 没有观测值但有在途请求时的得分，足够大但不会溢出 */
+	private static final double PENALTY = Double.MAX_VALUE / 2;
+
+	@Override
+	protected boolean preferFirst(Loadable a, Loadable b) {
+		if (!(a instanceof LatencyLoadable) || !(b instanceof LatencyLoadable)) {
+			return super.preferFirst(a, b);
+		}
+
+		return score((LatencyLoadable) a) <= score((LatencyLoadable) b);
+	}
+
+	private static double score(LatencyLoadable loadable) {
+		double latency = loadable.latencyEwma();
+		int inFlight = loadable.inFlight();
+		int weight = Math.max(1, loadable.weight());
+
+		if (latency == 0D && inFlight != 0) {
+			return PENALTY;
+		}
+
+		return latency * (inFlight + 1) / weight;
+	}
+
+}
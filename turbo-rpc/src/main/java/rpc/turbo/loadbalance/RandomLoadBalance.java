@@ -30,12 +30,18 @@ public class RandomLoadBalance<T extends Weightable> implements LoadBalance<T> {
 
 		int sum = weightableGroup.sum();
 
-		if (sum < 2) {
+		if (sum < 1) {
 			return weightableGroup.get(0);
 		}
 
-		int seed = ThreadLocalRandom.current().nextInt(sum + 1);
-		return weightableGroup.get(seed);
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		T selected = weightableGroup.get(random.nextInt(sum + 1));
+
+		for (int i = 1; i < Warmable.MAX_WARMUP_SELECT_TIMES && !Warmable.accept(selected); i++) {
+			selected = weightableGroup.get(random.nextInt(sum + 1));
+		}
+
+		return selected;
 	}
 
 }
@@ -32,12 +32,17 @@ public class RoundRobinLoadBalance<T extends Weightable> implements LoadBalance<
 
 		int sum = weightableGroup.sum();
 
-		if (sum < 2) {
+		if (sum < 1) {
 			return weightableGroup.get(0);
 		}
 
-		int seed = sequencer.next();
-		return weightableGroup.get(seed);
+		T selected = weightableGroup.get(sequencer.next());
+
+		for (int i = 1; i < Warmable.MAX_WARMUP_SELECT_TIMES && !Warmable.accept(selected); i++) {
+			selected = weightableGroup.get(sequencer.next());
+		}
+
+		return selected;
 	}
 
 }
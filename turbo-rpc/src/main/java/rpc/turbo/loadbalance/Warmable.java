@@ -0,0 +1,39 @@
+package rpc.turbo.loadbalance;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 可以预热(slow start)的 Weightable，新加入或者恢复的节点实际权重从一个较小的比例逐渐增大到配置的权重，<br>
+ * 负载均衡选中预热中的节点时按比例的概率接受，否则重新选择，不需要重建 {@link WeightableGroup}
+ * 
+ * @author Hank
+ *
+ */
+public interface Warmable extends Weightable {
+
+	/** 选中预热中的节点时最多重新选择的次数，之后直接使用最后选中的 */
+	public static final int MAX_WARMUP_SELECT_TIMES = 4;
+
+	/**
+	 * 实际权重占配置权重的比例，会被频繁调用，实现必须足够廉价
+	 * 
+	 * @return (0, 1]，1表示没有在预热
+	 */
+	double warmupFactor();
+
+	/**
+	 * 是否接受选中的节点，不是 Warmable 或者没有在预热时总是接受
+	 * 
+	 * @param selected
+	 * @return
+	 */
+	public static boolean accept(Weightable selected) {
+		if (!(selected instanceof Warmable)) {
+			return true;
+		}
+
+		double factor = ((Warmable) selected).warmupFactor();
+
+		return factor >= 1D || ThreadLocalRandom.current().nextDouble() < factor;
+	}
+}
@@ -47,7 +47,7 @@ public final class WeightableGroup<T extends Weightable> {
 		if (weightableList.size() == 1) {
 			this.weightables = weightableList;
 			this.weightLadder = new int[1];
-			this.weightSum = 1;
+			this.weightSum = 0;// 与2个等权重的元素(weightSum = 1)区分开
 
 			this.fastMode = true;
 
@@ -117,11 +117,11 @@ public final class WeightableGroup<T extends Weightable> {
 	 * @return
 	 */
 	public final T get(int seed) {
-		if (weightSum == 0) {
+		if (weightables.isEmpty()) {
 			return null;
 		}
 
-		if (weightSum == 1) {
+		if (weightSum == 0) {
 			return weightables.get(0);
 		}
 
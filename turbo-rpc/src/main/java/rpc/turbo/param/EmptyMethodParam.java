@@ -7,4 +7,17 @@ public final class EmptyMethodParam implements MethodParam {
 	public static final EmptyMethodParam empty() {
 		return EMPTY;
 	}
+
+	/**
+	 * 所有实例都相等，用作缓存、请求合并的key
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof EmptyMethodParam;
+	}
+
+	@Override
+	public int hashCode() {
+		return 0;
+	}
 }
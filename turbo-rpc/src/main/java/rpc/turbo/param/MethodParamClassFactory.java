@@ -51,6 +51,14 @@ public final class MethodParamClassFactory {
 	 * 		this.id = id;
 	 * 	}
 	 * 
+	 * 	public boolean equals(Object obj) {
+	 * 		// 比较全部参数
+	 * 	}
+	 * 
+	 * 	public int hashCode() {
+	 * 		// 由全部参数计算
+	 * 	}
+	 * 
 	 * 	public UserService_getUser_1_6f7c1a8cf867a945306fb82a78c0a191265b9786() {
 	 * 	}
 	 * 
@@ -152,6 +160,9 @@ public final class MethodParamClassFactory {
 			methodParamCtClass.addMethod(CtNewMethod.setter(setter, ctField));
 		}
 
+		methodParamCtClass.addMethod(CtNewMethod.make(equalsMethod(methodParamClassName, parameters), methodParamCtClass));
+		methodParamCtClass.addMethod(CtNewMethod.make(hashCodeMethod(parameters), methodParamCtClass));
+
 		// 添加无参的构造函数
 		CtConstructor constructor0 = new CtConstructor(null, methodParamCtClass);
 		constructor0.setModifiers(Modifier.PUBLIC);
@@ -189,4 +200,92 @@ public final class MethodParamClassFactory {
 		return (Class<? extends MethodParam>) methodParamCtClass.toClass();
 	}
 
+	/**
+	 * 比较全部参数，数组比较内容，用作客户端缓存的key
+	 */
+	private static String equalsMethod(String methodParamClassName, Parameter[] parameters) {
+		StringBuilder builder = new StringBuilder();
+
+		builder.append("public boolean equals(Object obj) {\r\n");
+		builder.append("  if ($0 == obj) { return true; }\r\n");
+		builder.append("  if (obj == null || $0.getClass() != obj.getClass()) { return false; }\r\n");
+		builder.append("  ").append(methodParamClassName).append(" other = (").append(methodParamClassName)
+				.append(") obj;\r\n");
+
+		for (Parameter parameter : parameters) {
+			String name = parameter.getName();
+			Class<?> type = parameter.getType();
+			String self = "$0." + name;
+			String other = "other." + name;
+
+			builder.append("  if (!(");
+
+			if (type == float.class) {
+				builder.append("Float.floatToIntBits(").append(self).append(") == Float.floatToIntBits(")
+						.append(other).append(")");
+			} else if (type == double.class) {
+				builder.append("Double.doubleToLongBits(").append(self).append(") == Double.doubleToLongBits(")
+						.append(other).append(")");
+			} else if (type.isPrimitive()) {
+				builder.append(self).append(" == ").append(other);
+			} else if (type.isArray() && type.getComponentType().isPrimitive()) {
+				builder.append("java.util.Arrays.equals(").append(self).append(", ").append(other).append(")");
+			} else if (type.isArray()) {
+				builder.append("java.util.Arrays.deepEquals((Object[]) ").append(self).append(", (Object[]) ")
+						.append(other).append(")");
+			} else {
+				builder.append("java.util.Objects.equals(").append(self).append(", ").append(other).append(")");
+			}
+
+			builder.append(")) { return false; }\r\n");
+		}
+
+		builder.append("  return true;\r\n");
+		builder.append("}");
+
+		return builder.toString();
+	}
+
+	/**
+	 * 与 {@link #equalsMethod(String, Parameter[])} 一致，不装箱
+	 */
+	private static String hashCodeMethod(Parameter[] parameters) {
+		StringBuilder builder = new StringBuilder();
+
+		builder.append("public int hashCode() {\r\n");
+		builder.append("  int h = 1;\r\n");
+
+		for (Parameter parameter : parameters) {
+			String field = "$0." + parameter.getName();
+			Class<?> type = parameter.getType();
+
+			builder.append("  h = 31 * h + ");
+
+			if (type == long.class) {
+				builder.append("Long.hashCode(").append(field).append(")");
+			} else if (type == float.class) {
+				builder.append("Float.floatToIntBits(").append(field).append(")");
+			} else if (type == double.class) {
+				builder.append("Long.hashCode(Double.doubleToLongBits(").append(field).append("))");
+			} else if (type == boolean.class) {
+				builder.append("(").append(field).append(" ? 1231 : 1237)");
+			} else if (type.isPrimitive()) {
+				builder.append("(int) ").append(field);
+			} else if (type.isArray() && type.getComponentType().isPrimitive()) {
+				builder.append("java.util.Arrays.hashCode(").append(field).append(")");
+			} else if (type.isArray()) {
+				builder.append("java.util.Arrays.deepHashCode((Object[]) ").append(field).append(")");
+			} else {
+				builder.append("java.util.Objects.hashCode(").append(field).append(")");
+			}
+
+			builder.append(";\r\n");
+		}
+
+		builder.append("  return h;\r\n");
+		builder.append("}");
+
+		return builder.toString();
+	}
+
 }
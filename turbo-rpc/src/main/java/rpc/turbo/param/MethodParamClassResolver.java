@@ -2,6 +2,7 @@ package rpc.turbo.param;
 
 import java.util.Objects;
 
+import rpc.turbo.config.TurboConstants;
 import rpc.turbo.invoke.ServerInvokerFactory;
 
 /**
@@ -26,6 +27,10 @@ public class MethodParamClassResolver {
 	 * @return
 	 */
 	public Class<? extends MethodParam> getMethodParamClass(int serviceId) {
+		if (serviceId == TurboConstants.STREAM_CREDIT_SERVICE_ID) {
+			return StreamCreditParam.class;
+		}
+
 		return invokerFactory.get(serviceId).getMethodParamClass();
 	}
 }
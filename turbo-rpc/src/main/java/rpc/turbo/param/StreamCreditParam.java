@@ -0,0 +1,45 @@
+package rpc.turbo.param;
+
+import rpc.turbo.config.TurboConstants;
+
+/**
+ * 流式调用的 credit 控制参数，客户端每消费一批元素就向服务端补充 credit，<br>
+ * 服务端最多只会发送 credit 数量的元素，保证两端缓存都是有界的
+ * 
+ * @author Hank
+ * 
+ * @see TurboConstants#STREAM_CREDIT_SERVICE_ID
+ *
+ */
+public final class StreamCreditParam implements MethodParam {
+
+	/** 取消流式调用 */
+	public static final int CANCEL = -1;
+
+	private int credit;
+
+	public StreamCreditParam() {
+	}
+
+	public StreamCreditParam(int credit) {
+		this.credit = credit;
+	}
+
+	/**
+	 * 补充的 credit 数量，{@link #CANCEL} 表示取消
+	 * 
+	 * @return
+	 */
+	public int getCredit() {
+		return credit;
+	}
+
+	public void setCredit(int credit) {
+		this.credit = credit;
+	}
+
+	@Override
+	public String toString() {
+		return "StreamCreditParam{credit=" + credit + '}';
+	}
+}
@@ -0,0 +1,34 @@
+package rpc.turbo.protocol;
+
+import rpc.turbo.config.TurboConstants;
+
+/**
+ * 批量请求，同一个方法的多个请求合并为一个 frame 发送，<br>
+ * 每个子请求的 requestId 为其在批量中的序号
+ * 
+ * @author Hank
+ *
+ * @see TurboConstants#BATCH_FLAG
+ */
+public class BatchRequest extends Request {
+	private static final long serialVersionUID = -3185062427317452214L;
+
+	private final Request[] requests;
+
+	public BatchRequest(Request[] requests) {
+		this.requests = requests;
+		setServiceId(TurboConstants.BATCH_SERVICE_ID);
+	}
+
+	public Request[] getRequests() {
+		return requests;
+	}
+
+	@Override
+	public String toString() {
+		return "BatchRequest{" + //
+				"requestId=" + getRequestId() + //
+				", size=" + requests.length + //
+				'}';
+	}
+}
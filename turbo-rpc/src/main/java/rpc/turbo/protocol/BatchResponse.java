@@ -0,0 +1,36 @@
+package rpc.turbo.protocol;
+
+import rpc.turbo.config.TurboConstants;
+
+/**
+ * 批量响应，与 {@link BatchRequest} 对应，<br>
+ * 每个子响应的 requestId 为对应子请求在批量中的序号
+ * 
+ * @author Hank
+ *
+ * @see TurboConstants#BATCH_FLAG
+ */
+public class BatchResponse extends Response {
+	private static final long serialVersionUID = 4893160352818764319L;
+
+	private final Response[] responses;
+
+	public BatchResponse(int requestId, Response[] responses) {
+		this.responses = responses;
+		setRequestId(requestId);
+		setStatusCode(ResponseStatus.OK);
+	}
+
+	public Response[] getResponses() {
+		return responses;
+	}
+
+	@Override
+	public String toString() {
+		return "BatchResponse{" + //
+				"requestId=" + getRequestId() + //
+				", statusCode=" + getStatusCode() + //
+				", size=" + responses.length + //
+				'}';
+	}
+}
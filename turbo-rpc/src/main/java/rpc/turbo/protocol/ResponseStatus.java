@@ -15,4 +15,9 @@ public interface ResponseStatus {
 	public static final byte TIMEOUT = 6;
 	public static final byte CLIENT_FILTER_DENY = 7;
 	public static final byte SERVER_FILTER_DENY = 8;
+	public static final byte SERVER_BUSY = 9;
+	/** 流式调用的一个元素，后续还有 frame */
+	public static final byte STREAM_NEXT = 10;
+	/** 流式调用正常结束，出错时以其它错误码结束 */
+	public static final byte STREAM_COMPLETE = 11;
 }
@@ -5,6 +5,7 @@ import java.util.concurrent.CompletableFuture;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import rpc.turbo.config.Priority;
 import rpc.turbo.invoke.Invoker;
 import rpc.turbo.param.MethodParam;
 import rpc.turbo.transport.client.App;
@@ -26,14 +27,16 @@ public interface RemoteInterface {
 	 * @param methodId
 	 * @param timeout
 	 *            超时时间，millseconds
+	 * @param priority
+	 *            请求优先级
 	 * @param methodParam
 	 * @param failoverInvoker
 	 * @return
 	 */
-	default public CompletableFuture<?> $remote_execute(int methodId, long timeout, MethodParam methodParam,
-			Invoker<CompletableFuture<?>> failoverInvoker) {
+	default public CompletableFuture<?> $remote_execute(int methodId, long timeout, Priority priority,
+			MethodParam methodParam, Invoker<CompletableFuture<?>> failoverInvoker) {
 		try {
-			return getApp().execute(methodId, timeout, methodParam, failoverInvoker);
+			return getApp().execute(methodId, timeout, priority, methodParam, failoverInvoker);
 		} catch (Exception e) {
 			if (logger.isWarnEnabled()) {
 				logger.warn("远程调用发生错误");
@@ -51,6 +54,101 @@ public interface RemoteInterface {
 		}
 	}
 
+	/**
+	 * 按参数的一致性哈希路由
+	 * 
+	 * @param methodId
+	 * @param timeout
+	 *            超时时间，millseconds
+	 * @param priority
+	 *            请求优先级
+	 * @param hashKey
+	 *            路由用的哈希值
+	 * @param methodParam
+	 * @param failoverInvoker
+	 * @return
+	 */
+	default public CompletableFuture<?> $remote_execute(int methodId, long timeout, Priority priority, long hashKey,
+			MethodParam methodParam, Invoker<CompletableFuture<?>> failoverInvoker) {
+		try {
+			return getApp().execute(methodId, timeout, priority, hashKey, methodParam, failoverInvoker);
+		} catch (Exception e) {
+			if (logger.isWarnEnabled()) {
+				logger.warn("远程调用发生错误");
+			}
+
+			if (failoverInvoker == null) {
+				return CompletableFuture.failedFuture(e);
+			} else {
+				if (logger.isInfoEnabled()) {
+					logger.info("远程调用发生错误，使用本地回退方法执行");
+				}
+
+				return failoverInvoker.invoke(methodParam);
+			}
+		}
+	}
+
+	/**
+	 * 流式调用
+	 * 
+	 * @param methodId
+	 * @param timeout
+	 *            两个元素之间的最大间隔，millseconds
+	 * @param priority
+	 *            请求优先级
+	 * @param methodParam
+	 * @param failoverInvoker
+	 * @return
+	 */
+	default public CompletableFuture<?> $remote_stream(int methodId, long timeout, Priority priority,
+			MethodParam methodParam, Invoker<CompletableFuture<?>> failoverInvoker) {
+		try {
+			return getApp().stream(methodId, timeout, priority, methodParam, failoverInvoker);
+		} catch (Exception e) {
+			if (logger.isWarnEnabled()) {
+				logger.warn("远程调用发生错误");
+			}
+
+			if (failoverInvoker == null) {
+				return CompletableFuture.failedFuture(e);
+			} else {
+				return failoverInvoker.invoke(methodParam);
+			}
+		}
+	}
+
+	/**
+	 * 按参数的一致性哈希路由的流式调用
+	 * 
+	 * @param methodId
+	 * @param timeout
+	 *            两个元素之间的最大间隔，millseconds
+	 * @param priority
+	 *            请求优先级
+	 * @param hashKey
+	 *            路由用的哈希值
+	 * @param methodParam
+	 * @param failoverInvoker
+	 * @return
+	 */
+	default public CompletableFuture<?> $remote_stream(int methodId, long timeout, Priority priority, long hashKey,
+			MethodParam methodParam, Invoker<CompletableFuture<?>> failoverInvoker) {
+		try {
+			return getApp().stream(methodId, timeout, priority, hashKey, methodParam, failoverInvoker);
+		} catch (Exception e) {
+			if (logger.isWarnEnabled()) {
+				logger.warn("远程调用发生错误");
+			}
+
+			if (failoverInvoker == null) {
+				return CompletableFuture.failedFuture(e);
+			} else {
+				return failoverInvoker.invoke(methodParam);
+			}
+		}
+	}
+
 	default public CompletableFuture<?> $remote_ignore() {
 		return CompletableFuture.failedFuture(IGNORED);
 	}
@@ -24,9 +24,12 @@ import javassist.CtMethod;
 import javassist.CtNewMethod;
 import rpc.turbo.annotation.TurboService;
 import rpc.turbo.config.MethodConfig;
+import rpc.turbo.config.Priority;
 import rpc.turbo.invoke.FailoverInvokerFactory;
 import rpc.turbo.invoke.Invoker;
 import rpc.turbo.invoke.InvokerUtils;
+import rpc.turbo.loadbalance.HashKeys;
+import rpc.turbo.param.EmptyMethodParam;
 import rpc.turbo.param.MethodParam;
 import rpc.turbo.param.MethodParamClassFactory;
 import rpc.turbo.transport.client.App;
@@ -259,6 +262,22 @@ public class RemoteServiceFactory implements Closeable {
 			if (config.timeout > 5 * 60 * 1000) {
 				throw new RuntimeException("config.timeout must < 5 * 60 * 1000 (5 mintues)");
 			}
+
+			if (config.priority == null) {
+				throw new RuntimeException("config.priority must not be null");
+			}
+
+			if (config.hashKeyIndex >= config.method.getParameterCount()) {
+				throw new RuntimeException("config.hashKeyIndex must < parameter count");
+			}
+
+			if (config.hashKeyIndex >= 0) {
+				Class<?> type = config.method.getParameterTypes()[config.hashKeyIndex];
+
+				if (type == float.class || type == double.class || type == boolean.class) {
+					throw new RuntimeException("config.hashKeyIndex not support the type " + type);
+				}
+			}
 		}
 
 		Method[] allMethods = clazz.getMethods();
@@ -359,26 +378,55 @@ public class RemoteServiceFactory implements Closeable {
 							+ " register, config:" + config);
 				}
 
-				methodBuilder.append("$remote_execute(");
+				if (InvokerUtils.isStreamMethod(method)) {
+					methodBuilder.append("$remote_stream(");
+				} else {
+					methodBuilder.append("$remote_execute(");
+				}
 
 				methodBuilder.append(app.getMethodId(method));
 				methodBuilder.append(", ");
 				methodBuilder.append(timeout);
 				methodBuilder.append("L, ");
-				methodBuilder.append("new ");
-				methodBuilder.append(methodParamClass.getName());
-				methodBuilder.append("(");
+				methodBuilder.append(Priority.class.getName());
+				methodBuilder.append(".");
+				methodBuilder.append(config.priority.name());
+				methodBuilder.append(", ");
 
-				for (int i = 0; i < parameterTypes.length; i++) {
-					methodBuilder.append("param");
-					methodBuilder.append(i);
+				if (config.hashKeyIndex >= 0) {
+					Class<?> hashKeyType = parameterTypes[config.hashKeyIndex];
+
+					methodBuilder.append(HashKeys.class.getName());
+					methodBuilder.append(".hash(");
 
-					if (i != parameterTypes.length - 1) {
-						methodBuilder.append(",");
+					if (hashKeyType.isPrimitive()) {// long 以外的整数统一转为 long，与包装类型的结果一致
+						methodBuilder.append("(long) ");
 					}
+
+					methodBuilder.append("param");
+					methodBuilder.append(config.hashKeyIndex);
+					methodBuilder.append("), ");
 				}
 
-				methodBuilder.append("), ");
+				if (parameterTypes.length == 0) {// 无参方法共用一个实例，缓存和请求合并才能命中
+					methodBuilder.append(EmptyMethodParam.class.getName());
+					methodBuilder.append(".empty(), ");
+				} else {
+					methodBuilder.append("new ");
+					methodBuilder.append(methodParamClass.getName());
+					methodBuilder.append("(");
+
+					for (int i = 0; i < parameterTypes.length; i++) {
+						methodBuilder.append("param");
+						methodBuilder.append(i);
+
+						if (i != parameterTypes.length - 1) {
+							methodBuilder.append(",");
+						}
+					}
+
+					methodBuilder.append("), ");
+				}
 
 				methodBuilder.append(failoverFieldName);
 				methodBuilder.append(")");
@@ -392,6 +440,32 @@ public class RemoteServiceFactory implements Closeable {
 
 		Class<?> invokerClass = remoteCtClass.toClass();
 
+		for (MethodConfig config : configs) {
+			if (config.ignore || InvokerUtils.isStreamMethod(config.method)) {
+				continue;
+			}
+
+			if (config.hedge != null) {
+				app.setHedgeConfig(config.method, config.hedge);
+			}
+
+			if (config.retry != null) {
+				app.setRetryConfig(config.method, config.retry);
+			}
+
+			if (config.cache != null) {
+				app.setCacheConfig(config.method, config.cache);
+			}
+
+			if (config.coalesce) {
+				app.setCoalesce(config.method, true);
+			}
+
+			if (config.batch != null && config.hashKeyIndex < 0) {
+				app.setBatchConfig(config.method, config.batch);
+			}
+		}
+
 		return invokerClass.getConstructor(App.class).newInstance(app);
 	}
 
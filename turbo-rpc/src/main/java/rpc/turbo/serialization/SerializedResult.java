@@ -0,0 +1,189 @@
+package rpc.turbo.serialization;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+
+/**
+ * 预序列化的返回值，作为服务方法的返回值时，序列化后的内容直接拼接到输出中，不会重复序列化，也不会复制<br>
+ * 适用于缓存、代理等本身就持有序列化结果的场景，可以缓存起来重复使用，线程安全<br>
+ * 
+ * <pre>
+ * private final SerializedResult cached = new SerializedResult(user);
+ * 
+ * public CompletableFuture&lt;User&gt; getUser(long id) {
+ * 	return cached.toFuture();
+ * }
+ * </pre>
+ * 
+ * @author Hank
+ *
+ */
+public final class SerializedResult {
+
+	private final Object value;
+	private volatile Content rpcContent;
+	private volatile Content restContent;
+
+	/**
+	 * 首次使用时序列化，之后一直使用序列化后的内容
+	 * 
+	 * @param value
+	 *            实际的返回值
+	 */
+	public SerializedResult(Object value) {
+		this.value = Objects.requireNonNull(value, "value");
+	}
+
+	private SerializedResult(Object value, ByteBuf rpcBytes, ByteBuf restBytes) {
+		this.value = value;
+		this.rpcContent = rpcBytes == null ? null : new Content(null, rpcBytes);
+		this.restContent = restBytes == null ? null : new Content(null, restBytes);
+	}
+
+	/**
+	 * 已经序列化好的内容，比如代理转发的场景
+	 * 
+	 * @param rpcBytes
+	 *            {@link Serializer#writeResult(ByteBuf, Object)} 的输出，可为空
+	 * 
+	 * @param restBytes
+	 *            {@link JsonMapper#write(ByteBuf, Object)} 的输出，可为空
+	 * 
+	 * @return
+	 */
+	public static SerializedResult of(ByteBuf rpcBytes, ByteBuf restBytes) {
+		return new SerializedResult(null, rpcBytes, restBytes);
+	}
+
+	/**
+	 * 已经序列化好的内容，比如代理转发的场景
+	 * 
+	 * @param rpcBytes
+	 *            {@link Serializer#writeResult(ByteBuf, Object)} 的输出，可为空
+	 * 
+	 * @param restBytes
+	 *            {@link JsonMapper#write(ByteBuf, Object)} 的输出，可为空
+	 * 
+	 * @return
+	 */
+	public static SerializedResult of(byte[] rpcBytes, byte[] restBytes) {
+		return new SerializedResult(null, //
+				rpcBytes == null ? null : Unpooled.wrappedBuffer(rpcBytes), //
+				restBytes == null ? null : Unpooled.wrappedBuffer(restBytes));
+	}
+
+	/**
+	 * 实际的返回值，通过 {@link #of(ByteBuf, ByteBuf)} 创建时为空
+	 * 
+	 * @return
+	 */
+	public Object getValue() {
+		return value;
+	}
+
+	/**
+	 * 包装为服务方法的返回值
+	 * 
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> CompletableFuture<T> toFuture() {
+		return (CompletableFuture<T>) CompletableFuture.completedFuture(this);
+	}
+
+	/**
+	 * rpc 序列化后的内容，使用完毕后需要 release
+	 * 
+	 * @param serializer
+	 * @return null 表示无法获取
+	 * @throws IOException
+	 */
+	public ByteBuf rpcBytes(Serializer serializer) throws IOException {
+		Content content = rpcContent;
+
+		if (content == null || !content.isOwnedBy(serializer)) {
+			if (value == null) {
+				return content == null ? null : content.bytes.retainedDuplicate();
+			}
+
+			ByteBuf buffer = ByteBufAllocator.DEFAULT.ioBuffer();
+
+			try {
+				serializer.writeResult(buffer, value);
+				content = new Content(serializer, copyOf(buffer));
+			} finally {
+				buffer.release();
+			}
+
+			rpcContent = content;
+		}
+
+		return content.bytes.retainedDuplicate();
+	}
+
+	/**
+	 * rest 序列化后的内容，使用完毕后需要 release
+	 * 
+	 * @param jsonMapper
+	 * @return null 表示无法获取
+	 * @throws IOException
+	 */
+	public ByteBuf restBytes(JsonMapper jsonMapper) throws IOException {
+		Content content = restContent;
+
+		if (content == null || !content.isOwnedBy(jsonMapper)) {
+			if (value == null) {
+				return content == null ? null : content.bytes.retainedDuplicate();
+			}
+
+			ByteBuf buffer = ByteBufAllocator.DEFAULT.ioBuffer();
+
+			try {
+				jsonMapper.write(buffer, value);
+				content = new Content(jsonMapper, copyOf(buffer));
+			} finally {
+				buffer.release();
+			}
+
+			restContent = content;
+		}
+
+		return content.bytes.retainedDuplicate();
+	}
+
+	/**
+	 * 复制到由 gc 负责回收的堆外内存中，缓存的内容无法确定什么时候释放
+	 * 
+	 * @param buffer
+	 * @return
+	 */
+	private static ByteBuf copyOf(ByteBuf buffer) {
+		ByteBuffer byteBuffer = ByteBuffer.allocateDirect(buffer.readableBytes());
+		buffer.getBytes(buffer.readerIndex(), byteBuffer);
+		byteBuffer.flip();
+
+		return Unpooled.wrappedBuffer(byteBuffer);
+	}
+
+	private static final class Content {
+		/** 由谁序列化的，null 表示外部传入 */
+		private final Object owner;
+		private final ByteBuf bytes;
+
+		private Content(Object owner, ByteBuf bytes) {
+			this.owner = owner;
+			this.bytes = bytes;
+		}
+
+		private boolean isOwnedBy(Object serializer) {
+			return owner == null || owner == serializer;
+		}
+	}
+
+}
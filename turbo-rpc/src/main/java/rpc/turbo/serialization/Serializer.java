@@ -4,8 +4,11 @@ import java.io.IOException;
 import java.util.Map;
 
 import io.netty.buffer.ByteBuf;
+import rpc.turbo.config.TurboConstants;
 import rpc.turbo.param.MethodParam;
 import rpc.turbo.param.MethodParamClassResolver;
+import rpc.turbo.protocol.BatchRequest;
+import rpc.turbo.protocol.BatchResponse;
 import rpc.turbo.protocol.Request;
 import rpc.turbo.protocol.Response;
 
@@ -76,6 +79,135 @@ public abstract class Serializer {
 	 */
 	public abstract Response readResponse(ByteBuf byteBuf) throws IOException;
 
+	/**
+	 * 序列化批量request，每个子请求为一个完整的 frame
+	 * 
+	 * @param byteBuf
+	 * @param batchRequest
+	 * @throws IOException
+	 * 
+	 * @see TurboConstants#BATCH_FLAG
+	 */
+	public void writeBatchRequest(ByteBuf byteBuf, BatchRequest batchRequest) throws IOException {
+		final int beginWriterIndex = byteBuf.writerIndex();
+		final Request[] requests = batchRequest.getRequests();
+
+		byteBuf.writeInt(0);
+		byteBuf.writeInt(batchRequest.getRequestId());
+		byteBuf.writeInt(requests.length);
+
+		for (int i = 0; i < requests.length; i++) {
+			writeRequest(byteBuf, requests[i]);
+		}
+
+		int length = byteBuf.writerIndex() - beginWriterIndex - TurboConstants.HEADER_FIELD_LENGTH;
+		byteBuf.setInt(beginWriterIndex, length | TurboConstants.BATCH_FLAG);
+	}
+
+	/**
+	 * 反序列化批量request
+	 * 
+	 * @param byteBuf
+	 *            不包括长度字段
+	 * @return
+	 * @throws IOException
+	 */
+	public BatchRequest readBatchRequest(ByteBuf byteBuf) throws IOException {
+		int requestId = byteBuf.readInt();
+		Request[] requests = new Request[byteBuf.readInt()];
+
+		for (int i = 0; i < requests.length; i++) {
+			requests[i] = readRequest(byteBuf.readSlice(byteBuf.readInt()));
+		}
+
+		BatchRequest batchRequest = new BatchRequest(requests);
+		batchRequest.setRequestId(requestId);
+
+		return batchRequest;
+	}
+
+	/**
+	 * 序列化批量response，每个子响应为一个完整的 frame
+	 * 
+	 * @param byteBuf
+	 * @param batchResponse
+	 * @throws IOException
+	 * 
+	 * @see TurboConstants#BATCH_FLAG
+	 */
+	public void writeBatchResponse(ByteBuf byteBuf, BatchResponse batchResponse) throws IOException {
+		final int beginWriterIndex = byteBuf.writerIndex();
+		final Response[] responses = batchResponse.getResponses();
+
+		byteBuf.writeInt(0);
+		byteBuf.writeInt(batchResponse.getRequestId());
+		byteBuf.writeInt(responses.length);
+
+		for (int i = 0; i < responses.length; i++) {
+			writeResponse(byteBuf, responses[i]);
+		}
+
+		int length = byteBuf.writerIndex() - beginWriterIndex - TurboConstants.HEADER_FIELD_LENGTH;
+		byteBuf.setInt(beginWriterIndex, length | TurboConstants.BATCH_FLAG);
+	}
+
+	/**
+	 * 反序列化批量response
+	 * 
+	 * @param byteBuf
+	 *            不包括长度字段
+	 * @return
+	 * @throws IOException
+	 */
+	public BatchResponse readBatchResponse(ByteBuf byteBuf) throws IOException {
+		int requestId = byteBuf.readInt();
+		Response[] responses = new Response[byteBuf.readInt()];
+
+		for (int i = 0; i < responses.length; i++) {
+			responses[i] = readResponse(byteBuf.readSlice(byteBuf.readInt()));
+		}
+
+		return new BatchResponse(requestId, responses);
+	}
+
+	/**
+	 * 序列化返回值，输出可以作为 {@link SerializedResult} 的内容
+	 * 
+	 * @param byteBuf
+	 * @param result
+	 * @throws IOException
+	 */
+	public void writeResult(ByteBuf byteBuf, Object result) throws IOException {
+		throw new UnsupportedOperationException("not support SerializedResult");
+	}
+
+	/**
+	 * 序列化返回值为 {@link SerializedResult} 的response，<br>
+	 * 完整的 frame 由 prefix + payload + suffix 组成，payload 不会被复制
+	 * 
+	 * @param prefix
+	 *            payload 前面的部分
+	 * @param suffix
+	 *            payload 后面的部分
+	 * @param response
+	 * @param payloadLength
+	 *            payload 的长度
+	 * @throws IOException
+	 */
+	public void writeResponse(ByteBuf prefix, ByteBuf suffix, Response response, int payloadLength)
+			throws IOException {
+		throw new UnsupportedOperationException("not support SerializedResult");
+	}
+
+	/**
+	 * 是否支持 {@link SerializedResult}
+	 * 
+	 * @return
+	 */
+	public boolean isSupportedSerializedResult() {
+		return false;
+	}
+
 	/**
 	 * 是否支持classID
 	 * 
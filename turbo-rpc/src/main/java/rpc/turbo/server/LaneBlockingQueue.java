@@ -0,0 +1,302 @@
+package rpc.turbo.server;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import rpc.turbo.config.Priority;
+
+/**
+ * 按优先级分通道的有界阻塞队列，总容量固定，取出时总是先取高优先级通道的任务，<br>
+ * 同一通道内先进先出，不是 {@link PriorityTask} 的任务放入 NORMAL 通道
+ *
+ * @author Hank
+ *
+ */
+final class LaneBlockingQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+	private final int capacity;
+	private final ArrayDeque<Runnable>[] lanes;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition notFull = lock.newCondition();
+	private int count;
+
+	/**
+	 *
+	 * @param capacity
+	 *            所有通道的总容量
+	 */
+	@SuppressWarnings("unchecked")
+	LaneBlockingQueue(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must > 0, " + capacity);
+		}
+
+		this.capacity = capacity;
+		this.lanes = new ArrayDeque[Priority.LANES];
+
+		for (int i = 0; i < lanes.length; i++) {
+			lanes[i] = new ArrayDeque<>();
+		}
+	}
+
+	private static int lane(Runnable task) {
+		if (task instanceof PriorityTask) {
+			return ((PriorityTask) task).getPriority().lane();
+		}
+
+		return Priority.NORMAL.lane();
+	}
+
+	/** 必须持有锁 */
+	private void enqueue(Runnable task) {
+		lanes[lane(task)].addLast(task);
+		count++;
+		notEmpty.signal();
+	}
+
+	/** 必须持有锁 */
+	private Runnable dequeue() {
+		for (int i = 0; i < lanes.length; i++) {
+			Runnable task = lanes[i].pollFirst();
+
+			if (task != null) {
+				count--;
+				notFull.signal();
+				return task;
+			}
+		}
+
+		return null;
+	}
+
+	@Override
+	public boolean offer(Runnable task) {
+		if (task == null) {
+			throw new NullPointerException();
+		}
+
+		lock.lock();
+		try {
+			if (count >= capacity) {
+				return false;
+			}
+
+			enqueue(task);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean offer(Runnable task, long timeout, TimeUnit unit) throws InterruptedException {
+		if (task == null) {
+			throw new NullPointerException();
+		}
+
+		long nanos = unit.toNanos(timeout);
+
+		lock.lockInterruptibly();
+		try {
+			while (count >= capacity) {
+				if (nanos <= 0L) {
+					return false;
+				}
+
+				nanos = notFull.awaitNanos(nanos);
+			}
+
+			enqueue(task);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void put(Runnable task) throws InterruptedException {
+		if (task == null) {
+			throw new NullPointerException();
+		}
+
+		lock.lockInterruptibly();
+		try {
+			while (count >= capacity) {
+				notFull.await();
+			}
+
+			enqueue(task);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Runnable poll() {
+		lock.lock();
+		try {
+			return dequeue();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+
+		lock.lockInterruptibly();
+		try {
+			while (count == 0) {
+				if (nanos <= 0L) {
+					return null;
+				}
+
+				nanos = notEmpty.awaitNanos(nanos);
+			}
+
+			return dequeue();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Runnable take() throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			while (count == 0) {
+				notEmpty.await();
+			}
+
+			return dequeue();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Runnable peek() {
+		lock.lock();
+		try {
+			for (int i = 0; i < lanes.length; i++) {
+				Runnable task = lanes[i].peekFirst();
+
+				if (task != null) {
+					return task;
+				}
+			}
+
+			return null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		if (!(o instanceof Runnable)) {
+			return false;
+		}
+
+		lock.lock();
+		try {
+			if (lanes[lane((Runnable) o)].removeFirstOccurrence(o)) {
+				count--;
+				notFull.signal();
+				return true;
+			}
+
+			return false;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int size() {
+		lock.lock();
+		try {
+			return count;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int remainingCapacity() {
+		lock.lock();
+		try {
+			return capacity - count;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int drainTo(Collection<? super Runnable> c) {
+		return drainTo(c, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public int drainTo(Collection<? super Runnable> c, int maxElements) {
+		if (c == null) {
+			throw new NullPointerException();
+		}
+
+		if (c == this) {
+			throw new IllegalArgumentException();
+		}
+
+		lock.lock();
+		try {
+			int n = 0;
+
+			while (n < maxElements) {
+				Runnable task = dequeue();
+
+				if (task == null) {
+					break;
+				}
+
+				c.add(task);
+				n++;
+			}
+
+			return n;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 弱一致的快照
+	 */
+	@Override
+	public Iterator<Runnable> iterator() {
+		List<Runnable> snapshot;
+
+		lock.lock();
+		try {
+			snapshot = new ArrayList<>(count);
+
+			for (int i = 0; i < lanes.length; i++) {
+				snapshot.addAll(lanes[i]);
+			}
+		} finally {
+			lock.unlock();
+		}
+
+		return snapshot.iterator();
+	}
+
+}
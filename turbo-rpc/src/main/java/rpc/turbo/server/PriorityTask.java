@@ -0,0 +1,37 @@
+package rpc.turbo.server;
+
+import rpc.turbo.config.Priority;
+
+/**
+ * 带优先级的任务，在 {@link ServerExecutorFactory} 创建的线程池中按优先级排队
+ *
+ * @author Hank
+ *
+ */
+public final class PriorityTask implements Runnable {
+
+	private final Priority priority;
+	private final Runnable task;
+
+	/**
+	 *
+	 * @param priority
+	 *            优先级
+	 * @param task
+	 *            实际执行的任务
+	 */
+	public PriorityTask(Priority priority, Runnable task) {
+		this.priority = priority;
+		this.task = task;
+	}
+
+	public Priority getPriority() {
+		return priority;
+	}
+
+	@Override
+	public void run() {
+		task.run();
+	}
+
+}
@@ -0,0 +1,207 @@
+package rpc.turbo.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import rpc.turbo.annotation.TurboService;
+import rpc.turbo.common.TurboConnectService;
+import rpc.turbo.config.server.ExecutorMode;
+import rpc.turbo.config.server.ServerConfig;
+import rpc.turbo.invoke.Invoker;
+import rpc.turbo.invoke.InvokerUtils;
+import rpc.turbo.util.concurrent.AttachmentThreadFactory;
+import rpc.turbo.util.concurrent.ConcurrentIntToObjectArrayMap;
+import rpc.turbo.util.concurrent.VirtualThreadUtils;
+
+/**
+ * 服务端业务执行器工厂，决定每个服务方法在哪里执行<br>
+ * 执行方式按 method、class 上的 {@link TurboService#executor()}，最后是
+ * {@link ServerConfig#getExecutorMode()} 的顺序确定，<br>
+ * 线程池都是有界的，排满后 execute 会抛出 RejectedExecutionException，<br>
+ * 线程池中的排队按 {@link PriorityTask} 的优先级，总是先执行高优先级的任务
+ * 
+ * @author Hank
+ *
+ */
+public class ServerExecutorFactory implements Closeable {
+	private static final Log logger = LogFactory.getLog(ServerExecutorFactory.class);
+
+	/** 占位，表示直接在 IO 线程中执行 */
+	private static final Executor IO_EXECUTOR = command -> command.run();
+	private static final String SHARED_EXECUTOR_NAME = "turbo-shared-executor";
+
+	private final ServerConfig serverConfig;
+
+	// 高频使用
+	private final ConcurrentIntToObjectArrayMap<Executor> executorMap = new ConcurrentIntToObjectArrayMap<>();
+	// 低频使用
+	private final ConcurrentMap<String, Executor> namedExecutorMap = new ConcurrentHashMap<>();
+
+	private volatile boolean isClosed = false;
+
+	public ServerExecutorFactory(ServerConfig serverConfig) {
+		this.serverConfig = serverConfig;
+	}
+
+	/**
+	 * 获取服务方法的执行器
+	 * 
+	 * @param invoker
+	 * @return null 表示直接在 IO 线程中执行
+	 */
+	public Executor get(Invoker<?> invoker) {
+		final int serviceId = invoker.getServiceId();
+		Executor executor = executorMap.get(serviceId);
+
+		if (executor == null) {
+			executor = executorMap.getOrUpdate(serviceId, () -> create(invoker.getMethod()));
+		}
+
+		if (executor == IO_EXECUTOR) {
+			return null;
+		}
+
+		return executor;
+	}
+
+	private synchronized Executor create(Method method) {
+		Class<?> clazz = method.getDeclaringClass();
+
+		// 内置服务不会阻塞，而且不能因为业务繁忙被拒绝
+		if (TurboConnectService.class.equals(clazz)) {
+			return IO_EXECUTOR;
+		}
+
+		String group = serverConfig.getGroup();
+		String app = serverConfig.getApp();
+
+		TurboService config = method.getAnnotation(TurboService.class);
+		ExecutorMode executorMode = executorMode(config);
+		String name = null;
+
+		if (executorMode != ExecutorMode.DEFAULT) {
+			name = InvokerUtils.getServiceMethodName(group, app, method);
+		} else {
+			config = clazz.getAnnotation(TurboService.class);
+			executorMode = executorMode(config);
+
+			if (executorMode == ExecutorMode.DEFAULT) {
+				config = null;
+				executorMode = serverConfig.getExecutorMode();
+			}
+
+			name = InvokerUtils.getServiceClassName(group, app, clazz);
+		}
+
+		int threads = serverConfig.getExecutorThreads();
+		if (config != null && config.executorThreads() > 0) {
+			threads = config.executorThreads();
+		}
+
+		int queueSize = serverConfig.getExecutorQueueSize();
+		if (config != null && config.executorQueueSize() > 0) {
+			queueSize = config.executorQueueSize();
+		}
+
+		Executor executor = create(executorMode, name, threads, queueSize);
+
+		if (logger.isInfoEnabled()) {
+			logger.info(InvokerUtils.getServiceMethodName(group, app, method) + " executor:" + executorMode);
+		}
+
+		return executor;
+	}
+
+	private static ExecutorMode executorMode(TurboService config) {
+		if (config == null) {
+			return ExecutorMode.DEFAULT;
+		}
+
+		if (config.executor() != ExecutorMode.DEFAULT) {
+			return config.executor();
+		}
+
+		// 阻塞的实现默认在虚拟线程中执行
+		if (config.blocking()) {
+			return ExecutorMode.VIRTUAL;
+		}
+
+		return ExecutorMode.DEFAULT;
+	}
+
+	private Executor create(ExecutorMode executorMode, String name, int threads, int queueSize) {
+		if (isClosed) {
+			throw new IllegalStateException("ServerExecutorFactory is closed");
+		}
+
+		switch (executorMode) {
+		case SHARED:
+			return namedExecutorMap.computeIfAbsent(SHARED_EXECUTOR_NAME, //
+					key -> newBoundedExecutor(key, serverConfig.getExecutorThreads(),
+							serverConfig.getExecutorQueueSize()));
+
+		case DEDICATED:
+			return namedExecutorMap.computeIfAbsent(name, //
+					key -> newBoundedExecutor(key, threads, queueSize));
+
+		case VIRTUAL:
+			ThreadFactory threadFactory = VirtualThreadUtils.factory(name);
+
+			if (threadFactory == null) {
+				if (logger.isWarnEnabled()) {
+					logger.warn("virtual thread is not supported, use DEDICATED executor instead, " + name);
+				}
+
+				return create(ExecutorMode.DEDICATED, name, threads, queueSize);
+			}
+
+			return namedExecutorMap.computeIfAbsent(name, //
+					key -> new VirtualThreadExecutor(threadFactory, queueSize));
+
+		default:
+			return IO_EXECUTOR;
+		}
+	}
+
+	private ExecutorService newBoundedExecutor(String name, int threads, int queueSize) {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(//
+				threads, threads, //
+				60, TimeUnit.SECONDS, //
+				new LaneBlockingQueue(Math.max(1, queueSize)), //
+				new AttachmentThreadFactory(name, true), //
+				new ThreadPoolExecutor.AbortPolicy());
+
+		executor.allowCoreThreadTimeOut(true);
+
+		return executor;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (isClosed) {
+			return;
+		}
+
+		isClosed = true;
+
+		namedExecutorMap.forEach((name, executor) -> {
+			if (executor instanceof ExecutorService) {
+				((ExecutorService) executor).shutdown();
+			}
+		});
+
+		namedExecutorMap.clear();
+	}
+
+}
@@ -4,6 +4,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
+import rpc.turbo.common.ConnectMetadata;
 import rpc.turbo.common.TurboConnectService;
 import rpc.turbo.invoke.ServerInvokerFactory;
 
@@ -40,4 +41,20 @@ public final class TurboConnectServiceServerImpl implements TurboConnectService
 		return CompletableFuture.completedFuture(invokerFactory.getClassIdMap());
 	}
 
+	@Override
+	public CompletableFuture<List<Integer>> getCompressTypeList() {
+		return CompletableFuture.completedFuture(invokerFactory.getCompressTypeList());
+	}
+
+	@Override
+	public CompletableFuture<ConnectMetadata> getConnectMetadata(long knownHash) {
+		ConnectMetadata metadata = invokerFactory.getConnectMetadata();
+
+		if (knownHash != 0L && knownHash == metadata.getHash()) {
+			return CompletableFuture.completedFuture(ConnectMetadata.unchanged(knownHash));
+		}
+
+		return CompletableFuture.completedFuture(metadata);
+	}
+
 }
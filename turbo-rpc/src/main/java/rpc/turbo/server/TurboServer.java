@@ -16,6 +16,7 @@ import org.apache.commons.logging.LogFactory;
 
 import io.netty.channel.EventLoopGroup;
 import rpc.turbo.common.EventLoopGroupHolder;
+import rpc.turbo.compress.CompressorFactory;
 import rpc.turbo.config.HostPort;
 import rpc.turbo.config.server.Protocol;
 import rpc.turbo.config.server.ServerConfig;
@@ -41,8 +42,10 @@ public final class TurboServer implements Closeable {
 
 	private final Serializer serializer;
 	private final ServerInvokerFactory invokerFactory;
+	private final ServerExecutorFactory executorFactory;
 	private final EventLoopGroup eventLoopGroup;
 	private final ServerConfig serverConfig;
+	private final byte[] compressTypes;
 	private final CopyOnWriteArrayList<RpcServerFilter> rpcFilters = new CopyOnWriteArrayList<>();
 	private final CopyOnWriteArrayList<RestServerFilter> restFilters = new CopyOnWriteArrayList<>();
 
@@ -64,12 +67,16 @@ public final class TurboServer implements Closeable {
 		Objects.requireNonNull(invokerFactory, "invokerFactory");
 		this.serverConfig = serverConfig;
 		this.invokerFactory = invokerFactory;
+		this.executorFactory = new ServerExecutorFactory(serverConfig);
 		this.eventLoopGroup = EventLoopGroupHolder.get();
 
 		this.serializer = SerializerFactory.createSerializer(serverConfig.getSerializer());
 
 		MethodParamClassResolver classResolver = new MethodParamClassResolver(invokerFactory);
 		this.serializer.setClassResolver(classResolver);
+
+		this.compressTypes = CompressorFactory.parse(serverConfig.getCompressTypes());
+		this.invokerFactory.setCompressTypes(compressTypes);
 	}
 
 	/**
@@ -172,8 +179,8 @@ public final class TurboServer implements Closeable {
 			logger.info("register Serializer.classIds: " + classIdMap);
 		}
 
-		NettyRpcServer nettyRpcServer = new NettyRpcServer(eventLoopGroup, invokerFactory, serializer, rpcFilters,
-				hostPort);
+		NettyRpcServer nettyRpcServer = new NettyRpcServer(eventLoopGroup, invokerFactory, executorFactory, serializer,
+				rpcFilters, compressTypes, serverConfig.getCompressThreshold(), hostPort);
 		nettyRpcServer.start();
 
 		return nettyRpcServer;
@@ -277,5 +284,7 @@ public final class TurboServer implements Closeable {
 		});
 
 		EventLoopGroupHolder.release(eventLoopGroup);
+
+		executorFactory.close();
 	}
 }
@@ -0,0 +1,53 @@
+package rpc.turbo.server;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 每个任务一个虚拟线程，超过最大并发数量时直接拒绝
+ * 
+ * @author Hank
+ *
+ */
+final class VirtualThreadExecutor implements Executor {
+
+	private final ThreadFactory threadFactory;
+	private final int maxConcurrency;
+	private final AtomicInteger concurrency = new AtomicInteger();
+
+	/**
+	 * 
+	 * @param threadFactory
+	 *            虚拟线程工厂
+	 * @param maxConcurrency
+	 *            最大并发数量
+	 */
+	VirtualThreadExecutor(ThreadFactory threadFactory, int maxConcurrency) {
+		this.threadFactory = threadFactory;
+		this.maxConcurrency = maxConcurrency;
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		if (concurrency.incrementAndGet() > maxConcurrency) {
+			concurrency.decrementAndGet();
+			throw new RejectedExecutionException("too many virtual threads, maxConcurrency: " + maxConcurrency);
+		}
+
+		try {
+			threadFactory.newThread(() -> {
+				try {
+					command.run();
+				} finally {
+					concurrency.decrementAndGet();
+				}
+			}).start();
+		} catch (Throwable t) {
+			concurrency.decrementAndGet();
+			throw new RejectedExecutionException(t);
+		}
+	}
+
+}
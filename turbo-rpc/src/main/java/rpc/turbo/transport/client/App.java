@@ -3,6 +3,7 @@ package rpc.turbo.transport.client;
 import java.io.Closeable;
 import java.io.IOException;
 import java.lang.reflect.Method;
+import java.nio.file.Paths;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -11,9 +12,14 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -22,9 +28,15 @@ import org.apache.commons.logging.LogFactory;
 
 import io.netty.channel.EventLoopGroup;
 import rpc.turbo.annotation.TurboService;
+import rpc.turbo.common.ConnectMetadata;
 import rpc.turbo.common.RemoteContext;
-import rpc.turbo.common.TurboConnectService;
+import rpc.turbo.config.BatchConfig;
+import rpc.turbo.config.CacheConfig;
+import rpc.turbo.config.HedgeConfig;
 import rpc.turbo.config.HostPort;
+import rpc.turbo.config.Priority;
+import rpc.turbo.config.RetryConfig;
+import rpc.turbo.config.TurboConstants;
 import rpc.turbo.config.client.AppConfig;
 import rpc.turbo.config.server.Protocol;
 import rpc.turbo.filter.RpcClientFilter;
@@ -37,6 +49,9 @@ import rpc.turbo.param.MethodParam;
 import rpc.turbo.remote.RemoteException;
 import rpc.turbo.util.concurrent.ConcurrentArrayList;
 import rpc.turbo.util.concurrent.ConcurrentIntToObjectArrayMap;
+import rpc.turbo.util.concurrent.LatencyHistogram;
+import rpc.turbo.util.concurrent.TinyLfuCache;
+import rpc.turbo.util.concurrent.TokenBudget;
 
 public class App implements Closeable {
 	private static final Log logger = LogFactory.getLog(App.class);
@@ -45,6 +60,25 @@ public class App implements Closeable {
 
 	private static final long HEARTBEAT_PERIOD = TimeUnit.SECONDS.toMillis(5);
 	private static final long RESCUE_PERIOD = TimeUnit.SECONDS.toMillis(5);
+	/** 最多积攒的重试令牌数，即服务端故障时最多的突发重试数量 */
+	private static final int MAX_RETRY_TOKENS = 100;
+	/** 退避时间最多翻倍的次数 */
+	private static final int MAX_BACKOFF_SHIFT = 10;
+
+	/** 对冲、重试等额外请求失败时使用，返回失败的future，以便与正常的null返回值区分 */
+	private static final Invoker<CompletableFuture<?>> EXTRA_REQUEST_FAILED = new Invoker<CompletableFuture<?>>() {
+		private final RemoteException exception = new RemoteException("extra request failed", false);
+
+		@Override
+		public CompletableFuture<?> invoke(Object... params) {
+			return CompletableFuture.failedFuture(exception);
+		}
+
+		@Override
+		public CompletableFuture<?> invoke(MethodParam methodParam) {
+			return CompletableFuture.failedFuture(exception);
+		}
+	};
 
 	// 并发的做一些建立连接、心跳等后台工作，线程数量用配置的方式更合理一些，但需要用户深入理解这个逻辑，暂时先这样
 	private static final ForkJoinPool appForkJoinPool = new ForkJoinPool(64);
@@ -60,6 +94,8 @@ public class App implements Closeable {
 	private final ConcurrentHashMap<HostPort, ConnectorContext> activeMap = new ConcurrentHashMap<>();
 	/** 僵尸状态的连接, 低频使用 */
 	private final ConcurrentHashMap<HostPort, ConnectorContext> zombieMap = new ConcurrentHashMap<>();
+	/** 正在建立连接或者恢复僵尸的服务器, 同一个服务器同时只有一个, 低频使用 */
+	private final ConcurrentHashMap<HostPort, CompletableFuture<Void>> connectingMap = new ConcurrentHashMap<>();
 	/** methodId -> MethodRouter, 高频使用 */
 	private final ConcurrentArrayList<MethodRouter> methodRouterMap = new ConcurrentArrayList<>();
 	/** methodString -> methodId, 低频使用 */
@@ -68,6 +104,18 @@ public class App implements Closeable {
 	private final ConcurrentIntToObjectArrayMap<String> methodIdToServiceMethodNameMap = new ConcurrentIntToObjectArrayMap<>();
 	/** class, 低频使用 */
 	private final ConcurrentHashMap<String, Boolean> supportClassMap = new ConcurrentHashMap<>();
+	/** 按优先级通道统计的请求延迟 */
+	private final LatencyHistogram[] laneHistograms = new LatencyHistogram[Priority.LANES];
+	/** 等待在途请求名额的排队延迟 */
+	private final LatencyHistogram queueHistogram = new LatencyHistogram();
+	/** 所有方法共用的重试令牌桶 */
+	private final TokenBudget retryBudget;
+	private final LongAdder retryCounter = new LongAdder();
+	private final LongAdder retryRejectCounter = new LongAdder();
+	/** 服务端元数据快照，null表示不保存 */
+	private final MetadataSnapshot metadataSnapshot;
+	/** 同时建立连接的服务器数量上限 */
+	private final ConcurrencyLimiter connectLimiter;
 
 	/** 抢救线程 */
 	private volatile Thread rescueAndHeartbeatJobThread;
@@ -91,6 +139,20 @@ public class App implements Closeable {
 		this.loadBalanceFactory = appConfig.getLoadBalanceFactory();
 		this.filters = filters;
 
+		for (int i = 0; i < laneHistograms.length; i++) {
+			laneHistograms[i] = new LatencyHistogram();
+		}
+
+		this.retryBudget = new TokenBudget(appConfig.getRetryBudget() / 100D, MAX_RETRY_TOKENS);
+		this.connectLimiter = new ConcurrencyLimiter(//
+				appConfig.getConnectConcurrency() < 1 //
+						? TurboConstants.DEFAULT_CONNECT_CONCURRENCY//
+						: appConfig.getConnectConcurrency(), //
+				Integer.MAX_VALUE, null, null);
+		this.metadataSnapshot = appConfig.getMetadataSnapshot() == null //
+				? null//
+				: new MetadataSnapshot(Paths.get(appConfig.getMetadataSnapshot(), group + "#" + app + ".metadata"));
+
 		if (appConfig.getDiscover() != null) {
 			appConfig.getDiscover().addListener(appConfig.getGroup(), appConfig.getApp(), Protocol.RPC,
 					serverWithWeight -> {
@@ -154,23 +216,21 @@ public class App implements Closeable {
 		tryStartDemoJob();
 
 		AtomicBoolean changed = new AtomicBoolean(false);
+		// 首次建立连接时不需要预热，之后新加入的服务器需要预热
+		boolean warmup = !activeMap.isEmpty() || !zombieMap.isEmpty();
 
-		// 未建立连接的建立连接
-		appForkJoinPool.submit(() -> {
-			serverWithWeight//
-					.entrySet()//
-					.stream()//
-					.parallel()// 并发的建立连接
-					.filter(kv -> !activeMap.containsKey(kv.getKey()))// 过滤掉已连接上的
-					.forEach(kv -> {
-						if (isCloseing) {
-							return;
-						}
+		// 未建立连接的同时建立连接，只有当前线程等待，不占用 appForkJoinPool
+		CompletableFuture<?>[] connectFutures = serverWithWeight//
+				.entrySet()//
+				.stream()//
+				.filter(kv -> !activeMap.containsKey(kv.getKey()))// 过滤掉已连接上的
+				.map(kv -> {
+					changed.set(true);
+					return setConnect(kv.getKey(), kv.getValue(), warmup);
+				})//
+				.toArray(CompletableFuture[]::new);
 
-						changed.set(true);
-						setConnect(kv.getKey(), kv.getValue());
-					});
-		}).get();
+		CompletableFuture.allOf(connectFutures).get();
 
 		// 删除多余的连接
 		appForkJoinPool.submit(() -> {
@@ -188,6 +248,7 @@ public class App implements Closeable {
 						if (!serverWithWeight.containsKey(serverAddress)) {
 							changed.set(true);
 							ConnectorContext context = activeMap.remove(serverAddress);
+							removeSnapshot(serverAddress);
 
 							try {
 								context.close();
@@ -216,6 +277,7 @@ public class App implements Closeable {
 
 						if (!serverWithWeight.containsKey(serverAddress)) {
 							ConnectorContext context = zombieMap.remove(serverAddress);
+							removeSnapshot(serverAddress);
 
 							try {
 								context.close();
@@ -237,67 +299,261 @@ public class App implements Closeable {
 				router.setConnectors(connectors);
 			}
 		}
+
+		flushSnapshot();
 	}
 
 	/**
-	 * 建立连接
+	 * 建立连接，不阻塞调用线程，受 connectConcurrency 限制
 	 * 
 	 * @param serverAddress
 	 * @param weight
 	 *            权重
-	 * @throws Exception
+	 * @param warmup
+	 *            是否预热
+	 * @return 结束后完成，失败时也是正常完成
 	 */
-	private synchronized void setConnect(HostPort serverAddress, int weight) {
+	private CompletableFuture<Void> setConnect(HostPort serverAddress, int weight, boolean warmup) {
 		if (isCloseing) {
-			return;
+			return CompletableFuture.completedFuture(null);
 		}
 
-		ConnectorContext context = new ConnectorContext(eventLoopGroup, appConfig, filters, serverAddress);
-
-		try {
-			context.connect();
+		return connectOnce(serverAddress, () -> {
+			ConnectorContext context = new ConnectorContext(eventLoopGroup, appConfig, filters, serverAddress,
+					laneHistograms, queueHistogram);
 			context.setWeight(weight);
 
-			List<String> list = loadClass(context);
-			for (String clazz : list) {
-				supportClassMap.put(clazz, Boolean.TRUE);
-			}
+			// 有快照时直接使用，不用等待服务端返回，加入后再校验
+			ConnectMetadata snapshot = metadataSnapshot == null ? null : metadataSnapshot.get(serverAddress);
+
+			return context//
+					.connect()//
+					.thenCompose(v -> {
+						if (snapshot == null) {
+							return context.loadMetadata();
+						}
+
+						context.setConnectMetadata(snapshot);
+						return CompletableFuture.completedFuture(snapshot);
+					})//
+					.thenAcceptAsync(metadata -> {
+						if (snapshot == null) {
+							saveSnapshot(serverAddress, metadata);
+						}
+
+						setMetadata(context, metadata);
+						context.initCompress(metadata.getCompressTypeList());
+
+						if (warmup) {
+							context.startWarmup();
+						}
+
+						if (!addConnect(context)) {
+							return;
+						}
+
+						// 快照需要校验，没有hash的需要获取hash才能保存
+						if (snapshot != null || (metadataSnapshot != null && context.isMissingMetadataHash())) {
+							refreshMetadata(context);
+						}
+					}, appForkJoinPool)//
+					.exceptionally(t -> {
+						if (logger.isWarnEnabled()) {
+							logger.warn(serverAddress + "连接失败", t);
+						}
+
+						closeQuietly(context);
+
+						return null;
+					});
+		});
+	}
+
+	/**
+	 * 同一个服务器同时只建立一个连接，已经在建立中时直接返回正在进行的
+	 * 
+	 * @param serverAddress
+	 * @param connectTask
+	 *            建立连接，返回的future不能异常完成
+	 * @return 结束后完成
+	 */
+	private CompletableFuture<Void> connectOnce(HostPort serverAddress,
+			Supplier<CompletableFuture<Void>> connectTask) {
+		CompletableFuture<Void> future = new CompletableFuture<>();
+		CompletableFuture<Void> connecting = connectingMap.putIfAbsent(serverAddress, future);
+
+		if (connecting != null) {
+			return connecting;
+		}
+
+		limitConnect(serverAddress, connectTask).whenComplete((v, t) -> {
+			connectingMap.remove(serverAddress, future);
+			future.complete(null);
+		});
+
+		return future;
+	}
+
+	/**
+	 * 限制同时建立连接的服务器数量，没有名额时排队，由结束的连接发起
+	 * 
+	 * @param serverAddress
+	 * @param connectTask
+	 *            建立连接，返回的future不能异常完成
+	 * @return 结束后完成
+	 */
+	private CompletableFuture<Void> limitConnect(HostPort serverAddress,
+			Supplier<CompletableFuture<Void>> connectTask) {
+		CompletableFuture<Void> future = new CompletableFuture<>();
+
+		// 释放名额的可能是IO线程，切换到 appForkJoinPool 中执行
+		connectLimiter.execute(queueNanos -> appForkJoinPool.execute(() -> {
+			CompletableFuture<Void> connectFuture;
+
+			try {
+				connectFuture = connectTask.get();
+			} catch (Throwable t) {
+				if (logger.isWarnEnabled()) {
+					logger.warn(serverAddress + "连接失败", t);
+				}
 
-			if (logger.isInfoEnabled()) {
-				logger.info(group + "#" + app + " " + serverAddress + " support services: " + list);
+				connectFuture = CompletableFuture.completedFuture(null);
 			}
 
-			Map<String, Integer> methodStringToServiceIdMap = loadServiceId(context);
-			context.setServiceMethodNameToServiceIdMap(methodStringToServiceIdMap);
+			connectFuture.whenComplete((v, t) -> {
+				connectLimiter.release(-1L, false);
+				future.complete(null);
+			});
+		}));
 
-			context.initSerializer();
+		return future;
+	}
 
-			addConnect(context);
-		} catch (Exception e) {
-			if (logger.isWarnEnabled()) {
-				logger.warn(serverAddress + "连接失败", e);
+	/**
+	 * 使用服务端的元数据
+	 * 
+	 * @param context
+	 * @param metadata
+	 */
+	private void setMetadata(ConnectorContext context, ConnectMetadata metadata) {
+		List<String> list = metadata.getClassRegisterList();
+		for (String clazz : list) {
+			supportClassMap.put(clazz, Boolean.TRUE);
+		}
+
+		if (logger.isInfoEnabled()) {
+			logger.info(group + "#" + app + " " + context.serverAddress + " support services: " + list);
+		}
+
+		context.clear();
+		context.setServiceMethodNameToServiceIdMap(metadata.getMethodRegisterMap());
+
+		context.initSerializer(metadata.getClassIdMap());
+	}
+
+	/**
+	 * 后台向服务端校验已知的元数据，不一致时改用服务端返回的，失败时作为僵尸处理，由 {@link #rescue()} 重新获取
+	 * 
+	 * @param context
+	 */
+	private void refreshMetadata(ConnectorContext context) {
+		final ConnectMetadata known = context.connectMetadata();
+		final HostPort serverAddress = context.serverAddress;
+
+		context.loadMetadata().whenCompleteAsync((metadata, throwable) -> {
+			if (isCloseing) {
+				return;
+			}
+
+			if (throwable == null && metadata == known) {
+				return;
 			}
 
 			try {
-				context.close();
-			} catch (Exception e2) {
+				if (throwable != null) {
+					throw throwable;
+				}
+
+				if (known.getHash() != 0L && logger.isWarnEnabled()) {
+					logger.warn(group + "#" + app + " " + serverAddress + " metadata snapshot is expired");
+				}
+
+				setMetadata(context, metadata);
+				saveSnapshot(serverAddress, metadata);
+			} catch (Throwable t) {
+				if (logger.isWarnEnabled()) {
+					logger.warn(group + "#" + app + " " + serverAddress + " refresh metadata error", t);
+				}
+
+				removeSnapshot(serverAddress);
+				context.setConnectMetadata(null);
+
+				if (activeMap.remove(serverAddress, context)) {
+					zombieMap.put(serverAddress, context);
+				}
 			}
+		}, appForkJoinPool);
+	}
+
+	private void saveSnapshot(HostPort serverAddress, ConnectMetadata metadata) {
+		if (metadataSnapshot != null) {
+			metadataSnapshot.put(serverAddress, metadata);
 		}
 	}
 
-	private synchronized void addConnect(ConnectorContext context) throws Exception {
-		if (isCloseing) {
-			return;
+	private void removeSnapshot(HostPort serverAddress) {
+		if (metadataSnapshot != null) {
+			metadataSnapshot.remove(serverAddress);
+		}
+	}
+
+	private void flushSnapshot() {
+		if (metadataSnapshot != null) {
+			metadataSnapshot.flush();
 		}
+	}
 
+	/**
+	 * 加入活跃连接，已有其他活跃连接或者已关闭时关闭当前连接，不会覆盖
+	 * 
+	 * @param context
+	 * @return 是否加入
+	 */
+	private synchronized boolean addConnect(ConnectorContext context) {
 		if (context == null) {
-			return;
+			return false;
+		}
+
+		if (isCloseing) {
+			closeQuietly(context);
+			return false;
 		}
 
 		HostPort serverAddress = context.serverAddress;
+		ConnectorContext active = activeMap.putIfAbsent(serverAddress, context);
+
+		if (active != null && active != context) {
+			closeQuietly(context);
+			return false;
+		}
+
+		ConnectorContext zombie = zombieMap.remove(serverAddress);
+
+		if (zombie != null && zombie != context) {
+			closeQuietly(zombie);
+		}
 
-		activeMap.put(serverAddress, context);
-		zombieMap.remove(serverAddress);
+		return true;
+	}
+
+	private void closeQuietly(ConnectorContext context) {
+		try {
+			context.close();
+		} catch (Exception e) {
+			if (logger.isWarnEnabled()) {
+				logger.warn(context.serverAddress + "关闭失败", e);
+			}
+		}
 	}
 
 	private synchronized void tryStartDemoJob() {
@@ -315,8 +571,9 @@ public class App implements Closeable {
 				if (!isCloseing && !appForkJoinPool.isShutdown()
 						&& System.currentTimeMillis() - lastRescueTime > RESCUE_PERIOD) {
 					try {
-						appForkJoinPool.submit(() -> rescue()).get();
+						rescue().get();
 						lastRescueTime = System.currentTimeMillis();
+						flushSnapshot();
 					} catch (InterruptedException e) {
 						break;
 					} catch (Throwable e) {
@@ -419,7 +676,7 @@ public class App implements Closeable {
 			throw new InvokeException(group + "#" + app + " " + "找不到对应的服务, " + method);
 		}
 
-		return execute(methodId, timeout, methodParam, null);
+		return execute(methodId, timeout, Priority.NORMAL, methodParam, null);
 	}
 
 	/**
@@ -436,6 +693,54 @@ public class App implements Closeable {
 	 */
 	public CompletableFuture<?> execute(int methodId, long timeout, MethodParam methodParam,
 			Invoker<CompletableFuture<?>> failoverInvoker) {
+		return execute(methodId, timeout, Priority.NORMAL, methodParam, failoverInvoker);
+	}
+
+	/**
+	 * 推荐使用
+	 * 
+	 * @param methodId
+	 * 
+	 * @param timeout
+	 *            超时时间，millseconds
+	 * 
+	 * @param priority
+	 *            请求优先级
+	 * 
+	 * @param methodParam
+	 * 
+	 * @return
+	 */
+	public CompletableFuture<?> execute(int methodId, long timeout, Priority priority, MethodParam methodParam,
+			Invoker<CompletableFuture<?>> failoverInvoker) {
+		return execute(methodId, timeout, priority, false, 0L, methodParam, failoverInvoker);
+	}
+
+	/**
+	 * 按参数的一致性哈希路由，同一个 hashKey 的请求会尽量发往同一个服务端
+	 * 
+	 * @param methodId
+	 * 
+	 * @param timeout
+	 *            超时时间，millseconds
+	 * 
+	 * @param priority
+	 *            请求优先级
+	 * 
+	 * @param hashKey
+	 *            路由用的哈希值，使用 {@link rpc.turbo.loadbalance.HashKeys} 计算
+	 * 
+	 * @param methodParam
+	 * 
+	 * @return
+	 */
+	public CompletableFuture<?> execute(int methodId, long timeout, Priority priority, long hashKey,
+			MethodParam methodParam, Invoker<CompletableFuture<?>> failoverInvoker) {
+		return execute(methodId, timeout, priority, true, hashKey, methodParam, failoverInvoker);
+	}
+
+	private CompletableFuture<?> execute(int methodId, long timeout, Priority priority, boolean hashRouting,
+			long hashKey, MethodParam methodParam, Invoker<CompletableFuture<?>> failoverInvoker) {
 
 		MethodRouter router;
 		if (methodId < 0 || methodId >= methodRouterMap.size() //
@@ -445,34 +750,64 @@ public class App implements Closeable {
 			return CompletableFuture.failedFuture(new RemoteException(msg));
 		}
 
-		if (filters.size() > 0) {
-			RemoteContext.setRemoteMethod(router.getMethod());
-			RemoteContext.setServiceMethodName(router.getServiceMethodName());
+		TinyLfuCache<MethodParam, Object> responseCache = router.getResponseCache();
+		SingleFlight singleFlight = router.getSingleFlight();
+
+		if (responseCache == null && singleFlight == null) {
+			return execute(router, methodId, timeout, priority, hashRouting, hashKey, methodParam, failoverInvoker);
 		}
 
-		ConnectorContext connectorContext = router.selectConnector();
-		for (int i = 0; i < MAX_CONNECTOR_SELECT_TIMES; i++) {// 设定有限次数的尝试，防止发生死循环
-			if (connectorContext == null) {
-				break;
+		if (responseCache != null) {
+			Object cached = responseCache.get(methodParam);
+
+			if (cached != null) {
+				return CompletableFuture.completedFuture(cached);
 			}
+		}
 
-			if (connectorContext.isClosed()) {
-				// 说明已经在其他地方关闭，实际不存在资源泄露的问题
-				try {
-					connectorContext.close();
-				} catch (Exception e) {
-				}
+		// 回退方法的结果不缓存、不共享，每个调用方各自执行
+		// 使用 EXTRA_REQUEST_FAILED，失败时返回失败的future，不会被当作null缓存
+		CompletableFuture<?> future;
+
+		if (singleFlight == null) {
+			future = cacheResult(responseCache, execute(router, methodId, timeout, priority, hashRouting, hashKey,
+					methodParam, EXTRA_REQUEST_FAILED), methodParam);
+		} else {
+			future = singleFlight.execute(methodParam, () -> cacheResult(responseCache, execute(router, methodId,
+					timeout, priority, hashRouting, hashKey, methodParam, EXTRA_REQUEST_FAILED), methodParam));
+		}
 
-				connectorContext = router.selectConnector();
-			} else if (ThreadLocalRandom.current().nextInt(100) < 20 //
-					&& connectorContext.isZombie()) {
-				kill(connectorContext);
-				connectorContext = router.selectConnector();
+		// 没有回退方法时失败返回null，与不缓存时一致
+		CompletableFuture<Object> result = new CompletableFuture<>();
+
+		future.whenComplete((value, throwable) -> {
+			if (throwable != null) {
+				completeWithFailover(result, failoverInvoker, methodParam);
 			} else {
-				break;
+				result.complete(value);
 			}
+		});
+
+		return result;
+	}
+
+	private CompletableFuture<?> execute(MethodRouter router, int methodId, long timeout, Priority priority,
+			boolean hashRouting, long hashKey, MethodParam methodParam,
+			Invoker<CompletableFuture<?>> failoverInvoker) {
+
+		RequestBatcher requestBatcher = router.getRequestBatcher();
+
+		if (requestBatcher != null && !hashRouting) {
+			return executeBatched(requestBatcher, timeout, priority, methodParam, failoverInvoker);
+		}
+
+		if (filters.size() > 0) {
+			RemoteContext.setRemoteMethod(router.getMethod());
+			RemoteContext.setServiceMethodName(router.getServiceMethodName());
 		}
 
+		ConnectorContext connectorContext = selectConnector(router, hashRouting, hashKey);
+
 		if (connectorContext == null) {
 			String msg = group + "#" + app + " " + "request error, 无可用连接 ";
 
@@ -499,100 +834,729 @@ public class App implements Closeable {
 			return CompletableFuture.failedFuture(new RemoteException(msg, false));
 		}
 
-		return connectorContext.execute(serviceId, timeout, methodParam, failoverInvoker);
+		RetryConfig retryConfig = router.getRetryConfig();
+
+		if (retryConfig != null) {
+			return executeWithRetry(router, retryConfig, connectorContext, methodId, serviceId, timeout, priority,
+					methodParam, failoverInvoker);
+		}
+
+		return executeOnce(router, connectorContext, methodId, serviceId, timeout, priority, methodParam,
+				failoverInvoker);
 	}
 
 	/**
-	 * 干掉有问题的连接
-	 * 
-	 * @param connectorContext
+	 * 放入批量请求中，不再对冲、重试，失败时每个调用方各自执行failoverInvoker
+	 */
+	private CompletableFuture<?> executeBatched(RequestBatcher requestBatcher, long timeout, Priority priority,
+			MethodParam methodParam, Invoker<CompletableFuture<?>> failoverInvoker) {
+
+		CompletableFuture<Object> result = new CompletableFuture<>();
+
+		requestBatcher.add(methodParam, timeout, priority).whenComplete((value, throwable) -> {
+			if (throwable != null) {
+				completeWithFailover(result, failoverInvoker, methodParam);
+			} else {
+				result.complete(value);
+			}
+		});
+
+		return result;
+	}
+
+	/**
+	 * 发送一个批量请求，所有子请求发往同一个服务端
 	 */
-	private synchronized void kill(ConnectorContext connectorContext) {
+	private void sendBatch(MethodRouter router, int methodId, RequestBatcher.Batch batch) {
+		if (filters.size() > 0) {// 可能在其他线程中执行，需要重新设置
+			RemoteContext.setRemoteMethod(router.getMethod());
+			RemoteContext.setServiceMethodName(router.getServiceMethodName());
+		}
+
+		ConnectorContext connectorContext = selectConnector(router, false, 0L);
+
 		if (connectorContext == null) {
+			String msg = group + "#" + app + " " + "request error, 无可用连接 ";
+
+			if (logger.isWarnEnabled()) {
+				logger.warn(msg);
+			}
+
+			batch.fail(new RemoteException(msg, false));
 			return;
 		}
 
-		HostPort serverAddress = connectorContext.serverAddress;
+		int serviceId = getServiceId(connectorContext, methodId);
+
+		if (serviceId < 0) {
+			String msg = group + "#" + app + " " + "找不到对应的服务, methodId: " + methodId;
+
+			if (logger.isWarnEnabled()) {
+				logger.warn(msg);
+			}
 
-		if (logger.isWarnEnabled()) {
-			logger.warn(group + "#" + app + " " + serverAddress + " is zombie, and will be killed!");
+			batch.fail(new RemoteException(msg, false));
+			return;
 		}
 
-		activeMap.remove(serverAddress);
-		zombieMap.put(serverAddress, connectorContext);
+		connectorContext.executeBatch(serviceId, batch);
+	}
 
-		Collection<ConnectorContext> connectors = activeMap.values();
+	/**
+	 * 成功且不为null的结果写入缓存
+	 * 
+	 * @param responseCache
+	 *            为null时不缓存
+	 */
+	private static CompletableFuture<?> cacheResult(TinyLfuCache<MethodParam, Object> responseCache,
+			CompletableFuture<?> future, MethodParam methodParam) {
 
-		int length = methodRouterMap.size();
-		for (int i = 0; i < length; i++) {
-			MethodRouter router = methodRouterMap.get(i);
+		if (responseCache == null) {
+			return future;
+		}
 
-			if (!connectorContext.isSupport(router.getServiceMethodName())) {
-				continue;
+		return future.whenComplete((result, throwable) -> {
+			if (throwable == null && result != null) {
+				responseCache.put(methodParam, result);
 			}
+		});
+	}
 
-			router.setConnectors(connectors);
-		}
+	/**
+	 * 发送一次请求，配置了对冲时为主请求及可能的对冲请求
+	 */
+	private CompletableFuture<?> executeOnce(MethodRouter router, ConnectorContext connectorContext, int methodId,
+			int serviceId, long timeout, Priority priority, MethodParam methodParam,
+			Invoker<CompletableFuture<?>> failoverInvoker) {
+
+		HedgePolicy hedgePolicy = router.getHedgePolicy();
 
-		if (logger.isWarnEnabled()) {
-			logger.warn(group + "#" + app + " " + serverAddress + " is zombie, and have been killed!");
+		if (hedgePolicy != null) {
+			return executeWithHedge(router, hedgePolicy, connectorContext, methodId, serviceId, timeout, priority,
+					methodParam, failoverInvoker);
 		}
+
+		return connectorContext.execute(serviceId, timeout, priority, methodParam, failoverInvoker);
 	}
 
-	private void heartbeat() {
-		if (isCloseing) {
-			return;
-		}
+	/**
+	 * 失败后随机退避，换一个服务端重试，重试需要从App共用的令牌桶中取得令牌，<br>
+	 * 所以服务端故障时重试不会超过正常请求的 retry.budget%，重试用完时才使用failoverInvoker
+	 */
+	private CompletableFuture<?> executeWithRetry(MethodRouter router, RetryConfig retryConfig,
+			ConnectorContext connectorContext, int methodId, int serviceId, long timeout, Priority priority,
+			MethodParam methodParam, Invoker<CompletableFuture<?>> failoverInvoker) {
 
-		if (logger.isDebugEnabled()) {
-			logger.debug(group + "#" + app + " start heartbeat");
-		}
+		retryBudget.deposit();
 
-		activeMap//
-				.entrySet()//
-				.stream()//
-				.parallel()//
-				.forEach(kv -> {
-					if (isCloseing) {
-						return;
-					}
+		CompletableFuture<Object> result = new CompletableFuture<>();
+		RetryCall call = new RetryCall(router, retryConfig, methodId, timeout, priority, methodParam,
+				failoverInvoker, result);
 
-					HostPort serverAddress = kv.getKey();
-					ConnectorContext context = kv.getValue();
+		call.attempt(connectorContext, serviceId);
 
-					if (!context.heartbeat()) {
-						activeMap.remove(serverAddress);
-						zombieMap.put(serverAddress, context);
+		return result;
+	}
 
-						if (logger.isInfoEnabled()) {
-							logger.info(group + "#" + app + " " + serverAddress + " is zombie");
-						}
-					} else {
-						if (logger.isDebugEnabled()) {
-							logger.debug(group + "#" + app + " " + serverAddress + " is active");
-						}
-					}
-				});
+	/**
+	 * 一次带重试的调用
+	 */
+	private final class RetryCall {
+		private final MethodRouter router;
+		private final RetryConfig retryConfig;
+		private final int methodId;
+		private final long timeout;
+		private final Priority priority;
+		private final MethodParam methodParam;
+		private final Invoker<CompletableFuture<?>> failoverInvoker;
+		private final CompletableFuture<Object> result;
+
+		/** 已经重试的次数，同一时刻只有一个请求在进行，只需要保证可见性 */
+		private volatile int retries = 0;
+
+		RetryCall(MethodRouter router, RetryConfig retryConfig, int methodId, long timeout, Priority priority,
+				MethodParam methodParam, Invoker<CompletableFuture<?>> failoverInvoker,
+				CompletableFuture<Object> result) {
+			this.router = router;
+			this.retryConfig = retryConfig;
+			this.methodId = methodId;
+			this.timeout = timeout;
+			this.priority = priority;
+			this.methodParam = methodParam;
+			this.failoverInvoker = failoverInvoker;
+			this.result = result;
+		}
+
+		void attempt(ConnectorContext connectorContext, int serviceId) {
+			CompletableFuture<?> future;
+			try {
+				future = executeOnce(router, connectorContext, methodId, serviceId, timeout, priority, methodParam,
+						EXTRA_REQUEST_FAILED);
+			} catch (Exception e) {
+				future = CompletableFuture.failedFuture(e);
+			}
+
+			future.whenComplete((r, t) -> {
+				if (t == null) {
+					result.complete(r);
+				} else {
+					onFailure(connectorContext);
+				}
+			});
+		}
+
+		private void onFailure(ConnectorContext failedContext) {
+			if (retries >= retryConfig.maxRetries) {
+				completeWithFailover(result, failoverInvoker, methodParam);
+				return;
+			}
+
+			if (!retryBudget.tryWithdraw()) {
+				retryRejectCounter.increment();
+				completeWithFailover(result, failoverInvoker, methodParam);
+				return;
+			}
+
+			retries++;
+			retryCounter.increment();
+
+			// full jitter，避免大量重试同时到达
+			long maxBackoff = TimeUnit.MILLISECONDS.toNanos(retryConfig.backoff)
+					<< Math.min(retries - 1, MAX_BACKOFF_SHIFT);
+			long backoff = maxBackoff > 0 ? ThreadLocalRandom.current().nextLong(maxBackoff) : 0L;
+
+			// 发送时会执行客户端过滤器，不能在 EventLoop 中执行
+			Runnable task = () -> appForkJoinPool.execute(() -> retry(failedContext));
+
+			if (backoff > 0) {
+				eventLoopGroup.schedule(task, backoff, TimeUnit.NANOSECONDS);
+			} else {
+				task.run();
+			}
+		}
+
+		private void retry(ConnectorContext failedContext) {
+			ConnectorContext connectorContext = selectOtherConnector(router, failedContext);
+
+			if (connectorContext == null) {// 只剩一个服务端时仍然重试它
+				connectorContext = selectConnector(router, false, 0L);
+			}
+
+			int serviceId;
+			if (connectorContext == null || (serviceId = getServiceId(connectorContext, methodId)) < 0) {
+				completeWithFailover(result, failoverInvoker, methodParam);
+				return;
+			}
+
+			if (filters.size() > 0) {// 在其他线程中执行，需要重新设置
+				RemoteContext.setRemoteMethod(router.getMethod());
+				RemoteContext.setServiceMethodName(router.getServiceMethodName());
+			}
+
+			attempt(connectorContext, serviceId);
+		}
 	}
 
-	private void rescue() {
-		if (isCloseing) {
+	/**
+	 * 选择一个与 exclude 不同的可用连接
+	 * 
+	 * @return 没有时返回null
+	 */
+	private ConnectorContext selectOtherConnector(MethodRouter router, ConnectorContext exclude) {
+		for (int i = 0; i < MAX_CONNECTOR_SELECT_TIMES; i++) {
+			ConnectorContext selected = router.selectConnector();
+
+			if (selected != null && selected != exclude && !selected.isClosed() && selected.isAvailable()) {
+				return selected;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * 所有请求都失败后结束，与不对冲、不重试时一致，没有failoverInvoker时返回null
+	 */
+	private static void completeWithFailover(CompletableFuture<Object> result,
+			Invoker<CompletableFuture<?>> failoverInvoker, MethodParam methodParam) {
+
+		if (failoverInvoker == null) {
+			result.complete(null);
 			return;
 		}
 
-		if (logger.isDebugEnabled()) {
-			logger.debug(group + "#" + app + " start rescue zombies");
+		failoverInvoker.invoke(methodParam).whenComplete((r, t) -> {
+			if (t != null) {
+				result.completeExceptionally(t);
+			} else {
+				result.complete(r);
+			}
+		});
+	}
+
+	/**
+	 * 主请求超过对冲延迟还没有返回时，向另一个服务端再发一次，先成功返回的为准，<br>
+	 * 输掉的请求不会取消，其结果直接丢弃，都失败时才使用failoverInvoker
+	 */
+	private CompletableFuture<?> executeWithHedge(MethodRouter router, HedgePolicy hedgePolicy,
+			ConnectorContext connectorContext, int methodId, int serviceId, long timeout, Priority priority,
+			MethodParam methodParam, Invoker<CompletableFuture<?>> failoverInvoker) {
+
+		hedgePolicy.onRequest();
+
+		final long startNanos = System.nanoTime();
+		final long delayNanos = hedgePolicy.delayNanos();
+
+		if (delayNanos < 0) {// 还没有足够的样本
+			CompletableFuture<?> future = connectorContext.execute(serviceId, timeout, priority, methodParam,
+					failoverInvoker);
+			future.whenComplete((r, t) -> hedgePolicy.record(System.nanoTime() - startNanos));
+
+			return future;
 		}
 
-		if (zombieMap.isEmpty()) {
-			if (logger.isDebugEnabled()) {
-				logger.debug(group + "#" + app + ", there is no zombie");
+		final CompletableFuture<Object> result = new CompletableFuture<>();
+		// 还没有结束的请求数量，都失败时才结束
+		final AtomicInteger pending = new AtomicInteger(1);
+
+		final BiConsumer<Object, Throwable> onFailure = (r, t) -> {
+			if (pending.decrementAndGet() == 0) {
+				completeWithFailover(result, failoverInvoker, methodParam);
+			}
+		};
+
+		final Runnable sendHedge = () -> {
+			if (result.isDone()) {
+				return;
+			}
+
+			ConnectorContext hedgeContext = selectOtherConnector(router, connectorContext);
+
+			if (hedgeContext == null) {// 没有其他服务端
+				return;
+			}
+
+			int hedgeServiceId = getServiceId(hedgeContext, methodId);
+			if (hedgeServiceId < 0 || !hedgePolicy.tryHedge()) {
+				return;
 			}
 
+			if (filters.size() > 0) {// 在其他线程中执行，需要重新设置
+				RemoteContext.setRemoteMethod(router.getMethod());
+				RemoteContext.setServiceMethodName(router.getServiceMethodName());
+			}
+
+			if (pending.getAndUpdate(n -> n == 0 ? 0 : n + 1) == 0) {// 主请求已经失败结束
+				return;
+			}
+
+			hedgePolicy.onHedge();
+
+			CompletableFuture<?> hedgeFuture;
+			try {
+				hedgeFuture = hedgeContext.execute(hedgeServiceId, timeout, priority, methodParam,
+						EXTRA_REQUEST_FAILED);
+			} catch (Exception e) {
+				onFailure.accept(null, e);
+				return;
+			}
+
+			hedgeFuture.whenComplete((r, t) -> {
+				if (t != null) {
+					onFailure.accept(r, t);
+				} else if (result.complete(r)) {
+					hedgePolicy.onWin();
+				}
+			});
+		};
+
+		// 发送时会执行客户端过滤器，不能在 EventLoop 中执行
+		final ScheduledFuture<?> hedgeTask = eventLoopGroup.schedule(//
+				() -> appForkJoinPool.execute(sendHedge), delayNanos, TimeUnit.NANOSECONDS);
+
+		CompletableFuture<?> primaryFuture;
+		try {
+			primaryFuture = connectorContext.execute(serviceId, timeout, priority, methodParam,
+					EXTRA_REQUEST_FAILED);
+		} catch (RuntimeException e) {
+			hedgeTask.cancel(false);
+			throw e;
+		}
+
+		primaryFuture.whenComplete((r, t) -> {
+			hedgePolicy.record(System.nanoTime() - startNanos);
+			hedgeTask.cancel(false);
+
+			if (t != null) {
+				onFailure.accept(r, t);
+			} else {
+				result.complete(r);
+			}
+		});
+
+		return result;
+	}
+
+	/**
+	 * 设置方法的对冲请求配置，只对非流式方法有效
+	 * 
+	 * @param method
+	 * @param config
+	 *            null表示不对冲
+	 */
+	public void setHedgeConfig(Method method, HedgeConfig config) {
+		Integer methodId = getMethodId(method);
+
+		if (methodId == null) {
+			throw new InvokeException(group + "#" + app + " " + "找不到对应的服务, " + method);
+		}
+
+		methodRouterMap.get(methodId).setHedgePolicy(config == null ? null : new HedgePolicy(config));
+	}
+
+	/**
+	 * 设置方法的重试配置，只对非流式方法有效，只应用于幂等的方法
+	 * 
+	 * @param method
+	 * @param config
+	 *            null表示不重试
+	 */
+	public void setRetryConfig(Method method, RetryConfig config) {
+		Integer methodId = getMethodId(method);
+
+		if (methodId == null) {
+			throw new InvokeException(group + "#" + app + " " + "找不到对应的服务, " + method);
+		}
+
+		methodRouterMap.get(methodId).setRetryConfig(config);
+	}
+
+	/**
+	 * 设置方法的客户端缓存，只对非流式方法有效，每次设置都会清空原有的缓存
+	 * 
+	 * @param method
+	 * @param config
+	 *            null表示不缓存
+	 */
+	public void setCacheConfig(Method method, CacheConfig config) {
+		Integer methodId = getMethodId(method);
+
+		if (methodId == null) {
+			throw new InvokeException(group + "#" + app + " " + "找不到对应的服务, " + method);
+		}
+
+		methodRouterMap.get(methodId).setResponseCache(config == null //
+				? null//
+				: new TinyLfuCache<>(config.maximumSize, config.ttl));
+	}
+
+	/**
+	 * 方法的客户端缓存，可获取命中、未命中、淘汰次数
+	 * 
+	 * @param method
+	 * @return 不缓存时返回null
+	 */
+	public TinyLfuCache<MethodParam, Object> getResponseCache(Method method) {
+		Integer methodId = getMethodId(method);
+
+		if (methodId == null) {
+			return null;
+		}
+
+		return methodRouterMap.get(methodId).getResponseCache();
+	}
+
+	/**
+	 * 设置是否合并参数相同的在途请求，只对非流式方法有效，只应用于幂等的方法
+	 * 
+	 * @param method
+	 * @param coalesce
+	 */
+	public void setCoalesce(Method method, boolean coalesce) {
+		Integer methodId = getMethodId(method);
+
+		if (methodId == null) {
+			throw new InvokeException(group + "#" + app + " " + "找不到对应的服务, " + method);
+		}
+
+		MethodRouter router = methodRouterMap.get(methodId);
+
+		if (!coalesce) {
+			router.setSingleFlight(null);
+		} else if (router.getSingleFlight() == null) {
+			router.setSingleFlight(new SingleFlight());
+		}
+	}
+
+	/**
+	 * 方法的请求合并统计
+	 * 
+	 * @param method
+	 * @return 不合并时返回null
+	 */
+	public SingleFlight getSingleFlight(Method method) {
+		Integer methodId = getMethodId(method);
+
+		if (methodId == null) {
+			return null;
+		}
+
+		return methodRouterMap.get(methodId).getSingleFlight();
+	}
+
+	/**
+	 * 设置批量请求，只对非流式、不按参数路由的方法有效，启用后不再对冲、重试
+	 * 
+	 * @param method
+	 * @param batchConfig
+	 *            null表示不批量请求
+	 */
+	public void setBatchConfig(Method method, BatchConfig batchConfig) {
+		Integer methodId = getMethodId(method);
+
+		if (methodId == null) {
+			throw new InvokeException(group + "#" + app + " " + "找不到对应的服务, " + method);
+		}
+
+		MethodRouter router = methodRouterMap.get(methodId);
+
+		if (batchConfig == null) {
+			router.setRequestBatcher(null);
+		} else {
+			router.setRequestBatcher(new RequestBatcher(batchConfig, eventLoopGroup, appForkJoinPool,
+					batch -> sendBatch(router, methodId, batch)));
+		}
+	}
+
+	/**
+	 * 方法的批量请求统计
+	 * 
+	 * @param method
+	 * @return 不批量请求时返回null
+	 */
+	public RequestBatcher getRequestBatcher(Method method) {
+		Integer methodId = getMethodId(method);
+
+		if (methodId == null) {
+			return null;
+		}
+
+		return methodRouterMap.get(methodId).getRequestBatcher();
+	}
+
+	/**
+	 * 已经发出的重试次数
+	 * 
+	 * @return
+	 */
+	public long getRetryCount() {
+		return retryCounter.sum();
+	}
+
+	/**
+	 * 因为重试令牌不足而放弃的重试次数
+	 * 
+	 * @return
+	 */
+	public long getRetryRejectCount() {
+		return retryRejectCounter.sum();
+	}
+
+	/**
+	 * 方法的对冲请求策略及统计
+	 * 
+	 * @param method
+	 * @return 不对冲时返回null
+	 */
+	public HedgePolicy getHedgePolicy(Method method) {
+		Integer methodId = getMethodId(method);
+
+		if (methodId == null) {
+			return null;
+		}
+
+		return methodRouterMap.get(methodId).getHedgePolicy();
+	}
+
+	/**
+	 * 流式调用，返回值为 CompletableFuture&lt;Flow.Publisher&lt;T&gt;&gt;
+	 * 
+	 * @param methodId
+	 * 
+	 * @param timeout
+	 *            两个元素之间的最大间隔，millseconds
+	 * 
+	 * @param methodParam
+	 * 
+	 * @return
+	 */
+	public CompletableFuture<?> stream(int methodId, long timeout, MethodParam methodParam,
+			Invoker<CompletableFuture<?>> failoverInvoker) {
+		return stream(methodId, timeout, Priority.NORMAL, methodParam, failoverInvoker);
+	}
+
+	/**
+	 * 流式调用，返回值为 CompletableFuture&lt;Flow.Publisher&lt;T&gt;&gt;
+	 * 
+	 * @param methodId
+	 * 
+	 * @param timeout
+	 *            两个元素之间的最大间隔，millseconds
+	 * 
+	 * @param priority
+	 *            请求优先级
+	 * 
+	 * @param methodParam
+	 * 
+	 * @return
+	 */
+	public CompletableFuture<?> stream(int methodId, long timeout, Priority priority, MethodParam methodParam,
+			Invoker<CompletableFuture<?>> failoverInvoker) {
+		return stream(methodId, timeout, priority, false, 0L, methodParam, failoverInvoker);
+	}
+
+	/**
+	 * 按参数的一致性哈希路由的流式调用，返回值为 CompletableFuture&lt;Flow.Publisher&lt;T&gt;&gt;
+	 * 
+	 * @param methodId
+	 * 
+	 * @param timeout
+	 *            两个元素之间的最大间隔，millseconds
+	 * 
+	 * @param priority
+	 *            请求优先级
+	 * 
+	 * @param hashKey
+	 *            路由用的哈希值，使用 {@link rpc.turbo.loadbalance.HashKeys} 计算
+	 * 
+	 * @param methodParam
+	 * 
+	 * @return
+	 */
+	public CompletableFuture<?> stream(int methodId, long timeout, Priority priority, long hashKey,
+			MethodParam methodParam, Invoker<CompletableFuture<?>> failoverInvoker) {
+		return stream(methodId, timeout, priority, true, hashKey, methodParam, failoverInvoker);
+	}
+
+	private CompletableFuture<?> stream(int methodId, long timeout, Priority priority, boolean hashRouting,
+			long hashKey, MethodParam methodParam, Invoker<CompletableFuture<?>> failoverInvoker) {
+
+		MethodRouter router;
+		if (methodId < 0 || methodId >= methodRouterMap.size() //
+				|| (router = methodRouterMap.get(methodId)) == null) {
+			String msg = group + "#" + app + " " + "不支持的方法id, " + methodId;
+			logger.error(msg);
+			return CompletableFuture.failedFuture(new RemoteException(msg));
+		}
+
+		if (filters.size() > 0) {
+			RemoteContext.setRemoteMethod(router.getMethod());
+			RemoteContext.setServiceMethodName(router.getServiceMethodName());
+		}
+
+		ConnectorContext connectorContext = selectConnector(router, hashRouting, hashKey);
+
+		if (connectorContext == null) {
+			String msg = group + "#" + app + " " + "request error, 无可用连接 ";
+
+			if (logger.isWarnEnabled()) {
+				logger.warn(msg);
+			}
+
+			if (failoverInvoker == null) {
+				return CompletableFuture.failedFuture(new RemoteException(msg, false));
+			} else {
+				return failoverInvoker.invoke(methodParam);
+			}
+		}
+
+		int serviceId = getServiceId(connectorContext, methodId);
+
+		if (serviceId < 0) {
+			String msg = group + "#" + app + " " + "找不到对应的服务, methodId: " + methodId;
+
+			if (logger.isWarnEnabled()) {
+				logger.warn(msg);
+			}
+
+			return CompletableFuture.failedFuture(new RemoteException(msg, false));
+		}
+
+		return connectorContext.stream(serviceId, timeout, priority, methodParam);
+	}
+
+	/**
+	 * 某个优先级的请求延迟统计，从发出请求到返回值处理完成，包括排队时间
+	 * 
+	 * @param priority
+	 * @return
+	 */
+	public LatencyHistogram getLatencyHistogram(Priority priority) {
+		return laneHistograms[priority.lane()];
+	}
+
+	/**
+	 * 等待在途请求名额的排队延迟，所有服务器共用
+	 * 
+	 * @return
+	 */
+	public LatencyHistogram getQueueingDelayHistogram() {
+		return queueHistogram;
+	}
+
+	/**
+	 * 每个活跃服务器当前的在途请求上限，自适应时会随rtt变化
+	 * 
+	 * @return 不限制时值为-1
+	 */
+	public Map<HostPort, Integer> getConcurrencyLimits() {
+		return activeMap//
+				.values()//
+				.stream()//
+				.collect(Collectors.toMap(context -> context.serverAddress, ConnectorContext::concurrencyLimit));
+	}
+
+	/**
+	 * 
+	 * @param router
+	 * @param hashRouting
+	 *            是否按一致性哈希选择，选出的连接不可用时退回到负载均衡
+	 * @param hashKey
+	 * @return
+	 */
+	private ConnectorContext selectConnector(MethodRouter router, boolean hashRouting, long hashKey) {
+		ConnectorContext connectorContext = hashRouting ? router.selectConnector(hashKey) : router.selectConnector();
+		for (int i = 0; i < MAX_CONNECTOR_SELECT_TIMES; i++) {// 设定有限次数的尝试，防止发生死循环
+			if (connectorContext == null) {
+				return null;
+			}
+
+			if (connectorContext.isClosed()) {
+				// 说明已经在其他地方关闭，实际不存在资源泄露的问题
+				try {
+					connectorContext.close();
+				} catch (Exception e) {
+				}
+			} else if (connectorContext.isAvailable()) {// 熔断中的不再发送
+				return connectorContext;
+			}
+
+			connectorContext = router.selectConnector();
+		}
+
+		return null;
+	}
+
+	private void heartbeat() {
+		if (isCloseing) {
 			return;
 		}
 
-		zombieMap//
+		if (logger.isDebugEnabled()) {
+			logger.debug(group + "#" + app + " start heartbeat");
+		}
+
+		activeMap//
 				.entrySet()//
 				.stream()//
 				.parallel()//
@@ -604,39 +1568,104 @@ public class App implements Closeable {
 					HostPort serverAddress = kv.getKey();
 					ConnectorContext context = kv.getValue();
 
-					try {
-						context.connect();
-
-						List<String> list = loadClass(context);
-						for (String clazz : list) {
-							supportClassMap.put(clazz, Boolean.TRUE);
-						}
+					if (!context.heartbeat()) {
+						activeMap.remove(serverAddress);
+						zombieMap.put(serverAddress, context);
 
 						if (logger.isInfoEnabled()) {
-							logger.info("rescue: " + group + "#" + app + " " + context.serverAddress
-									+ " support services: " + list);
+							logger.info(group + "#" + app + " " + serverAddress + " is zombie");
+						}
+					} else {
+						if (logger.isDebugEnabled()) {
+							logger.debug(group + "#" + app + " " + serverAddress + " is active" //
+									+ ", flushCount: " + context.flushCount() //
+									+ ", concurrencyLimiter: " + context.concurrencyLimiter() //
+									+ ", averageBatchSize: " + context.averageBatchSize() //
+									+ ", averageFlushWait: " + context.averageFlushWait() //
+									+ ", deferCount: " + context.deferCount());
 						}
+					}
+				});
 
-						Map<String, Integer> methodStringToServiceIdMap = loadServiceId(context);
+		if (logger.isDebugEnabled()) {
+			for (int i = 0; i < laneHistograms.length; i++) {
+				logger.debug(group + "#" + app + " " + Priority.ofLane(i) + " latency: " + laneHistograms[i]);
+			}
 
-						context.clear();
-						context.setServiceMethodNameToServiceIdMap(methodStringToServiceIdMap);
+			logger.debug(group + "#" + app + " queueing delay: " + queueHistogram);
+		}
+	}
 
-						context.initSerializer();
+	/**
+	 * 同时重连全部僵尸，受 connectConcurrency 限制
+	 * 
+	 * @return 全部结束后完成
+	 */
+	private CompletableFuture<Void> rescue() {
+		if (isCloseing) {
+			return CompletableFuture.completedFuture(null);
+		}
 
-						zombieMap.remove(serverAddress);
-						activeMap.put(serverAddress, context);
+		if (logger.isDebugEnabled()) {
+			logger.debug(group + "#" + app + " start rescue zombies");
+		}
 
-						if (logger.isInfoEnabled()) {
-							logger.info(group + "#" + app + " " + context.serverAddress + " zombie is rescued");
-						}
-					} catch (Exception e) {
-						if (logger.isWarnEnabled()) {
-							logger.warn("rescue: " + group + "#" + app + " " + context.serverAddress
-									+ " zombie is also zombie", e);
+		if (zombieMap.isEmpty()) {
+			if (logger.isDebugEnabled()) {
+				logger.debug(group + "#" + app + ", there is no zombie");
+			}
+
+			return CompletableFuture.completedFuture(null);
+		}
+
+		CompletableFuture<?>[] rescueFutures = zombieMap//
+				.entrySet()//
+				.stream()//
+				.map(kv -> {
+					HostPort serverAddress = kv.getKey();
+					ConnectorContext context = kv.getValue();
+
+					return connectOnce(serverAddress, () -> {
+						if (isCloseing) {
+							return CompletableFuture.completedFuture(null);
 						}
-					}
-				});
+
+						return context//
+								.connect()//
+								// 恢复的服务端很可能重新部署过，不使用快照，带上已知的hash校验
+								.thenCompose(v -> context.loadMetadata())//
+								.thenAcceptAsync(metadata -> {
+									saveSnapshot(serverAddress, metadata);
+
+									setMetadata(context, metadata);
+									context.startWarmup();
+
+									if (zombieMap.get(serverAddress) != context) {// 已经下线
+										closeQuietly(context);
+										return;
+									}
+
+									if (!addConnect(context)) {
+										return;
+									}
+
+									if (logger.isInfoEnabled()) {
+										logger.info(group + "#" + app + " " + serverAddress + " zombie is rescued");
+									}
+								}, appForkJoinPool)//
+								.exceptionally(t -> {
+									if (logger.isWarnEnabled()) {
+										logger.warn("rescue: " + group + "#" + app + " " + serverAddress
+												+ " zombie is also zombie", t);
+									}
+
+									return null;
+								});
+					});
+				})//
+				.toArray(CompletableFuture[]::new);
+
+		return CompletableFuture.allOf(rescueFutures);
 	}
 
 	/**
@@ -680,32 +1709,6 @@ public class App implements Closeable {
 		return serviceId;
 	}
 
-	/**
-	 * 添加时调用一次就行了
-	 * 
-	 * @throws Exception
-	 */
-	private List<String> loadClass(ConnectorContext context) throws Exception {
-		int serviceId = TurboConnectService.SERVICE_CLASS_REGISTER;
-		long timeout = TurboService.DEFAULT_TIME_OUT;
-		CompletableFuture<List<String>> future = context.execute(serviceId, timeout);
-
-		return future.get();
-	}
-
-	/**
-	 * 添加时调用一次就行了
-	 * 
-	 * @throws Exception
-	 */
-	private Map<String, Integer> loadServiceId(ConnectorContext context) throws Exception {
-		int serviceId = TurboConnectService.SERVICE_METHOD_REGISTER;
-		long timeout = TurboService.DEFAULT_TIME_OUT;
-		CompletableFuture<Map<String, Integer>> future = context.execute(serviceId, timeout);
-
-		return future.get();
-	}
-
 	@Override
 	public void close() throws IOException {
 		if (isCloseing) {
@@ -725,6 +1728,8 @@ public class App implements Closeable {
 			}
 		});
 
+		flushSnapshot();
+
 		activeMap.clear();
 		zombieMap.clear();
 		methodStringToIdMap.clear();
@@ -0,0 +1,308 @@
+package rpc.turbo.transport.client;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+
+import rpc.turbo.config.client.CircuitBreakerConfig;
+
+/**
+ * 熔断器，关闭、打开、半开三种状态，线程安全<br>
+ * 关闭状态下 {@link #acquire()} 只有一次volatile读，<br>
+ * 选择服务器时使用没有副作用的 {@link #isAvailable()}，实际发送时才占用半开状态的探测名额，<br>
+ * 成功的请求只做计数，失败、慢调用时才计算滑动窗口内的比例
+ *
+ * @author Hank
+ *
+ */
+final class CircuitBreaker {
+	static final int CLOSED = 0;
+	static final int OPEN = 1;
+	static final int HALF_OPEN = 2;
+
+	/** {@link #acquire()} 的结果，不允许发送 */
+	static final int REJECTED = 0;
+	/** {@link #acquire()} 的结果，允许发送 */
+	static final int PERMITTED = 1;
+	/** {@link #acquire()} 的结果，允许发送，占用了一个探测名额 */
+	static final int PROBE = 2;
+
+	/** 滑动窗口分成几个桶 */
+	private static final int BUCKET_COUNT = 10;
+
+	private final long bucketNanos;
+	private final int minimumCalls;
+	private final int failureRate;
+	private final long slowCallNanos;
+	private final int slowCallRate;
+	private final long openNanos;
+	private final int halfOpenCalls;
+	private final int consecutiveFailureThreshold;
+
+	/** 计算桶序号的起点，保证序号不为负数 */
+	private final long origin = System.nanoTime();
+	private final Bucket[] buckets = new Bucket[BUCKET_COUNT];
+	private final AtomicInteger state = new AtomicInteger(CLOSED);
+	private final AtomicInteger consecutiveFailures = new AtomicInteger();
+	/** 半开状态已经放行的探测请求数量 */
+	private final AtomicInteger probes = new AtomicInteger();
+	/** 半开状态已经成功的探测请求数量 */
+	private final AtomicInteger probeSuccesses = new AtomicInteger();
+	/** 打开状态下为进入半开的时间，半开状态下为重新放行探测请求的时间 */
+	private volatile long deadline;
+
+	/**
+	 *
+	 * @param config
+	 * @param consecutiveFailureThreshold
+	 *            连续失败多少次时打开，小于1时不按连续失败熔断
+	 */
+	CircuitBreaker(CircuitBreakerConfig config, int consecutiveFailureThreshold) {
+		this.bucketNanos = Math.max(1L, TimeUnit.MILLISECONDS.toNanos(config.getWindow()) / BUCKET_COUNT);
+		this.minimumCalls = Math.max(1, config.getMinimumCalls());
+		this.failureRate = config.getFailureRate();
+		this.slowCallNanos = config.getSlowCallDuration() < 1 //
+				? Long.MAX_VALUE//
+				: TimeUnit.MILLISECONDS.toNanos(config.getSlowCallDuration());
+		this.slowCallRate = config.getSlowCallRate();
+		this.openNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, config.getOpenDuration()));
+		this.halfOpenCalls = Math.max(1, config.getHalfOpenCalls());
+		this.consecutiveFailureThreshold = consecutiveFailureThreshold < 1 //
+				? Integer.MAX_VALUE//
+				: consecutiveFailureThreshold;
+
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			buckets[i] = new Bucket();
+		}
+	}
+
+	/**
+	 * 是否可以选择这个服务器，不会占用探测名额
+	 *
+	 * @return
+	 */
+	boolean isAvailable() {
+		int current = state.get();
+
+		if (current == CLOSED) {
+			return true;
+		}
+
+		if (System.nanoTime() - deadline >= 0) {// 即将进入半开或者重新放行探测请求
+			return true;
+		}
+
+		return current == HALF_OPEN && probes.get() < halfOpenCalls;
+	}
+
+	/**
+	 * 实际发送请求前调用，半开状态下会占用一个探测名额，<br>
+	 * 请求没有发出时必须调用 {@link #releaseProbe()} 归还
+	 *
+	 * @return {@link #REJECTED}, {@link #PERMITTED}, {@link #PROBE}
+	 */
+	int acquire() {
+		int current = state.get();
+
+		if (current == CLOSED) {
+			return PERMITTED;
+		}
+
+		long now = System.nanoTime();
+
+		if (current == OPEN) {
+			if (now - deadline < 0) {
+				return REJECTED;
+			}
+
+			// 先设置半开状态的超时时间，其他线程最多看到晚一点进入半开
+			deadline = now + openNanos;
+			state.compareAndSet(OPEN, HALF_OPEN);
+		} else if (now - deadline >= 0) {// 探测请求可能没有发出，超时后重新放行
+			deadline = now + openNanos;
+			probes.set(0);
+			probeSuccesses.set(0);
+		}
+
+		return probes.getAndUpdate(n -> n < halfOpenCalls ? n + 1 : n) < halfOpenCalls ? PROBE : REJECTED;
+	}
+
+	/**
+	 * 占用了探测名额的请求没有发出，归还名额
+	 */
+	void releaseProbe() {
+		if (state.get() == HALF_OPEN) {
+			probes.getAndUpdate(n -> n > 0 ? n - 1 : 0);
+		}
+	}
+
+	/**
+	 * 记录一次成功的请求
+	 *
+	 * @param latency
+	 *            纳秒
+	 */
+	void onSuccess(long latency) {
+		if (consecutiveFailures.get() != 0) {
+			consecutiveFailures.set(0);
+		}
+
+		int current = state.get();
+
+		if (current == HALF_OPEN) {
+			if (latency >= slowCallNanos) {
+				open(current);
+			} else if (probeSuccesses.incrementAndGet() >= halfOpenCalls) {
+				close();
+			}
+
+			return;
+		}
+
+		if (current != CLOSED) {
+			return;
+		}
+
+		Bucket bucket = bucket(System.nanoTime());
+		bucket.calls.increment();
+
+		if (latency >= slowCallNanos) {
+			bucket.slowCalls.increment();
+			checkThreshold();
+		}
+	}
+
+	/**
+	 * 记录一次失败的请求，只应该是连接错误、超时这类说明服务端不可用的错误
+	 */
+	void onError() {
+		int current = state.get();
+
+		if (current == HALF_OPEN) {
+			open(current);
+			return;
+		}
+
+		if (current != CLOSED) {
+			return;
+		}
+
+		Bucket bucket = bucket(System.nanoTime());
+		bucket.calls.increment();
+		bucket.failures.increment();
+
+		if (consecutiveFailures.incrementAndGet() >= consecutiveFailureThreshold) {
+			open(CLOSED);
+		} else {
+			checkThreshold();
+		}
+	}
+
+	/**
+	 * 当前状态
+	 *
+	 * @return {@link #CLOSED}, {@link #OPEN}, {@link #HALF_OPEN}
+	 */
+	int state() {
+		return state.get();
+	}
+
+	/**
+	 * 重新连接后调用，回到关闭状态
+	 */
+	void reset() {
+		close();
+	}
+
+	private void checkThreshold() {
+		long epoch = (System.nanoTime() - origin) / bucketNanos;
+		long calls = 0L, failures = 0L, slowCalls = 0L;
+
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			Bucket bucket = buckets[i];
+
+			if (epoch - bucket.epoch >= BUCKET_COUNT) {// 已经滑出窗口
+				continue;
+			}
+
+			calls += bucket.calls.sum();
+			failures += bucket.failures.sum();
+			slowCalls += bucket.slowCalls.sum();
+		}
+
+		if (calls < minimumCalls) {
+			return;
+		}
+
+		if (failures * 100 >= failureRate * calls || slowCalls * 100 >= slowCallRate * calls) {
+			open(CLOSED);
+		}
+	}
+
+	private void open(int expect) {
+		if (state.get() != expect) {
+			return;
+		}
+
+		// 先设置进入半开的时间，保证其他线程看到OPEN时不会读到旧的时间
+		deadline = System.nanoTime() + openNanos;
+		probes.set(0);
+		probeSuccesses.set(0);
+
+		state.compareAndSet(expect, OPEN);
+	}
+
+	private void close() {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			buckets[i].reset();
+		}
+
+		consecutiveFailures.set(0);
+		state.set(CLOSED);
+	}
+
+	private Bucket bucket(long now) {
+		long epoch = (now - origin) / bucketNanos;
+		Bucket bucket = buckets[(int) (epoch % BUCKET_COUNT)];
+		long bucketEpoch = bucket.epoch;
+
+		// 轮转时与计数并发可能丢失少量计数，对比例的影响可以忽略
+		if (bucketEpoch != epoch && Bucket.EPOCH_UPDATER.compareAndSet(bucket, bucketEpoch, epoch)) {
+			bucket.calls.reset();
+			bucket.failures.reset();
+			bucket.slowCalls.reset();
+		}
+
+		return bucket;
+	}
+
+	@Override
+	public String toString() {
+		int current = state.get();
+
+		return "CircuitBreaker{" + //
+				"state=" + (current == CLOSED ? "CLOSED" : current == OPEN ? "OPEN" : "HALF_OPEN") + //
+				", consecutiveFailures=" + consecutiveFailures.get() + //
+				'}';
+	}
+
+	private static final class Bucket {
+		private static final AtomicLongFieldUpdater<Bucket> EPOCH_UPDATER = //
+				AtomicLongFieldUpdater.newUpdater(Bucket.class, "epoch");
+
+		/** 初始为已经滑出窗口 */
+		private volatile long epoch = -BUCKET_COUNT;
+		private final LongAdder calls = new LongAdder();
+		private final LongAdder failures = new LongAdder();
+		private final LongAdder slowCalls = new LongAdder();
+
+		private void reset() {
+			this.epoch = -BUCKET_COUNT;
+			calls.reset();
+			failures.reset();
+			slowCalls.reset();
+		}
+	}
+
+}
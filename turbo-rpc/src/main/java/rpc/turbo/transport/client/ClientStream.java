@@ -0,0 +1,312 @@
+package rpc.turbo.transport.client;
+
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.netty.util.internal.shaded.org.jctools.queues.atomic.MpscAtomicArrayQueue;
+import rpc.turbo.config.Priority;
+import rpc.turbo.param.StreamCreditParam;
+import rpc.turbo.protocol.Response;
+import rpc.turbo.protocol.ResponseStatus;
+import rpc.turbo.remote.RemoteException;
+
+/**
+ * 客户端的一个流式调用，只允许订阅一次<br>
+ * 订阅时授予服务端 window 个 credit，下游每消费 window/2 个元素再补充相应的 credit，<br>
+ * 服务端发送的元素不会超过 credit，所以缓存的元素最多 window 个<br>
+ * 请求可能在并发限制的队列中等待，发出前的 credit 和取消先暂存，请求发出后再发送
+ *
+ * @author Hank
+ *
+ * @param <T>
+ *            元素类型
+ */
+final class ClientStream<T> implements Flow.Publisher<T>, Flow.Subscription {
+	/** 请求已发出，credit 可以直接发送 */
+	private static final int SENT = Integer.MIN_VALUE;
+
+	private static final Flow.Subscription NOOP_SUBSCRIPTION = new Flow.Subscription() {
+		@Override
+		public void request(long n) {
+		}
+
+		@Override
+		public void cancel() {
+		}
+	};
+
+	private final ConnectorContext context;
+	private final int requestId;
+	/** credit 必须与流式请求走同一个优先级通道，否则可能先于请求到达服务端 */
+	private final Priority priority;
+	private final int window;
+	/** 消费多少个元素后补充 credit */
+	private final int replenishThreshold;
+
+	/** 单生产者(EventLoop)单消费者(drain) */
+	private final MpscAtomicArrayQueue<Object> queue;
+	private final AtomicBoolean subscribed = new AtomicBoolean(false);
+	private final AtomicLong requested = new AtomicLong();
+	private final AtomicInteger wip = new AtomicInteger();
+	/** 请求发出前暂存的 credit，请求发出后为 {@link #SENT} */
+	private final AtomicInteger unsentCredit = new AtomicInteger();
+
+	private volatile Flow.Subscriber<? super T> subscriber;
+	private volatile boolean done = false;
+	private volatile Throwable error;
+	private volatile boolean cancelled = false;
+
+	/** 只在 drain 中使用 */
+	private int consumed = 0;
+
+	ClientStream(ConnectorContext context, int requestId, Priority priority, int window) {
+		this.context = context;
+		this.requestId = requestId;
+		this.priority = priority;
+		this.window = window;
+		this.replenishThreshold = Math.max(1, window >> 1);
+		this.queue = new MpscAtomicArrayQueue<>(window);
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super T> subscriber) {
+		if (!subscribed.compareAndSet(false, true)) {
+			subscriber.onSubscribe(NOOP_SUBSCRIPTION);
+			subscriber.onError(new IllegalStateException("stream only support one subscriber"));
+			return;
+		}
+
+		this.subscriber = subscriber;
+		subscriber.onSubscribe(this);
+
+		if (!done) {
+			sendCredit(window);
+		}
+
+		drain();
+	}
+
+	@Override
+	public void request(long n) {
+		if (n < 1) {
+			if (!done && !cancelled) {
+				sendCredit(StreamCreditParam.CANCEL);
+			}
+
+			error = new IllegalArgumentException("request must > 0, " + n);
+			done = true;
+			drain();
+			return;
+		}
+
+		long current, next;
+		do {
+			current = requested.get();
+
+			if (current == Long.MAX_VALUE) {
+				return;
+			}
+
+			next = current + n;
+
+			if (next < 0) {
+				next = Long.MAX_VALUE;
+			}
+		} while (!requested.compareAndSet(current, next));
+
+		drain();
+	}
+
+	@Override
+	public void cancel() {
+		if (cancelled) {
+			return;
+		}
+
+		cancelled = true;
+
+		if (!done) {
+			sendCredit(StreamCreditParam.CANCEL);
+		}
+
+		if (wip.getAndIncrement() == 0) {
+			queue.clear();
+		}
+	}
+
+	/**
+	 * 收到一个元素，在 EventLoop 中调用
+	 *
+	 * @param element
+	 */
+	void onNext(Object element) {
+		if (done || cancelled) {
+			return;
+		}
+
+		if (!queue.offer(element)) {// 服务端没有遵守 credit
+			onTerminate(null, new RemoteException("stream overflow, requestId: " + requestId, false));
+			cancel();
+			return;
+		}
+
+		drain();
+	}
+
+	/**
+	 * 流结束
+	 *
+	 * @param response
+	 *            结束 frame
+	 * @param throwable
+	 *            出错、超时
+	 */
+	void onTerminate(Response response, Throwable throwable) {
+		if (done) {
+			return;
+		}
+
+		if (throwable != null) {
+			error = throwable;
+		} else if (response == null) {
+			error = new RemoteException("stream error, requestId: " + requestId, false);
+		} else if (response.getStatusCode() != ResponseStatus.STREAM_COMPLETE) {
+			error = new RemoteException("stream error, requestId: " + requestId //
+					+ ", status code is " + response.getStatusCode() //
+					+ ", reason is " + response.getResult(), false);
+		}
+
+		done = true;
+
+		if (error != null && !cancelled) {// 超时等情况下服务端可能还未结束
+			sendCredit(StreamCreditParam.CANCEL);
+		}
+
+		drain();
+	}
+
+	/**
+	 * 请求已经交给连接发送，之后的 credit 不会先于请求到达服务端
+	 */
+	void onSent() {
+		int credit = unsentCredit.getAndSet(SENT);
+
+		if (credit != 0 && credit != SENT) {
+			context.sendStreamCredit(requestId, priority, credit);
+		}
+	}
+
+	/**
+	 * 请求发出前暂存，服务端会丢弃未知请求的 credit
+	 * 
+	 * @param credit
+	 *            {@link StreamCreditParam#CANCEL} 表示取消
+	 */
+	private void sendCredit(int credit) {
+		for (;;) {
+			int current = unsentCredit.get();
+
+			if (current == SENT) {
+				context.sendStreamCredit(requestId, priority, credit);
+				return;
+			}
+
+			int next;
+			if (current == StreamCreditParam.CANCEL || credit == StreamCreditParam.CANCEL) {
+				next = StreamCreditParam.CANCEL;
+			} else {
+				next = current + credit;
+			}
+
+			if (unsentCredit.compareAndSet(current, next)) {
+				return;
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void drain() {
+		if (wip.getAndIncrement() != 0) {
+			return;
+		}
+
+		int missed = 1;
+
+		for (;;) {
+			Flow.Subscriber<? super T> subscriber = this.subscriber;
+
+			if (subscriber != null) {
+				long r = requested.get();
+				long e = 0L;
+
+				while (e != r) {
+					if (checkTerminated(subscriber)) {
+						return;
+					}
+
+					Object element = queue.poll();
+
+					if (element == null) {
+						break;
+					}
+
+					subscriber.onNext((T) element);
+					e++;
+
+					if (++consumed >= replenishThreshold) {
+						if (!done && !cancelled) {
+							sendCredit(consumed);
+						}
+
+						consumed = 0;
+					}
+				}
+
+				if (checkTerminated(subscriber)) {
+					return;
+				}
+
+				if (e != 0L && r != Long.MAX_VALUE) {
+					requested.addAndGet(-e);
+				}
+			}
+
+			missed = wip.addAndGet(-missed);
+
+			if (missed == 0) {
+				break;
+			}
+		}
+	}
+
+	private boolean checkTerminated(Flow.Subscriber<? super T> subscriber) {
+		if (cancelled) {
+			queue.clear();
+			return true;
+		}
+
+		if (!done) {
+			return false;
+		}
+
+		Throwable error = this.error;
+
+		if (error != null) {
+			cancelled = true;
+			queue.clear();
+			subscriber.onError(error);
+			return true;
+		}
+
+		if (queue.isEmpty()) {
+			cancelled = true;
+			subscriber.onComplete();
+			return true;
+		}
+
+		return false;
+	}
+
+}
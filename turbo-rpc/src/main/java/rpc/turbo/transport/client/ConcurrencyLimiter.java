@@ -0,0 +1,474 @@
+package rpc.turbo.transport.client;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+
+import rpc.turbo.transport.client.exception.ResponseTimeoutException;
+import rpc.turbo.util.concurrent.LatencyHistogram;
+
+/**
+ * 每个服务器的在途请求上限，线程安全，不会阻塞调用线程<br>
+ * 没有名额时请求放入有界的等待队列，由释放名额的线程发送，队列满时直接拒绝，<br>
+ * 在等待队列中超时的按自己的超时时间失败，不用等到有名额释放<br>
+ * 自适应模式下按 Vegas 算法调整上限：<br>
+ * 估算排队的请求数 queue = limit * (1 - minRtt / rtt)，排队少于 alpha 时增大，多于 beta 时减小，<br>
+ * 请求超时时按比例减小，每 {@value #UPDATE_PERIOD_MILLS}ms 最多调整一次，响应时只做计数
+ *
+ * @author Hank
+ *
+ */
+final class ConcurrencyLimiter {
+	/** 调整上限的最小间隔 */
+	private static final long UPDATE_PERIOD_MILLS = 100L;
+	private static final long UPDATE_PERIOD_NANOS = TimeUnit.MILLISECONDS.toNanos(UPDATE_PERIOD_MILLS);
+	/** 每隔多久重新探测无负载时的rtt，防止服务端变化后minRtt一直偏小 */
+	private static final long MIN_RTT_RESET_NANOS = TimeUnit.SECONDS.toNanos(30);
+	/** 超时时的减小比例 */
+	private static final double BACKOFF_RATIO = 0.9D;
+	/** 窗口内至少多少个样本才调整 */
+	private static final int MIN_SAMPLES = 8;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final ConcurrentLinkedQueue<Pending> pendingQueue = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger pendingCount = new AtomicInteger();
+	/** 同一时刻只有一个线程从等待队列中发送，防止同步失败时递归过深 */
+	private final AtomicInteger drainWip = new AtomicInteger();
+	private final LongAdder rejectCounter = new LongAdder();
+	private final LongAdder expireCounter = new LongAdder();
+	private final int maxPending;
+	private final boolean adaptive;
+	private final int minLimit;
+	private final int maxLimit;
+	/** 排队延迟，App 内所有服务器共用，null表示不记录 */
+	private final LatencyHistogram queueHistogram;
+	/** 等待超时的定时器，null表示等待不会超时 */
+	private final ScheduledExecutorService scheduler;
+	/** 不为null时已关闭，之后的请求都使用它失败 */
+	private volatile Throwable failure;
+
+	private volatile int limit;
+	/** 只在持有 updating 时读写 */
+	private double estimatedLimit;
+	private long minRtt = Long.MAX_VALUE;
+	private long minRttResetTime;
+
+	private final AtomicBoolean updating = new AtomicBoolean();
+	private final AtomicLong lastUpdateTime = new AtomicLong(System.nanoTime());
+	private final LongAdder rttSum = new LongAdder();
+	private final LongAdder rttCount = new LongAdder();
+	private final AtomicLong windowMinRtt = new AtomicLong(Long.MAX_VALUE);
+	/** 窗口内是否有足够的在途请求，请求太少时rtt不能反映服务端的能力 */
+	private volatile boolean saturated = false;
+	private volatile boolean dropped = false;
+
+	/**
+	 * 固定上限
+	 *
+	 * @param max
+	 * @param maxPending
+	 *            等待队列的最大长度
+	 * @param queueHistogram
+	 *            记录排队延迟，null表示不记录
+	 * @param scheduler
+	 *            等待超时的定时器，null表示等待不会超时
+	 */
+	ConcurrencyLimiter(int max, int maxPending, LatencyHistogram queueHistogram,
+			ScheduledExecutorService scheduler) {
+		this(max, max, max, false, maxPending, queueHistogram, scheduler);
+	}
+
+	/**
+	 *
+	 * @param initial
+	 *            初始上限
+	 * @param min
+	 *            最小上限
+	 * @param max
+	 *            最大上限
+	 * @param adaptive
+	 *            是否自适应
+	 * @param maxPending
+	 *            等待队列的最大长度
+	 * @param queueHistogram
+	 *            记录排队延迟，null表示不记录
+	 * @param scheduler
+	 *            等待超时的定时器，null表示等待不会超时
+	 */
+	ConcurrencyLimiter(int initial, int min, int max, boolean adaptive, int maxPending,
+			LatencyHistogram queueHistogram, ScheduledExecutorService scheduler) {
+		if (min < 1 || max < min || initial < min || initial > max) {
+			throw new IllegalArgumentException(
+					"must 1 <= min <= initial <= max, min: " + min + ", initial: " + initial + ", max: " + max);
+		}
+
+		this.maxPending = Math.max(0, maxPending);
+		this.adaptive = adaptive;
+		this.minLimit = min;
+		this.maxLimit = max;
+		this.queueHistogram = queueHistogram;
+		this.scheduler = scheduler;
+		this.limit = initial;
+		this.estimatedLimit = initial;
+		this.minRttResetTime = System.nanoTime() + MIN_RTT_RESET_NANOS;
+	}
+
+	/**
+	 * 有名额时在当前线程中执行，否则放入等待队列，由释放名额的线程执行，等待不会超时
+	 *
+	 * @param task
+	 *            获得名额后执行，参数为排队时间，纳秒
+	 * @return 等待队列已满时返回false，task不会被执行
+	 */
+	boolean execute(Task task) {
+		return execute(task, -1L);
+	}
+
+	/**
+	 * 有名额时在当前线程中执行，否则放入等待队列，由释放名额的线程执行
+	 *
+	 * @param task
+	 *            获得名额后执行，参数为排队时间，纳秒
+	 * @param timeoutNanos
+	 *            最多等待多久，超时后调用 {@link Task#reject(Throwable)}，小于0表示不会超时
+	 * @return 等待队列已满时返回false，task不会被执行
+	 */
+	boolean execute(Task task, long timeoutNanos) {
+		Throwable failure = this.failure;
+		if (failure != null) {
+			task.reject(failure);
+			return true;
+		}
+
+		if (tryAcquire()) {
+			if (queueHistogram != null) {
+				queueHistogram.record(0L);
+			}
+
+			task.accept(0L);
+			return true;
+		}
+
+		if (pendingCount.incrementAndGet() > maxPending) {
+			pendingCount.decrementAndGet();
+			rejectCounter.increment();
+			return false;
+		}
+
+		Pending pending = new Pending(task, System.nanoTime());
+
+		if (scheduler != null && timeoutNanos >= 0) {
+			pending.expireFuture = scheduler.schedule(() -> expire(pending), timeoutNanos, TimeUnit.NANOSECONDS);
+		}
+
+		pendingQueue.offer(pending);
+
+		// 入队前可能已经有名额释放或者已经关闭
+		if (this.failure != null) {
+			failAll(this.failure);
+		} else {
+			drain();
+		}
+
+		return true;
+	}
+
+	/**
+	 * 在等待队列中超时，不用等待名额释放
+	 *
+	 * @param pending
+	 */
+	private void expire(Pending pending) {
+		if (!pending.claim()) {// 已经开始执行
+			return;
+		}
+
+		pendingQueue.remove(pending);
+		pendingCount.decrementAndGet();
+		expireCounter.increment();
+
+		pending.task.reject(ResponseTimeoutException.NONE_STACK_TRACE);
+	}
+
+	/**
+	 * 关闭，等待队列中的请求全部失败，之后的请求也直接失败
+	 *
+	 * @param cause
+	 */
+	void failAll(Throwable cause) {
+		if (failure == null) {
+			failure = cause;
+		}
+
+		for (;;) {
+			Pending pending = pollPending();
+
+			if (pending == null) {
+				break;
+			}
+
+			pendingCount.decrementAndGet();
+			pending.task.reject(cause);
+		}
+	}
+
+	/**
+	 * 取出下一个，跳过已经超时的
+	 *
+	 * @return 没有时返回null
+	 */
+	private Pending pollPending() {
+		for (;;) {
+			Pending pending = pendingQueue.poll();
+
+			if (pending == null || pending.claim()) {
+				return pending;
+			}
+		}
+	}
+
+	private boolean tryAcquire() {
+		for (;;) {
+			int current = inFlight.get();
+
+			if (current >= limit) {
+				return false;
+			}
+
+			if (inFlight.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	private void drain() {
+		if (drainWip.getAndIncrement() != 0) {
+			return;
+		}
+
+		int missed = 1;
+
+		for (;;) {
+			while (!pendingQueue.isEmpty() && tryAcquire()) {
+				Pending pending = pollPending();
+
+				if (pending == null) {
+					inFlight.decrementAndGet();
+					break;
+				}
+
+				pendingCount.decrementAndGet();
+
+				long queueNanos = System.nanoTime() - pending.enqueueNanos;
+				if (queueHistogram != null) {
+					queueHistogram.record(queueNanos);
+				}
+
+				pending.task.accept(queueNanos);
+			}
+
+			missed = drainWip.addAndGet(-missed);
+
+			if (missed == 0) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * 请求结束时调用
+	 *
+	 * @param rtt
+	 *            请求耗时，不包括排队时间，纳秒，小于0表示不作为样本
+	 * @param timeout
+	 *            是否超时
+	 */
+	void release(long rtt, boolean timeout) {
+		inFlight.decrementAndGet();
+
+		if (adaptive) {
+			sample(rtt, timeout);
+		}
+
+		if (!pendingQueue.isEmpty()) {
+			drain();
+		}
+	}
+
+	private void sample(long rtt, boolean timeout) {
+
+		if (timeout) {
+			dropped = true;
+		} else if (rtt >= 0) {
+			rttSum.add(rtt);
+			rttCount.increment();
+
+			long currentMin = windowMinRtt.get();
+			if (rtt < currentMin) {
+				windowMinRtt.compareAndSet(currentMin, rtt);
+			}
+
+			if (!saturated && inFlight.get() >= (limit >> 1)) {
+				saturated = true;
+			}
+		}
+
+		long now = System.nanoTime();
+		long last = lastUpdateTime.get();
+
+		if (now - last < UPDATE_PERIOD_NANOS || !updating.compareAndSet(false, true)) {
+			return;
+		}
+
+		try {
+			if (lastUpdateTime.compareAndSet(last, now)) {
+				update(now);
+			}
+		} finally {
+			updating.set(false);
+		}
+	}
+
+	/** 必须持有 updating */
+	private void update(long now) {
+		long count = rttCount.sumThenReset();
+		long sum = rttSum.sumThenReset();
+		long sampleMinRtt = windowMinRtt.getAndSet(Long.MAX_VALUE);
+		boolean saturated = this.saturated;
+		boolean dropped = this.dropped;
+		this.saturated = false;
+		this.dropped = false;
+
+		if (sampleMinRtt != Long.MAX_VALUE && (now - minRttResetTime >= 0 || sampleMinRtt < minRtt)) {
+			minRtt = sampleMinRtt;
+			minRttResetTime = now + MIN_RTT_RESET_NANOS;
+		}
+
+		double newLimit = estimatedLimit;
+
+		if (dropped) {
+			newLimit = estimatedLimit * BACKOFF_RATIO;
+		} else if (count >= MIN_SAMPLES && saturated) {
+			double rtt = (double) sum / count;
+			double queue = Math.ceil(estimatedLimit * (1D - minRtt / rtt));
+			double log = Math.max(1D, Math.log10(estimatedLimit));
+			double alpha = 3 * log;
+			double beta = 6 * log;
+
+			if (queue <= log) {
+				newLimit = estimatedLimit + beta;
+			} else if (queue < alpha) {
+				newLimit = estimatedLimit + log;
+			} else if (queue > beta) {
+				newLimit = estimatedLimit - log;
+			}
+		}
+
+		newLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+		estimatedLimit = newLimit;
+
+		// 减小时已经在途的请求不受影响，增大时由下一次释放名额时发送等待中的请求
+		limit = (int) newLimit;
+	}
+
+	/**
+	 * 当前的在途请求上限
+	 *
+	 * @return
+	 */
+	int limit() {
+		return limit;
+	}
+
+	/**
+	 * 等待队列中的请求数量
+	 *
+	 * @return
+	 */
+	int pending() {
+		return pendingCount.get();
+	}
+
+	/**
+	 * 因为等待队列已满而拒绝的请求数量
+	 *
+	 * @return
+	 */
+	long rejectCount() {
+		return rejectCounter.sum();
+	}
+
+	/**
+	 * 在等待队列中超时的请求数量
+	 *
+	 * @return
+	 */
+	long expireCount() {
+		return expireCounter.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "ConcurrencyLimiter{" + //
+				"adaptive=" + adaptive + //
+				", limit=" + limit + //
+				", min=" + minLimit + //
+				", max=" + maxLimit + //
+				", inFlight=" + inFlight.get() + //
+				", pending=" + pendingCount.get() + //
+				", reject=" + rejectCounter.sum() + //
+				", expire=" + expireCounter.sum() + //
+				'}';
+	}
+
+	/**
+	 * 获得名额后执行的任务，参数为排队时间，纳秒
+	 */
+	@FunctionalInterface
+	interface Task extends LongConsumer {
+
+		/**
+		 * 在等待队列中超时或者关闭时调用，之后不会再执行，也不占用名额
+		 *
+		 * @param cause
+		 */
+		default void reject(Throwable cause) {
+		}
+	}
+
+	/**
+	 * 等待中的任务，执行、超时、关闭三者只有先 {@link #claim()} 成功的生效
+	 */
+	private static final class Pending extends AtomicBoolean {
+		private static final long serialVersionUID = 1L;
+
+		private final Task task;
+		private final long enqueueNanos;
+		private volatile ScheduledFuture<?> expireFuture;
+
+		private Pending(Task task, long enqueueNanos) {
+			this.task = task;
+			this.enqueueNanos = enqueueNanos;
+		}
+
+		private boolean claim() {
+			if (!compareAndSet(false, true)) {
+				return false;
+			}
+
+			ScheduledFuture<?> expireFuture = this.expireFuture;
+			if (expireFuture != null) {
+				expireFuture.cancel(false);
+			}
+
+			return true;
+		}
+	}
+
+}
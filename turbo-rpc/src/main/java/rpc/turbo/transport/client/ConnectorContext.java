@@ -3,11 +3,18 @@ package rpc.turbo.transport.client;
 import java.io.Closeable;
 import java.io.IOException;
 import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
 import java.util.stream.IntStream;
 
 import org.apache.commons.logging.Log;
@@ -15,16 +22,26 @@ import org.apache.commons.logging.LogFactory;
 
 import io.netty.channel.EventLoopGroup;
 import rpc.turbo.annotation.TurboService;
+import rpc.turbo.common.ConnectMetadata;
 import rpc.turbo.common.RemoteContext;
 import rpc.turbo.common.TurboConnectService;
 import rpc.turbo.config.HostPort;
+import rpc.turbo.config.Priority;
+import rpc.turbo.config.TurboConstants;
 import rpc.turbo.config.client.AppConfig;
 import rpc.turbo.filter.RpcClientFilter;
 import rpc.turbo.invoke.Invoker;
 import rpc.turbo.invoke.InvokerUtils;
-import rpc.turbo.loadbalance.Weightable;
+import rpc.turbo.loadbalance.LatencyLoadable;
+import rpc.turbo.loadbalance.PeakEwma;
+import rpc.turbo.loadbalance.Warmable;
 import rpc.turbo.param.EmptyMethodParam;
 import rpc.turbo.param.MethodParam;
+import rpc.turbo.param.MethodParamClassFactory;
+import rpc.turbo.param.StreamCreditParam;
+import rpc.turbo.protocol.BatchRequest;
+import rpc.turbo.protocol.BatchResponse;
+import rpc.turbo.protocol.CompressType;
 import rpc.turbo.protocol.Request;
 import rpc.turbo.protocol.Response;
 import rpc.turbo.protocol.ResponseStatus;
@@ -32,14 +49,21 @@ import rpc.turbo.recycle.RecycleUtils;
 import rpc.turbo.remote.RemoteException;
 import rpc.turbo.serialization.Serializer;
 import rpc.turbo.serialization.SerializerFactory;
+import rpc.turbo.transport.client.exception.ConnectionException;
+import rpc.turbo.transport.client.exception.ResponseTimeoutException;
 import rpc.turbo.transport.client.future.RequestWithFuture;
+import rpc.turbo.transport.client.future.StreamRequestWithFuture;
 import rpc.turbo.util.SystemClock;
 import rpc.turbo.util.concurrent.AtomicMuiltInteger;
 import rpc.turbo.util.concurrent.ConcurrentIntToIntArrayMap;
 import rpc.turbo.util.concurrent.ConcurrentIntegerSequencer;
+import rpc.turbo.util.concurrent.LatencyHistogram;
+import rpc.turbo.util.concurrent.VirtualThreadUtils;
 
-final class ConnectorContext implements Weightable, Closeable {
+final class ConnectorContext implements LatencyLoadable, Warmable, Closeable {
 	private static final Log logger = LogFactory.getLog(ConnectorContext.class);
+	private static final RemoteException REQUEST_QUEUE_FULL = new RemoteException("request queue is full", false);
+	private static final RemoteException CIRCUIT_OPEN = new RemoteException("circuit breaker is open", false);
 
 	private final AppConfig appConfig;
 	public final HostPort serverAddress;
@@ -47,23 +71,45 @@ final class ConnectorContext implements Weightable, Closeable {
 	private final int connectCount;
 	private final NettyClientConnector connector;
 	private final ConcurrentIntegerSequencer sequencer = new ConcurrentIntegerSequencer(0, true);
-	private final Semaphore requestWaitSemaphore;
+	/** 在途请求上限，null表示不限制 */
+	private final ConcurrencyLimiter requestLimiter;
+	/** 按连接统计的连续出错次数，达到 connectErrorThreshold 时请求改走其他连接 */
 	private final AtomicMuiltInteger errorCounter;
+	/** 按服务器熔断 */
+	private final CircuitBreaker circuitBreaker;
+	/** 新加入、恢复时的预热进度 */
+	private final SlowStart slowStart;
+	/** 在途请求数量，按连接分散计数，减少竞争 */
+	private final AtomicMuiltInteger inFlightCounter;
+	/** 响应延迟的 peak EWMA，供按延迟选择的 LoadBalance 使用 */
+	private final PeakEwma latencyEwma = new PeakEwma();
 	private final int globalTimeout;
+	private final int streamWindow;
 	private final CopyOnWriteArrayList<RpcClientFilter> filters;
 	private final Serializer serializer;
+	/** 完成返回给调用方的future的执行器，null表示直接在IO线程中完成 */
+	private final Executor callbackExecutor;
+	/** 按优先级通道统计的请求延迟，App 内所有连接共用 */
+	private final LatencyHistogram[] laneHistograms;
 
 	private final Method heartbeatMethod;
 	private final String heartbeatServiceMethodName;
+	private final String compressServiceMethodName;
+	private final String metadataServiceMethodName;
+	private final Class<? extends MethodParam> metadataParamClass;
 
 	private final ConcurrentIntToIntArrayMap methodIdToServiceIdMap = new ConcurrentIntToIntArrayMap();
 	private volatile Map<String, Integer> serviceMethodNameToServiceIdMap;
+	/** 最近一次获取的服务端元数据 */
+	private volatile ConnectMetadata connectMetadata;
 	private volatile int weight;
+	private volatile byte compressType = CompressType.NO;
 	private volatile boolean isClosed = false;
 
 	ConnectorContext(EventLoopGroup eventLoopGroup, AppConfig appConfig, CopyOnWriteArrayList<RpcClientFilter> filters,
-			HostPort serverAddress) {
+			HostPort serverAddress, LatencyHistogram[] laneHistograms, LatencyHistogram queueHistogram) {
 		this.appConfig = appConfig;
+		this.laneHistograms = laneHistograms;
 		this.connectCount = appConfig.getConnectPerServer();
 		this.serializer = SerializerFactory.createSerializer(appConfig.getSerializer());
 
@@ -71,26 +117,61 @@ final class ConnectorContext implements Weightable, Closeable {
 				eventLoopGroup, //
 				serializer, //
 				serverAddress, //
-				connectCount);
+				appConfig);
 
 		this.serverAddress = serverAddress;
 
 		this.errorCounter = new AtomicMuiltInteger(connectCount);
-
-		if (appConfig.getMaxRequestWait() < 1) {
-			this.requestWaitSemaphore = null;
+		this.inFlightCounter = new AtomicMuiltInteger(connectCount);
+		this.circuitBreaker = new CircuitBreaker(appConfig.getCircuitBreaker(), appConfig.getServerErrorThreshold());
+		this.slowStart = new SlowStart(appConfig.getSlowStart());
+
+		if (appConfig.isAdaptiveConcurrency()) {
+			int max = appConfig.getMaxRequestWait() < 1 //
+					? TurboConstants.DEFAULT_MAX_REQUEST_WAIT//
+					: appConfig.getMaxRequestWait();
+			int min = Math.max(1, Math.min(max, appConfig.getMinConcurrency()));
+			int initial = Math.max(min, Math.min(max, TurboConstants.DEFAULT_INITIAL_CONCURRENCY));
+
+			this.requestLimiter = new ConcurrencyLimiter(initial, min, max, true, appConfig.getMaxRequestQueue(),
+					queueHistogram, eventLoopGroup);
+		} else if (appConfig.getMaxRequestWait() < 1) {
+			this.requestLimiter = null;
 		} else {
-			this.requestWaitSemaphore = new Semaphore(appConfig.getMaxRequestWait());
+			this.requestLimiter = new ConcurrencyLimiter(appConfig.getMaxRequestWait(), appConfig.getMaxRequestQueue(),
+					queueHistogram, eventLoopGroup);
 		}
 
 		this.globalTimeout = appConfig.getGlobalTimeout();
+		this.streamWindow = appConfig.getStreamWindow() < 1 //
+				? TurboConstants.DEFAULT_STREAM_WINDOW//
+				: appConfig.getStreamWindow();
 
 		this.filters = filters;
 
+		if (appConfig.isVirtualThreadCallback()) {
+			this.callbackExecutor = VirtualThreadUtils.executor("turbo-callback-" + serverAddress);
+
+			if (callbackExecutor == null && logger.isWarnEnabled()) {
+				logger.warn("virtual thread is not supported, virtualThreadCallback is ignored");
+			}
+		} else {
+			this.callbackExecutor = null;
+		}
+
 		try {
 			heartbeatMethod = TurboConnectService.class.getDeclaredMethod("heartbeat");
 			heartbeatServiceMethodName = InvokerUtils.getServiceMethodName(appConfig.getGroup(), appConfig.getApp(),
 					heartbeatMethod);
+
+			Method compressMethod = TurboConnectService.class.getDeclaredMethod("getCompressTypeList");
+			compressServiceMethodName = InvokerUtils.getServiceMethodName(appConfig.getGroup(), appConfig.getApp(),
+					compressMethod);
+
+			Method metadataMethod = TurboConnectService.class.getDeclaredMethod("getConnectMetadata", long.class);
+			metadataServiceMethodName = InvokerUtils.getServiceMethodName(appConfig.getGroup(), appConfig.getApp(),
+					metadataMethod);
+			metadataParamClass = MethodParamClassFactory.createClass(metadataMethod);
 		} catch (Exception e) {
 			throw new RemoteException("error on init", e);
 		}
@@ -104,16 +185,117 @@ final class ConnectorContext implements Weightable, Closeable {
 		return serviceMethodNameToServiceIdMap.containsKey(serviceMethodName);
 	}
 
-	void initSerializer() throws Exception {
-		if (!serializer.isSupportedClassId()) {
-			return;
+	/**
+	 * 获取服务端的元数据，已知服务端支持 getConnectMetadata 时一次调用完成，并带上已知的hash，<br>
+	 * 否则并发调用各个内置服务，不支持时不能调用，因为老版本的服务端上对应的serviceId是业务方法
+	 * 
+	 * @return 与已知的相同时返回已知的实例
+	 */
+	CompletableFuture<ConnectMetadata> loadMetadata() {
+		ConnectMetadata known = connectMetadata;
+		CompletableFuture<ConnectMetadata> future;
+
+		if (known != null && known.getMethodRegisterMap().containsKey(metadataServiceMethodName)) {
+			future = loadMetadata(known);
+		} else {
+			future = loadMetadataSeparately();
+		}
+
+		return future.thenApply(metadata -> {
+			if (logger.isDebugEnabled()) {
+				logger.debug(serverAddress + " load " + metadata);
+			}
+
+			connectMetadata = metadata;
+
+			return metadata;
+		});
+	}
+
+	private CompletableFuture<ConnectMetadata> loadMetadata(ConnectMetadata known) {
+		int serviceId = TurboConnectService.SERVICE_CONNECT_METADATA;
+		long timeout = TurboService.DEFAULT_TIME_OUT;
+		MethodParam methodParam;
+
+		try {
+			methodParam = metadataParamClass//
+					.getConstructor(long.class)//
+					.newInstance(known.getHash());
+		} catch (Exception e) {
+			return CompletableFuture.failedFuture(e);
 		}
 
-		int serviceId = TurboConnectService.SERVICE_CLASS_ID_REGISTER;
+		CompletableFuture<ConnectMetadata> future = execute(serviceId, timeout, Priority.HIGH, methodParam, null);
+
+		return future.thenApply(metadata -> metadata.isUnchanged() ? known : metadata);
+	}
+
+	private CompletableFuture<ConnectMetadata> loadMetadataSeparately() {
 		long timeout = TurboService.DEFAULT_TIME_OUT;
 
-		CompletableFuture<Map<String, Integer>> future = execute(serviceId, timeout);
-		Map<String, Integer> classIds = future.get();
+		// 互不依赖，同时发出
+		CompletableFuture<List<String>> classFuture = execute(TurboConnectService.SERVICE_CLASS_REGISTER, timeout);
+		CompletableFuture<Map<String, Integer>> methodFuture = execute(TurboConnectService.SERVICE_METHOD_REGISTER,
+				timeout);
+		CompletableFuture<Map<String, Integer>> classIdFuture = serializer.isSupportedClassId() //
+				? execute(TurboConnectService.SERVICE_CLASS_ID_REGISTER, timeout)//
+				: CompletableFuture.completedFuture(Map.of());
+
+		return CompletableFuture//
+				.allOf(classFuture, methodFuture, classIdFuture)//
+				.thenCompose(v -> {
+					Map<String, Integer> methodRegisterMap = methodFuture.join();
+
+					// 老版本的服务端不支持
+					if (connector.compressTypes().length > 0
+							&& methodRegisterMap.containsKey(compressServiceMethodName)) {
+						return this.<List<Integer>>execute(TurboConnectService.SERVICE_COMPRESS_REGISTER, timeout);
+					} else {
+						return CompletableFuture.completedFuture(List.<Integer>of());
+					}
+				})//
+				.thenApply(compressTypeList -> {
+					// 没有hash，服务端支持时下次调用 getConnectMetadata 获取
+					return new ConnectMetadata(0L, classFuture.join(), methodFuture.join(), classIdFuture.join(),
+							compressTypeList);
+				});
+	}
+
+	/**
+	 * 服务端支持 getConnectMetadata，但已知的元数据还没有hash
+	 * 
+	 * @return
+	 */
+	boolean isMissingMetadataHash() {
+		ConnectMetadata known = connectMetadata;
+
+		return known != null //
+				&& known.getHash() == 0L//
+				&& known.getMethodRegisterMap().containsKey(metadataServiceMethodName);
+	}
+
+	/**
+	 * 最近一次获取的服务端元数据
+	 * 
+	 * @return 没有时返回null
+	 */
+	ConnectMetadata connectMetadata() {
+		return connectMetadata;
+	}
+
+	/**
+	 * 设置已知的服务端元数据，比如从快照中读取的，下次 {@link #loadMetadata()} 时带上它的hash
+	 * 
+	 * @param connectMetadata
+	 */
+	void setConnectMetadata(ConnectMetadata connectMetadata) {
+		this.connectMetadata = connectMetadata;
+	}
+
+	void initSerializer(Map<String, Integer> classIds) {
+		if (!serializer.isSupportedClassId()) {
+			return;
+		}
 
 		Map<Class<?>, Integer> classIdMap = new HashMap<>();
 		classIds.forEach((className, id) -> {
@@ -129,6 +311,31 @@ final class ConnectorContext implements Weightable, Closeable {
 		logger.info(serverAddress + " register Serializer.classIds: " + classIdMap);
 	}
 
+	/**
+	 * 协商压缩类型，选择本端优先级最高的服务端也支持的类型，并在所有连接上开启
+	 * 
+	 * @param serverCompressTypes
+	 *            服务端支持的压缩类型
+	 */
+	void initCompress(List<Integer> serverCompressTypes) {
+		byte[] compressTypes = connector.compressTypes();
+
+		if (compressTypes.length == 0 || serverCompressTypes == null) {
+			return;
+		}
+
+		for (int i = 0; i < compressTypes.length; i++) {
+			if (serverCompressTypes.contains((int) compressTypes[i])) {
+				compressType = compressTypes[i];
+				connector.enableCompress(compressType);
+
+				logger.info(serverAddress + " enable compress, type: " + compressType);
+
+				return;
+			}
+		}
+	}
+
 	boolean heartbeat() {
 
 		return IntStream//
@@ -141,16 +348,17 @@ final class ConnectorContext implements Weightable, Closeable {
 					request.setRequestId(requestId);
 
 					CompletableFuture<Response> future = new CompletableFuture<>();
+					inFlightCounter.incrementAndGet(channelIndex(request));
 
-					try {
-						if (requestWaitSemaphore != null) {
-							requestWaitSemaphore.acquire();
-						}
-
+					try {// 心跳不占用在途请求名额，服务端繁忙时也能及时发出
 						boolean allowSend = doRequestFilter(request, heartbeatMethod, heartbeatServiceMethodName);
 						if (allowSend) {
 							long expireTime = SystemClock.fast().mills() + TurboService.DEFAULT_TIME_OUT;
-							connector.send(index, new RequestWithFuture(request, future, expireTime));
+							RequestWithFuture requestWithFuture = new RequestWithFuture(request, future, expireTime);
+							// 心跳不能被批量请求挤占，否则会被误判为僵尸连接
+							requestWithFuture.setPriority(Priority.HIGH);
+
+							connector.send(index, requestWithFuture);
 						} else {
 							future.completeExceptionally(
 									new RemoteException(RpcClientFilter.CLIENT_FILTER_DENY, false));
@@ -159,7 +367,7 @@ final class ConnectorContext implements Weightable, Closeable {
 						future.completeExceptionally(e);
 					}
 
-					CompletableFuture<Boolean> result = handleResult(request, future);
+					CompletableFuture<Boolean> result = handleResult(request, future, null, 0L, null, false);
 
 					return result;
 				})//
@@ -186,7 +394,7 @@ final class ConnectorContext implements Weightable, Closeable {
 	 * @return
 	 */
 	<T> CompletableFuture<T> execute(int serviceId, long timeout) {
-		return execute(serviceId, timeout, null, null);
+		return execute(serviceId, timeout, Priority.HIGH, null, null, false);
 	}
 
 	/**
@@ -196,30 +404,101 @@ final class ConnectorContext implements Weightable, Closeable {
 	 *            远程serviceId
 	 * @param timeout
 	 *            millseconds
+	 * @param priority
+	 *            请求优先级
 	 * @param methodParam
 	 *            方法参数对象，无参类型为null
 	 * @param failoverInvoker
 	 *            失败回退
 	 * @return
 	 */
-	<T> CompletableFuture<T> execute(int serviceId, long timeout, MethodParam methodParam,
+	<T> CompletableFuture<T> execute(int serviceId, long timeout, Priority priority, MethodParam methodParam,
 			Invoker<CompletableFuture<?>> failoverInvoker) {
+		return execute(serviceId, timeout, priority, methodParam, failoverInvoker, true);
+	}
+
+	/**
+	 * 
+	 * @param checkCircuit
+	 *            是否受熔断器限制，内部请求不受限制
+	 */
+	private <T> CompletableFuture<T> execute(int serviceId, long timeout, Priority priority, MethodParam methodParam,
+			Invoker<CompletableFuture<?>> failoverInvoker, boolean checkCircuit) {
 
 		if (isClosed) {
 			throw new RemoteException("已关闭的连接!");
 		}
 
-		int requestId = sequencer.next();
+		int requestId = nextRequestId();
 
-		for (int i = 0; i < connectCount; i++) {// 最多循环一遍
-			if (isZombie(channelIndex(requestId))) {
-				requestId = sequencer.next();
-				continue;
+		Request request = new Request();
+		request.setServiceId(serviceId);
+		request.setRequestId(requestId);
+
+		if (methodParam instanceof EmptyMethodParam) {
+			request.setMethodParam(null);
+		} else {
+			request.setMethodParam(methodParam);
+		}
+
+		if (globalTimeout > 0) {
+			timeout = globalTimeout;
+		}
+
+		CompletableFuture<Response> future = new CompletableFuture<>();
+		LatencyHistogram histogram = laneHistograms[priority.lane()];
+		long startNanos = System.nanoTime();
+		SendTask sendTask = null;
+		final int permit = checkCircuit ? circuitBreaker.acquire() : CircuitBreaker.PERMITTED;
+		inFlightCounter.incrementAndGet(channelIndex(request));
+
+		try {
+			if (permit == CircuitBreaker.REJECTED) {// 选择后其他请求占用了探测名额
+				future.completeExceptionally(CIRCUIT_OPEN);
+			} else if (doRequestFilter(request)) {
+				long expireTime = SystemClock.fast().mills() + timeout;
+				RequestWithFuture requestWithFuture = new RequestWithFuture(request, future, expireTime);
+				requestWithFuture.setPriority(priority);
+
+				sendTask = send(channelIndex(request), requestWithFuture, startNanos);
+			} else {
+				future.completeExceptionally(new RemoteException(RpcClientFilter.CLIENT_FILTER_DENY, false));
 			}
+		} catch (Exception e) {
+			future.completeExceptionally(e);
+		}
 
-			break;
+		final boolean probe = permit == CircuitBreaker.PROBE;
+
+		if (failoverInvoker == null) {
+			return handleResult(request, future, histogram, startNanos, sendTask, probe);
+		} else {
+			return handleResult(request, future, histogram, startNanos, sendTask, probe, failoverInvoker, methodParam);
+		}
+	}
+
+	/**
+	 * 流式调用，立即返回 Flow.Publisher，订阅后才开始向服务端授予 credit
+	 * 
+	 * @param serviceId
+	 *            远程serviceId
+	 * @param timeout
+	 *            两个 frame 之间的最大间隔，millseconds
+	 * @param priority
+	 *            请求优先级
+	 * @param methodParam
+	 *            方法参数对象，无参类型为null
+	 * @return
+	 */
+	<T> CompletableFuture<Flow.Publisher<T>> stream(int serviceId, long timeout, Priority priority,
+			MethodParam methodParam) {
+
+		if (isClosed) {
+			throw new RemoteException("已关闭的连接!");
 		}
 
+		int requestId = nextRequestId();
+
 		Request request = new Request();
 		request.setServiceId(serviceId);
 		request.setRequestId(requestId);
@@ -234,20 +513,63 @@ final class ConnectorContext implements Weightable, Closeable {
 			timeout = globalTimeout;
 		}
 
+		final Method method;
+		final String serviceMethodName;
+		if (filters.size() == 0) {
+			method = null;
+			serviceMethodName = null;
+		} else {
+			method = RemoteContext.getRemoteMethod();
+			serviceMethodName = RemoteContext.getServiceMethodName();
+		}
+
+		ClientStream<T> stream = new ClientStream<>(this, requestId, priority, streamWindow);
 		CompletableFuture<Response> future = new CompletableFuture<>();
+		final long expireTime = SystemClock.fast().mills() + timeout;
+		final StreamRequestWithFuture requestWithFuture = new StreamRequestWithFuture(//
+				request, future, expireTime, timeout, stream::onNext);
+		requestWithFuture.setPriority(priority);
+		final SendTask sendTask = requestLimiter == null //
+				? null//
+				: new SendTask(channelIndex(request), requestWithFuture, System.nanoTime(), stream::onSent);
+		final int permit = circuitBreaker.acquire();
 
-		try {
-			if (requestWaitSemaphore != null) {
-				requestWaitSemaphore.acquire();
+		future.whenComplete((response, throwable) -> {
+			if (sendTask != null) {// 流式调用的时长不作为rtt样本
+				sendTask.release(-1L, false);
 			}
 
-			boolean allowSend = doRequestFilter(request);
-			if (allowSend) {
-				long expireTime = SystemClock.fast().mills() + timeout;
+			inFlightCounter.addAndGet(channelIndex(request), -1);
+
+			if (response != null) {
+				doResponseFilter(request, response, method, serviceMethodName, throwable);
+			}
 
-				connector.send(//
-						channelIndex(request), //
-						new RequestWithFuture(request, future, expireTime));
+			onResult(0L, response, throwable, permit == CircuitBreaker.PROBE);// 流式调用的时长不代表服务端的快慢
+
+			int channelIndex = channelIndex(request);
+			if (throwable != null || response.getStatusCode() != ResponseStatus.STREAM_COMPLETE) {
+				errorCounter.incrementAndGet(channelIndex);
+			} else {
+				errorCounter.reset(channelIndex);
+			}
+
+			stream.onTerminate(response, throwable);
+			RecycleUtils.release(response);
+		});
+
+		inFlightCounter.incrementAndGet(channelIndex(request));
+
+		try {
+			if (permit == CircuitBreaker.REJECTED) {
+				future.completeExceptionally(CIRCUIT_OPEN);
+			} else if (doRequestFilter(request)) {
+				if (sendTask == null) {
+					connector.send(channelIndex(request), requestWithFuture);
+					stream.onSent();
+				} else {
+					sendTask.execute();
+				}
 			} else {
 				future.completeExceptionally(new RemoteException(RpcClientFilter.CLIENT_FILTER_DENY, false));
 			}
@@ -255,11 +577,232 @@ final class ConnectorContext implements Weightable, Closeable {
 			future.completeExceptionally(e);
 		}
 
-		if (failoverInvoker == null) {
-			return handleResult(request, future);
+		return CompletableFuture.completedFuture(stream);
+	}
+
+	/**
+	 * 向服务端补充流式调用的 credit，与流式请求走同一个连接、同一个优先级通道，没有响应
+	 * 
+	 * @param requestId
+	 *            流式请求的 requestId
+	 * @param priority
+	 *            流式请求的优先级，与 {@link ClientStream#onSent()} 一起保证 credit 不会先于请求到达
+	 * @param credit
+	 *            {@link StreamCreditParam#CANCEL} 表示取消
+	 */
+	void sendStreamCredit(int requestId, Priority priority, int credit) {
+		if (isClosed) {
+			return;
+		}
+
+		Request request = new Request();
+		request.setServiceId(TurboConstants.STREAM_CREDIT_SERVICE_ID);
+		request.setRequestId(requestId);
+		request.setMethodParam(new StreamCreditParam(credit));
+
+		try {
+			RequestWithFuture requestWithFuture = new RequestWithFuture(request, null, 0L);
+			requestWithFuture.setPriority(priority);
+
+			connector.send(channelIndex(requestId), requestWithFuture);
+		} catch (Exception e) {
+			if (logger.isWarnEnabled()) {
+				logger.warn(serverAddress + " send stream credit error, requestId: " + requestId, e);
+			}
+		}
+	}
+
+	/**
+	 * 批量请求，子请求分别执行客户端过滤器，合并为一个请求发送，<br>
+	 * 子请求的结果分别完成 batch 中对应的 future，失败时为异常，子请求的业务错误不计入熔断
+	 * 
+	 * @param serviceId
+	 *            远程serviceId
+	 * @param batch
+	 */
+	void executeBatch(int serviceId, RequestBatcher.Batch batch) {
+		if (isClosed) {
+			throw new RemoteException("已关闭的连接!");
+		}
+
+		final int size = batch.size();
+		final Request[] requests = new Request[size];
+		@SuppressWarnings("unchecked")
+		final CompletableFuture<Object>[] futures = new CompletableFuture[size];
+		int count = 0;
+
+		for (int i = 0; i < size; i++) {
+			MethodParam methodParam = batch.methodParam(i);
+
+			Request request = new Request();
+			request.setServiceId(serviceId);
+			request.setRequestId(count);
+
+			if (methodParam instanceof EmptyMethodParam) {
+				request.setMethodParam(null);
+			} else {
+				request.setMethodParam(methodParam);
+			}
+
+			if (!doRequestFilter(request)) {
+				batch.future(i).completeExceptionally(new RemoteException(RpcClientFilter.CLIENT_FILTER_DENY, false));
+				continue;
+			}
+
+			requests[count] = request;
+			futures[count] = batch.future(i);
+			count++;
+		}
+
+		if (count == 0) {
+			return;
+		}
+
+		final int requestCount = count;
+		final BatchRequest batchRequest = new BatchRequest(//
+				requestCount == size ? requests : Arrays.copyOf(requests, requestCount));
+		final int requestId = nextRequestId();
+		batchRequest.setRequestId(requestId);
+
+		final long timeout = globalTimeout > 0 ? globalTimeout : batch.timeout();
+		final Priority priority = batch.priority();
+		final int channelIndex = channelIndex(requestId);
+
+		final Method method;
+		final String serviceMethodName;
+		if (filters.size() == 0) {
+			method = null;
+			serviceMethodName = null;
 		} else {
-			return handleResult(request, future, failoverInvoker, methodParam);
+			method = RemoteContext.getRemoteMethod();
+			serviceMethodName = RemoteContext.getServiceMethodName();
+		}
+
+		CompletableFuture<Response> future = new CompletableFuture<>();
+		LatencyHistogram histogram = laneHistograms[priority.lane()];
+		long startNanos = System.nanoTime();
+		SendTask sendTask = null;
+		final int permit = circuitBreaker.acquire();
+		inFlightCounter.incrementAndGet(channelIndex);
+
+		try {
+			if (permit == CircuitBreaker.REJECTED) {
+				future.completeExceptionally(CIRCUIT_OPEN);
+			} else {
+				long expireTime = SystemClock.fast().mills() + timeout;
+				RequestWithFuture requestWithFuture = new RequestWithFuture(batchRequest, future, expireTime);
+				requestWithFuture.setPriority(priority);
+
+				sendTask = send(channelIndex, requestWithFuture, startNanos);
+			}
+		} catch (Exception e) {
+			future.completeExceptionally(e);
+		}
+
+		final SendTask finalSendTask = sendTask;
+
+		BiConsumer<Response, Throwable> resultHandler = (response, throwable) -> {
+			inFlightCounter.addAndGet(channelIndex, -1);
+
+			final long latency;
+			if (histogram != null) {
+				latency = System.nanoTime() - startNanos;
+				histogram.record(latency);
+				latencyEwma.observe(latency);
+			} else {
+				latency = -1L;
+			}
+
+			if (finalSendTask != null) {
+				finalSendTask.release(latency, throwable instanceof ResponseTimeoutException);
+			}
+
+			onResult(latency, response, throwable, permit == CircuitBreaker.PROBE);
+
+			if (throwable == null && response instanceof BatchResponse
+					&& response.getStatusCode() == ResponseStatus.OK) {
+				errorCounter.reset(channelIndex);
+
+				completeBatch(batchRequest.getRequests(), futures, requestCount, (BatchResponse) response, method,
+						serviceMethodName);
+				return;
+			}
+
+			if (logger.isWarnEnabled()) {
+				logger.warn("batch request error, requestId: " + requestId + ", response: " + response, throwable);
+			}
+
+			errorCounter.incrementAndGet(channelIndex);
+
+			Throwable cause = throwable != null //
+					? throwable//
+					: new RemoteException("batch request error, response: " + response, false);
+
+			for (int i = 0; i < requestCount; i++) {
+				futures[i].completeExceptionally(cause);
+			}
+
+			RecycleUtils.release(response);
+		};
+
+		if (callbackExecutor == null) {
+			future.whenComplete(resultHandler);
+		} else {
+			future.whenCompleteAsync(resultHandler, callbackExecutor);
+		}
+	}
+
+	/**
+	 * 子响应的 requestId 为子请求的序号
+	 */
+	private void completeBatch(Request[] requests, CompletableFuture<Object>[] futures, int requestCount,
+			BatchResponse batchResponse, Method method, String serviceMethodName) {
+		Response[] responses = batchResponse.getResponses();
+
+		for (int i = 0; i < responses.length; i++) {
+			Response response = responses[i];
+			int index = response.getRequestId();
+
+			if (index < 0 || index >= requestCount) {
+				RecycleUtils.release(response);
+				continue;
+			}
+
+			doResponseFilter(requests[index], response, method, serviceMethodName, null);
+
+			if (response.getStatusCode() == ResponseStatus.OK) {
+				futures[index].complete(response.getResult());
+			} else {
+				futures[index].completeExceptionally(new RemoteException(//
+						"status code is " + response.getStatusCode() + " reason is " + response.getResult(), false));
+			}
+
+			RecycleUtils.release(response);
+		}
+
+		for (int i = 0; i < requestCount; i++) {
+			if (!futures[i].isDone()) {
+				futures[i].completeExceptionally(new RemoteException("missing response in batch, index: " + i, false));
+			}
+		}
+	}
+
+	/**
+	 * 跳过僵尸连接
+	 */
+	private int nextRequestId() {
+		int requestId = sequencer.next();
+
+		for (int i = 0; i < connectCount; i++) {// 最多循环一遍
+			if (isZombie(channelIndex(requestId))) {
+				requestId = sequencer.next();
+				continue;
+			}
+
+			break;
 		}
+
+		return requestId;
 	}
 
 	private int channelIndex(int requestId) {
@@ -270,15 +813,130 @@ final class ConnectorContext implements Weightable, Closeable {
 		return channelIndex(request.getRequestId());
 	}
 
+	/**
+	 * 有在途请求名额时直接发送，否则排队等待，不会阻塞调用线程
+	 * 
+	 * @param channelIndex
+	 * @param requestWithFuture
+	 * @param startNanos
+	 *            请求开始时间
+	 * @return 不限制在途请求时返回null
+	 */
+	private SendTask send(int channelIndex, RequestWithFuture requestWithFuture, long startNanos) {
+		if (requestLimiter == null) {
+			connector.send(channelIndex, requestWithFuture);
+			return null;
+		}
+
+		SendTask sendTask = new SendTask(channelIndex, requestWithFuture, startNanos);
+		sendTask.execute();
+
+		return sendTask;
+	}
+
+	/**
+	 * 需要在途请求名额的一次发送，没有名额时在 {@link ConcurrencyLimiter} 中排队
+	 */
+	private final class SendTask implements ConcurrencyLimiter.Task {
+		private final int channelIndex;
+		private final RequestWithFuture requestWithFuture;
+		private final long startNanos;
+		/** 请求交给连接后回调，可以为null */
+		private final Runnable onSent;
+
+		/** 是否已经占用了名额 */
+		private volatile boolean acquired = false;
+		/** 排队时间，纳秒 */
+		private volatile long queueNanos;
+
+		SendTask(int channelIndex, RequestWithFuture requestWithFuture, long startNanos) {
+			this(channelIndex, requestWithFuture, startNanos, null);
+		}
+
+		SendTask(int channelIndex, RequestWithFuture requestWithFuture, long startNanos, Runnable onSent) {
+			this.channelIndex = channelIndex;
+			this.requestWithFuture = requestWithFuture;
+			this.startNanos = startNanos;
+			this.onSent = onSent;
+		}
+
+		void execute() {
+			long timeoutMills = requestWithFuture.getExpireTime() - SystemClock.fast().mills();
+
+			if (!requestLimiter.execute(this, TimeUnit.MILLISECONDS.toNanos(Math.max(0L, timeoutMills)))) {
+				requestWithFuture.getFuture().completeExceptionally(REQUEST_QUEUE_FULL);
+			}
+		}
+
+		/**
+		 * 获得名额后发送
+		 */
+		@Override
+		public void accept(long queueNanos) {
+			this.queueNanos = queueNanos;
+			this.acquired = true;
+
+			// 排队期间已经超时
+			if (queueNanos > 0 && requestWithFuture.getExpireTime() < SystemClock.fast().mills()) {
+				requestWithFuture.getFuture().completeExceptionally(ResponseTimeoutException.NONE_STACK_TRACE);
+				return;
+			}
+
+			try {
+				connector.send(channelIndex, requestWithFuture);
+			} catch (Exception e) {
+				requestWithFuture.getFuture().completeExceptionally(e);
+				return;
+			}
+
+			if (onSent != null) {
+				onSent.run();
+			}
+		}
+
+		/**
+		 * 排队期间超时或者连接已关闭
+		 */
+		@Override
+		public void reject(Throwable cause) {
+			requestWithFuture.getFuture().completeExceptionally(cause);
+		}
+
+		/**
+		 * 请求结束时调用，释放占用的名额
+		 * 
+		 * @param latency
+		 *            从请求开始的耗时，纳秒，小于0表示不作为rtt样本
+		 * @param timeout
+		 *            是否超时
+		 */
+		void release(long latency, boolean timeout) {
+			if (!acquired) {
+				return;
+			}
+
+			requestLimiter.release(latency < 0 ? -1L : latency - queueNanos, timeout);
+		}
+	}
+
 	/**
 	 * 处理返回值，无失败回退
 	 * 
 	 * @param request
 	 * @param future
+	 * @param histogram
+	 *            记录延迟，null 表示不记录
+	 * @param startNanos
+	 *            请求开始时间
+	 * @param sendTask
+	 *            占用了在途请求名额时不为null
+	 * @param probe
+	 *            是否占用了熔断器的探测名额
 	 * @return
 	 */
 	@SuppressWarnings("unchecked")
-	private <T> CompletableFuture<T> handleResult(final Request request, final CompletableFuture<Response> future) {
+	private <T> CompletableFuture<T> handleResult(final Request request, final CompletableFuture<Response> future,
+			final LatencyHistogram histogram, final long startNanos, final SendTask sendTask, final boolean probe) {
 
 		final Method method;
 		final String serviceMethodName;
@@ -290,9 +948,20 @@ final class ConnectorContext implements Weightable, Closeable {
 			serviceMethodName = RemoteContext.getServiceMethodName();
 		}
 
-		return future.handle((response, throwable) -> {
-			if (requestWaitSemaphore != null) {
-				requestWaitSemaphore.release();
+		BiFunction<Response, Throwable, T> resultHandler = (response, throwable) -> {
+			inFlightCounter.addAndGet(channelIndex(request), -1);
+
+			final long latency;
+			if (histogram != null) {
+				latency = System.nanoTime() - startNanos;
+				histogram.record(latency);
+				latencyEwma.observe(latency);
+			} else {
+				latency = -1L;
+			}
+
+			if (sendTask != null) {
+				sendTask.release(latency, throwable instanceof ResponseTimeoutException);
 			}
 
 			boolean error = false;
@@ -324,6 +993,7 @@ final class ConnectorContext implements Weightable, Closeable {
 			}
 
 			doResponseFilter(request, response, method, serviceMethodName, throwable);
+			onResult(latency, response, throwable, probe);
 
 			int channelIndex = channelIndex(request);
 			if (error) {
@@ -339,7 +1009,13 @@ final class ConnectorContext implements Weightable, Closeable {
 				return result;
 			}
 
-		});
+		};
+
+		if (callbackExecutor == null) {
+			return future.handle(resultHandler);
+		} else {
+			return future.handleAsync(resultHandler, callbackExecutor);
+		}
 	}
 
 	/**
@@ -347,6 +1023,14 @@ final class ConnectorContext implements Weightable, Closeable {
 	 * 
 	 * @param request
 	 * @param future
+	 * @param histogram
+	 *            记录延迟，null 表示不记录
+	 * @param startNanos
+	 *            请求开始时间
+	 * @param sendTask
+	 *            占用了在途请求名额时不为null
+	 * @param probe
+	 *            是否占用了熔断器的探测名额
 	 * @param failoverInvoker
 	 * @param methodParam
 	 * @return
@@ -355,6 +1039,10 @@ final class ConnectorContext implements Weightable, Closeable {
 	private <T> CompletableFuture<T> handleResult(//
 			final Request request, //
 			final CompletableFuture<Response> future, //
+			final LatencyHistogram histogram, //
+			final long startNanos, //
+			final SendTask sendTask, //
+			final boolean probe, //
 			final Invoker<CompletableFuture<?>> failoverInvoker, //
 			final MethodParam methodParam) {
 
@@ -370,9 +1058,20 @@ final class ConnectorContext implements Weightable, Closeable {
 
 		CompletableFuture<T> futureWithFailover = new CompletableFuture<>();
 
-		future.whenComplete((response, throwable) -> {
-			if (requestWaitSemaphore != null) {
-				requestWaitSemaphore.release();
+		BiConsumer<Response, Throwable> resultHandler = (response, throwable) -> {
+			inFlightCounter.addAndGet(channelIndex(request), -1);
+
+			final long latency;
+			if (histogram != null) {
+				latency = System.nanoTime() - startNanos;
+				histogram.record(latency);
+				latencyEwma.observe(latency);
+			} else {
+				latency = -1L;
+			}
+
+			if (sendTask != null) {
+				sendTask.release(latency, throwable instanceof ResponseTimeoutException);
 			}
 
 			boolean error = false;
@@ -403,6 +1102,7 @@ final class ConnectorContext implements Weightable, Closeable {
 			}
 
 			doResponseFilter(request, response, method, serviceMethodName, throwable);
+			onResult(latency, response, throwable, probe);
 
 			int channelIndex = channelIndex(request);
 			if (error) {
@@ -427,7 +1127,13 @@ final class ConnectorContext implements Weightable, Closeable {
 
 				futureWithFailover.complete(result);
 			}
-		});
+		};
+
+		if (callbackExecutor == null) {
+			future.whenComplete(resultHandler);
+		} else {
+			future.whenCompleteAsync(resultHandler, callbackExecutor);
+		}
 
 		return futureWithFailover;
 	}
@@ -486,7 +1192,8 @@ final class ConnectorContext implements Weightable, Closeable {
 		RemoteContext.setRemoteMethod(method);
 		RemoteContext.setServiceMethodName(serviceMethodName);
 
-		if (response.getStatusCode() == ResponseStatus.OK) {
+		if (response.getStatusCode() == ResponseStatus.OK //
+				|| response.getStatusCode() == ResponseStatus.STREAM_COMPLETE) {
 			for (int i = 0; i < filterLength; i++) {
 				RpcClientFilter filter = filters.get(i);
 				filter.onRecive(request, response);
@@ -524,21 +1231,100 @@ final class ConnectorContext implements Weightable, Closeable {
 		this.weight = weight;
 	}
 
-	boolean isZombie() {
+	/**
+	 * 开始预热，实际权重从较小的比例逐渐增大到配置的权重，未启用预热时忽略
+	 */
+	void startWarmup() {
+		slowStart.start();
 
-		int sum = 0;
-		boolean allZombie = true;
+		if (slowStart.isEnabled() && logger.isInfoEnabled()) {
+			logger.info(serverAddress + " start warmup, " + slowStart);
+		}
+	}
 
-		for (int i = 0; i < connectCount; i++) {
-			int error = errorCounter.get(i);
-			sum += error;
+	/**
+	 * 熔断器是否允许发送请求，只用于选择连接，不占用探测名额
+	 * 
+	 * @return
+	 */
+	boolean isAvailable() {
+		return circuitBreaker.isAvailable();
+	}
 
-			if (error < appConfig.getConnectErrorThreshold()) {
-				allZombie = false;
+	/**
+	 * 熔断状态
+	 * 
+	 * @return {@link CircuitBreaker#CLOSED}, {@link CircuitBreaker#OPEN},
+	 *         {@link CircuitBreaker#HALF_OPEN}
+	 */
+	int circuitState() {
+		return circuitBreaker.state();
+	}
+
+	/**
+	 * 记录熔断统计，只有连接错误和超时算失败，业务异常说明服务端正常响应了，算成功<br>
+	 * 没有发出或者被服务端拒绝的请求不计入统计，归还占用的探测名额
+	 * 
+	 * @param latency
+	 *            小于0时是心跳等内部请求，不参与熔断统计
+	 * @param response
+	 * @param throwable
+	 * @param probe
+	 *            是否占用了熔断器的探测名额
+	 */
+	private void onResult(long latency, Response response, Throwable throwable, boolean probe) {
+		if (throwable instanceof CompletionException && throwable.getCause() != null) {
+			throwable = throwable.getCause();
+		}
+
+		if (latency >= 0) {
+			if (throwable instanceof ResponseTimeoutException //
+					|| throwable instanceof ConnectionException //
+					|| throwable instanceof IOException //
+					|| (response != null && response.getStatusCode() == ResponseStatus.TIMEOUT)) {
+				onError(latency);
+				return;
+			}
+
+			if (throwable == null && response != null && response.getStatusCode() != ResponseStatus.SERVER_BUSY) {
+				onSuccess(latency);
+				return;
 			}
 		}
 
-		return sum >= appConfig.getServerErrorThreshold() || allZombie;
+		if (probe) {
+			circuitBreaker.releaseProbe();
+		}
+	}
+
+	/**
+	 * 
+	 * @param latency
+	 *            小于0时是心跳等内部请求，不参与熔断统计
+	 */
+	private void onError(long latency) {
+		if (latency < 0) {
+			return;
+		}
+
+		int before = circuitBreaker.state();
+		circuitBreaker.onError();
+
+		if (before != CircuitBreaker.OPEN && circuitBreaker.state() == CircuitBreaker.OPEN
+				&& logger.isWarnEnabled()) {
+			logger.warn(serverAddress + " circuit breaker is open, " + circuitBreaker);
+		}
+	}
+
+	/**
+	 * 
+	 * @param latency
+	 *            小于0时是心跳等内部请求，不参与熔断统计
+	 */
+	private void onSuccess(long latency) {
+		if (latency >= 0) {
+			circuitBreaker.onSuccess(latency);
+		}
 	}
 
 	/**
@@ -550,9 +1336,69 @@ final class ConnectorContext implements Weightable, Closeable {
 		return errorCounter.get(index) >= appConfig.getConnectErrorThreshold();
 	}
 
-	void connect() throws InterruptedException {
-		connector.connect();
-		errorCounter.resetAll();
+	/**
+	 * 批量发送统计，平均每次 flush 发送的请求数量
+	 * 
+	 * @return
+	 */
+	double averageBatchSize() {
+		return connector.averageBatchSize();
+	}
+
+	/**
+	 * 批量发送统计，平均每次 flush 前最早的请求等待的时长，纳秒
+	 * 
+	 * @return
+	 */
+	double averageFlushWait() {
+		return connector.averageFlushWait();
+	}
+
+	/**
+	 * 批量发送统计，自适应模式下推迟 flush 的次数
+	 * 
+	 * @return
+	 */
+	long deferCount() {
+		return connector.deferCount();
+	}
+
+	long flushCount() {
+		return connector.flushCount();
+	}
+
+	/**
+	 * 建立连接，不阻塞调用线程
+	 * 
+	 * @return 所有连接建立后完成
+	 */
+	CompletableFuture<Void> connect() {
+		return connector.connect().thenRun(() -> {
+			errorCounter.resetAll();
+			circuitBreaker.reset();
+
+			if (compressType != CompressType.NO) {// 重连时沿用协商好的压缩类型
+				connector.enableCompress(compressType);
+			}
+		});
+	}
+
+	/**
+	 * 当前的在途请求上限
+	 * 
+	 * @return 不限制时返回-1
+	 */
+	int concurrencyLimit() {
+		return requestLimiter == null ? -1 : requestLimiter.limit();
+	}
+
+	/**
+	 * 在途请求上限及等待队列的统计
+	 * 
+	 * @return 不限制时返回null
+	 */
+	ConcurrencyLimiter concurrencyLimiter() {
+		return requestLimiter;
 	}
 
 	@Override
@@ -560,6 +1406,21 @@ final class ConnectorContext implements Weightable, Closeable {
 		return weight;
 	}
 
+	@Override
+	public double warmupFactor() {
+		return slowStart.factor();
+	}
+
+	@Override
+	public int inFlight() {
+		return inFlightCounter.sum();
+	}
+
+	@Override
+	public double latencyEwma() {
+		return latencyEwma.get();
+	}
+
 	public boolean isClosed() {
 		return isClosed;
 	}
@@ -571,6 +1432,11 @@ final class ConnectorContext implements Weightable, Closeable {
 		}
 
 		isClosed = true;
+
+		if (requestLimiter != null) {// 不用等到有名额释放
+			requestLimiter.failAll(new ConnectionException("connection is closed"));
+		}
+
 		connector.close();
 	}
 
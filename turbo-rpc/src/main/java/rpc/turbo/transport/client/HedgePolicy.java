@@ -0,0 +1,147 @@
+package rpc.turbo.transport.client;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import rpc.turbo.config.HedgeConfig;
+import rpc.turbo.util.concurrent.LatencyHistogram;
+import rpc.turbo.util.concurrent.TokenBudget;
+
+/**
+ * 一个方法的对冲请求策略及统计，线程安全
+ * 
+ * @author Hank
+ *
+ */
+public final class HedgePolicy {
+	/** 使用p95时，每多少个样本重新计算一次延迟 */
+	private static final int REFRESH_SAMPLES = 1024;
+	/** 最多积攒的对冲令牌数 */
+	private static final int MAX_TOKENS = 100;
+
+	private final HedgeConfig config;
+	private final TokenBudget budget;
+	private final LatencyHistogram histogram;
+	private final AtomicInteger samples;
+	/** 小于0表示还没有足够的样本 */
+	private volatile long delayNanos;
+
+	private final LongAdder hedgeCounter = new LongAdder();
+	private final LongAdder winCounter = new LongAdder();
+	private final LongAdder rejectCounter = new LongAdder();
+
+	HedgePolicy(HedgeConfig config) {
+		this.config = config;
+		this.budget = new TokenBudget(config.budgetPercent / 100D, MAX_TOKENS);
+
+		if (config.delay > 0) {
+			this.histogram = null;
+			this.samples = null;
+			this.delayNanos = TimeUnit.MILLISECONDS.toNanos(config.delay);
+		} else {
+			this.histogram = new LatencyHistogram();
+			this.samples = new AtomicInteger();
+			this.delayNanos = -1L;
+		}
+	}
+
+	/**
+	 * 对冲延迟
+	 * 
+	 * @return 纳秒，小于0表示还没有足够的样本，不应对冲
+	 */
+	long delayNanos() {
+		return delayNanos;
+	}
+
+	/**
+	 * 记录主请求的延迟，使用p95时每 {@value #REFRESH_SAMPLES} 个样本重新计算一次
+	 * 
+	 * @param nanos
+	 */
+	void record(long nanos) {
+		if (histogram == null) {
+			return;
+		}
+
+		histogram.record(nanos);
+
+		if (samples.incrementAndGet() % REFRESH_SAMPLES == 0) {
+			delayNanos = histogram.percentile(95D);
+			histogram.reset();
+		}
+	}
+
+	/**
+	 * 每个主请求调用一次
+	 */
+	void onRequest() {
+		budget.deposit();
+	}
+
+	/**
+	 * 是否允许发送对冲请求，不允许时计入拒绝次数
+	 * 
+	 * @return
+	 */
+	boolean tryHedge() {
+		if (budget.tryWithdraw()) {
+			return true;
+		}
+
+		rejectCounter.increment();
+		return false;
+	}
+
+	void onHedge() {
+		hedgeCounter.increment();
+	}
+
+	void onWin() {
+		winCounter.increment();
+	}
+
+	public HedgeConfig getConfig() {
+		return config;
+	}
+
+	/**
+	 * 发出的对冲请求数量
+	 * 
+	 * @return
+	 */
+	public long getHedgeCount() {
+		return hedgeCounter.sum();
+	}
+
+	/**
+	 * 对冲请求先于主请求成功返回的次数
+	 * 
+	 * @return
+	 */
+	public long getWinCount() {
+		return winCounter.sum();
+	}
+
+	/**
+	 * 因预算不足没有发出的对冲请求数量
+	 * 
+	 * @return
+	 */
+	public long getRejectCount() {
+		return rejectCounter.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "HedgePolicy{" + //
+				"config=" + config + //
+				", delay=" + TimeUnit.NANOSECONDS.toMicros(delayNanos) + "us" + //
+				", hedge=" + getHedgeCount() + //
+				", win=" + getWinCount() + //
+				", reject=" + getRejectCount() + //
+				'}';
+	}
+
+}
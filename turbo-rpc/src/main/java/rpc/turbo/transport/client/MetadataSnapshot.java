@@ -0,0 +1,150 @@
+package rpc.turbo.transport.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import rpc.turbo.common.ConnectMetadata;
+import rpc.turbo.config.HostPort;
+
+/**
+ * 保存在本地文件中的服务端元数据，key:服务端地址，线程安全<br>
+ * 只保存带有hash的元数据，启动时直接使用，之后再用hash向服务端校验
+ *
+ * @author Hank
+ *
+ */
+final class MetadataSnapshot {
+	private static final Log logger = LogFactory.getLog(MetadataSnapshot.class);
+
+	private static final ObjectMapper mapper = new ObjectMapper()//
+			.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+	private final Path path;
+	private final ConcurrentHashMap<String, ConnectMetadata> metadataMap = new ConcurrentHashMap<>();
+	private final AtomicBoolean dirty = new AtomicBoolean(false);
+
+	/**
+	 *
+	 * @param path
+	 *            快照文件，不存在时会在第一次 {@link #flush()} 时创建
+	 */
+	MetadataSnapshot(Path path) {
+		this.path = path;
+
+		if (!Files.exists(path)) {
+			return;
+		}
+
+		try (InputStream inputStream = Files.newInputStream(path)) {
+			Map<String, ConnectMetadata> map = mapper.readValue(inputStream,
+					new TypeReference<Map<String, ConnectMetadata>>() {
+					});
+
+			map.forEach((serverAddress, metadata) -> {
+				if (metadata != null && metadata.getHash() != 0L && !metadata.isUnchanged()) {
+					metadataMap.put(serverAddress, metadata);
+				}
+			});
+
+			if (logger.isInfoEnabled()) {
+				logger.info("load metadata snapshot " + path + ", size: " + metadataMap.size());
+			}
+		} catch (Exception e) {// 快照只是优化，损坏时忽略
+			if (logger.isWarnEnabled()) {
+				logger.warn("load metadata snapshot error, ignore it: " + path, e);
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @param serverAddress
+	 * @return 没有时返回null
+	 */
+	ConnectMetadata get(HostPort serverAddress) {
+		return metadataMap.get(serverAddress.toString());
+	}
+
+	/**
+	 * 保存元数据，没有hash的不保存，在下次 {@link #flush()} 时写入文件
+	 *
+	 * @param serverAddress
+	 * @param metadata
+	 */
+	void put(HostPort serverAddress, ConnectMetadata metadata) {
+		if (metadata == null || metadata.getHash() == 0L || metadata.isUnchanged()) {
+			return;
+		}
+
+		ConnectMetadata old = metadataMap.put(serverAddress.toString(), metadata);
+
+		if (old == null || old.getHash() != metadata.getHash()) {
+			dirty.set(true);
+		}
+	}
+
+	/**
+	 * 删除已经下线的服务端
+	 *
+	 * @param serverAddress
+	 */
+	void remove(HostPort serverAddress) {
+		if (metadataMap.remove(serverAddress.toString()) != null) {
+			dirty.set(true);
+		}
+	}
+
+	/**
+	 * 有修改时写入文件，先写临时文件再替换，不会留下写了一半的快照
+	 */
+	void flush() {
+		if (!dirty.compareAndSet(true, false)) {
+			return;
+		}
+
+		try {
+			Path parent = path.toAbsolutePath().getParent();
+			if (parent != null) {
+				Files.createDirectories(parent);
+			}
+
+			Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+
+			try (OutputStream outputStream = Files.newOutputStream(tmp)) {
+				mapper.writeValue(outputStream, new TreeMap<>(metadataMap));
+			}
+
+			Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			dirty.set(true);
+
+			if (logger.isWarnEnabled()) {
+				logger.warn("write metadata snapshot error: " + path, e);
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "MetadataSnapshot{" + //
+				"path=" + path + //
+				", size=" + metadataMap.size() + //
+				'}';
+	}
+
+}
@@ -6,9 +6,13 @@ import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import rpc.turbo.config.RetryConfig;
 import rpc.turbo.invoke.InvokerUtils;
 import rpc.turbo.loadbalance.LoadBalance;
+import rpc.turbo.loadbalance.MaglevTable;
 import rpc.turbo.loadbalance.Weightable;
+import rpc.turbo.param.MethodParam;
+import rpc.turbo.util.concurrent.TinyLfuCache;
 
 /**
  * 
@@ -20,29 +24,119 @@ final class MethodRouter {
 	private final String serviceMethodName;
 	private final LoadBalance<Weightable> loadBalance;
 
+	private volatile List<ConnectorContext> connectors = Collections.emptyList();
+	/** 按参数路由时才创建 */
+	private volatile MaglevTable<ConnectorContext> maglevTable;
+	/** null表示不对冲 */
+	private volatile HedgePolicy hedgePolicy;
+	/** null表示不重试 */
+	private volatile RetryConfig retryConfig;
+	/** null表示不缓存 */
+	private volatile TinyLfuCache<MethodParam, Object> responseCache;
+	/** null表示不合并请求 */
+	private volatile SingleFlight singleFlight;
+	/** null表示不批量请求 */
+	private volatile RequestBatcher requestBatcher;
+
 	MethodRouter(String serviceMethodName, LoadBalance<Weightable> loadBalance) {
 		this.method = InvokerUtils.toMethod(serviceMethodName);
 		this.serviceMethodName = serviceMethodName;
 		this.loadBalance = loadBalance;
 	}
 
-	void setConnectors(Collection<ConnectorContext> connectors) {
+	synchronized void setConnectors(Collection<ConnectorContext> connectors) {
 		if (connectors == null || connectors.size() == 0) {
 			loadBalance.setWeightables(Collections.emptyList());
-			return;
-		}
+			this.connectors = Collections.emptyList();
+		} else {
+			List<ConnectorContext> supported = connectors.stream()//
+					.filter(t -> t.isSupport(serviceMethodName))//
+					.collect(Collectors.toList());
 
-		List<Weightable> supported = connectors.stream()//
-				.filter(t -> t.isSupport(serviceMethodName))//
-				.collect(Collectors.toList());
+			loadBalance.setWeightables(Collections.unmodifiableList(supported));
+			this.connectors = supported;
+		}
 
-		loadBalance.setWeightables(supported);
+		if (maglevTable != null) {
+			maglevTable = newMaglevTable();
+		}
 	}
 
 	ConnectorContext selectConnector() {
 		return (ConnectorContext) loadBalance.select();
 	}
 
+	/**
+	 * 按一致性哈希选择
+	 * 
+	 * @param hashKey
+	 *            路由用的哈希值
+	 * @return
+	 */
+	ConnectorContext selectConnector(long hashKey) {
+		MaglevTable<ConnectorContext> maglevTable = this.maglevTable;
+
+		if (maglevTable == null) {
+			maglevTable = initMaglevTable();
+		}
+
+		return maglevTable.select(hashKey);
+	}
+
+	private synchronized MaglevTable<ConnectorContext> initMaglevTable() {
+		if (maglevTable == null) {
+			maglevTable = newMaglevTable();
+		}
+
+		return maglevTable;
+	}
+
+	private MaglevTable<ConnectorContext> newMaglevTable() {
+		return new MaglevTable<>(connectors, //
+				connector -> connector.serverAddress.toString(), //
+				MaglevTable.DEFAULT_LOAD_FACTOR);
+	}
+
+	HedgePolicy getHedgePolicy() {
+		return hedgePolicy;
+	}
+
+	void setHedgePolicy(HedgePolicy hedgePolicy) {
+		this.hedgePolicy = hedgePolicy;
+	}
+
+	RetryConfig getRetryConfig() {
+		return retryConfig;
+	}
+
+	void setRetryConfig(RetryConfig retryConfig) {
+		this.retryConfig = retryConfig;
+	}
+
+	TinyLfuCache<MethodParam, Object> getResponseCache() {
+		return responseCache;
+	}
+
+	void setResponseCache(TinyLfuCache<MethodParam, Object> responseCache) {
+		this.responseCache = responseCache;
+	}
+
+	SingleFlight getSingleFlight() {
+		return singleFlight;
+	}
+
+	void setSingleFlight(SingleFlight singleFlight) {
+		this.singleFlight = singleFlight;
+	}
+
+	RequestBatcher getRequestBatcher() {
+		return requestBatcher;
+	}
+
+	void setRequestBatcher(RequestBatcher requestBatcher) {
+		this.requestBatcher = requestBatcher;
+	}
+
 	Method getMethod() {
 		return method;
 	}
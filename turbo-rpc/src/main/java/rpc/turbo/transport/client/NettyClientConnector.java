@@ -4,12 +4,15 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.WriteBufferWaterMark;
@@ -18,12 +21,17 @@ import io.netty.channel.epoll.EpollEventLoopGroup;
 import io.netty.channel.epoll.EpollSocketChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioSocketChannel;
+import rpc.turbo.compress.CompressorFactory;
 import rpc.turbo.config.HostPort;
+import rpc.turbo.config.TurboConstants;
+import rpc.turbo.config.client.AppConfig;
 import rpc.turbo.serialization.Serializer;
+import rpc.turbo.transport.client.exception.ConnectionException;
 import rpc.turbo.transport.client.future.RequestWithFuture;
 import rpc.turbo.transport.client.handler.TurboChannelInitializer;
 import rpc.turbo.transport.client.sender.BatchSender;
 import rpc.turbo.transport.client.sender.Sender;
+import rpc.turbo.transport.compress.CompressFrameEncoder;
 
 final class NettyClientConnector implements Closeable {
 	private static final Log logger = LogFactory.getLog(NettyClientConnector.class);
@@ -35,23 +43,37 @@ final class NettyClientConnector implements Closeable {
 	private final Serializer serializer;
 	private final EventLoopGroup eventLoopGroup;
 	private final int connectCount;
+	private final int connectTimeout;
+	private final int maxRequestWait;
+	private final int flushLatencyBudget;
+	private final byte[] compressTypes;
+	private final int compressThreshold;
 
 	public volatile HostPort clientAddress;
 	private volatile Sender[] senders;
+	private volatile Channel[] channels;
+	private volatile boolean isClosed = false;
 
 	/**
 	 * 
 	 * @param eventLoopGroup
 	 * @param serializer
-	 * @param futureContainer
 	 * @param serverAddress
-	 * @param connectCount
+	 * @param appConfig
 	 */
 	NettyClientConnector(EventLoopGroup eventLoopGroup, //
 			Serializer serializer, //
-			HostPort serverAddress, int connectCount) {
+			HostPort serverAddress, //
+			AppConfig appConfig) {
 		this.eventLoopGroup = eventLoopGroup;
-		this.connectCount = connectCount;
+		this.connectCount = appConfig.getConnectPerServer();
+		this.connectTimeout = appConfig.getConnectTimeout() < 1 //
+				? TurboConstants.DEFAULT_CONNECT_TIMEOUT//
+				: appConfig.getConnectTimeout();
+		this.maxRequestWait = appConfig.getMaxRequestWait();
+		this.flushLatencyBudget = appConfig.getFlushLatencyBudget();
+		this.compressTypes = CompressorFactory.parse(appConfig.getCompressTypes());
+		this.compressThreshold = appConfig.getCompressThreshold();
 		this.serverAddress = serverAddress;
 		this.serializer = serializer;
 	}
@@ -60,6 +82,37 @@ final class NettyClientConnector implements Closeable {
 		return connectCount;
 	}
 
+	/**
+	 * 本端支持的压缩类型，按优先级排序
+	 * 
+	 * @return
+	 */
+	byte[] compressTypes() {
+		return compressTypes;
+	}
+
+	/**
+	 * 在所有连接上开启压缩
+	 * 
+	 * @param compressType
+	 *            协商好的压缩类型
+	 */
+	void enableCompress(byte compressType) {
+		final Channel[] channels = this.channels;
+
+		if (channels == null) {
+			return;
+		}
+
+		for (int i = 0; i < channels.length; i++) {
+			CompressFrameEncoder encoder = channels[i].pipeline().get(CompressFrameEncoder.class);
+
+			if (encoder != null) {
+				encoder.enable(compressType);
+			}
+		}
+	}
+
 	/**
 	 * 
 	 * @param channelIndex
@@ -73,11 +126,127 @@ final class NettyClientConnector implements Closeable {
 		senders[channelIndex].send(requestWithFuture);
 	}
 
-	void connect() throws InterruptedException {
+	/**
+	 * flush 次数
+	 * 
+	 * @return
+	 */
+	long flushCount() {
+		final Sender[] senders = this.senders;
+
+		if (senders == null) {
+			return 0;
+		}
+
+		long count = 0;
+		for (int i = 0; i < senders.length; i++) {
+			count += senders[i].flushCount();
+		}
+
+		return count;
+	}
+
+	/**
+	 * 已发送的请求数量
+	 * 
+	 * @return
+	 */
+	long sendCount() {
+		final Sender[] senders = this.senders;
+
+		if (senders == null) {
+			return 0;
+		}
+
+		long count = 0;
+		for (int i = 0; i < senders.length; i++) {
+			count += senders[i].sendCount();
+		}
+
+		return count;
+	}
+
+	/**
+	 * 请求在发送队列中等待 flush 的总时长，纳秒
+	 * 
+	 * @return
+	 */
+	long flushWaitNanos() {
+		final Sender[] senders = this.senders;
+
+		if (senders == null) {
+			return 0;
+		}
+
+		long nanos = 0;
+		for (int i = 0; i < senders.length; i++) {
+			nanos += senders[i].flushWaitNanos();
+		}
+
+		return nanos;
+	}
+
+	/**
+	 * 自适应模式下推迟 flush 的次数
+	 * 
+	 * @return
+	 */
+	long deferCount() {
+		final Sender[] senders = this.senders;
+
+		if (senders == null) {
+			return 0;
+		}
+
+		long count = 0;
+		for (int i = 0; i < senders.length; i++) {
+			count += senders[i].deferCount();
+		}
+
+		return count;
+	}
+
+	/**
+	 * 平均每次 flush 发送的请求数量
+	 * 
+	 * @return
+	 */
+	double averageBatchSize() {
+		long flushCount = flushCount();
+
+		if (flushCount == 0) {
+			return 0D;
+		}
+
+		return (double) sendCount() / flushCount;
+	}
+
+	/**
+	 * 平均每次 flush 前最早的请求等待的时长，纳秒
+	 * 
+	 * @return
+	 */
+	double averageFlushWait() {
+		long flushCount = flushCount();
+
+		if (flushCount == 0) {
+			return 0D;
+		}
+
+		return (double) flushWaitNanos() / flushCount;
+	}
+
+	/**
+	 * 同时建立所有连接，不阻塞调用线程，全部成功后替换旧的连接，有失败时关闭已经建立的
+	 * 
+	 * @return 全部连接建立后完成
+	 */
+	CompletableFuture<Void> connect() {
 
 		Bootstrap bootstrap = new Bootstrap();
 		bootstrap.group(eventLoopGroup);
 
+		bootstrap.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeout);
 		bootstrap.option(ChannelOption.SO_REUSEADDR, true);
 		bootstrap.option(ChannelOption.SO_RCVBUF, 256 * 1024);
 		bootstrap.option(ChannelOption.SO_SNDBUF, 256 * 1024);
@@ -91,25 +260,69 @@ final class NettyClientConnector implements Closeable {
 			bootstrap.channel(NioSocketChannel.class);
 		}
 
-		bootstrap.handler(new TurboChannelInitializer(serializer));
+		bootstrap.handler(new TurboChannelInitializer(serializer, maxRequestWait, compressTypes, compressThreshold));
+
+		final CompletableFuture<Void> future = new CompletableFuture<>();
+		final Channel[] newChannels = new Channel[connectCount];
+		// 最后一个完成的负责收尾，计数保证能看到其他连接写入的 newChannels
+		final AtomicInteger remaining = new AtomicInteger(connectCount);
 
-		Sender[] newSenders = new Sender[connectCount];
 		for (int i = 0; i < connectCount; i++) {
-			Channel channel = bootstrap.connect(serverAddress.host, serverAddress.port).sync().channel();
-			newSenders[i] = new BatchSender(channel);
+			final int index = i;
 
-			if (logger.isInfoEnabled()) {
-				logger.info(serverAddress + " connect " + i + "/" + connectCount);
-			}
+			bootstrap//
+					.connect(serverAddress.host, serverAddress.port)//
+					.addListener((ChannelFutureListener) channelFuture -> {
+						if (channelFuture.isSuccess()) {
+							newChannels[index] = channelFuture.channel();
 
-			if (i == 0) {
-				InetSocketAddress insocket = (InetSocketAddress) channel.localAddress();
-				clientAddress = new HostPort(insocket.getAddress().getHostAddress(), 0);
-			}
+							if (logger.isInfoEnabled()) {
+								logger.info(serverAddress + " connect " + index + "/" + connectCount);
+							}
+						} else {
+							future.completeExceptionally(channelFuture.cause());
+						}
+
+						if (remaining.decrementAndGet() != 0) {
+							return;
+						}
+
+						if (future.isDone()) {
+							closeAll(newChannels);
+						} else if (setChannels(newChannels)) {
+							future.complete(null);
+						} else {// 建立连接期间已关闭
+							closeAll(newChannels);
+							future.completeExceptionally(new ConnectionException("connector is closed"));
+						}
+					});
+		}
+
+		return future;
+	}
+
+	/**
+	 * 替换为新的连接，与 {@link #close()} 互斥
+	 * 
+	 * @param newChannels
+	 * @return 已关闭时返回false，不替换
+	 */
+	private synchronized boolean setChannels(Channel[] newChannels) {
+		if (isClosed) {
+			return false;
+		}
+
+		Sender[] newSenders = new Sender[connectCount];
+		for (int i = 0; i < connectCount; i++) {
+			newSenders[i] = new BatchSender(newChannels[i], flushLatencyBudget);
 		}
 
+		InetSocketAddress insocket = (InetSocketAddress) newChannels[0].localAddress();
+		clientAddress = new HostPort(insocket.getAddress().getHostAddress(), 0);
+
 		Sender[] old = senders;
 		senders = newSenders;
+		channels = newChannels;
 
 		if (old != null) {
 			for (int i = 0; i < old.length; i++) {
@@ -122,16 +335,29 @@ final class NettyClientConnector implements Closeable {
 				}
 			}
 		}
+
+		return true;
+	}
+
+	private void closeAll(Channel[] newChannels) {
+		for (int i = 0; i < newChannels.length; i++) {
+			if (newChannels[i] != null) {
+				newChannels[i].close();
+			}
+		}
 	}
 
 	@Override
-	public void close() throws IOException {
+	public synchronized void close() throws IOException {
+		isClosed = true;
+
 		if (senders == null) {
 			return;
 		}
 
 		final Sender[] senders = this.senders;
 		this.senders = null;
+		this.channels = null;
 
 		for (int i = 0; i < senders.length; i++) {
 			try {
@@ -0,0 +1,232 @@
+package rpc.turbo.transport.client;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import rpc.turbo.config.BatchConfig;
+import rpc.turbo.config.Priority;
+import rpc.turbo.param.MethodParam;
+
+/**
+ * 一个方法的批量请求，线程安全<br>
+ * 调用先放入正在积攒的批量中，攒够 maxSize 个时由当前线程发送，<br>
+ * 否则第一个调用 window 后由后台线程发送
+ *
+ * @author Hank
+ *
+ */
+public final class RequestBatcher {
+	private final int maxSize;
+	private final long windowNanos;
+	private final ScheduledExecutorService scheduler;
+	private final Executor executor;
+	private final Consumer<Batch> sender;
+
+	private final LongAdder batchCounter = new LongAdder();
+	private final LongAdder requestCounter = new LongAdder();
+
+	/** 正在积攒的批量，只在持有锁时读写 */
+	private Batch current;
+
+	/**
+	 *
+	 * @param config
+	 * @param scheduler
+	 *            等待 window 的定时器
+	 * @param executor
+	 *            到时后在其中发送，发送时会执行客户端过滤器，不能在 EventLoop 中执行
+	 * @param sender
+	 *            发送一个批量，必须完成其中全部的 future
+	 */
+	RequestBatcher(BatchConfig config, ScheduledExecutorService scheduler, Executor executor,
+			Consumer<Batch> sender) {
+		this.maxSize = config.maxSize;
+		this.windowNanos = TimeUnit.MICROSECONDS.toNanos(config.window);
+		this.scheduler = scheduler;
+		this.executor = executor;
+		this.sender = sender;
+	}
+
+	/**
+	 *
+	 * @param methodParam
+	 * @param timeout
+	 *            超时时间，millseconds，批量请求使用其中最大的
+	 * @param priority
+	 *            请求优先级，批量请求使用其中最高的
+	 * @return 批量请求返回后完成，失败时为异常
+	 */
+	CompletableFuture<Object> add(MethodParam methodParam, long timeout, Priority priority) {
+		CompletableFuture<Object> future = new CompletableFuture<>();
+
+		Batch full = null;
+
+		synchronized (this) {
+			Batch batch = current;
+			boolean created = false;
+
+			if (batch == null) {
+				batch = current = new Batch(maxSize);
+				created = true;
+			}
+
+			batch.add(methodParam, future, timeout, priority);
+
+			if (batch.size == maxSize) {
+				current = null;
+				full = batch;
+			} else if (created) {// 在锁内设置，攒够发送时一定能看到
+				final Batch timed = batch;
+
+				batch.timer = scheduler.schedule(() -> executor.execute(() -> sendIfCurrent(timed)), //
+						windowNanos, TimeUnit.NANOSECONDS);
+			}
+		}
+
+		if (full != null) {
+			if (full.timer != null) {// 提前攒够了，取消 window 定时任务
+				full.timer.cancel(false);
+			}
+
+			send(full);
+		}
+
+		return future;
+	}
+
+	private void sendIfCurrent(Batch batch) {
+		synchronized (this) {
+			if (current != batch) {// 已经攒够发送了
+				return;
+			}
+
+			current = null;
+		}
+
+		send(batch);
+	}
+
+	private void send(Batch batch) {
+		batchCounter.increment();
+		requestCounter.add(batch.size);
+
+		try {
+			sender.accept(batch);
+		} catch (Throwable t) {
+			batch.fail(t);
+		}
+	}
+
+	/**
+	 * 已经发送的批量请求数量
+	 *
+	 * @return
+	 */
+	public long batchCount() {
+		return batchCounter.sum();
+	}
+
+	/**
+	 * 已经发送的调用数量
+	 *
+	 * @return
+	 */
+	public long requestCount() {
+		return requestCounter.sum();
+	}
+
+	/**
+	 * 平均每个批量请求包含的调用数量
+	 *
+	 * @return
+	 */
+	public double averageBatchSize() {
+		long batchCount = batchCount();
+
+		if (batchCount == 0) {
+			return 0D;
+		}
+
+		return (double) requestCount() / batchCount;
+	}
+
+	@Override
+	public String toString() {
+		return "RequestBatcher{" + //
+				"maxSize=" + maxSize + //
+				", windowNanos=" + windowNanos + //
+				", batch=" + batchCount() + //
+				", request=" + requestCount() + //
+				'}';
+	}
+
+	/**
+	 * 积攒中的一个批量，发送后不再修改
+	 */
+	static final class Batch {
+		private final MethodParam[] methodParams;
+		private final CompletableFuture<Object>[] futures;
+		private int size;
+		private long timeout;
+		private Priority priority;
+		/** window 定时任务，第一个调用时创建，只在持有锁时写 */
+		private ScheduledFuture<?> timer;
+
+		@SuppressWarnings("unchecked")
+		private Batch(int maxSize) {
+			this.methodParams = new MethodParam[maxSize];
+			this.futures = new CompletableFuture[maxSize];
+		}
+
+		private void add(MethodParam methodParam, CompletableFuture<Object> future, long timeout, Priority priority) {
+			methodParams[size] = methodParam;
+			futures[size] = future;
+			size++;
+
+			if (timeout > this.timeout) {
+				this.timeout = timeout;
+			}
+
+			if (this.priority == null || priority.lane() < this.priority.lane()) {
+				this.priority = priority;
+			}
+		}
+
+		int size() {
+			return size;
+		}
+
+		MethodParam methodParam(int index) {
+			return methodParams[index];
+		}
+
+		CompletableFuture<Object> future(int index) {
+			return futures[index];
+		}
+
+		long timeout() {
+			return timeout;
+		}
+
+		Priority priority() {
+			return priority;
+		}
+
+		/**
+		 * 全部失败
+		 *
+		 * @param throwable
+		 */
+		void fail(Throwable throwable) {
+			for (int i = 0; i < size; i++) {
+				futures[i].completeExceptionally(throwable);
+			}
+		}
+	}
+
+}
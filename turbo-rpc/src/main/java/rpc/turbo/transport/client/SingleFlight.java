@@ -0,0 +1,111 @@
+package rpc.turbo.transport.client;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import rpc.turbo.param.MethodParam;
+
+/**
+ * 一个方法的请求合并，线程安全<br>
+ * 参数相同(equals)的请求在途时，后来的调用方直接等待同一个结果，不再发送请求，<br>
+ * 结果返回后立即移除，之后的请求重新发送
+ * 
+ * @author Hank
+ *
+ */
+public final class SingleFlight {
+	private final ConcurrentHashMap<MethodParam, CompletableFuture<Object>> inFlightCalls = new ConcurrentHashMap<>();
+
+	private final LongAdder leaderCounter = new LongAdder();
+	private final LongAdder coalescedCounter = new LongAdder();
+
+	SingleFlight() {
+	}
+
+	/**
+	 * 
+	 * @param methodParam
+	 *            合并的key
+	 * @param call
+	 *            没有相同的在途请求时调用，发送请求
+	 * @return 每个调用方一个独立的 CompletableFuture，调用方 complete、cancel 不会影响其他调用方
+	 */
+	CompletableFuture<Object> execute(MethodParam methodParam, Supplier<CompletableFuture<?>> call) {
+		CompletableFuture<Object> shared = inFlightCalls.get(methodParam);
+
+		if (shared == null) {
+			CompletableFuture<Object> created = new CompletableFuture<>();
+			shared = inFlightCalls.putIfAbsent(methodParam, created);
+
+			if (shared == null) {
+				leaderCounter.increment();
+				shared = created;
+
+				final CompletableFuture<?> future;
+				try {
+					future = call.get();
+				} catch (Throwable t) {// 同步抛出的异常也要移除，否则之后相同的请求会一直等待
+					inFlightCalls.remove(methodParam, created);
+					created.completeExceptionally(t);
+
+					return shared.copy();
+				}
+
+				future.whenComplete((result, throwable) -> {
+					// 先移除，保证结果返回后的请求不会拿到旧的结果
+					inFlightCalls.remove(methodParam, created);
+
+					if (throwable != null) {
+						created.completeExceptionally(throwable);
+					} else {
+						created.complete(result);
+					}
+				});
+
+				return shared.copy();
+			}
+		}
+
+		coalescedCounter.increment();
+		return shared.copy();
+	}
+
+	/**
+	 * 实际发送的请求次数
+	 * 
+	 * @return
+	 */
+	public long leaderCount() {
+		return leaderCounter.sum();
+	}
+
+	/**
+	 * 被合并而没有发送的请求次数
+	 * 
+	 * @return
+	 */
+	public long coalescedCount() {
+		return coalescedCounter.sum();
+	}
+
+	/**
+	 * 当前在途的不同请求数量
+	 * 
+	 * @return
+	 */
+	public int inFlight() {
+		return inFlightCalls.size();
+	}
+
+	@Override
+	public String toString() {
+		return "SingleFlight{" + //
+				"leader=" + leaderCount() + //
+				", coalesced=" + coalescedCount() + //
+				", inFlight=" + inFlight() + //
+				'}';
+	}
+
+}
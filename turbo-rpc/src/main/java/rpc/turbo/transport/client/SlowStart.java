@@ -0,0 +1,87 @@
+package rpc.turbo.transport.client;
+
+import java.util.concurrent.TimeUnit;
+
+import rpc.turbo.config.client.SlowStartConfig;
+
+/**
+ * 一个服务器的预热进度，线程安全<br>
+ * 不在预热中时 {@link #factor()} 只有一次volatile读
+ *
+ * @author Hank
+ *
+ */
+final class SlowStart {
+	private final long windowNanos;
+	/** 预热开始时的比例 */
+	private final double floor;
+	private final boolean exponential;
+
+	private volatile boolean warming = false;
+	private volatile long startNanos;
+
+	SlowStart(SlowStartConfig config) {
+		this.windowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, config.getWindow()));
+		this.floor = Math.max(1, Math.min(100, config.getMinWeight())) / 100D;
+		this.exponential = config.isExponential();
+	}
+
+	/**
+	 * 是否启用了预热
+	 *
+	 * @return
+	 */
+	boolean isEnabled() {
+		return windowNanos > 0 && floor < 1D;
+	}
+
+	/**
+	 * 开始预热，未启用时忽略
+	 */
+	void start() {
+		if (!isEnabled()) {
+			return;
+		}
+
+		// 先设置开始时间，保证其他线程看到warming时不会读到旧的时间
+		startNanos = System.nanoTime();
+		warming = true;
+	}
+
+	/**
+	 * 实际权重占配置权重的比例
+	 *
+	 * @return (0, 1]，1表示没有在预热
+	 */
+	double factor() {
+		if (!warming) {
+			return 1D;
+		}
+
+		long elapsed = System.nanoTime() - startNanos;
+
+		if (elapsed >= windowNanos) {
+			warming = false;
+			return 1D;
+		}
+
+		double progress = (double) Math.max(0L, elapsed) / windowNanos;
+
+		if (exponential) {// floor * (1/floor)^progress
+			return floor * Math.pow(1D / floor, progress);
+		} else {
+			return floor + (1D - floor) * progress;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "SlowStart{" + //
+				"windowNanos=" + windowNanos + //
+				", floor=" + floor + //
+				", exponential=" + exponential + //
+				", factor=" + factor() + //
+				'}';
+	}
+
+}
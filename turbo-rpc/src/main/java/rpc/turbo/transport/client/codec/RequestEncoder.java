@@ -2,6 +2,7 @@ package rpc.turbo.transport.client.codec;
 
 import static rpc.turbo.config.TurboConstants.EXPIRE_PERIOD;
 
+import java.io.IOException;
 import java.net.SocketAddress;
 import java.util.concurrent.TimeUnit;
 
@@ -12,6 +13,8 @@ import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
 import io.netty.handler.codec.MessageToByteEncoder;
+import rpc.turbo.protocol.BatchRequest;
+import rpc.turbo.protocol.Request;
 import rpc.turbo.serialization.Serializer;
 import rpc.turbo.transport.client.future.FutureContainer;
 import rpc.turbo.transport.client.future.RequestWithFuture;
@@ -30,11 +33,19 @@ public class RequestEncoder extends MessageToByteEncoder<RequestWithFuture> {
 	protected void encode(ChannelHandlerContext ctx, RequestWithFuture requestWithFuture, ByteBuf buffer)
 			throws Exception {
 		futureContainer.add(requestWithFuture);
-		serializer.writeRequest(buffer, requestWithFuture.getRequest());
+		write(buffer, requestWithFuture.getRequest());
 
 		requestWithFuture.setRequest(null);// help to gc
 	}
 
+	private void write(ByteBuf buffer, Request request) throws IOException {
+		if (request instanceof BatchRequest) {
+			serializer.writeBatchRequest(buffer, (BatchRequest) request);
+		} else {
+			serializer.writeRequest(buffer, request);
+		}
+	}
+
 	@Override
 	public void connect(ChannelHandlerContext ctx, SocketAddress remoteAddress, SocketAddress localAddress,
 			ChannelPromise promise) throws Exception {
@@ -42,7 +53,7 @@ public class RequestEncoder extends MessageToByteEncoder<RequestWithFuture> {
 
 		if (ctx.channel().attr(CodecConstants.STARTED_AUTO_EXPIRE_JOB).compareAndSet(Boolean.FALSE, Boolean.TRUE)) {
 			ctx.executor().scheduleAtFixedRate(//
-					() -> futureContainer.doExpireJob(1), //
+					() -> futureContainer.doExpireJob(), //
 					EXPIRE_PERIOD, EXPIRE_PERIOD, TimeUnit.MILLISECONDS);
 
 			if (logger.isInfoEnabled()) {
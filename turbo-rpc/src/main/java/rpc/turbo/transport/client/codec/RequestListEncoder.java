@@ -15,6 +15,8 @@ import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
 import io.netty.handler.codec.MessageToByteEncoder;
+import rpc.turbo.protocol.BatchRequest;
+import rpc.turbo.protocol.Request;
 import rpc.turbo.serialization.Serializer;
 import rpc.turbo.transport.client.future.FutureContainer;
 import rpc.turbo.transport.client.future.RequestWithFuture;
@@ -45,11 +47,19 @@ public class RequestListEncoder extends MessageToByteEncoder<List<RequestWithFut
 
 	private void doEncode(ByteBuf buffer, RequestWithFuture request) throws IOException {
 		futureContainer.add(request);
-		serializer.writeRequest(buffer, request.getRequest());
+		write(buffer, request.getRequest());
 
 		request.setRequest(null);// help to gc
 	}
 
+	private void write(ByteBuf buffer, Request request) throws IOException {
+		if (request instanceof BatchRequest) {
+			serializer.writeBatchRequest(buffer, (BatchRequest) request);
+		} else {
+			serializer.writeRequest(buffer, request);
+		}
+	}
+
 	@Override
 	public void connect(ChannelHandlerContext ctx, SocketAddress remoteAddress, SocketAddress localAddress,
 			ChannelPromise promise) throws Exception {
@@ -57,7 +67,7 @@ public class RequestListEncoder extends MessageToByteEncoder<List<RequestWithFut
 
 		if (ctx.channel().attr(CodecConstants.STARTED_AUTO_EXPIRE_JOB).compareAndSet(Boolean.FALSE, Boolean.TRUE)) {
 			ctx.executor().scheduleAtFixedRate(//
-					() -> futureContainer.doExpireJob(1), //
+					() -> futureContainer.doExpireJob(), //
 					EXPIRE_PERIOD, EXPIRE_PERIOD, TimeUnit.MILLISECONDS);
 
 			if (logger.isInfoEnabled()) {
@@ -1,5 +1,7 @@
 package rpc.turbo.transport.client.codec;
 
+import java.nio.ByteOrder;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -7,7 +9,9 @@ import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 import rpc.turbo.config.TurboConstants;
+import rpc.turbo.protocol.BatchResponse;
 import rpc.turbo.protocol.Response;
+import rpc.turbo.protocol.ResponseStatus;
 import rpc.turbo.serialization.Serializer;
 import rpc.turbo.transport.client.future.FutureContainer;
 
@@ -25,12 +29,25 @@ public class ResponseDecoder extends LengthFieldBasedFrameDecoder {
 
 	@Override
 	protected Object decode(ChannelHandlerContext ctx, ByteBuf in) throws Exception {
+		final boolean batch = isBatch(in);
 		ByteBuf buffer = (ByteBuf) super.decode(ctx, in);
 
 		if (buffer != null) {
 			try {
+				if (batch) {
+					BatchResponse batchResponse = serializer.readBatchResponse(buffer);
+					futureContainer.notifyResponse(batchResponse);
+
+					return null;
+				}
+
 				Response response = serializer.readResponse(buffer);
-				futureContainer.notifyResponse(response);
+
+				if (response != null && response.getStatusCode() == ResponseStatus.STREAM_NEXT) {
+					futureContainer.notifyStreamElement(response);
+				} else {
+					futureContainer.notifyResponse(response);
+				}
 			} finally {
 				buffer.release();
 			}
@@ -39,6 +56,19 @@ public class ResponseDecoder extends LengthFieldBasedFrameDecoder {
 		return null;
 	}
 
+	/**
+	 * 长度字段去掉批量标记
+	 */
+	@Override
+	protected long getUnadjustedFrameLength(ByteBuf buf, int offset, int length, ByteOrder order) {
+		return super.getUnadjustedFrameLength(buf, offset, length, order) & ~TurboConstants.BATCH_FLAG;
+	}
+
+	private static boolean isBatch(ByteBuf in) {
+		return in.readableBytes() >= TurboConstants.HEADER_FIELD_LENGTH //
+				&& (in.getInt(in.readerIndex()) & TurboConstants.BATCH_FLAG) != 0;
+	}
+
 	@Override
 	public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
 
@@ -1,46 +1,166 @@
 package rpc.turbo.transport.client.future;
 
+import static rpc.turbo.config.TurboConstants.EXPIRE_PERIOD;
+
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.Iterator;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import io.netty.util.collection.IntObjectHashMap;
 import io.netty.util.collection.IntObjectMap.PrimitiveEntry;
 import rpc.turbo.protocol.Response;
+import rpc.turbo.recycle.RecycleUtils;
 import rpc.turbo.transport.client.exception.ConnectionException;
 import rpc.turbo.transport.client.exception.ResponseTimeoutException;
 import rpc.turbo.util.SystemClock;
+import rpc.turbo.util.TableUtils;
 
 /**
- * 
+ * 在途请求表，非线程安全，只能在 EventLoop 中使用<br>
+ * requestId 是基本连续的，所以使用 requestId &amp; mask 定位的环形槽位表，<br>
+ * 槽位中保存完整的 requestId，其高位即为 generation，用于拒绝过期的和重复的响应，<br>
+ * 槽位冲突时（极少发生）放入溢出表
+ *
  * @author Hank
  *
  */
 public final class FutureContainer implements Closeable {
+	public static final int DEFAULT_CAPACITY = 4096;
+	public static final int MIN_CAPACITY = 256;
+	public static final int MAX_CAPACITY = 1024 * 1024;
 
-	private final IntObjectHashMap<RequestWithFuture> futureMap = //
+	private final RequestWithFuture[] slots;
+	private final int mask;
+	private final IntObjectHashMap<RequestWithFuture> overflowMap = //
 			new IntObjectHashMap<>();
+	private int size;
+
+	private final TimeWheel timeWheel = new TimeWheel(EXPIRE_PERIOD, SystemClock.fast().mills());
+
+	private final Consumer<RequestWithFuture> expireConsumer = requestWithFuture -> {
+		take(requestWithFuture.getRequestId());
+
+		CompletableFuture<Response> future = requestWithFuture.getFuture();
+
+		if (!future.isDone()) {
+			future.completeExceptionally(ResponseTimeoutException.NONE_STACK_TRACE);
+		}
+	};
+
+	public FutureContainer() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 *
+	 * @param maxRequestWait
+	 *            最大在途请求数量，小于1时使用默认大小
+	 */
+	public FutureContainer(int maxRequestWait) {
+		int capacity = maxRequestWait < 1 ? DEFAULT_CAPACITY : maxRequestWait;
+		capacity = Math.max(MIN_CAPACITY, Math.min(MAX_CAPACITY, capacity));
+		capacity = TableUtils.tableSizeFor(capacity);
+
+		this.slots = new RequestWithFuture[capacity];
+		this.mask = capacity - 1;
+	}
 
 	public void add(RequestWithFuture requestWithFuture) {
-		if (requestWithFuture.getFuture().isDone()) {
+		CompletableFuture<Response> future = requestWithFuture.getFuture();
+
+		if (future == null || future.isDone()) {// 没有 future 的为控制请求，不需要响应
 			return;
 		}
 
-		futureMap.put(requestWithFuture.getRequest().getRequestId(), requestWithFuture);
+		final int requestId = requestWithFuture.getRequestId();
+		final int index = requestId & mask;
+		final RequestWithFuture current = slots[index];
+
+		RequestWithFuture old = null;
+
+		if (current == null) {
+			slots[index] = requestWithFuture;
+		} else if (current.getRequestId() == requestId) {
+			slots[index] = requestWithFuture;
+			old = current;
+		} else {// 槽位被占用，放入溢出表
+			old = overflowMap.put(requestId, requestWithFuture);
+		}
+
+		if (old == null) {
+			size++;
+		} else {
+			timeWheel.remove(old);
+		}
+
+		timeWheel.add(requestWithFuture);
+	}
+
+	/**
+	 * 取出并删除，requestId 必须完全一致，过期的、重复的 requestId 会返回 null
+	 *
+	 * @param requestId
+	 * @return
+	 */
+	private RequestWithFuture take(int requestId) {
+		final int index = requestId & mask;
+		final RequestWithFuture current = slots[index];
+
+		RequestWithFuture requestWithFuture = null;
+
+		if (current != null && current.getRequestId() == requestId) {
+			slots[index] = null;
+			requestWithFuture = current;
+		} else if (!overflowMap.isEmpty()) {
+			requestWithFuture = overflowMap.remove(requestId);
+		}
+
+		if (requestWithFuture != null) {
+			size--;
+		}
+
+		return requestWithFuture;
+	}
+
+	/**
+	 * 查找但不删除，requestId 必须完全一致
+	 * 
+	 * @param requestId
+	 * @return
+	 */
+	private RequestWithFuture peek(int requestId) {
+		final RequestWithFuture current = slots[requestId & mask];
+
+		if (current != null && current.getRequestId() == requestId) {
+			return current;
+		}
+
+		if (!overflowMap.isEmpty()) {
+			return overflowMap.get(requestId);
+		}
+
+		return null;
 	}
 
 	public void remove(int requestId) {
-		futureMap.remove(requestId);
+		RequestWithFuture requestWithFuture = take(requestId);
+
+		if (requestWithFuture != null) {
+			timeWheel.remove(requestWithFuture);
+		}
 	}
 
 	public void expire(int requestId) {
-		RequestWithFuture requestWithFuture = futureMap.remove(requestId);
+		RequestWithFuture requestWithFuture = take(requestId);
 
 		if (requestWithFuture == null) {
 			return;
 		}
 
+		timeWheel.remove(requestWithFuture);
+
 		CompletableFuture<Response> future = requestWithFuture.getFuture();
 
 		if (!future.isDone()) {
@@ -53,12 +173,14 @@ public final class FutureContainer implements Closeable {
 			return;
 		}
 
-		RequestWithFuture requestWithFuture = futureMap.remove(response.getRequestId());
+		RequestWithFuture requestWithFuture = take(response.getRequestId());
 
 		if (requestWithFuture == null) {
 			return;
 		}
 
+		timeWheel.remove(requestWithFuture);
+
 		CompletableFuture<Response> future = requestWithFuture.getFuture();
 
 		if (!future.isDone()) {
@@ -67,41 +189,43 @@ public final class FutureContainer implements Closeable {
 	}
 
 	/**
-	 * 删除过期任务
+	 * 流式请求的一个元素，顺延过期时间并交给对应的流处理
 	 * 
-	 * @param maxTime
-	 *            毫秒，超时则跳出
+	 * @param response
+	 *            STREAM_NEXT
 	 */
-	public void doExpireJob(long maxTime) {
-		long finishTime = SystemClock.fast().mills() + maxTime;
-
-		Iterator<PrimitiveEntry<RequestWithFuture>> iterator//
-				= futureMap.entries().iterator();
+	public void notifyStreamElement(Response response) {
+		RequestWithFuture requestWithFuture = peek(response.getRequestId());
 
-		while (iterator.hasNext()) {
-			RequestWithFuture requestWithFuture = iterator.next().value();
-
-			long now = SystemClock.fast().mills();
+		if (!(requestWithFuture instanceof StreamRequestWithFuture)) {// 已经结束或者取消
+			RecycleUtils.release(response);
+			return;
+		}
 
-			// 防止执行过长时间
-			if (now > finishTime) {
-				break;
-			}
+		StreamRequestWithFuture stream = (StreamRequestWithFuture) requestWithFuture;
+		Object element = response.getResult();
+		RecycleUtils.release(response);
 
-			if (now < requestWithFuture.getExpireTime()) {
-				continue;
-			}
+		stream.setExpireTime(SystemClock.fast().mills() + stream.getTimeout());
+		timeWheel.add(stream);
 
-			iterator.remove();
+		stream.onNext(element);
+	}
 
-			CompletableFuture<Response> future = requestWithFuture.getFuture();
+	/**
+	 * 删除过期任务，推进时间轮，只处理已过期的任务，不会扫描全部在途请求
+	 */
+	public void doExpireJob() {
+		timeWheel.advance(SystemClock.fast().mills(), expireConsumer);
+	}
 
-			if (future.isDone()) {
-				return;
-			} else {
-				future.completeExceptionally(ResponseTimeoutException.NONE_STACK_TRACE);
-			}
-		}
+	/**
+	 * 在途请求数量
+	 *
+	 * @return
+	 */
+	public int size() {
+		return size;
 	}
 
 	/**
@@ -109,18 +233,34 @@ public final class FutureContainer implements Closeable {
 	 */
 	@Override
 	public void close() throws IOException {
-		if (futureMap.isEmpty()) {
+		if (size == 0) {
 			return;
 		}
 
-		doExpireJob(10);
+		doExpireJob();
 
-		if (futureMap.isEmpty()) {
+		if (size == 0) {
 			return;
 		}
 
+		timeWheel.clear();
+
+		for (int i = 0; i < slots.length; i++) {
+			RequestWithFuture requestWithFuture = slots[i];
+
+			if (requestWithFuture == null) {
+				continue;
+			}
+
+			slots[i] = null;
+
+			requestWithFuture//
+					.getFuture()//
+					.completeExceptionally(new ConnectionException("connection is closed"));
+		}
+
 		Iterator<PrimitiveEntry<RequestWithFuture>> iterator//
-				= futureMap.entries().iterator();
+				= overflowMap.entries().iterator();
 
 		while (iterator.hasNext()) {
 			RequestWithFuture requestWithFuture = iterator.next().value();
@@ -131,5 +271,7 @@ public final class FutureContainer implements Closeable {
 					.getFuture()//
 					.completeExceptionally(new ConnectionException("connection is closed"));
 		}
+
+		size = 0;
 	}
-}
\ No newline at end of file
+}
@@ -2,20 +2,38 @@ package rpc.turbo.transport.client.future;
 
 import java.util.concurrent.CompletableFuture;
 
+import rpc.turbo.config.Priority;
 import rpc.turbo.protocol.Request;
 import rpc.turbo.protocol.Response;
 
 public class RequestWithFuture {
+	private final int requestId;
 	private Request request;
 	private CompletableFuture<Response> future;
 	private long expireTime;
+	private Priority priority = Priority.NORMAL;
+
+	// 时间轮使用
+	RequestWithFuture wheelPrev;
+	RequestWithFuture wheelNext;
+	int wheelSlot = TimeWheel.NO_SLOT;
 
 	public RequestWithFuture(Request request, CompletableFuture<Response> future, long expireTime) {
+		this.requestId = request.getRequestId();
 		this.request = request;
 		this.future = future;
 		this.expireTime = expireTime;
 	}
 
+	/**
+	 * 发送后 request 会被置空，requestId 仍然可用
+	 * 
+	 * @return
+	 */
+	public int getRequestId() {
+		return requestId;
+	}
+
 	public Request getRequest() {
 		return request;
 	}
@@ -40,4 +58,17 @@ public class RequestWithFuture {
 		this.expireTime = expireTime;
 	}
 
+	/**
+	 * 请求优先级，决定在哪个发送队列中排队
+	 * 
+	 * @return
+	 */
+	public Priority getPriority() {
+		return priority;
+	}
+
+	public void setPriority(Priority priority) {
+		this.priority = priority;
+	}
+
 }
@@ -0,0 +1,46 @@
+package rpc.turbo.transport.client.future;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import rpc.turbo.protocol.Request;
+import rpc.turbo.protocol.Response;
+
+/**
+ * 流式请求，STREAM_NEXT 交给 elementConsumer 处理，不会从在途请求表中删除，<br>
+ * 每收到一个元素过期时间都会顺延 timeout，即 timeout 为两个 frame 之间的最大间隔，<br>
+ * future 在收到结束 frame、出错或超时时完成
+ *
+ * @author Hank
+ *
+ */
+public class StreamRequestWithFuture extends RequestWithFuture {
+	private final long timeout;
+	private final Consumer<Object> elementConsumer;
+
+	/**
+	 * 
+	 * @param request
+	 * @param future
+	 * @param expireTime
+	 * @param timeout
+	 *            两个 frame 之间的最大间隔，毫秒
+	 * @param elementConsumer
+	 *            在 EventLoop 中调用
+	 */
+	public StreamRequestWithFuture(Request request, CompletableFuture<Response> future, long expireTime,
+			long timeout, Consumer<Object> elementConsumer) {
+		super(request, future, expireTime);
+		this.timeout = timeout;
+		this.elementConsumer = elementConsumer;
+	}
+
+	public long getTimeout() {
+		return timeout;
+	}
+
+	void onNext(Object element) {
+		elementConsumer.accept(element);
+	}
+
+}
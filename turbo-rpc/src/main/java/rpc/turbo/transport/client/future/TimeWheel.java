@@ -0,0 +1,223 @@
+package rpc.turbo.transport.client.future;
+
+import java.util.function.Consumer;
+
+/**
+ * 两级分层哈希时间轮，按 {@link RequestWithFuture#getExpireTime()} 组织过期任务，<br>
+ * 过期处理为 O(过期数量) 而非 O(在途数量)，<br>
+ * 使用侵入式双向链表，删除为 O(1)，非线程安全，只能在 EventLoop 中使用
+ *
+ * @author Hank
+ *
+ */
+final class TimeWheel {
+	static final int WHEEL_BITS = 9;
+	static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+	static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+	/** 不在时间轮中 */
+	static final int NO_SLOT = -1;
+
+	private final long tickMills;
+
+	/** 第一级，每格一个刻度 */
+	private final RequestWithFuture[] lowWheel = new RequestWithFuture[WHEEL_SIZE];
+	/** 第二级，每格 WHEEL_SIZE 个刻度 */
+	private final RequestWithFuture[] highWheel = new RequestWithFuture[WHEEL_SIZE];
+
+	/** 已经处理过的最后一个刻度 */
+	private long currentTick;
+	private int size;
+
+	/**
+	 *
+	 * @param tickMills
+	 *            刻度，毫秒
+	 * @param currentMills
+	 *            当前时间，毫秒
+	 */
+	TimeWheel(long tickMills, long currentMills) {
+		if (tickMills < 1) {
+			throw new IllegalArgumentException("Illegal tickMills: " + tickMills);
+		}
+
+		this.tickMills = tickMills;
+		this.currentTick = currentMills / tickMills;
+	}
+
+	int size() {
+		return size;
+	}
+
+	void add(RequestWithFuture requestWithFuture) {
+		if (requestWithFuture.wheelSlot != NO_SLOT) {
+			remove(requestWithFuture);
+		}
+
+		// 向上取整，保证触发时一定已经过期
+		long expireTick = (requestWithFuture.getExpireTime() + tickMills - 1) / tickMills;
+
+		if (expireTick <= currentTick) {
+			expireTick = currentTick + 1;
+		}
+
+		link(requestWithFuture, expireTick);
+		size++;
+	}
+
+	void remove(RequestWithFuture requestWithFuture) {
+		int slot = requestWithFuture.wheelSlot;
+
+		if (slot == NO_SLOT) {
+			return;
+		}
+
+		RequestWithFuture[] wheel = slot < WHEEL_SIZE ? lowWheel : highWheel;
+		int index = slot & WHEEL_MASK;
+
+		RequestWithFuture prev = requestWithFuture.wheelPrev;
+		RequestWithFuture next = requestWithFuture.wheelNext;
+
+		if (prev == null) {
+			wheel[index] = next;
+		} else {
+			prev.wheelNext = next;
+		}
+
+		if (next != null) {
+			next.wheelPrev = prev;
+		}
+
+		requestWithFuture.wheelPrev = null;
+		requestWithFuture.wheelNext = null;
+		requestWithFuture.wheelSlot = NO_SLOT;
+
+		size--;
+	}
+
+	/**
+	 * 推进时间轮到当前时间，已过期的交给 expiredConsumer 处理
+	 *
+	 * @param currentMills
+	 *            当前时间，毫秒
+	 * @param expiredConsumer
+	 *            过期处理，调用前已经从时间轮中移除
+	 */
+	void advance(long currentMills, Consumer<RequestWithFuture> expiredConsumer) {
+		long nowTick = currentMills / tickMills;
+
+		while (currentTick < nowTick) {
+			long tick = ++currentTick;
+
+			if (size > 0) {
+				int index = (int) (tick & WHEEL_MASK);
+				RequestWithFuture head = lowWheel[index];
+				lowWheel[index] = null;
+
+				while (head != null) {
+					RequestWithFuture next = head.wheelNext;
+
+					head.wheelPrev = null;
+					head.wheelNext = null;
+					head.wheelSlot = NO_SLOT;
+					size--;
+
+					expiredConsumer.accept(head);
+
+					head = next;
+				}
+			}
+
+			if (((tick + 1) & WHEEL_MASK) == 0) {
+				cascade((tick + 1) >>> WHEEL_BITS);
+			}
+		}
+	}
+
+	/**
+	 * 清空，不做任何过期处理
+	 */
+	void clear() {
+		clear(lowWheel);
+		clear(highWheel);
+		size = 0;
+	}
+
+	private void clear(RequestWithFuture[] wheel) {
+		for (int i = 0; i < wheel.length; i++) {
+			RequestWithFuture head = wheel[i];
+			wheel[i] = null;
+
+			while (head != null) {
+				RequestWithFuture next = head.wheelNext;
+
+				head.wheelPrev = null;
+				head.wheelNext = null;
+				head.wheelSlot = NO_SLOT;
+
+				head = next;
+			}
+		}
+	}
+
+	/**
+	 * 下一轮开始前，把第二级中属于该轮的任务降到第一级
+	 *
+	 * @param round
+	 */
+	private void cascade(long round) {
+		int index = (int) (round & WHEEL_MASK);
+		RequestWithFuture head = highWheel[index];
+		highWheel[index] = null;
+
+		while (head != null) {
+			RequestWithFuture next = head.wheelNext;
+
+			long expireTick = (head.getExpireTime() + tickMills - 1) / tickMills;
+			if (expireTick <= currentTick) {
+				expireTick = currentTick + 1;
+			}
+
+			head.wheelPrev = null;
+			head.wheelNext = null;
+			link(head, expireTick);
+
+			head = next;
+		}
+	}
+
+	private void link(RequestWithFuture requestWithFuture, long expireTick) {
+		final RequestWithFuture[] wheel;
+		final int slot;
+
+		if (expireTick - currentTick <= WHEEL_SIZE) {
+			wheel = lowWheel;
+			slot = (int) (expireTick & WHEEL_MASK);
+		} else {
+			long round = expireTick >>> WHEEL_BITS;
+			long maxRound = (currentTick >>> WHEEL_BITS) + WHEEL_MASK;
+
+			// 超出第二级范围的先放到最远的一格，降级时会重新计算
+			if (round > maxRound) {
+				round = maxRound;
+			}
+
+			wheel = highWheel;
+			slot = WHEEL_SIZE | (int) (round & WHEEL_MASK);
+		}
+
+		int index = slot & WHEEL_MASK;
+		RequestWithFuture head = wheel[index];
+
+		requestWithFuture.wheelSlot = slot;
+		requestWithFuture.wheelPrev = null;
+		requestWithFuture.wheelNext = head;
+
+		if (head != null) {
+			head.wheelPrev = requestWithFuture;
+		}
+
+		wheel[index] = requestWithFuture;
+	}
+
+}
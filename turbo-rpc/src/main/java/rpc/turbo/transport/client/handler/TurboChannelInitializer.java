@@ -5,6 +5,8 @@ import static rpc.turbo.config.TurboConstants.MAX_FRAME_LENGTH;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.socket.SocketChannel;
 import rpc.turbo.serialization.Serializer;
+import rpc.turbo.transport.compress.CompressFrameDecoder;
+import rpc.turbo.transport.compress.CompressFrameEncoder;
 import rpc.turbo.transport.client.codec.RequestEncoder;
 import rpc.turbo.transport.client.codec.RequestListEncoder;
 import rpc.turbo.transport.client.codec.ResponseDecoder;
@@ -13,19 +15,54 @@ import rpc.turbo.transport.client.future.FutureContainer;
 public class TurboChannelInitializer extends ChannelInitializer<SocketChannel> {
 
 	private final Serializer serializer;
+	private final int maxRequestWait;
+	private final byte[] compressTypes;
+	private final int compressThreshold;
 
-	public TurboChannelInitializer(Serializer serializer) {
+	/**
+	 * 
+	 * @param serializer
+	 * @param maxRequestWait
+	 *            最大在途请求数量，用于确定 FutureContainer 的大小
+	 */
+	public TurboChannelInitializer(Serializer serializer, int maxRequestWait) {
+		this(serializer, maxRequestWait, new byte[0], 0);
+	}
+
+	/**
+	 * 
+	 * @param serializer
+	 * @param maxRequestWait
+	 *            最大在途请求数量，用于确定 FutureContainer 的大小
+	 * @param compressTypes
+	 *            支持的压缩类型，为空时不压缩
+	 * @param compressThreshold
+	 *            压缩阈值，字节
+	 */
+	public TurboChannelInitializer(Serializer serializer, int maxRequestWait, byte[] compressTypes,
+			int compressThreshold) {
 		this.serializer = serializer;
+		this.maxRequestWait = maxRequestWait;
+		this.compressTypes = compressTypes;
+		this.compressThreshold = compressThreshold;
 	}
 
 	@Override
 	public void initChannel(SocketChannel ch) throws Exception {
-		FutureContainer container = new FutureContainer();
+		FutureContainer container = new FutureContainer(maxRequestWait);
 
 		RequestEncoder requestEncoder = new RequestEncoder(serializer, container);
 		RequestListEncoder requestListEncoder = new RequestListEncoder(serializer, container);
 		ResponseDecoder decoder = new ResponseDecoder(MAX_FRAME_LENGTH, serializer, container);
 
+		if (compressTypes.length > 0) {// 协商成功后才会真正压缩
+			CompressFrameEncoder compressEncoder = new CompressFrameEncoder(compressTypes, compressThreshold);
+
+			ch.pipeline()//
+					.addLast("compressEncoder", compressEncoder)//
+					.addLast("compressDecoder", new CompressFrameDecoder(MAX_FRAME_LENGTH, compressEncoder));
+		}
+
 		ch.pipeline()//
 				.addLast("requestEncoder", requestEncoder)//
 				.addLast("requestListEncoder", requestListEncoder)//
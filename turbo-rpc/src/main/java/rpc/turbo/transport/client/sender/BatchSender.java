@@ -1,56 +1,157 @@
 package rpc.turbo.transport.client.sender;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelPromise;
 import io.netty.channel.EventLoop;
 import io.netty.util.internal.shaded.org.jctools.queues.atomic.MpscAtomicArrayQueue;
+import rpc.turbo.config.Priority;
 import rpc.turbo.transport.client.future.RequestWithFuture;
 import rpc.turbo.util.FastClearableArrayList;
 
+/**
+ * 批量发送，同一时刻最多只有一个发送任务在 EventLoop 中排队<br>
+ * flushLatencyBudget &gt; 0 时开启自适应模式: 根据请求到达速率判断，<br>
+ * 如果在延迟预算内还能攒到更多请求，则推迟 flush，但推迟时间不会超过延迟预算<br>
+ * 每个优先级一个发送队列，总是先发送高优先级的请求，有高优先级请求时不推迟 flush
+ *
+ * @author Hank
+ *
+ */
 public class BatchSender implements Sender {
 	public static final int MAX_SEND_BUFFER_SIZE = 1024;
 	public static final int MAX_SEND_LOOP_COUNT = 16;
 	public static final int MAX_BATCH_SIZE = 64;
 
+	/** 到达速率 EWMA 中新值的权重 */
+	private static final double RATE_ALPHA = 0.2;
+	private static final int HIGH_LANE = Priority.HIGH.lane();
+
 	private final Channel channel;
 	private final ChannelPromise voidPromise;
 	private final EventLoop eventLoop;
+	private final long flushLatencyBudgetNanos;
 
-	private final MpscAtomicArrayQueue<RequestWithFuture> sendBuffer //
-			= new MpscAtomicArrayQueue<>(MAX_SEND_BUFFER_SIZE);
+	/** 按优先级通道划分的发送队列，下标越小优先级越高 */
+	private final MpscAtomicArrayQueue<RequestWithFuture>[] sendBuffers;
 	private final FastClearableArrayList<RequestWithFuture> batchList //
 			= new FastClearableArrayList<>();
 
-	private final Runnable batchSendTask = () -> doBatchSend();
+	/** 是否已有发送任务在排队 */
+	private final AtomicBoolean scheduled = new AtomicBoolean(false);
+	/** 队列满时是否已有清理任务在排队 */
+	private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+	/** 发送任务开始排队的时间，即最早一个请求的等待开始时间 */
+	private volatile long pendingSinceNanos;
+
+	// 以下字段只在 EventLoop 中修改
+	private volatile boolean deferred = false;
+	private long lastFlushNanos = System.nanoTime();
+	/** 每纳秒到达的请求数，EWMA */
+	private double arrivalRate = 0D;
+
+	private volatile long flushCount = 0;
+	private volatile long sendCount = 0;
+	private volatile long flushWaitNanos = 0;
+	private volatile long deferCount = 0;
+
+	private final Runnable batchSendTask = () -> doBatchSend(false);
+	private final Runnable flushTask = () -> doBatchSend(true);
+	private final Runnable drainTask = () -> {
+		drainScheduled.set(false);
+		doBatchSend(true);
+	};
 
 	public BatchSender(Channel channel) {
+		this(channel, 0);
+	}
+
+	/**
+	 *
+	 * @param channel
+	 * @param flushLatencyBudget
+	 *            自适应批量发送的延迟预算，微秒，小于1时不开启
+	 */
+	@SuppressWarnings("unchecked")
+	public BatchSender(Channel channel, long flushLatencyBudget) {
+		this.sendBuffers = new MpscAtomicArrayQueue[Priority.LANES];
+		for (int i = 0; i < Priority.LANES; i++) {
+			sendBuffers[i] = new MpscAtomicArrayQueue<>(MAX_SEND_BUFFER_SIZE);
+		}
+
 		this.channel = channel;
 		this.voidPromise = channel.voidPromise();
 		this.eventLoop = channel.eventLoop();
+		this.flushLatencyBudgetNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, flushLatencyBudget));
 	}
 
 	@Override
 	public void send(RequestWithFuture request) {
+		final int lane = request.getPriority().lane();
+		MpscAtomicArrayQueue<RequestWithFuture> sendBuffer = sendBuffers[lane];
+
 		while (!sendBuffer.offer(request)) {
 			// 已经满了，必须要清理
-			eventLoop.execute(batchSendTask);
+			drain();
 		}
 
-		if (!sendBuffer.isEmpty()) {
+		if (lane == HIGH_LANE && deferred) {// 高优先级请求不等待已推迟的 flush
+			eventLoop.execute(flushTask);
+			return;
+		}
+
+		trySchedule();
+	}
+
+	/**
+	 * 队列满时清理，同一时刻只排队一个清理任务，<br>
+	 * 否则发送线程自旋提交的任务会撑爆 EventLoop 的任务队列，导致发送停滞
+	 */
+	private void drain() {
+		if (eventLoop.inEventLoop()) {
+			doBatchSend(true);
+			return;
+		}
+
+		if (!drainScheduled.get() && drainScheduled.compareAndSet(false, true)) {
+			eventLoop.execute(drainTask);
+		}
+
+		Thread.yield();
+	}
+
+	private void trySchedule() {
+		if (!scheduled.get() && scheduled.compareAndSet(false, true)) {
+			pendingSinceNanos = System.nanoTime();
 			eventLoop.execute(batchSendTask);
 		}
 	}
 
-	private void doBatchSend() {
-		if (sendBuffer.isEmpty()) {
+	private void doBatchSend(boolean force) {
+		if (!force && deferred) {// 已经推迟过了，等待定时任务执行
+			return;
+		}
+
+		if (!force && flushLatencyBudgetNanos > 0 && tryDefer()) {
+			return;
+		}
+
+		deferred = false;
+		// 没有排队的发送任务时 pendingSinceNanos 是旧值，不计入等待时长
+		final long waitNanos = scheduled.getAndSet(false) ? System.nanoTime() - pendingSinceNanos : 0L;
+
+		if (isEmpty()) {
 			return;
 		}
 
+		int count = 0;
+
 		for (int r = 0; r < MAX_SEND_LOOP_COUNT; r++) {
 			for (int i = 0; i < MAX_BATCH_SIZE; i++) {
-				RequestWithFuture request = sendBuffer.poll();
+				RequestWithFuture request = poll();
 
 				if (request != null) {
 					batchList.add(request);
@@ -60,16 +161,169 @@ public class BatchSender implements Sender {
 			}
 
 			if (!batchList.isEmpty()) {
+				count += batchList.size();
 				channel.write(batchList, voidPromise);
 				batchList.clear();
 			}
 
-			if (sendBuffer.isEmpty()) {
+			if (isEmpty()) {
 				break;
 			}
 		}
 
 		channel.flush();
+
+		updateStats(count, waitNanos);
+
+		if (!isEmpty()) {
+			trySchedule();
+		}
+	}
+
+	/**
+	 * 按优先级从高到低取出一个请求
+	 * 
+	 * @return
+	 */
+	private RequestWithFuture poll() {
+		for (int i = 0; i < sendBuffers.length; i++) {
+			RequestWithFuture request = sendBuffers[i].poll();
+
+			if (request != null) {
+				return request;
+			}
+		}
+
+		return null;
+	}
+
+	private boolean isEmpty() {
+		for (int i = 0; i < sendBuffers.length; i++) {
+			if (!sendBuffers[i].isEmpty()) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * 根据到达速率判断是否推迟 flush
+	 *
+	 * @return true 已推迟
+	 */
+	private boolean tryDefer() {
+		// 高优先级的请求不等待
+		if (!sendBuffers[HIGH_LANE].isEmpty()) {
+			return false;
+		}
+
+		int queued = 0;
+		for (int i = 0; i < sendBuffers.length; i++) {
+			queued += sendBuffers[i].size();
+		}
+
+		if (queued >= MAX_BATCH_SIZE) {
+			return false;
+		}
+
+		long remaining = flushLatencyBudgetNanos - (System.nanoTime() - pendingSinceNanos);
+
+		if (remaining <= 0) {
+			return false;
+		}
+
+		double rate = arrivalRate;
+
+		// 剩余预算内预计攒不到一个新请求，没必要等
+		if (rate * remaining < 1D) {
+			return false;
+		}
+
+		long delay = Math.min(remaining, (long) ((MAX_BATCH_SIZE - queued) / rate));
+
+		if (delay <= 0) {
+			return false;
+		}
+
+		deferred = true;
+
+		// 与 send 中的检查配合，保证推迟期间到达的高优先级请求不会被漏掉
+		if (!sendBuffers[HIGH_LANE].isEmpty()) {
+			deferred = false;
+			return false;
+		}
+
+		eventLoop.schedule(flushTask, delay, TimeUnit.NANOSECONDS);
+		deferCount = deferCount + 1;
+
+		return true;
+	}
+
+	private void updateStats(int count, long waitNanos) {
+		long now = System.nanoTime();
+		long interval = now - lastFlushNanos;
+		lastFlushNanos = now;
+
+		if (interval > 0) {
+			double rate = (double) count / interval;
+			arrivalRate = arrivalRate == 0D ? rate : RATE_ALPHA * rate + (1 - RATE_ALPHA) * arrivalRate;
+		}
+
+		// 单线程写，多线程读
+		flushCount = flushCount + 1;
+		sendCount = sendCount + count;
+		flushWaitNanos = flushWaitNanos + waitNanos;
+	}
+
+	@Override
+	public long flushCount() {
+		return flushCount;
+	}
+
+	@Override
+	public long sendCount() {
+		return sendCount;
+	}
+
+	@Override
+	public long flushWaitNanos() {
+		return flushWaitNanos;
+	}
+
+	@Override
+	public long deferCount() {
+		return deferCount;
+	}
+
+	/**
+	 * 平均每次 flush 发送的请求数量
+	 * 
+	 * @return
+	 */
+	public double averageBatchSize() {
+		long flushCount = this.flushCount;
+
+		if (flushCount == 0) {
+			return 0D;
+		}
+
+		return (double) sendCount / flushCount;
+	}
+
+	/**
+	 * 平均每次 flush 前最早的请求等待的时长，纳秒
+	 * 
+	 * @return
+	 */
+	public double averageFlushWait() {
+		long flushCount = this.flushCount;
+
+		if (flushCount == 0) {
+			return 0D;
+		}
+
+		return (double) flushWaitNanos / flushCount;
 	}
 
 	@Override
@@ -7,4 +7,32 @@ import rpc.turbo.transport.client.future.RequestWithFuture;
 public interface Sender extends Closeable {
 
 	public void send(RequestWithFuture request);
+
+	/**
+	 * flush 次数
+	 * 
+	 * @return
+	 */
+	public long flushCount();
+
+	/**
+	 * 已发送的请求数量
+	 * 
+	 * @return
+	 */
+	public long sendCount();
+
+	/**
+	 * 请求在发送队列中等待 flush 的总时长，纳秒，按每次 flush 中最早的请求计算
+	 * 
+	 * @return
+	 */
+	public long flushWaitNanos();
+
+	/**
+	 * 自适应模式下推迟 flush 的次数
+	 * 
+	 * @return
+	 */
+	public long deferCount();
 }
@@ -1,6 +1,7 @@
 package rpc.turbo.transport.client.sender;
 
 import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
 
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelPromise;
@@ -9,6 +10,7 @@ import rpc.turbo.transport.client.future.RequestWithFuture;
 public class SingleSender implements Sender {
 	private final Channel channel;
 	private final ChannelPromise voidPromise;
+	private final LongAdder sendCounter = new LongAdder();
 
 	public SingleSender(Channel channel) {
 		this.channel = channel;
@@ -18,6 +20,27 @@ public class SingleSender implements Sender {
 	@Override
 	public void send(RequestWithFuture request) {
 		channel.writeAndFlush(request, voidPromise);
+		sendCounter.increment();
+	}
+
+	@Override
+	public long flushCount() {
+		return sendCounter.sum();
+	}
+
+	@Override
+	public long sendCount() {
+		return sendCounter.sum();
+	}
+
+	@Override
+	public long flushWaitNanos() {
+		return 0L;
+	}
+
+	@Override
+	public long deferCount() {
+		return 0L;
 	}
 
 	@Override
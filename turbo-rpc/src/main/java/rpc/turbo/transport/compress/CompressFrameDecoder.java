@@ -0,0 +1,160 @@
+package rpc.turbo.transport.compress;
+
+import static rpc.turbo.config.TurboConstants.BATCH_FLAG;
+import static rpc.turbo.config.TurboConstants.COMPRESS_FLAG;
+import static rpc.turbo.config.TurboConstants.COMPRESS_HEADER_LENGTH;
+import static rpc.turbo.config.TurboConstants.HEADER_FIELD_LENGTH;
+
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.TooLongFrameException;
+import rpc.turbo.compress.Compressor;
+import rpc.turbo.compress.CompressorFactory;
+
+/**
+ * 解压，位于 pipeline 的最前端，普通 frame 以 slice 的方式原样转发，<br>
+ * 压缩 frame 解压后转发给后面的 frame 解码器
+ * 
+ * @author Hank
+ *
+ */
+public class CompressFrameDecoder extends ByteToMessageDecoder {
+
+	private final int maxFrameLength;
+	private final CompressFrameEncoder encoder;
+	private final Compressor[] decompressors = new Compressor[4];
+
+	/** 当前普通 frame 还未转发的字节数 */
+	private int passthrough;
+
+	/**
+	 * 
+	 * @param maxFrameLength
+	 *            最大 frame 长度
+	 * @param encoder
+	 *            同一个 channel 的压缩编码，对端开启压缩时通知它
+	 */
+	public CompressFrameDecoder(int maxFrameLength, CompressFrameEncoder encoder) {
+		this.maxFrameLength = maxFrameLength;
+		this.encoder = encoder;
+	}
+
+	@Override
+	protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+		for (;;) {
+			if (passthrough == 0) {
+				passthrough = plainLength(in);
+			}
+
+			if (passthrough > 0) {
+				int length = Math.min(passthrough, in.readableBytes());
+
+				if (length == 0) {
+					return;
+				}
+
+				out.add(in.readRetainedSlice(length));
+				passthrough -= length;
+
+				continue;
+			}
+
+			if (in.readableBytes() < HEADER_FIELD_LENGTH) {
+				return;
+			}
+
+			int frameLength = in.getInt(in.readerIndex()) & ~COMPRESS_FLAG;
+
+			if (frameLength < COMPRESS_HEADER_LENGTH - HEADER_FIELD_LENGTH) {
+				throw new CorruptedFrameException("compressed frame length is too short: " + frameLength);
+			}
+
+			if (frameLength > maxFrameLength) {
+				throw new TooLongFrameException("compressed frame length exceeds " + maxFrameLength);
+			}
+
+			if (in.readableBytes() < HEADER_FIELD_LENGTH + frameLength) {
+				return;
+			}
+
+			in.skipBytes(HEADER_FIELD_LENGTH);
+			byte type = in.readByte();
+			int rawLength = in.readInt();
+			ByteBuf compressed = in.readSlice(frameLength - (COMPRESS_HEADER_LENGTH - HEADER_FIELD_LENGTH));
+
+			if (rawLength < 0 || rawLength > maxFrameLength) {
+				throw new TooLongFrameException("raw length exceeds " + maxFrameLength + ": " + rawLength);
+			}
+
+			if (encoder != null) {
+				encoder.onPeerCompress(type);
+			}
+
+			if (rawLength == 0) {// 对端开启压缩的通知
+				continue;
+			}
+
+			ByteBuf buffer = ctx.alloc().directBuffer(rawLength);
+
+			try {
+				decompressor(type).decompress(compressed, buffer, rawLength);
+			} catch (Throwable t) {
+				buffer.release();
+				throw t;
+			}
+
+			out.add(buffer);
+		}
+	}
+
+	/**
+	 * 从当前位置开始连续的普通 frame（包括批量 frame）的总长度，最后一个可能不完整
+	 */
+	private int plainLength(ByteBuf in) {
+		final int readerIndex = in.readerIndex();
+		final int writerIndex = in.writerIndex();
+
+		long length = 0;
+		while (readerIndex + length + HEADER_FIELD_LENGTH <= writerIndex) {
+			int header = in.getInt((int) (readerIndex + length));
+
+			if ((header & COMPRESS_FLAG) != 0) {
+				break;
+			}
+
+			length += HEADER_FIELD_LENGTH + (header & ~BATCH_FLAG);
+		}
+
+		return (int) Math.min(length, Integer.MAX_VALUE);
+	}
+
+	private Compressor decompressor(byte type) {
+		if (type < 0 || type >= decompressors.length || !CompressorFactory.isSupported(type)) {
+			throw new CorruptedFrameException("not support this compress type: " + type);
+		}
+
+		Compressor decompressor = decompressors[type];
+
+		if (decompressor == null) {
+			decompressor = CompressorFactory.createCompressor(type);
+			decompressors[type] = decompressor;
+		}
+
+		return decompressor;
+	}
+
+	@Override
+	protected void handlerRemoved0(ChannelHandlerContext ctx) throws Exception {
+		for (int i = 0; i < decompressors.length; i++) {
+			if (decompressors[i] != null) {
+				decompressors[i].close();
+				decompressors[i] = null;
+			}
+		}
+	}
+
+}
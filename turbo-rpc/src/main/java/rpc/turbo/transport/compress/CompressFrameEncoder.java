@@ -0,0 +1,163 @@
+package rpc.turbo.transport.compress;
+
+import static rpc.turbo.config.TurboConstants.COMPRESS_FLAG;
+import static rpc.turbo.config.TurboConstants.COMPRESS_HEADER_LENGTH;
+import static rpc.turbo.config.TurboConstants.HEADER_FIELD_LENGTH;
+import static rpc.turbo.config.TurboConstants.MAX_FRAME_LENGTH;
+
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToMessageEncoder;
+import rpc.turbo.compress.Compressor;
+import rpc.turbo.compress.CompressorFactory;
+
+/**
+ * 压缩编码，位于 pipeline 的最前端，把超过阈值的出站数据（可能包含多个 frame）整体压缩为一个压缩 frame:<br>
+ * [int 长度|COMPRESS_FLAG][byte 压缩类型][int 原始长度][压缩数据]<br>
+ * 启用前以及小于阈值的数据原样发送，压缩后没有变小的也原样发送
+ * 
+ * @author Hank
+ *
+ */
+public class CompressFrameEncoder extends MessageToMessageEncoder<ByteBuf> {
+	private static final Log logger = LogFactory.getLog(CompressFrameEncoder.class);
+
+	private final byte[] acceptTypes;
+	private final int threshold;
+
+	private volatile ChannelHandlerContext ctx;
+	// 只在 EventLoop 中修改
+	private volatile Compressor compressor;
+
+	/**
+	 * 
+	 * @param acceptTypes
+	 *            对端使用这些压缩类型时，本端也使用相同的类型压缩
+	 * @param threshold
+	 *            压缩阈值，字节
+	 */
+	public CompressFrameEncoder(byte[] acceptTypes, int threshold) {
+		this.acceptTypes = acceptTypes;
+		this.threshold = Math.max(threshold, 0);
+	}
+
+	/**
+	 * 开启压缩，并发送一个空的压缩 frame 通知对端
+	 * 
+	 * @param type
+	 *            {@link rpc.turbo.protocol.CompressType}
+	 */
+	public void enable(byte type) {
+		ChannelHandlerContext ctx = this.ctx;
+
+		if (ctx == null) {
+			return;
+		}
+
+		ctx.executor().execute(() -> {
+			if (doEnable(type)) {
+				ByteBuf buffer = ctx.alloc().directBuffer(COMPRESS_HEADER_LENGTH);
+				buffer.writeInt((COMPRESS_HEADER_LENGTH - HEADER_FIELD_LENGTH) | COMPRESS_FLAG);
+				buffer.writeByte(type);
+				buffer.writeInt(0);
+
+				ctx.writeAndFlush(buffer, ctx.voidPromise());
+			}
+		});
+	}
+
+	/**
+	 * 对端发送了压缩 frame，如果本端还未开启压缩并且接受该类型则开启
+	 * 
+	 * @param type
+	 *            {@link rpc.turbo.protocol.CompressType}
+	 */
+	void onPeerCompress(byte type) {
+		if (compressor != null) {
+			return;
+		}
+
+		for (int i = 0; i < acceptTypes.length; i++) {
+			if (acceptTypes[i] == type) {
+				doEnable(type);
+				return;
+			}
+		}
+	}
+
+	private boolean doEnable(byte type) {
+		Compressor old = compressor;
+
+		if (old != null && old.type() == type) {
+			return false;
+		}
+
+		compressor = CompressorFactory.createCompressor(type);
+
+		if (old != null) {
+			old.close();
+		}
+
+		if (logger.isInfoEnabled()) {
+			logger.info("compress enabled, type: " + type + ", threshold: " + threshold + ", " + ctx.channel());
+		}
+
+		return true;
+	}
+
+	@Override
+	protected void encode(ChannelHandlerContext ctx, ByteBuf msg, List<Object> out) throws Exception {
+		final Compressor compressor = this.compressor;
+		final int length = msg.readableBytes();
+
+		if (compressor == null || length < threshold || length > MAX_FRAME_LENGTH) {
+			out.add(msg.retain());
+			return;
+		}
+
+		final int readerIndex = msg.readerIndex();
+		ByteBuf buffer = ctx.alloc().directBuffer(COMPRESS_HEADER_LENGTH + compressor.maxCompressedLength(length));
+
+		try {
+			buffer.writeInt(0);
+			buffer.writeByte(compressor.type());
+			buffer.writeInt(length);
+
+			compressor.compress(msg, buffer);
+		} catch (Throwable t) {
+			buffer.release();
+			throw t;
+		}
+
+		if (buffer.readableBytes() >= length) {// 没有变小
+			buffer.release();
+			msg.readerIndex(readerIndex);
+			out.add(msg.retain());
+			return;
+		}
+
+		buffer.setInt(0, (buffer.readableBytes() - HEADER_FIELD_LENGTH) | COMPRESS_FLAG);
+		out.add(buffer);
+	}
+
+	@Override
+	public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+		this.ctx = ctx;
+	}
+
+	@Override
+	public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+		Compressor compressor = this.compressor;
+		this.compressor = null;
+
+		if (compressor != null) {
+			compressor.close();
+		}
+	}
+
+}
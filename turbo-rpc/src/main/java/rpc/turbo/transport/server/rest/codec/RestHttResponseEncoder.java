@@ -6,6 +6,7 @@ import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_LENGTH;
 import static io.netty.handler.codec.http.HttpResponseStatus.INTERNAL_SERVER_ERROR;
 import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -24,10 +25,12 @@ import io.netty.handler.codec.http.HttpHeaderValues;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import rpc.turbo.common.RemoteContext;
 import rpc.turbo.config.HostPort;
+import rpc.turbo.remote.RemoteException;
 import rpc.turbo.filter.RestServerFilter;
 import rpc.turbo.invoke.Invoker;
 import rpc.turbo.invoke.ServerInvokerFactory;
 import rpc.turbo.serialization.JsonMapper;
+import rpc.turbo.serialization.SerializedResult;
 import rpc.turbo.transport.server.rest.protocol.RestHttpResponse;
 import rpc.turbo.util.UnsafeStringUtils;
 
@@ -85,7 +88,11 @@ public class RestHttResponseEncoder extends ChannelOutboundHandlerAdapter {
 			buffer.writeBytes(UnsafeStringUtils.getUTF8Bytes(throwable.getMessage()));
 		} else {
 			try {
-				jsonMapper.write(buffer, msg);
+				if (msg instanceof SerializedResult) {
+					buffer = writeSerializedResult(buffer, (SerializedResult) msg);
+				} else {
+					jsonMapper.write(buffer, msg);
+				}
 
 				FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1, status, buffer, false);
 				response.headers().setInt(CONTENT_LENGTH, response.content().readableBytes());
@@ -114,6 +121,30 @@ public class RestHttResponseEncoder extends ChannelOutboundHandlerAdapter {
 		}
 	}
 
+	/**
+	 * 有预序列化内容时直接使用，不再拷贝
+	 * 
+	 * @return 实际的 content
+	 */
+	private ByteBuf writeSerializedResult(ByteBuf buffer, SerializedResult serializedResult) throws IOException {
+		ByteBuf content = serializedResult.restBytes(jsonMapper);
+
+		if (content != null) {
+			buffer.release();
+			return content;
+		}
+
+		Object value = serializedResult.getValue();
+
+		if (value == null) {
+			throw new RemoteException("SerializedResult has no content for rest");
+		}
+
+		jsonMapper.write(buffer, value);
+
+		return buffer;
+	}
+
 	private void doResponseFilter(ChannelHandlerContext ctx, FullHttpRequest request, FullHttpResponse response,
 			Invoker<CompletableFuture<?>> invoker, Throwable throwable) {
 		final int filterLength = filters.size();
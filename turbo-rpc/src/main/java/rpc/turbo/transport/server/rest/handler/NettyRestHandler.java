@@ -107,7 +107,7 @@ public class NettyRestHandler extends SimpleChannelInboundHandler<FullHttpReques
 		CompletableFuture<?> future = null;
 
 		try {
-			if (invoker == null) {
+			if (invoker == null || invoker.isStream()) {// 流式方法只支持 RPC
 				if (logger.isInfoEnabled()) {
 					logger.info("not support this method " + toString(httpRequest));
 				}
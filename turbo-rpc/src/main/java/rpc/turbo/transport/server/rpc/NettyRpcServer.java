@@ -19,6 +19,7 @@ import rpc.turbo.config.HostPort;
 import rpc.turbo.filter.RpcServerFilter;
 import rpc.turbo.invoke.ServerInvokerFactory;
 import rpc.turbo.serialization.Serializer;
+import rpc.turbo.server.ServerExecutorFactory;
 import rpc.turbo.transport.server.rpc.handler.NettyRpcChannelInitializer;
 
 public class NettyRpcServer implements Closeable {
@@ -26,18 +27,25 @@ public class NettyRpcServer implements Closeable {
 	private final HostPort hostPort;
 	private final EventLoopGroup eventLoopGroup;
 	private final ServerInvokerFactory invokerFactory;
+	private final ServerExecutorFactory executorFactory;
 	private final Serializer serializer;
 	private final CopyOnWriteArrayList<RpcServerFilter> filters;
+	private final byte[] compressTypes;
+	private final int compressThreshold;
 
 	private volatile Channel channel;
 
-	public NettyRpcServer(EventLoopGroup eventLoopGroup, ServerInvokerFactory invokerFactory, Serializer serializer,
-			CopyOnWriteArrayList<RpcServerFilter> filters, HostPort hostPort) {
+	public NettyRpcServer(EventLoopGroup eventLoopGroup, ServerInvokerFactory invokerFactory,
+			ServerExecutorFactory executorFactory, Serializer serializer, CopyOnWriteArrayList<RpcServerFilter> filters,
+			byte[] compressTypes, int compressThreshold, HostPort hostPort) {
 		this.eventLoopGroup = eventLoopGroup;
 		this.invokerFactory = invokerFactory;
+		this.executorFactory = executorFactory;
 		this.hostPort = hostPort;
 		this.serializer = serializer;
 		this.filters = filters;
+		this.compressTypes = compressTypes;
+		this.compressThreshold = compressThreshold;
 	}
 
 	public void start() throws InterruptedException {
@@ -57,7 +65,8 @@ public class NettyRpcServer implements Closeable {
 			bootstrap.channel(NioServerSocketChannel.class);
 		}
 
-		bootstrap.childHandler(new NettyRpcChannelInitializer(invokerFactory, serializer, filters));
+		bootstrap.childHandler(new NettyRpcChannelInitializer(invokerFactory, executorFactory, serializer, filters,
+				compressTypes, compressThreshold));
 
 		bootstrap.childOption(ChannelOption.SO_REUSEADDR, true);
 		bootstrap.childOption(ChannelOption.SO_RCVBUF, 256 * 1024);
@@ -3,6 +3,8 @@ package rpc.turbo.transport.server.rpc.codec;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import java.nio.ByteOrder;
+
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
@@ -21,10 +23,15 @@ public class RequestDecoder extends LengthFieldBasedFrameDecoder {
 
 	@Override
 	protected Object decode(ChannelHandlerContext ctx, ByteBuf in) throws Exception {
+		final boolean batch = isBatch(in);
 		ByteBuf buffer = (ByteBuf) super.decode(ctx, in);
 
 		if (buffer != null) {
 			try {
+				if (batch) {
+					return serializer.readBatchRequest(buffer);
+				}
+
 				return serializer.readRequest(buffer);
 			} finally {
 				buffer.release();
@@ -33,7 +40,20 @@ public class RequestDecoder extends LengthFieldBasedFrameDecoder {
 
 		return null;
 	}
-	
+
+	/**
+	 * 长度字段去掉批量标记
+	 */
+	@Override
+	protected long getUnadjustedFrameLength(ByteBuf buf, int offset, int length, ByteOrder order) {
+		return super.getUnadjustedFrameLength(buf, offset, length, order) & ~TurboConstants.BATCH_FLAG;
+	}
+
+	private static boolean isBatch(ByteBuf in) {
+		return in.readableBytes() >= TurboConstants.HEADER_FIELD_LENGTH //
+				&& (in.getInt(in.readerIndex()) & TurboConstants.BATCH_FLAG) != 0;
+	}
+
 	@Override
 	public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
 
@@ -3,13 +3,14 @@ package rpc.turbo.transport.server.rpc.codec;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
-import io.netty.buffer.ByteBuf;
+import java.util.List;
+
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.MessageToByteEncoder;
+import io.netty.handler.codec.MessageToMessageEncoder;
 import rpc.turbo.protocol.Response;
 import rpc.turbo.serialization.Serializer;
 
-public class ResponseEncoder extends MessageToByteEncoder<Response> {
+public class ResponseEncoder extends MessageToMessageEncoder<Response> {
 	private static final Log logger = LogFactory.getLog(ResponseEncoder.class);
 
 	private final Serializer serializer;
@@ -18,8 +19,17 @@ public class ResponseEncoder extends MessageToByteEncoder<Response> {
 		this.serializer = serializer;
 	}
 
-	protected void encode(ChannelHandlerContext ctx, Response response, ByteBuf buffer) throws Exception {
-		serializer.writeResponse(buffer, response);
+	protected void encode(ChannelHandlerContext ctx, Response response, List<Object> out) throws Exception {
+		ResponseFrameWriter writer = new ResponseFrameWriter(ctx.alloc(), serializer);
+
+		try {
+			writer.write(response);
+		} catch (Throwable t) {
+			writer.release();
+			throw t;
+		}
+
+		out.add(writer.finish());
 	}
 
 	@Override
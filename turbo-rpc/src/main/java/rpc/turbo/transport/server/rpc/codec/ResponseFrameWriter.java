@@ -0,0 +1,149 @@
+package rpc.turbo.transport.server.rpc.codec;
+
+import java.io.IOException;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import rpc.turbo.protocol.BatchResponse;
+import rpc.turbo.protocol.Response;
+import rpc.turbo.protocol.ResponseStatus;
+import rpc.turbo.recycle.RecycleUtils;
+import rpc.turbo.serialization.SerializedResult;
+import rpc.turbo.serialization.Serializer;
+
+/**
+ * 把一个或多个 response 写成连续的 frame，<br>
+ * 遇到 {@link SerializedResult} 时把预序列化的内容直接拼接进来，此时输出为 CompositeByteBuf，<br>
+ * 批量响应中的 {@link SerializedResult} 退化为普通的序列化
+ * 
+ * @author Hank
+ *
+ */
+final class ResponseFrameWriter {
+	private static final String NOT_SERIALIZABLE = "SerializedResult has no content for this serializer";
+
+	private final ByteBufAllocator allocator;
+	private final Serializer serializer;
+
+	private ByteBuf buffer;
+	private CompositeByteBuf composite;
+
+	ResponseFrameWriter(ByteBufAllocator allocator, Serializer serializer) {
+		this.allocator = allocator;
+		this.serializer = serializer;
+		this.buffer = allocator.ioBuffer();
+	}
+
+	void write(Response response) throws IOException {
+		if (response instanceof BatchResponse) {
+			writeBatch((BatchResponse) response);
+			return;
+		}
+
+		Object result = response.getResult();
+
+		if (!(result instanceof SerializedResult)) {
+			serializer.writeResponse(buffer, response);
+			return;
+		}
+
+		SerializedResult serializedResult = (SerializedResult) result;
+		ByteBuf payload = null;
+
+		if (serializer.isSupportedSerializedResult()) {
+			payload = serializedResult.rpcBytes(serializer);
+		}
+
+		if (payload == null) {// 不支持，退化为普通的序列化
+			unwrap(response, serializedResult);
+			serializer.writeResponse(buffer, response);
+			return;
+		}
+
+		ByteBuf suffix = allocator.ioBuffer();
+
+		try {
+			serializer.writeResponse(buffer, suffix, response, payload.readableBytes());
+		} catch (Throwable t) {
+			suffix.release();
+			payload.release();
+			RecycleUtils.release(response);
+
+			throw t;
+		}
+
+		if (composite == null) {
+			composite = allocator.compositeBuffer(Integer.MAX_VALUE);
+		}
+
+		composite.addComponent(true, buffer);
+		composite.addComponent(true, payload);
+
+		buffer = suffix;
+	}
+
+	private void writeBatch(BatchResponse batchResponse) throws IOException {
+		Response[] responses = batchResponse.getResponses();
+
+		for (int i = 0; i < responses.length; i++) {
+			Object result = responses[i].getResult();
+
+			if (result instanceof SerializedResult) {
+				unwrap(responses[i], (SerializedResult) result);
+			}
+		}
+
+		serializer.writeBatchResponse(buffer, batchResponse);
+	}
+
+	private static void unwrap(Response response, SerializedResult serializedResult) {
+		if (serializedResult.getValue() != null) {
+			response.setResult(serializedResult.getValue());
+		} else {
+			response.setStatusCode(ResponseStatus.BAD_RESPONSE);
+			response.setResult(NOT_SERIALIZABLE);
+		}
+	}
+
+	/**
+	 * 
+	 * @return 写好的全部 frame
+	 */
+	ByteBuf finish() {
+		ByteBuf output;
+
+		if (composite == null) {
+			output = buffer;
+		} else {
+			if (buffer.isReadable()) {
+				composite.addComponent(true, buffer);
+			} else {
+				buffer.release();
+			}
+
+			output = composite;
+		}
+
+		buffer = null;
+		composite = null;
+
+		return output;
+	}
+
+	/**
+	 * 出错时释放资源
+	 */
+	void release() {
+		if (buffer != null) {
+			buffer.release();
+			buffer = null;
+		}
+
+		if (composite != null) {
+			composite.release();
+			composite = null;
+		}
+	}
+
+}
@@ -0,0 +1,54 @@
+package rpc.turbo.transport.server.rpc.codec;
+
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToMessageEncoder;
+import rpc.turbo.protocol.Response;
+import rpc.turbo.serialization.Serializer;
+
+public class ResponseListEncoder extends MessageToMessageEncoder<List<Response>> {
+	private static final Log logger = LogFactory.getLog(ResponseListEncoder.class);
+
+	private final Serializer serializer;
+
+	public ResponseListEncoder(Serializer serializer) {
+		this.serializer = serializer;
+	}
+
+	protected void encode(ChannelHandlerContext ctx, List<Response> responseList, List<Object> out)
+			throws Exception {
+		ResponseFrameWriter writer = new ResponseFrameWriter(ctx.alloc(), serializer);
+
+		try {
+			if (responseList instanceof RandomAccess) {
+				for (int i = 0; i < responseList.size(); i++) {
+					writer.write(responseList.get(i));
+				}
+			} else {
+				for (Response response : responseList) {
+					writer.write(response);
+				}
+			}
+		} catch (Throwable t) {
+			writer.release();
+			throw t;
+		}
+
+		out.add(writer.finish());
+	}
+
+	@Override
+	public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+		if (logger.isErrorEnabled()) {
+			logger.error("Exception caught on " + ctx.channel(), cause);
+		}
+
+		ctx.channel().close();
+	}
+
+}
@@ -8,28 +8,48 @@ import rpc.turbo.config.TurboConstants;
 import rpc.turbo.filter.RpcServerFilter;
 import rpc.turbo.invoke.ServerInvokerFactory;
 import rpc.turbo.serialization.Serializer;
+import rpc.turbo.server.ServerExecutorFactory;
+import rpc.turbo.transport.compress.CompressFrameDecoder;
+import rpc.turbo.transport.compress.CompressFrameEncoder;
 import rpc.turbo.transport.server.rpc.codec.RequestDecoder;
 import rpc.turbo.transport.server.rpc.codec.ResponseEncoder;
+import rpc.turbo.transport.server.rpc.codec.ResponseListEncoder;
 
 public class NettyRpcChannelInitializer extends ChannelInitializer<SocketChannel> {
 
 	private final ServerInvokerFactory invokerFactory;
+	private final ServerExecutorFactory executorFactory;
 	private final Serializer serializer;
 	private final CopyOnWriteArrayList<RpcServerFilter> filters;
+	private final byte[] compressTypes;
+	private final int compressThreshold;
 
-	public NettyRpcChannelInitializer(ServerInvokerFactory invokerFactory, Serializer serializer,
-			CopyOnWriteArrayList<RpcServerFilter> filters) {
+	public NettyRpcChannelInitializer(ServerInvokerFactory invokerFactory, ServerExecutorFactory executorFactory,
+			Serializer serializer, CopyOnWriteArrayList<RpcServerFilter> filters, byte[] compressTypes,
+			int compressThreshold) {
 		this.invokerFactory = invokerFactory;
+		this.executorFactory = executorFactory;
 		this.serializer = serializer;
 		this.filters = filters;
-
+		this.compressTypes = compressTypes;
+		this.compressThreshold = compressThreshold;
 	}
 
 	@Override
 	public void initChannel(SocketChannel ch) throws Exception {
+		if (compressTypes.length > 0) {// 客户端开启压缩时才会真正压缩
+			CompressFrameEncoder compressEncoder = new CompressFrameEncoder(compressTypes, compressThreshold);
+
+			ch.pipeline()//
+					.addLast("compressEncoder", compressEncoder)//
+					.addLast("compressDecoder",
+							new CompressFrameDecoder(TurboConstants.MAX_FRAME_LENGTH, compressEncoder));
+		}
+
 		ch.pipeline()//
 				.addLast("encoder", new ResponseEncoder(serializer))//
+				.addLast("listEncoder", new ResponseListEncoder(serializer))//
 				.addLast("decoder", new RequestDecoder(TurboConstants.MAX_FRAME_LENGTH, serializer))//
-				.addLast("handler", new NettyRpcServerHandler(invokerFactory, filters));
+				.addLast("handler", new NettyRpcServerHandler(invokerFactory, executorFactory, filters));
 	}
 }
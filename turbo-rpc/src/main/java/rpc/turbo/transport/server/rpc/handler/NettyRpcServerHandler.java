@@ -4,34 +4,53 @@ import java.net.InetSocketAddress;
 import java.util.Arrays;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.util.collection.IntObjectHashMap;
 import rpc.turbo.common.RemoteContext;
 import rpc.turbo.config.HostPort;
+import rpc.turbo.config.TurboConstants;
 import rpc.turbo.filter.RpcServerFilter;
 import rpc.turbo.invoke.InvokeException;
 import rpc.turbo.invoke.Invoker;
 import rpc.turbo.invoke.ServerInvokerFactory;
+import rpc.turbo.param.MethodParam;
+import rpc.turbo.param.StreamCreditParam;
+import rpc.turbo.protocol.BatchRequest;
+import rpc.turbo.protocol.BatchResponse;
 import rpc.turbo.protocol.Request;
 import rpc.turbo.protocol.Response;
 import rpc.turbo.protocol.ResponseStatus;
 import rpc.turbo.protocol.recycle.RecycleResponse;
+import rpc.turbo.server.PriorityTask;
+import rpc.turbo.server.ServerExecutorFactory;
 
 public class NettyRpcServerHandler extends SimpleChannelInboundHandler<Request> {
 	private static final Log logger = LogFactory.getLog(NettyRpcServerHandler.class);
 	private static final Throwable UNKNOWN = new InvokeException("UNKNOWN ERROR", false);
+	private static final String SERVER_BUSY = "rpc server is busy, reject this request";
 
 	private final ServerInvokerFactory invokerFactory;
+	private final ServerExecutorFactory executorFactory;
 	private final CopyOnWriteArrayList<RpcServerFilter> filters;
 	private HostPort clientAddress;
 	private HostPort serverAddress;
+	private ResponseBatchSender sender;
+	/** 进行中的流式调用，只在 EventLoop 中使用 */
+	private final IntObjectHashMap<ServerStream> streamMap = new IntObjectHashMap<>();
 
-	public NettyRpcServerHandler(ServerInvokerFactory invokerFactory, CopyOnWriteArrayList<RpcServerFilter> filters) {
+	public NettyRpcServerHandler(ServerInvokerFactory invokerFactory, ServerExecutorFactory executorFactory,
+			CopyOnWriteArrayList<RpcServerFilter> filters) {
 		this.invokerFactory = invokerFactory;
+		this.executorFactory = executorFactory;
 		this.filters = filters;
 	}
 
@@ -48,10 +67,39 @@ public class NettyRpcServerHandler extends SimpleChannelInboundHandler<Request>
 
 		insocket = (InetSocketAddress) ctx.channel().localAddress();
 		serverAddress = new HostPort(insocket.getAddress().getHostAddress(), insocket.getPort());
+
+		sender = new ResponseBatchSender(ctx.channel());
+	}
+
+	@Override
+	public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+		super.channelInactive(ctx);
+
+		if (streamMap.isEmpty()) {
+			return;
+		}
+
+		ServerStream[] streams = streamMap.values().toArray(new ServerStream[0]);
+		streamMap.clear();
+
+		for (ServerStream stream : streams) {
+			stream.cancel();
+		}
 	}
 
 	protected void channelRead0(ChannelHandlerContext ctx, final Request request) throws Exception {
 		final int requestId = request.getRequestId();
+
+		if (request.getServiceId() == TurboConstants.STREAM_CREDIT_SERVICE_ID) {
+			doStreamCredit(request);
+			return;
+		}
+
+		if (request.getServiceId() == TurboConstants.BATCH_SERVICE_ID) {
+			doBatch(ctx, (BatchRequest) request);
+			return;
+		}
+
 		final Invoker<CompletableFuture<?>> invoker = invokerFactory.get(request.getServiceId());
 
 		if (invoker == null) {
@@ -75,38 +123,270 @@ public class NettyRpcServerHandler extends SimpleChannelInboundHandler<Request>
 
 			doResponseFilter(request, response, invoker, null);
 
-			ctx.writeAndFlush(response, ctx.voidPromise());
+			sender.send(response);
+
+			return;
+		}
 
+		if (invoker.isStream()) {
+			doStream(ctx, request, response, invoker);
 			return;
 		}
 
-		CompletableFuture<?> future = invoker.invoke(request.getMethodParam());
+		final Executor executor = executorFactory.get(invoker);
+
+		if (executor == null) {// 直接在 IO 线程中执行
+			CompletableFuture<?> future = invoker.invoke(request.getMethodParam());
+			doResponse(request, response, invoker, future);
+			return;
+		}
+
+		try {
+			executor.execute(new PriorityTask(invoker.getPriority(), () -> {
+				CompletableFuture<?> future;
+
+				try {
+					future = invoker.invoke(request.getMethodParam());
+				} catch (Throwable t) {
+					future = CompletableFuture.failedFuture(t);
+				}
+
+				doResponse(request, response, invoker, future);
+			}));
+		} catch (RejectedExecutionException e) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("reject request, serviceId: " + request.getServiceId(), e);
+			}
 
-		future.whenComplete((result, throwable) -> {
 			response.setRequestId(requestId);
+			response.setStatusCode(ResponseStatus.SERVER_BUSY);
 			response.setTracer(null);
+			response.setResult(SERVER_BUSY);
 
-			if (result != null) {
-				response.setStatusCode(ResponseStatus.OK);
-				response.setResult(result);
+			doResponseFilter(request, response, invoker, e);
 
-				doResponseFilter(request, response, invoker, null);
-			} else if (throwable != null) {
-				response.setStatusCode(ResponseStatus.SERVER_ERROR);
-				response.setResult(Arrays.toString(throwable.getStackTrace()));
+			sender.send(response);
+		}
+	}
 
-				doResponseFilter(request, response, invoker, throwable);
-			} else {
-				response.setStatusCode(ResponseStatus.SERVER_ERROR);
-				response.setResult(UNKNOWN);
+	/**
+	 * 流式调用，先登记再执行，保证紧随其后的 credit 请求能找到对应的流
+	 */
+	private void doStream(ChannelHandlerContext ctx, Request request, RecycleResponse response,
+			Invoker<CompletableFuture<?>> invoker) {
+		final int requestId = request.getRequestId();
+		final MethodParam methodParam = request.getMethodParam();
+		final ServerStream stream = new ServerStream(requestId, response, sender,
+				() -> removeStream(ctx, requestId));
+
+		streamMap.put(requestId, stream);
+
+		final Executor executor = executorFactory.get(invoker);
+
+		if (executor == null) {
+			subscribe(stream, invoke(invoker, methodParam));
+			return;
+		}
+
+		try {
+			executor.execute(new PriorityTask(invoker.getPriority(), //
+					() -> subscribe(stream, invoke(invoker, methodParam))));
+		} catch (RejectedExecutionException e) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("reject request, serviceId: " + request.getServiceId(), e);
+			}
 
-				doResponseFilter(request, response, invoker, UNKNOWN);
+			stream.onError(e);
+		}
+	}
+
+	private CompletableFuture<?> invoke(Invoker<CompletableFuture<?>> invoker, MethodParam methodParam) {
+		try {
+			return invoker.invoke(methodParam);
+		} catch (Throwable t) {
+			return CompletableFuture.failedFuture(t);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void subscribe(ServerStream stream, CompletableFuture<?> future) {
+		future.whenComplete((result, throwable) -> {
+			if (result instanceof Flow.Publisher) {
+				((Flow.Publisher<Object>) result).subscribe(stream);
+			} else if (throwable != null) {
+				stream.onError(throwable);
+			} else {
+				stream.onError(UNKNOWN);
 			}
+		});
+	}
+
+	private void doStreamCredit(Request request) {
+		ServerStream stream = streamMap.get(request.getRequestId());
+
+		if (stream == null) {// 已经结束
+			return;
+		}
 
-			ctx.writeAndFlush(response, ctx.voidPromise());
+		StreamCreditParam param = (StreamCreditParam) request.getMethodParam();
+		stream.credit(param.getCredit());
+	}
+
+	private void removeStream(ChannelHandlerContext ctx, int requestId) {
+		if (ctx.executor().inEventLoop()) {
+			streamMap.remove(requestId);
+		} else {
+			ctx.executor().execute(() -> streamMap.remove(requestId));
+		}
+	}
+
+	private void doResponse(Request request, RecycleResponse response, Invoker<CompletableFuture<?>> invoker,
+			CompletableFuture<?> future) {
+		future.whenComplete((result, throwable) -> {
+			setResult(request, response, invoker, result, throwable);
+			sender.send(response);
 		});
 	}
 
+	private void setResult(Request request, Response response, Invoker<CompletableFuture<?>> invoker, Object result,
+			Throwable throwable) {
+		response.setRequestId(request.getRequestId());
+		response.setTracer(null);
+
+		if (result != null) {
+			response.setStatusCode(ResponseStatus.OK);
+			response.setResult(result);
+
+			doResponseFilter(request, response, invoker, null);
+		} else if (throwable != null) {
+			response.setStatusCode(ResponseStatus.SERVER_ERROR);
+			response.setResult(Arrays.toString(throwable.getStackTrace()));
+
+			doResponseFilter(request, response, invoker, throwable);
+		} else {
+			response.setStatusCode(ResponseStatus.SERVER_ERROR);
+			response.setResult(UNKNOWN);
+
+			doResponseFilter(request, response, invoker, UNKNOWN);
+		}
+	}
+
+	/**
+	 * 批量请求，子请求都属于同一个方法，在同一个任务中依次执行，<br>
+	 * 全部完成后合并为一个批量响应发送
+	 */
+	private void doBatch(ChannelHandlerContext ctx, BatchRequest batchRequest) {
+		final Request[] requests = batchRequest.getRequests();
+		final Response[] responses = new Response[requests.length];
+		final BatchResponse batchResponse = new BatchResponse(batchRequest.getRequestId(), responses);
+
+		if (requests.length == 0) {
+			sender.send(batchResponse);
+			return;
+		}
+
+		final int serviceId = requests[0].getServiceId();
+		final Invoker<CompletableFuture<?>> invoker = invokerFactory.get(serviceId);
+
+		if (invoker == null || invoker.isStream() || !isSameService(requests, serviceId)) {
+			if (logger.isErrorEnabled()) {
+				logger.error("not support this batch, serviceId: " + serviceId);
+			}
+
+			ctx.channel().close();
+			return;
+		}
+
+		final AtomicInteger remaining = new AtomicInteger(requests.length);
+		final boolean[] allowed = new boolean[requests.length];
+		int allowedCount = 0;
+
+		for (int i = 0; i < requests.length; i++) {
+			Request request = requests[i];
+			RecycleResponse response = RecycleResponse.newInstance(request);
+			responses[i] = response;
+
+			if (doRequestFilter(request, invoker)) {
+				allowed[i] = true;
+				allowedCount++;
+				continue;
+			}
+
+			response.setRequestId(request.getRequestId());
+			response.setStatusCode(ResponseStatus.SERVER_FILTER_DENY);
+			response.setTracer(null);
+			response.setResult(RpcServerFilter.SERVER_FILTER_DENY);
+
+			doResponseFilter(request, response, invoker, null);
+			remaining.decrementAndGet();
+		}
+
+		if (allowedCount == 0) {
+			sender.send(batchResponse);
+			return;
+		}
+
+		final Runnable task = () -> {
+			for (int i = 0; i < requests.length; i++) {
+				if (!allowed[i]) {
+					continue;
+				}
+
+				final Request request = requests[i];
+				final Response response = responses[i];
+
+				invoke(invoker, request.getMethodParam()).whenComplete((result, throwable) -> {
+					setResult(request, response, invoker, result, throwable);
+
+					if (remaining.decrementAndGet() == 0) {
+						sender.send(batchResponse);
+					}
+				});
+			}
+		};
+
+		final Executor executor = executorFactory.get(invoker);
+
+		if (executor == null) {// 直接在 IO 线程中执行
+			task.run();
+			return;
+		}
+
+		try {
+			executor.execute(new PriorityTask(invoker.getPriority(), task));
+		} catch (RejectedExecutionException e) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("reject batch request, serviceId: " + serviceId + ", size: " + requests.length, e);
+			}
+
+			for (int i = 0; i < requests.length; i++) {
+				if (!allowed[i]) {
+					continue;
+				}
+
+				Response response = responses[i];
+				response.setRequestId(requests[i].getRequestId());
+				response.setStatusCode(ResponseStatus.SERVER_BUSY);
+				response.setTracer(null);
+				response.setResult(SERVER_BUSY);
+
+				doResponseFilter(requests[i], response, invoker, e);
+			}
+
+			sender.send(batchResponse);
+		}
+	}
+
+	private static boolean isSameService(Request[] requests, int serviceId) {
+		for (int i = 1; i < requests.length; i++) {
+			if (requests[i].getServiceId() != serviceId) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
 	private boolean doRequestFilter(Request request, Invoker<CompletableFuture<?>> invoker) {
 		final int filterLength = filters.size();
 		if (filterLength == 0) {
@@ -0,0 +1,118 @@
+package rpc.turbo.transport.server.rpc.handler;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoop;
+import io.netty.util.internal.shaded.org.jctools.queues.atomic.MpscAtomicArrayQueue;
+import rpc.turbo.protocol.Response;
+import rpc.turbo.util.FastClearableArrayList;
+
+/**
+ * 服务端批量发送响应，每个连接一个，与客户端 BatchSender 对应<br>
+ * 任意线程都可以发送，同一时刻最多只有一个发送任务在 EventLoop 中排队，<br>
+ * 每次排空时只 flush 一次
+ *
+ * @author Hank
+ *
+ */
+public class ResponseBatchSender {
+	public static final int MAX_SEND_BUFFER_SIZE = 1024;
+	public static final int MAX_SEND_LOOP_COUNT = 16;
+	public static final int MAX_BATCH_SIZE = 64;
+
+	private final Channel channel;
+	private final ChannelPromise voidPromise;
+	private final EventLoop eventLoop;
+
+	private final MpscAtomicArrayQueue<Response> sendBuffer //
+			= new MpscAtomicArrayQueue<>(MAX_SEND_BUFFER_SIZE);
+	private final FastClearableArrayList<Response> batchList //
+			= new FastClearableArrayList<>();
+
+	/** 是否已有发送任务在排队 */
+	private final AtomicBoolean scheduled = new AtomicBoolean(false);
+	/** 队列满时是否已有清理任务在排队 */
+	private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+
+	private final Runnable batchSendTask = () -> doBatchSend();
+	private final Runnable drainTask = () -> {
+		drainScheduled.set(false);
+		doBatchSend();
+	};
+
+	public ResponseBatchSender(Channel channel) {
+		this.channel = channel;
+		this.voidPromise = channel.voidPromise();
+		this.eventLoop = channel.eventLoop();
+	}
+
+	public void send(Response response) {
+		while (!sendBuffer.offer(response)) {
+			// 已经满了，必须要清理
+			drain();
+		}
+
+		trySchedule();
+	}
+
+	/**
+	 * 队列满时清理，同一时刻只排队一个清理任务，<br>
+	 * 否则发送线程自旋提交的任务会撑爆 EventLoop 的任务队列
+	 */
+	private void drain() {
+		if (eventLoop.inEventLoop()) {// 在 EventLoop 中排队的任务无法执行，直接清理
+			doBatchSend();
+			return;
+		}
+
+		if (!drainScheduled.get() && drainScheduled.compareAndSet(false, true)) {
+			eventLoop.execute(drainTask);
+		}
+
+		Thread.yield();
+	}
+
+	private void trySchedule() {
+		if (!scheduled.get() && scheduled.compareAndSet(false, true)) {
+			eventLoop.execute(batchSendTask);
+		}
+	}
+
+	private void doBatchSend() {
+		scheduled.set(false);
+
+		if (sendBuffer.isEmpty()) {
+			return;
+		}
+
+		for (int r = 0; r < MAX_SEND_LOOP_COUNT; r++) {
+			for (int i = 0; i < MAX_BATCH_SIZE; i++) {
+				Response response = sendBuffer.poll();
+
+				if (response != null) {
+					batchList.add(response);
+				} else {
+					break;
+				}
+			}
+
+			if (!batchList.isEmpty()) {
+				channel.write(batchList, voidPromise);
+				batchList.clear();
+			}
+
+			if (sendBuffer.isEmpty()) {
+				break;
+			}
+		}
+
+		channel.flush();
+
+		if (!sendBuffer.isEmpty()) {
+			trySchedule();
+		}
+	}
+
+}
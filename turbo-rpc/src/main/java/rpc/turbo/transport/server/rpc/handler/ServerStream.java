@@ -0,0 +1,148 @@
+package rpc.turbo.transport.server.rpc.handler;
+
+import java.util.Arrays;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import rpc.turbo.param.StreamCreditParam;
+import rpc.turbo.protocol.ResponseStatus;
+import rpc.turbo.protocol.recycle.RecycleResponse;
+
+/**
+ * 服务端的一个流式调用，订阅服务返回的 Flow.Publisher，<br>
+ * 每个元素作为一个 STREAM_NEXT frame 发送，以 STREAM_COMPLETE 或错误码结束，<br>
+ * 只按客户端给的 credit 向 Publisher 请求元素，发送缓存是有界的
+ *
+ * @author Hank
+ *
+ */
+final class ServerStream implements Flow.Subscriber<Object> {
+	private static final Log logger = LogFactory.getLog(ServerStream.class);
+
+	private final int requestId;
+	/** 用作结束 frame，同时负责回收请求 */
+	private final RecycleResponse terminalResponse;
+	private final ResponseBatchSender sender;
+	/** 结束时调用，用于从连接的流式调用表中删除 */
+	private final Runnable onTerminate;
+
+	/** 还未交给 Publisher 的 credit */
+	private final AtomicLong pendingCredit = new AtomicLong();
+	private final AtomicBoolean terminated = new AtomicBoolean(false);
+	private volatile Flow.Subscription subscription;
+	private volatile boolean cancelled = false;
+
+	ServerStream(int requestId, RecycleResponse terminalResponse, ResponseBatchSender sender, Runnable onTerminate) {
+		this.requestId = requestId;
+		this.terminalResponse = terminalResponse;
+		this.sender = sender;
+		this.onTerminate = onTerminate;
+	}
+
+	/**
+	 * 客户端补充 credit，Publisher 还未订阅时先攒着
+	 *
+	 * @param credit
+	 *            {@link StreamCreditParam#CANCEL} 表示取消
+	 */
+	void credit(int credit) {
+		if (credit == StreamCreditParam.CANCEL) {
+			cancel();
+			return;
+		}
+
+		if (credit < 1) {
+			return;
+		}
+
+		pendingCredit.addAndGet(credit);
+		drainCredit();
+	}
+
+	/**
+	 * 取消，会通知客户端结束以便尽快释放在途请求
+	 */
+	void cancel() {
+		cancelled = true;
+
+		Flow.Subscription subscription = this.subscription;
+		if (subscription != null) {
+			subscription.cancel();
+		}
+
+		terminate(ResponseStatus.STREAM_COMPLETE, null);
+	}
+
+	private void drainCredit() {
+		Flow.Subscription subscription = this.subscription;
+
+		if (subscription == null || cancelled) {
+			return;
+		}
+
+		long credit = pendingCredit.getAndSet(0);
+
+		if (credit > 0) {
+			subscription.request(credit);
+		}
+	}
+
+	@Override
+	public void onSubscribe(Flow.Subscription subscription) {
+		if (this.subscription != null) {
+			subscription.cancel();
+			return;
+		}
+
+		this.subscription = subscription;
+
+		if (cancelled) {
+			subscription.cancel();
+			return;
+		}
+
+		drainCredit();
+	}
+
+	@Override
+	public void onNext(Object item) {
+		if (terminated.get()) {
+			return;
+		}
+
+		sender.send(RecycleResponse.newInstance(requestId, ResponseStatus.STREAM_NEXT, null, item));
+	}
+
+	@Override
+	public void onError(Throwable throwable) {
+		if (logger.isWarnEnabled()) {
+			logger.warn("stream error, requestId: " + requestId, throwable);
+		}
+
+		terminate(ResponseStatus.SERVER_ERROR, Arrays.toString(throwable.getStackTrace()));
+	}
+
+	@Override
+	public void onComplete() {
+		terminate(ResponseStatus.STREAM_COMPLETE, null);
+	}
+
+	private void terminate(byte statusCode, Object result) {
+		if (!terminated.compareAndSet(false, true)) {
+			return;
+		}
+
+		terminalResponse.setRequestId(requestId);
+		terminalResponse.setStatusCode(statusCode);
+		terminalResponse.setTracer(null);
+		terminalResponse.setResult(result);
+
+		sender.send(terminalResponse);
+		onTerminate.run();
+	}
+
+}
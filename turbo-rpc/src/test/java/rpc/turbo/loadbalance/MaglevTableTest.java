@@ -0,0 +1,145 @@
+package rpc.turbo.loadbalance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class MaglevTableTest {
+
+	private static final class Node implements Loadable {
+		private final String name;
+		private final int weight;
+		private int inFlight;
+
+		private Node(String name, int weight) {
+			this.name = name;
+			this.weight = weight;
+		}
+
+		@Override
+		public int weight() {
+			return weight;
+		}
+
+		@Override
+		public int inFlight() {
+			return inFlight;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+	private static MaglevTable<Node> newTable(List<Node> nodes) {
+		return new MaglevTable<>(nodes, node -> node.name, MaglevTable.DEFAULT_LOAD_FACTOR);
+	}
+
+	private static List<Node> nodes(int count) {
+		List<Node> nodes = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			nodes.add(new Node("127.0.0.1:" + (8000 + i), 100));
+		}
+
+		return nodes;
+	}
+
+	private static Map<Node, Integer> slotCount(MaglevTable<Node> table) {
+		Map<Node, Integer> count = new HashMap<>();
+		for (int i = 0; i < MaglevTable.TABLE_SIZE; i++) {
+			count.merge(table.select(i), 1, Integer::sum);
+		}
+
+		return count;
+	}
+
+	@Test
+	public void empty() {
+		MaglevTable<Node> table = newTable(List.of(new Node("zero", 0)));
+
+		assertEquals(0, table.size());
+		assertNull(table.select(1L));
+	}
+
+	@Test
+	public void slotsFollowWeight() {
+		Node light = new Node("light", 100);
+		Node middle = new Node("middle", 100);
+		Node heavy = new Node("heavy", 200);
+
+		Map<Node, Integer> count = slotCount(newTable(List.of(light, middle, heavy)));
+
+		assertEquals(MaglevTable.TABLE_SIZE / 4D, count.get(light), MaglevTable.TABLE_SIZE * 0.01D);
+		assertEquals(MaglevTable.TABLE_SIZE / 4D, count.get(middle), MaglevTable.TABLE_SIZE * 0.01D);
+		assertEquals(MaglevTable.TABLE_SIZE / 2D, count.get(heavy), MaglevTable.TABLE_SIZE * 0.01D);
+	}
+
+	@Test
+	public void independentOfOrder() {
+		List<Node> nodes = nodes(5);
+		List<Node> reversed = new ArrayList<>(nodes);
+		Collections.reverse(reversed);
+
+		MaglevTable<Node> table = newTable(nodes);
+		MaglevTable<Node> other = newTable(reversed);
+
+		for (long hash = 0; hash < MaglevTable.TABLE_SIZE; hash++) {
+			assertSame(table.select(hash), other.select(hash));
+		}
+	}
+
+	@Test
+	public void minimalDisruption() {
+		List<Node> nodes = nodes(10);
+		MaglevTable<Node> table = newTable(nodes);
+		List<Node> remain = new ArrayList<>(nodes);
+		Node removed = remain.remove(3);
+		MaglevTable<Node> other = newTable(remain);
+
+		int kept = 0, total = 0;
+		for (long hash = 0; hash < MaglevTable.TABLE_SIZE; hash++) {
+			Node before = table.select(hash);
+
+			if (before == removed) {
+				assertNotSame(removed, other.select(hash));
+				continue;
+			}
+
+			total++;
+			if (before == other.select(hash)) {
+				kept++;
+			}
+		}
+
+		assertTrue("kept " + kept + " of " + total, kept > total * 0.9D);
+	}
+
+	@Test
+	public void boundedLoad() {
+		List<Node> nodes = nodes(4);
+		MaglevTable<Node> table = newTable(nodes);
+		Node hot = table.select(42L);
+
+		hot.inFlight = 100;
+		Node selected = table.select(42L);
+
+		assertNotSame(hot, selected);
+		assertEquals(0, selected.inFlight);
+
+		hot.inFlight = 1;
+		nodes.forEach(node -> node.inFlight = Math.max(node.inFlight, 1));
+		assertSame(hot, table.select(42L));// 未超过上限
+	}
+
+}
@@ -0,0 +1,68 @@
+package rpc.turbo.loadbalance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class WeightableGroupTest {
+
+	private static Weightable node(int weight) {
+		return () -> weight;
+	}
+
+	@Test
+	public void emptyGroup() {
+		WeightableGroup<Weightable> group = new WeightableGroup<>(List.of());
+
+		assertEquals(0, group.sum());
+		assertNull(group.get(0));
+	}
+
+	@Test
+	public void singleNode() {
+		Weightable node = node(10);
+		WeightableGroup<Weightable> group = new WeightableGroup<>(List.of(node));
+
+		assertEquals(0, group.sum());
+		assertSame(node, group.get(0));
+		assertSame(node, group.get(7));
+	}
+
+	@Test
+	public void twoEqualNodes() {
+		Weightable first = node(10);
+		Weightable second = node(10);
+		WeightableGroup<Weightable> group = new WeightableGroup<>(List.of(first, second));
+
+		assertEquals(1, group.sum());
+		assertSame(first, group.get(0));
+		assertSame(second, group.get(1));
+	}
+
+	@Test
+	public void balancersUseEveryNode() {
+		List<Weightable> nodes = List.of(node(1), node(1));
+		List<LoadBalance<Weightable>> balancers = List.of(//
+				new RandomLoadBalance<>(), //
+				new RoundRobinLoadBalance<>(), //
+				new P2CLoadBalance<>());
+
+		for (LoadBalance<Weightable> balancer : balancers) {
+			balancer.setWeightables(nodes);
+
+			Set<Weightable> selected = new HashSet<>();
+			for (int i = 0; i < 1000; i++) {
+				selected.add(balancer.select());
+			}
+
+			assertEquals(balancer.getClass().getSimpleName(), 2, selected.size());
+		}
+	}
+
+}
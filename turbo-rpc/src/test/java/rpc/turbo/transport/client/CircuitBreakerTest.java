@@ -0,0 +1,112 @@
+package rpc.turbo.transport.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import rpc.turbo.config.client.CircuitBreakerConfig;
+
+public class CircuitBreakerTest {
+
+	private static CircuitBreaker newBreaker(int openDuration, int halfOpenCalls, int consecutiveFailureThreshold) {
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setWindow(10000);
+		config.setMinimumCalls(10);
+		config.setFailureRate(50);
+		config.setSlowCallDuration(0);
+		config.setOpenDuration(openDuration);
+		config.setHalfOpenCalls(halfOpenCalls);
+
+		return new CircuitBreaker(config, consecutiveFailureThreshold);
+	}
+
+	@Test
+	public void openOnConsecutiveFailures() {
+		CircuitBreaker breaker = newBreaker(60000, 1, 3);
+
+		breaker.onError();
+		breaker.onError();
+		assertEquals(CircuitBreaker.CLOSED, breaker.state());
+
+		breaker.onError();
+		assertEquals(CircuitBreaker.OPEN, breaker.state());
+		assertFalse(breaker.isAvailable());
+		assertEquals(CircuitBreaker.REJECTED, breaker.acquire());
+	}
+
+	@Test
+	public void openOnFailureRate() {
+		CircuitBreaker breaker = newBreaker(60000, 1, 0);
+
+		for (int i = 0; i < 5; i++) {
+			breaker.onSuccess(1L);
+			breaker.onError();
+		}
+
+		assertEquals(CircuitBreaker.OPEN, breaker.state());
+	}
+
+	@Test
+	public void isAvailableTakesNoProbe() throws InterruptedException {
+		CircuitBreaker breaker = newBreaker(50, 1, 1);
+		breaker.onError();
+		TimeUnit.MILLISECONDS.sleep(80);
+
+		for (int i = 0; i < 10; i++) {
+			assertTrue(breaker.isAvailable());
+		}
+
+		assertEquals(CircuitBreaker.PROBE, breaker.acquire());
+		assertEquals(CircuitBreaker.HALF_OPEN, breaker.state());
+		assertFalse(breaker.isAvailable());
+		assertEquals(CircuitBreaker.REJECTED, breaker.acquire());
+	}
+
+	@Test
+	public void releaseProbe() throws InterruptedException {
+		CircuitBreaker breaker = newBreaker(50, 1, 1);
+		breaker.onError();
+		TimeUnit.MILLISECONDS.sleep(80);
+
+		assertEquals(CircuitBreaker.PROBE, breaker.acquire());
+		breaker.releaseProbe();// 请求没有发出
+
+		assertTrue(breaker.isAvailable());
+		assertEquals(CircuitBreaker.PROBE, breaker.acquire());
+	}
+
+	@Test
+	public void closeAfterProbes() throws InterruptedException {
+		CircuitBreaker breaker = newBreaker(50, 2, 1);
+		breaker.onError();
+		TimeUnit.MILLISECONDS.sleep(80);
+
+		assertEquals(CircuitBreaker.PROBE, breaker.acquire());
+		assertEquals(CircuitBreaker.PROBE, breaker.acquire());
+		assertEquals(CircuitBreaker.REJECTED, breaker.acquire());
+
+		breaker.onSuccess(1L);
+		assertEquals(CircuitBreaker.HALF_OPEN, breaker.state());
+		breaker.onSuccess(1L);
+		assertEquals(CircuitBreaker.CLOSED, breaker.state());
+		assertEquals(CircuitBreaker.PERMITTED, breaker.acquire());
+	}
+
+	@Test
+	public void reopenOnProbeFailure() throws InterruptedException {
+		CircuitBreaker breaker = newBreaker(50, 1, 1);
+		breaker.onError();
+		TimeUnit.MILLISECONDS.sleep(80);
+
+		assertEquals(CircuitBreaker.PROBE, breaker.acquire());
+		breaker.onError();
+
+		assertEquals(CircuitBreaker.OPEN, breaker.state());
+		assertFalse(breaker.isAvailable());
+	}
+
+}
@@ -0,0 +1,223 @@
+package rpc.turbo.transport.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import rpc.turbo.transport.client.exception.ResponseTimeoutException;
+
+public class ConcurrencyLimiterTest {
+
+	private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+	@After
+	public void shutdown() {
+		scheduler.shutdownNow();
+	}
+
+	@Test
+	public void queueWhenFull() {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, null, null);
+		AtomicInteger executed = new AtomicInteger();
+
+		assertTrue(limiter.execute(queueNanos -> executed.incrementAndGet()));
+		assertTrue(limiter.execute(queueNanos -> executed.incrementAndGet()));
+		assertFalse(limiter.execute(queueNanos -> executed.incrementAndGet()));// 等待队列已满
+
+		assertEquals(1, executed.get());
+		assertEquals(1, limiter.pending());
+		assertEquals(1, limiter.rejectCount());
+
+		limiter.release(-1L, false);
+		assertEquals(2, executed.get());
+		assertEquals(0, limiter.pending());
+	}
+
+	@Test
+	public void failAll() {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 10, null, scheduler);
+		limiter.execute(queueNanos -> {
+		});
+
+		TestTask first = new TestTask();
+		TestTask second = new TestTask();
+		limiter.execute(first, TimeUnit.SECONDS.toNanos(10));
+		limiter.execute(second);
+
+		RuntimeException cause = new RuntimeException("closed");
+		limiter.failAll(cause);
+
+		assertSame(cause, first.rejected.getNow(null));
+		assertSame(cause, second.rejected.getNow(null));
+		assertEquals(0, limiter.pending());
+
+		// 关闭后的请求直接失败
+		TestTask third = new TestTask();
+		assertTrue(limiter.execute(third));
+		assertSame(cause, third.rejected.getNow(null));
+
+		limiter.release(-1L, false);
+		assertEquals(0, first.executed.get() + second.executed.get() + third.executed.get());
+	}
+
+	@Test
+	public void expireWithoutRelease() throws Exception {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 10, null, scheduler);
+		limiter.execute(queueNanos -> {
+		});
+
+		TestTask expiring = new TestTask();
+		TestTask waiting = new TestTask();
+		limiter.execute(expiring, TimeUnit.MILLISECONDS.toNanos(20));
+		limiter.execute(waiting);
+
+		// 不释放名额，也按自己的超时时间失败
+		Throwable cause = expiring.rejected.get(5, TimeUnit.SECONDS);
+		assertTrue(cause instanceof ResponseTimeoutException);
+		assertEquals(1, limiter.expireCount());
+		assertEquals(1, limiter.pending());
+
+		// 已超时的不再执行，名额给后面的
+		limiter.release(-1L, false);
+		assertEquals(0, expiring.executed.get());
+		assertEquals(1, waiting.executed.get());
+		assertEquals(0, limiter.pending());
+	}
+
+	@Test
+	public void executedNeverExpires() throws Exception {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 10, null, scheduler);
+		limiter.execute(queueNanos -> {
+		});
+
+		TestTask task = new TestTask();
+		limiter.execute(task, TimeUnit.MILLISECONDS.toNanos(50));
+		limiter.release(-1L, false);
+
+		Thread.sleep(100);
+
+		assertEquals(1, task.executed.get());
+		assertFalse(task.rejected.isDone());
+		assertEquals(0, limiter.expireCount());
+	}
+
+	@Test
+	public void vegasGrowWithoutQueueing() throws Exception {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 1, 1000, true, 0, null, null);
+
+		int limit = limiter.limit();
+		for (int i = 0; i < 3; i++) {
+			cycle(limiter, TimeUnit.MILLISECONDS.toNanos(1));
+
+			assertTrue(limiter.limit() > limit);
+			limit = limiter.limit();
+		}
+	}
+
+	@Test
+	public void vegasShrinkWhenQueueing() throws Exception {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(100, 1, 1000, true, 0, null, null);
+		cycle(limiter, TimeUnit.MILLISECONDS.toNanos(1));// 无负载时的rtt
+
+		int limit = limiter.limit();
+		for (int i = 0; i < 3; i++) {
+			cycle(limiter, TimeUnit.MILLISECONDS.toNanos(10));// rtt 变大说明服务端在排队
+
+			assertTrue(limiter.limit() < limit);
+			limit = limiter.limit();
+		}
+	}
+
+	@Test
+	public void vegasBackoffOnTimeout() throws Exception {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(100, 1, 1000, true, 0, null, null);
+
+		assertTrue(limiter.execute(queueNanos -> {
+		}));
+		Thread.sleep(110);
+		limiter.release(-1L, true);
+
+		assertEquals(90, limiter.limit());
+	}
+
+	@Test
+	public void vegasBounded() throws Exception {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 10, 12, true, 0, null, null);
+
+		cycle(limiter, TimeUnit.MILLISECONDS.toNanos(1));
+		assertEquals(12, limiter.limit());
+
+		for (int i = 0; i < 3; i++) {
+			assertTrue(limiter.execute(queueNanos -> {
+			}));
+			Thread.sleep(110);
+			limiter.release(-1L, true);
+		}
+
+		assertEquals(10, limiter.limit());
+	}
+
+	@Test
+	public void vegasIgnoreLightLoad() throws Exception {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(100, 1, 1000, true, 0, null, null);
+
+		// 在途请求太少，rtt 不能反映服务端的能力，不调整
+		for (int i = 0; i < 20; i++) {
+			assertTrue(limiter.execute(queueNanos -> {
+			}));
+			limiter.release(TimeUnit.MILLISECONDS.toNanos(1), false);
+		}
+
+		Thread.sleep(110);
+		assertTrue(limiter.execute(queueNanos -> {
+		}));
+		limiter.release(TimeUnit.MILLISECONDS.toNanos(1), false);
+
+		assertEquals(100, limiter.limit());
+	}
+
+	/**
+	 * 占满名额后以相同的 rtt 全部释放，最后一个在调整周期之后释放，触发一次调整
+	 */
+	private static void cycle(ConcurrencyLimiter limiter, long rtt) throws InterruptedException {
+		int limit = limiter.limit();
+
+		for (int i = 0; i < limit; i++) {
+			assertTrue(limiter.execute(queueNanos -> {
+			}));
+		}
+
+		for (int i = 0; i < limit - 1; i++) {
+			limiter.release(rtt, false);
+		}
+
+		Thread.sleep(110);
+		limiter.release(rtt, false);
+	}
+
+	private static final class TestTask implements ConcurrencyLimiter.Task {
+		private final AtomicInteger executed = new AtomicInteger();
+		private final CompletableFuture<Throwable> rejected = new CompletableFuture<>();
+
+		@Override
+		public void accept(long queueNanos) {
+			executed.incrementAndGet();
+		}
+
+		@Override
+		public void reject(Throwable cause) {
+			rejected.complete(cause);
+		}
+	}
+
+}
@@ -0,0 +1,116 @@
+package rpc.turbo.transport.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import rpc.turbo.common.ConnectMetadata;
+import rpc.turbo.config.HostPort;
+
+public class MetadataSnapshotTest {
+
+	private static final HostPort SERVER = new HostPort("127.0.0.1", 8080);
+	private static final HostPort OTHER = new HostPort("127.0.0.1", 8081);
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static ConnectMetadata metadata(long hash) {
+		return new ConnectMetadata(hash, List.of("rpc.turbo.Foo"), Map.of("foo", 1), Map.of("rpc.turbo.Foo", 100),
+				List.of(1));
+	}
+
+	@Test
+	public void flushAndLoad() throws Exception {
+		Path path = folder.getRoot().toPath().resolve("snapshot/metadata.json");
+
+		MetadataSnapshot snapshot = new MetadataSnapshot(path);
+		snapshot.put(SERVER, metadata(42L));
+		assertFalse(Files.exists(path));
+
+		snapshot.flush();
+		assertTrue(Files.exists(path));
+		assertFalse(Files.exists(path.resolveSibling("metadata.json.tmp")));
+
+		ConnectMetadata loaded = new MetadataSnapshot(path).get(SERVER);
+		assertEquals(42L, loaded.getHash());
+		assertEquals(Map.of("foo", 1), loaded.getMethodRegisterMap());
+		assertEquals(Map.of("rpc.turbo.Foo", 100), loaded.getClassIdMap());
+		assertEquals(List.of(1), loaded.getCompressTypeList());
+		assertNull(new MetadataSnapshot(path).get(OTHER));
+	}
+
+	@Test
+	public void skipWithoutHash() throws Exception {
+		Path path = folder.getRoot().toPath().resolve("metadata.json");
+
+		MetadataSnapshot snapshot = new MetadataSnapshot(path);
+		snapshot.put(SERVER, metadata(0L));// 没有hash无法校验
+		snapshot.put(OTHER, ConnectMetadata.unchanged(42L));// 只有hash没有内容
+		snapshot.flush();
+
+		assertNull(snapshot.get(SERVER));
+		assertNull(snapshot.get(OTHER));
+		assertFalse(Files.exists(path));
+	}
+
+	@Test
+	public void flushOnlyWhenDirty() throws Exception {
+		Path path = folder.getRoot().toPath().resolve("metadata.json");
+
+		MetadataSnapshot snapshot = new MetadataSnapshot(path);
+		snapshot.put(SERVER, metadata(42L));
+		snapshot.flush();
+
+		Files.delete(path);
+		snapshot.put(SERVER, metadata(42L));// hash 相同
+		snapshot.flush();
+		assertFalse(Files.exists(path));
+
+		snapshot.put(SERVER, metadata(43L));
+		snapshot.flush();
+		assertEquals(43L, new MetadataSnapshot(path).get(SERVER).getHash());
+	}
+
+	@Test
+	public void remove() throws Exception {
+		Path path = folder.getRoot().toPath().resolve("metadata.json");
+
+		MetadataSnapshot snapshot = new MetadataSnapshot(path);
+		snapshot.put(SERVER, metadata(42L));
+		snapshot.put(OTHER, metadata(43L));
+		snapshot.flush();
+
+		snapshot.remove(SERVER);
+		snapshot.flush();
+
+		MetadataSnapshot loaded = new MetadataSnapshot(path);
+		assertNull(loaded.get(SERVER));
+		assertEquals(43L, loaded.get(OTHER).getHash());
+	}
+
+	@Test
+	public void ignoreCorruptFile() throws Exception {
+		Path path = folder.getRoot().toPath().resolve("metadata.json");
+		Files.write(path, "{\"127.0.0.1:8080\": [".getBytes(StandardCharsets.UTF_8));
+
+		MetadataSnapshot snapshot = new MetadataSnapshot(path);
+		assertNull(snapshot.get(SERVER));
+
+		snapshot.put(SERVER, metadata(42L));// 损坏的快照会被覆盖
+		snapshot.flush();
+		assertEquals(42L, new MetadataSnapshot(path).get(SERVER).getHash());
+	}
+
+}
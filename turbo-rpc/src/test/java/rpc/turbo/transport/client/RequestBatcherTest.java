@@ -0,0 +1,71 @@
+package rpc.turbo.transport.client;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import rpc.turbo.config.BatchConfig;
+import rpc.turbo.config.Priority;
+
+public class RequestBatcherTest {
+
+	private final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1);
+	private final List<RequestBatcher.Batch> sent = new CopyOnWriteArrayList<>();
+
+	{
+		scheduler.setRemoveOnCancelPolicy(true);
+	}
+
+	@After
+	public void shutdown() {
+		scheduler.shutdownNow();
+	}
+
+	private RequestBatcher newBatcher(int maxSize, long window) {
+		return new RequestBatcher(new BatchConfig(maxSize, window), scheduler, Runnable::run, batch -> {
+			sent.add(batch);
+
+			for (int i = 0; i < batch.size(); i++) {
+				batch.future(i).complete(i);
+			}
+		});
+	}
+
+	@Test
+	public void sendWhenFullAndCancelWindow() {
+		RequestBatcher batcher = newBatcher(3, TimeUnit.SECONDS.toMicros(10));
+
+		batcher.add(null, 100, Priority.NORMAL);
+		batcher.add(null, 300, Priority.LOW);
+		assertEquals(1, scheduler.getQueue().size());
+
+		CompletableFuture<Object> last = batcher.add(null, 200, Priority.HIGH);
+
+		assertEquals(2, last.getNow(null));
+		assertEquals(1, sent.size());
+		assertEquals(300, sent.get(0).timeout());
+		assertEquals(Priority.HIGH, sent.get(0).priority());
+		assertEquals(0, scheduler.getQueue().size());// window 定时任务已取消
+	}
+
+	@Test
+	public void sendAfterWindow() throws Exception {
+		RequestBatcher batcher = newBatcher(10, 1000);
+
+		CompletableFuture<Object> first = batcher.add(null, 100, Priority.NORMAL);
+		CompletableFuture<Object> second = batcher.add(null, 100, Priority.NORMAL);
+
+		assertEquals(1, second.get(1, TimeUnit.SECONDS));
+		assertEquals(0, first.getNow(null));
+		assertEquals(1, batcher.batchCount());
+		assertEquals(2D, batcher.averageBatchSize(), 0D);
+	}
+
+}
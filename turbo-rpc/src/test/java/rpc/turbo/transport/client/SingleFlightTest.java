@@ -0,0 +1,142 @@
+package rpc.turbo.transport.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import rpc.turbo.param.MethodParam;
+
+public class SingleFlightTest {
+
+	private static final class Key implements MethodParam {
+		private final int id;
+
+		private Key(int id) {
+			this.id = id;
+		}
+
+		@Override
+		public int hashCode() {
+			return id;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Key && ((Key) obj).id == id;
+		}
+	}
+
+	private final AtomicInteger calls = new AtomicInteger();
+	private CompletableFuture<Object> pending;
+
+	private CompletableFuture<?> call() {
+		calls.incrementAndGet();
+		pending = new CompletableFuture<>();
+		return pending;
+	}
+
+	@Test
+	public void coalesceSameParam() {
+		SingleFlight singleFlight = new SingleFlight();
+
+		CompletableFuture<Object> first = singleFlight.execute(new Key(1), this::call);
+		CompletableFuture<Object> second = singleFlight.execute(new Key(1), this::call);
+		CompletableFuture<Object> other = singleFlight.execute(new Key(2), this::call);
+
+		assertEquals(2, calls.get());
+		assertEquals(1, singleFlight.coalescedCount());
+		assertEquals(2, singleFlight.leaderCount());
+		assertEquals(2, singleFlight.inFlight());
+		assertFalse(other.isDone());
+
+		pending.complete("two");
+		assertEquals("two", other.join());
+		assertFalse(first.isDone());
+	}
+
+	@Test
+	public void removeAfterComplete() {
+		SingleFlight singleFlight = new SingleFlight();
+
+		CompletableFuture<Object> first = singleFlight.execute(new Key(1), this::call);
+		pending.complete("first");
+
+		assertEquals("first", first.join());
+		assertEquals(0, singleFlight.inFlight());
+
+		CompletableFuture<Object> second = singleFlight.execute(new Key(1), this::call);
+		assertEquals(2, calls.get());
+		assertFalse(second.isDone());
+	}
+
+	@Test
+	public void waitersAreIndependent() {
+		SingleFlight singleFlight = new SingleFlight();
+
+		CompletableFuture<Object> first = singleFlight.execute(new Key(1), this::call);
+		CompletableFuture<Object> second = singleFlight.execute(new Key(1), this::call);
+
+		first.cancel(false);// 一个调用方取消不影响其他调用方
+		assertFalse(second.isDone());
+
+		pending.complete("shared");
+		assertEquals("shared", second.join());
+	}
+
+	@Test
+	public void shareFailure() {
+		SingleFlight singleFlight = new SingleFlight();
+
+		CompletableFuture<Object> first = singleFlight.execute(new Key(1), this::call);
+		CompletableFuture<Object> second = singleFlight.execute(new Key(1), this::call);
+
+		RuntimeException cause = new RuntimeException("failed");
+		pending.completeExceptionally(cause);
+
+		assertTrue(first.isCompletedExceptionally());
+		assertTrue(second.isCompletedExceptionally());
+
+		assertSame(cause, joinCause(second));
+		assertEquals(0, singleFlight.inFlight());
+	}
+
+	@Test
+	public void callThrows() {
+		SingleFlight singleFlight = new SingleFlight();
+		RuntimeException cause = new RuntimeException("closed");
+
+		CompletableFuture<Object> first = singleFlight.execute(new Key(1), () -> {
+			throw cause;
+		});
+
+		assertSame(cause, joinCause(first));
+		assertEquals(0, singleFlight.inFlight());
+
+		// 之后相同的请求重新发送，不会等待一个永远不会完成的结果
+		CompletableFuture<Object> second = singleFlight.execute(new Key(1), this::call);
+		assertEquals(1, calls.get());
+
+		pending.complete("retry");
+		assertEquals("retry", second.join());
+	}
+
+	private static Throwable joinCause(CompletableFuture<Object> future) {
+		try {
+			future.join();
+		} catch (CompletionException e) {
+			return e.getCause();
+		}
+
+		fail("expected CompletionException");
+		return null;
+	}
+
+}
@@ -0,0 +1,142 @@
+package rpc.turbo.transport.client.future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import rpc.turbo.config.TurboConstants;
+import rpc.turbo.protocol.Request;
+import rpc.turbo.protocol.Response;
+import rpc.turbo.transport.client.exception.ConnectionException;
+import rpc.turbo.transport.client.exception.ResponseTimeoutException;
+import rpc.turbo.util.SystemClock;
+
+public class FutureContainerTest {
+
+	private static final int CAPACITY = FutureContainer.MIN_CAPACITY;
+
+	private static RequestWithFuture request(int requestId, long timeout) {
+		Request request = new Request();
+		request.setRequestId(requestId);
+
+		return new RequestWithFuture(request, new CompletableFuture<>(), SystemClock.fast().mills() + timeout);
+	}
+
+	private static Response response(int requestId) {
+		Response response = new Response();
+		response.setRequestId(requestId);
+
+		return response;
+	}
+
+	private static Throwable cause(CompletableFuture<Response> future) {
+		try {
+			future.join();
+		} catch (CompletionException e) {
+			return e.getCause();
+		}
+
+		return null;
+	}
+
+	@Test
+	public void notifyResponse() {
+		FutureContainer container = new FutureContainer(CAPACITY);
+		RequestWithFuture request = request(1, 10000);
+		container.add(request);
+		assertEquals(1, container.size());
+
+		Response response = response(1);
+		container.notifyResponse(response);
+
+		assertSame(response, request.getFuture().getNow(null));
+		assertEquals(0, container.size());
+	}
+
+	@Test
+	public void overflow() {
+		FutureContainer container = new FutureContainer(CAPACITY);
+		RequestWithFuture first = request(1, 10000);
+		RequestWithFuture second = request(1 + CAPACITY, 10000);// 同一个槽位
+		RequestWithFuture third = request(1 + CAPACITY * 2, 10000);
+		container.add(first);
+		container.add(second);
+		container.add(third);
+		assertEquals(3, container.size());
+
+		Response secondResponse = response(1 + CAPACITY);
+		container.notifyResponse(secondResponse);
+		assertSame(secondResponse, second.getFuture().getNow(null));
+		assertFalse(first.getFuture().isDone());
+
+		Response firstResponse = response(1);
+		container.notifyResponse(firstResponse);
+		assertSame(firstResponse, first.getFuture().getNow(null));
+		assertFalse(third.getFuture().isDone());
+		assertEquals(1, container.size());
+
+		container.remove(1 + CAPACITY * 2);
+		assertEquals(0, container.size());
+		assertFalse(third.getFuture().isDone());
+	}
+
+	@Test
+	public void ignoreStaleResponse() {
+		FutureContainer container = new FutureContainer(CAPACITY);
+		RequestWithFuture request = request(1 + CAPACITY, 10000);
+		container.add(request);
+
+		container.notifyResponse(response(1));// 上一代的 requestId
+		container.notifyResponse(response(1 + CAPACITY * 2));
+
+		assertFalse(request.getFuture().isDone());
+		assertEquals(1, container.size());
+
+		container.notifyResponse(response(1 + CAPACITY));
+		container.notifyResponse(response(1 + CAPACITY));// 重复的响应
+		assertTrue(request.getFuture().isDone());
+		assertEquals(0, container.size());
+	}
+
+	@Test
+	public void expire() throws Exception {
+		FutureContainer container = new FutureContainer(CAPACITY);
+		RequestWithFuture expired = request(1, 0);
+		RequestWithFuture overflowExpired = request(1 + CAPACITY, 0);
+		RequestWithFuture alive = request(2, 60000);
+		container.add(expired);
+		container.add(overflowExpired);
+		container.add(alive);
+
+		TimeUnit.MILLISECONDS.sleep(TurboConstants.EXPIRE_PERIOD * 5);
+		container.doExpireJob();
+
+		assertSame(ResponseTimeoutException.NONE_STACK_TRACE, cause(expired.getFuture()));
+		assertSame(ResponseTimeoutException.NONE_STACK_TRACE, cause(overflowExpired.getFuture()));
+		assertFalse(alive.getFuture().isDone());
+		assertEquals(1, container.size());
+	}
+
+	@Test
+	public void close() throws Exception {
+		FutureContainer container = new FutureContainer(CAPACITY);
+		RequestWithFuture first = request(1, 60000);
+		RequestWithFuture second = request(1 + CAPACITY, 60000);
+		container.add(first);
+		container.add(second);
+
+		container.close();
+
+		assertTrue(cause(first.getFuture()) instanceof ConnectionException);
+		assertTrue(cause(second.getFuture()) instanceof ConnectionException);
+		assertEquals(0, container.size());
+	}
+
+}
@@ -0,0 +1,144 @@
+package rpc.turbo.transport.client.future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import rpc.turbo.protocol.Request;
+
+public class TimeWheelTest {
+
+	private final List<RequestWithFuture> expired = new ArrayList<>();
+
+	private static RequestWithFuture request(int requestId, long expireTime) {
+		Request request = new Request();
+		request.setRequestId(requestId);
+
+		return new RequestWithFuture(request, null, expireTime);
+	}
+
+	@Test
+	public void expireOnTime() {
+		TimeWheel timeWheel = new TimeWheel(10, 0);
+		RequestWithFuture request = request(1, 105);
+		timeWheel.add(request);
+
+		timeWheel.advance(100, expired::add);
+		assertTrue(expired.isEmpty());
+
+		timeWheel.advance(110, expired::add);// 向上取整到刻度，不会提前过期
+		assertEquals(List.of(request), expired);
+		assertEquals(0, timeWheel.size());
+		assertEquals(TimeWheel.NO_SLOT, request.wheelSlot);
+	}
+
+	@Test
+	public void expireInOrder() {
+		TimeWheel timeWheel = new TimeWheel(1, 0);
+		RequestWithFuture late = request(1, 30);
+		RequestWithFuture early = request(2, 10);
+		timeWheel.add(late);
+		timeWheel.add(early);
+
+		timeWheel.advance(50, expired::add);
+		assertEquals(List.of(early, late), expired);
+	}
+
+	@Test
+	public void alreadyExpired() {
+		TimeWheel timeWheel = new TimeWheel(10, 1000);
+		RequestWithFuture request = request(1, 500);
+		timeWheel.add(request);
+
+		timeWheel.advance(1000, expired::add);
+		assertTrue(expired.isEmpty());
+
+		timeWheel.advance(1010, expired::add);// 下一个刻度过期
+		assertEquals(List.of(request), expired);
+	}
+
+	@Test
+	public void removeBeforeExpire() {
+		TimeWheel timeWheel = new TimeWheel(1, 0);
+		RequestWithFuture first = request(1, 10);
+		RequestWithFuture second = request(2, 10);
+		RequestWithFuture third = request(3, 10);
+		timeWheel.add(first);
+		timeWheel.add(second);
+		timeWheel.add(third);
+
+		timeWheel.remove(second);
+		timeWheel.remove(second);// 重复删除无影响
+		assertEquals(2, timeWheel.size());
+
+		timeWheel.advance(10, expired::add);
+		assertEquals(2, expired.size());
+		assertTrue(expired.contains(first));
+		assertTrue(expired.contains(third));
+	}
+
+	@Test
+	public void reAddMovesSlot() {
+		TimeWheel timeWheel = new TimeWheel(1, 0);
+		RequestWithFuture request = request(1, 10);
+		timeWheel.add(request);
+
+		request.setExpireTime(100);
+		timeWheel.add(request);
+		assertEquals(1, timeWheel.size());
+
+		timeWheel.advance(99, expired::add);
+		assertTrue(expired.isEmpty());
+
+		timeWheel.advance(100, expired::add);
+		assertEquals(List.of(request), expired);
+	}
+
+	@Test
+	public void cascadeFromHighWheel() {
+		TimeWheel timeWheel = new TimeWheel(1, 0);
+		long expireTime = TimeWheel.WHEEL_SIZE * 3 + 7;
+		RequestWithFuture request = request(1, expireTime);
+		timeWheel.add(request);
+		assertTrue(request.wheelSlot >= TimeWheel.WHEEL_SIZE);
+
+		timeWheel.advance(expireTime - 1, expired::add);
+		assertTrue(expired.isEmpty());
+
+		timeWheel.advance(expireTime, expired::add);
+		assertEquals(List.of(request), expired);
+	}
+
+	@Test
+	public void beyondHighWheel() {
+		TimeWheel timeWheel = new TimeWheel(1, 0);
+		long expireTime = (long) TimeWheel.WHEEL_SIZE * TimeWheel.WHEEL_SIZE * 2 + 3;
+		RequestWithFuture request = request(1, expireTime);
+		timeWheel.add(request);
+
+		timeWheel.advance(expireTime - 1, expired::add);
+		assertTrue(expired.isEmpty());
+
+		timeWheel.advance(expireTime, expired::add);
+		assertEquals(List.of(request), expired);
+	}
+
+	@Test
+	public void clear() {
+		TimeWheel timeWheel = new TimeWheel(1, 0);
+		RequestWithFuture request = request(1, 10);
+		timeWheel.add(request);
+
+		timeWheel.clear();
+		assertEquals(0, timeWheel.size());
+		assertEquals(TimeWheel.NO_SLOT, request.wheelSlot);
+
+		timeWheel.advance(20, expired::add);
+		assertTrue(expired.isEmpty());
+	}
+
+}
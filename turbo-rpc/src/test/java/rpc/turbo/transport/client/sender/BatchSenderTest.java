@@ -0,0 +1,47 @@
+package rpc.turbo.transport.client.sender;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import rpc.turbo.protocol.Request;
+import rpc.turbo.transport.client.future.RequestWithFuture;
+
+public class BatchSenderTest {
+
+	private static RequestWithFuture request(int requestId) {
+		Request request = new Request();
+		request.setRequestId(requestId);
+
+		return new RequestWithFuture(request, null, 0L);
+	}
+
+	@Test
+	public void flushStats() throws Exception {
+		EmbeddedChannel channel = new EmbeddedChannel();
+		BatchSender sender = new BatchSender(channel);
+
+		assertEquals(0D, sender.averageBatchSize(), 0D);
+		assertEquals(0D, sender.averageFlushWait(), 0D);
+
+		for (int i = 0; i < 3; i++) {
+			sender.send(request(i));
+		}
+
+		TimeUnit.MILLISECONDS.sleep(1);
+		channel.runPendingTasks();
+
+		assertEquals(1, sender.flushCount());
+		assertEquals(3, sender.sendCount());
+		assertEquals(3D, sender.averageBatchSize(), 0D);
+		assertTrue(sender.averageFlushWait() >= TimeUnit.MILLISECONDS.toNanos(1));
+		assertEquals(0, sender.deferCount());
+
+		channel.finishAndReleaseAll();
+	}
+
+}
@@ -0,0 +1,97 @@
+package rpc.turbo.transport.compress;
+
+import static org.junit.Assert.assertEquals;
+import static rpc.turbo.config.TurboConstants.BATCH_FLAG;
+import static rpc.turbo.config.TurboConstants.COMPRESS_FLAG;
+import static rpc.turbo.config.TurboConstants.COMPRESS_HEADER_LENGTH;
+import static rpc.turbo.config.TurboConstants.HEADER_FIELD_LENGTH;
+import static rpc.turbo.config.TurboConstants.MAX_FRAME_LENGTH;
+
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import rpc.turbo.protocol.CompressType;
+import rpc.turbo.transport.client.codec.ResponseDecoder;
+import rpc.turbo.transport.server.rpc.codec.RequestDecoder;
+
+public class BatchFrameTest {
+
+	/**
+	 * 暴露长度字段的解析，解码器本身需要序列化器
+	 */
+	private static final class RequestFrameLength extends RequestDecoder {
+		private RequestFrameLength() {
+			super(MAX_FRAME_LENGTH, null);
+		}
+
+		private long frameLength(ByteBuf buf) {
+			return getUnadjustedFrameLength(buf, buf.readerIndex(), HEADER_FIELD_LENGTH, ByteOrder.BIG_ENDIAN);
+		}
+	}
+
+	private static final class ResponseFrameLength extends ResponseDecoder {
+		private ResponseFrameLength() {
+			super(MAX_FRAME_LENGTH, null, null);
+		}
+
+		private long frameLength(ByteBuf buf) {
+			return getUnadjustedFrameLength(buf, buf.readerIndex(), HEADER_FIELD_LENGTH, ByteOrder.BIG_ENDIAN);
+		}
+	}
+
+	private static ByteBuf frame(int length, int flag) {
+		ByteBuf buffer = Unpooled.buffer(HEADER_FIELD_LENGTH + length);
+		buffer.writeInt(length | flag);
+		buffer.writeZero(length);
+
+		return buffer;
+	}
+
+	@Test
+	public void maskBatchFlag() {
+		ByteBuf batch = frame(100, BATCH_FLAG);
+		ByteBuf plain = frame(100, 0);
+
+		assertEquals(100, new RequestFrameLength().frameLength(batch));
+		assertEquals(100, new RequestFrameLength().frameLength(plain));
+		assertEquals(100, new ResponseFrameLength().frameLength(batch));
+		assertEquals(100, new ResponseFrameLength().frameLength(plain));
+	}
+
+	@Test
+	public void passthroughBatchFrame() {
+		ByteBuf in = Unpooled.buffer();
+		in.writeBytes(frame(30, 0));
+		in.writeBytes(frame(200, BATCH_FLAG));
+		ByteBuf expected = in.copy();
+
+		// 对端开启压缩的通知，解压后没有数据
+		in.writeInt((COMPRESS_HEADER_LENGTH - HEADER_FIELD_LENGTH) | COMPRESS_FLAG);
+		in.writeByte(CompressType.GZIP);
+		in.writeInt(0);
+
+		ByteBuf last = frame(10, 0);
+		expected.writeBytes(last, last.readerIndex(), last.readableBytes());
+		in.writeBytes(last);
+
+		// 批量 frame 的长度去掉 BATCH_FLAG 后才是真实长度，否则后面的压缩 frame 会被当作普通数据转发
+		EmbeddedChannel channel = new EmbeddedChannel(new CompressFrameDecoder(MAX_FRAME_LENGTH, null));
+		channel.writeInbound(in.readRetainedSlice(40));
+		channel.writeInbound(in.readRetainedSlice(in.readableBytes()));
+		in.release();
+
+		ByteBuf all = Unpooled.buffer();
+		for (ByteBuf buffer; (buffer = channel.readInbound()) != null;) {
+			all.writeBytes(buffer);
+			buffer.release();
+		}
+
+		assertEquals(expected, all);
+		channel.finishAndReleaseAll();
+	}
+
+}
@@ -0,0 +1,151 @@
+package rpc.turbo.transport.compress;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static rpc.turbo.config.TurboConstants.COMPRESS_FLAG;
+import static rpc.turbo.config.TurboConstants.COMPRESS_HEADER_LENGTH;
+import static rpc.turbo.config.TurboConstants.HEADER_FIELD_LENGTH;
+import static rpc.turbo.config.TurboConstants.MAX_FRAME_LENGTH;
+
+import org.junit.Test;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import rpc.turbo.protocol.CompressType;
+
+public class CompressFrameTest {
+
+	private static final byte[] ACCEPT_TYPES = { CompressType.GZIP };
+
+	/**
+	 * 一个普通 frame: [int 长度][长度个字节]
+	 */
+	private static ByteBuf frame(int length, int value) {
+		ByteBuf buffer = Unpooled.buffer(HEADER_FIELD_LENGTH + length);
+		buffer.writeInt(length);
+
+		for (int i = 0; i < length; i++) {
+			buffer.writeByte(value);
+		}
+
+		return buffer;
+	}
+
+	private static ByteBuf readAll(EmbeddedChannel channel) {
+		ByteBuf all = Unpooled.buffer();
+
+		for (;;) {
+			ByteBuf buffer = channel.readInbound();
+
+			if (buffer == null) {
+				return all;
+			}
+
+			all.writeBytes(buffer);
+			buffer.release();
+		}
+	}
+
+	private static ByteBuf compress(ByteBuf plain) {
+		CompressFrameEncoder encoder = new CompressFrameEncoder(ACCEPT_TYPES, 64);
+		EmbeddedChannel channel = new EmbeddedChannel(encoder);
+
+		encoder.enable(CompressType.GZIP);
+		channel.runPendingTasks();
+
+		ByteBuf notify = channel.readOutbound();
+		assertEquals((COMPRESS_HEADER_LENGTH - HEADER_FIELD_LENGTH) | COMPRESS_FLAG, notify.getInt(0));
+		notify.release();
+
+		channel.writeOutbound(plain);
+		ByteBuf compressed = channel.readOutbound();
+		channel.finishAndReleaseAll();
+
+		return compressed;
+	}
+
+	@Test
+	public void compressAboveThreshold() {
+		ByteBuf plain = frame(1000, 'a');
+		ByteBuf expected = plain.copy();
+
+		ByteBuf compressed = compress(plain);
+		int header = compressed.getInt(0);
+
+		assertTrue((header & COMPRESS_FLAG) != 0);
+		assertEquals(compressed.readableBytes() - HEADER_FIELD_LENGTH, header & ~COMPRESS_FLAG);
+		assertTrue(compressed.readableBytes() < expected.readableBytes());
+
+		EmbeddedChannel channel = new EmbeddedChannel(new CompressFrameDecoder(MAX_FRAME_LENGTH, null));
+		channel.writeInbound(compressed);
+
+		assertEquals(expected, readAll(channel));
+		channel.finishAndReleaseAll();
+	}
+
+	@Test
+	public void passthroughBelowThreshold() {
+		CompressFrameEncoder encoder = new CompressFrameEncoder(ACCEPT_TYPES, 64);
+		EmbeddedChannel channel = new EmbeddedChannel(encoder);
+		encoder.enable(CompressType.GZIP);
+		channel.runPendingTasks();
+		((ByteBuf) channel.readOutbound()).release();
+
+		ByteBuf plain = frame(10, 'a');
+		ByteBuf expected = plain.copy();
+		channel.writeOutbound(plain);
+
+		assertEquals(expected, channel.readOutbound());
+		channel.finishAndReleaseAll();
+	}
+
+	@Test
+	public void mixedFrames() {
+		ByteBuf first = frame(100, 'x');
+		ByteBuf second = frame(1000, 'y');
+		ByteBuf third = frame(20, 'z');
+
+		ByteBuf expected = Unpooled.buffer();
+		expected.writeBytes(first, first.readerIndex(), first.readableBytes());
+		expected.writeBytes(second, second.readerIndex(), second.readableBytes());
+		expected.writeBytes(third, third.readerIndex(), third.readableBytes());
+
+		ByteBuf in = Unpooled.buffer();
+		in.writeBytes(first);
+		in.writeBytes(compress(second));
+		in.writeBytes(third);
+
+		// 逐字节到达，压缩 frame 的长度字段去掉 COMPRESS_FLAG 后才是真实长度
+		EmbeddedChannel channel = new EmbeddedChannel(new CompressFrameDecoder(MAX_FRAME_LENGTH, null));
+		while (in.isReadable()) {
+			channel.writeInbound(in.readRetainedSlice(1));
+		}
+		in.release();
+
+		assertEquals(expected, readAll(channel));
+		channel.finishAndReleaseAll();
+	}
+
+	@Test
+	public void enableOnPeerCompress() {
+		CompressFrameEncoder encoder = new CompressFrameEncoder(ACCEPT_TYPES, 64);
+		EmbeddedChannel channel = new EmbeddedChannel(new CompressFrameDecoder(MAX_FRAME_LENGTH, encoder), encoder);
+
+		ByteBuf notify = Unpooled.buffer();
+		notify.writeInt((COMPRESS_HEADER_LENGTH - HEADER_FIELD_LENGTH) | COMPRESS_FLAG);
+		notify.writeByte(CompressType.GZIP);
+		notify.writeInt(0);
+		channel.writeInbound(notify);
+		assertNull(channel.readInbound());
+
+		channel.writeOutbound(frame(1000, 'a'));
+		ByteBuf out = channel.readOutbound();
+
+		assertTrue((out.getInt(0) & COMPRESS_FLAG) != 0);
+		out.release();
+		channel.finishAndReleaseAll();
+	}
+
+}
@@ -0,0 +1,98 @@
+package rpc.turbo.util.concurrent;
+
+/**
+ * 估算访问频率的 Count-Min Sketch，4bit计数器，最大计数15，非线程安全<br>
+ * 增加的次数达到 10 * 容量 时所有计数器减半，使频率随时间衰减
+ *
+ * @author Hank
+ *
+ */
+final class FrequencySketch {
+	private static final long[] SEEDS = { //
+			0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+	private static final long RESET_MASK = 0x7777777777777777L;
+
+	/** 每个long保存16个计数器 */
+	private final long[] table;
+	private final int tableMask;
+	private final int sampleSize;
+	private int additions;
+
+	/**
+	 *
+	 * @param maximumSize
+	 *            缓存容量
+	 */
+	FrequencySketch(int maximumSize) {
+		int length = Integer.highestOneBit(Math.max(1, maximumSize - 1)) << 1;
+		length = Math.max(8, Math.min(length, 1 << 24));
+
+		this.table = new long[length];
+		this.tableMask = length - 1;
+		this.sampleSize = (int) Math.min(10L * Math.max(1, maximumSize), Integer.MAX_VALUE);
+	}
+
+	/**
+	 * 估算的访问频率
+	 *
+	 * @param hash
+	 * @return 0 ~ 15
+	 */
+	int frequency(int hash) {
+		int frequency = Integer.MAX_VALUE;
+
+		for (int i = 0; i < SEEDS.length; i++) {
+			int index = indexOf(hash, i);
+			int offset = offsetOf(hash, i);
+			int count = (int) ((table[index] >>> offset) & 0xfL);
+
+			frequency = Math.min(frequency, count);
+		}
+
+		return frequency;
+	}
+
+	/**
+	 * 记录一次访问
+	 *
+	 * @param hash
+	 */
+	void increment(int hash) {
+		boolean added = false;
+
+		for (int i = 0; i < SEEDS.length; i++) {
+			int index = indexOf(hash, i);
+			int offset = offsetOf(hash, i);
+			long mask = 0xfL << offset;
+
+			if ((table[index] & mask) != mask) {
+				table[index] += 1L << offset;
+				added = true;
+			}
+		}
+
+		if (added && ++additions >= sampleSize) {
+			reset();
+		}
+	}
+
+	private void reset() {
+		for (int i = 0; i < table.length; i++) {
+			table[i] = (table[i] >>> 1) & RESET_MASK;
+		}
+
+		additions >>>= 1;
+	}
+
+	private int indexOf(int hash, int depth) {
+		long h = (hash + SEEDS[depth]) * SEEDS[depth];
+		h += h >>> 32;
+		return ((int) h) & tableMask;
+	}
+
+	/** 每行使用long中不同的4个计数器 */
+	private static int offsetOf(int hash, int depth) {
+		return (((hash >>> (depth << 3)) & 3) + (depth << 2)) << 2;
+	}
+
+}
@@ -0,0 +1,129 @@
+package rpc.turbo.util.concurrent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 线程安全的延迟直方图，对数线性分桶，相对误差不超过 1/{@value #SUB_BUCKET_COUNT}<br>
+ * 每个2的幂区间再等分为 {@value #SUB_BUCKET_COUNT} 个桶，记录为一次原子加，不分配内存
+ *
+ * @author Hank
+ *
+ */
+public class LatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	private static final int SUB_BUCKET_MASK = SUB_BUCKET_COUNT - 1;
+	private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+	/**
+	 * 记录一次延迟
+	 *
+	 * @param nanos
+	 *            纳秒，小于0时按0处理
+	 */
+	public void record(long nanos) {
+		buckets.incrementAndGet(index(Math.max(0L, nanos)));
+	}
+
+	/**
+	 * 记录的总次数
+	 *
+	 * @return
+	 */
+	public long count() {
+		long count = 0L;
+
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			count += buckets.get(i);
+		}
+
+		return count;
+	}
+
+	/**
+	 * 百分位延迟，返回所在桶的上界
+	 *
+	 * @param percentile
+	 *            0 ~ 100，比如 99.9
+	 *
+	 * @return 纳秒，没有记录时返回0
+	 */
+	public long percentile(double percentile) {
+		long[] snapshot = new long[BUCKET_COUNT];
+		long count = 0L;
+
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			snapshot[i] = buckets.get(i);
+			count += snapshot[i];
+		}
+
+		if (count == 0L) {
+			return 0L;
+		}
+
+		double p = Math.max(0D, Math.min(100D, percentile));
+		long rank = Math.max(1L, (long) Math.ceil(count * p / 100D));
+		long seen = 0L;
+
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += snapshot[i];
+
+			if (seen >= rank) {
+				return upperBound(i);
+			}
+		}
+
+		return upperBound(BUCKET_COUNT - 1);
+	}
+
+	/**
+	 * 清空，与 record 并发时可能丢失少量记录
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			buckets.set(i, 0L);
+		}
+	}
+
+	private static int index(long value) {
+		if (value < SUB_BUCKET_COUNT) {
+			return (int) value;
+		}
+
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int shift = exponent - SUB_BUCKET_BITS;
+		int subBucket = (int) (value >>> shift) & SUB_BUCKET_MASK;
+
+		return ((shift + 1) << SUB_BUCKET_BITS) + subBucket;
+	}
+
+	private static long upperBound(int index) {
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+
+		int shift = (index >>> SUB_BUCKET_BITS) - 1;
+		long subBucket = SUB_BUCKET_COUNT + (index & SUB_BUCKET_MASK);
+		long lowerBound = subBucket << shift;
+
+		return lowerBound + (1L << shift) - 1;
+	}
+
+	@Override
+	public String toString() {
+		return "LatencyHistogram{" + //
+				"count=" + count() + //
+				", p50=" + toMicros(percentile(50D)) + "us" + //
+				", p99=" + toMicros(percentile(99D)) + "us" + //
+				", p999=" + toMicros(percentile(99.9D)) + "us" + //
+				'}';
+	}
+
+	private static long toMicros(long nanos) {
+		return TimeUnit.NANOSECONDS.toMicros(nanos);
+	}
+
+}
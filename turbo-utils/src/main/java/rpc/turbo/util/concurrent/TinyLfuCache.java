@@ -0,0 +1,539 @@
+package rpc.turbo.util.concurrent;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 有容量上限、写入后过期的缓存，线程安全，按 W-TinyLFU 淘汰：<br>
+ * 新数据先进入占容量1%的LRU窗口，挤出窗口时与主区的最久未访问者比较 {@link FrequencySketch}
+ * 估算的频率，频率高的留下；主区分为试用区和占80%的保护区，试用区再次被访问时进入保护区<br>
+ * 命中时只做一次无锁的读和记录，访问记录写入分段的有损缓冲区，满了直接丢弃，由持有锁的线程批量处理
+ *
+ * @author Hank
+ *
+ * @param <K>
+ * @param <V>
+ */
+public class TinyLfuCache<K, V> {
+	private static final int WINDOW = 0;
+	private static final int PROBATION = 1;
+	private static final int PROTECTED = 2;
+	private static final int REMOVED = 3;
+
+	private static final int READ_BUFFER_SIZE = 32;
+	private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+
+	private final long ttlNanos;
+	private final int maximumSize;
+	private final int windowMaximum;
+	private final int protectedMaximum;
+
+	private final ConcurrentHashMap<K, Node<K, V>> data;
+	private final ReadBuffer<K, V>[] readBuffers;
+	private final int readBufferMask;
+
+	/** 以下只在持有 evictionLock 时读写 */
+	private final ReentrantLock evictionLock = new ReentrantLock();
+	private final FrequencySketch sketch;
+	private final AccessOrderDeque<K, V> window = new AccessOrderDeque<>();
+	private final AccessOrderDeque<K, V> probation = new AccessOrderDeque<>();
+	private final AccessOrderDeque<K, V> protectedDeque = new AccessOrderDeque<>();
+	private int windowSize;
+	private int protectedSize;
+
+	private final LongAdder hitCounter = new LongAdder();
+	private final LongAdder missCounter = new LongAdder();
+	private final LongAdder evictionCounter = new LongAdder();
+
+	/**
+	 *
+	 * @param maximumSize
+	 *            最多缓存多少个
+	 * @param ttl
+	 *            写入后多久过期，millseconds
+	 */
+	@SuppressWarnings("unchecked")
+	public TinyLfuCache(int maximumSize, long ttl) {
+		if (maximumSize < 1) {
+			throw new IllegalArgumentException("maximumSize must > 0, " + maximumSize);
+		}
+
+		if (ttl < 1) {
+			throw new IllegalArgumentException("ttl must > 0, " + ttl);
+		}
+
+		this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttl);
+		this.maximumSize = maximumSize;
+		this.windowMaximum = Math.max(1, maximumSize / 100);
+		this.protectedMaximum = (int) ((maximumSize - windowMaximum) * 0.8D);
+		this.data = new ConcurrentHashMap<>(Math.min(maximumSize, 1024));
+		this.sketch = new FrequencySketch(maximumSize);
+
+		int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1)) << 1;
+		this.readBuffers = new ReadBuffer[stripes];
+		this.readBufferMask = stripes - 1;
+
+		for (int i = 0; i < stripes; i++) {
+			readBuffers[i] = new ReadBuffer<>();
+		}
+	}
+
+	/**
+	 * 获取未过期的缓存值
+	 *
+	 * @param key
+	 * @return 不存在或已过期时返回null
+	 */
+	public V get(K key) {
+		Node<K, V> node = data.get(key);
+
+		if (node == null) {
+			missCounter.increment();
+			return null;
+		}
+
+		if (System.nanoTime() - node.expireNanos >= 0) {
+			missCounter.increment();
+			remove(node);
+			return null;
+		}
+
+		hitCounter.increment();
+		afterRead(node);
+
+		return node.value;
+	}
+
+	/**
+	 * 写入缓存，已存在时覆盖并重新计算过期时间
+	 *
+	 * @param key
+	 *            不能为null
+	 * @param value
+	 *            不能为null
+	 */
+	public void put(K key, V value) {
+		if (key == null || value == null) {
+			throw new NullPointerException();
+		}
+
+		long expireNanos = System.nanoTime() + ttlNanos;
+
+		evictionLock.lock();
+		try {
+			drainReadBuffers();
+
+			Node<K, V> node = data.get(key);
+
+			if (node != null) {
+				node.value = value;
+				node.expireNanos = expireNanos;
+				onAccess(node);
+				return;
+			}
+
+			node = new Node<>(key, value, expireNanos);
+			data.put(key, node);
+
+			sketch.increment(key.hashCode());
+			window.addLast(node);
+			windowSize++;
+
+			evict();
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	/**
+	 * 删除缓存
+	 *
+	 * @param key
+	 */
+	public void invalidate(K key) {
+		Node<K, V> node = data.get(key);
+
+		if (node != null) {
+			remove(node);
+		}
+	}
+
+	/**
+	 * 清空缓存，统计数据保留
+	 */
+	public void invalidateAll() {
+		evictionLock.lock();
+		try {
+			drainReadBuffers();
+
+			for (Node<K, V> node : data.values()) {
+				unlink(node);
+			}
+
+			data.clear();
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	/**
+	 * 当前缓存数量，可能包含已过期但还未清理的
+	 *
+	 * @return
+	 */
+	public int size() {
+		return data.size();
+	}
+
+	/**
+	 * 命中次数
+	 *
+	 * @return
+	 */
+	public long hitCount() {
+		return hitCounter.sum();
+	}
+
+	/**
+	 * 未命中次数，包括已过期的
+	 *
+	 * @return
+	 */
+	public long missCount() {
+		return missCounter.sum();
+	}
+
+	/**
+	 * 因为容量不足而淘汰的次数
+	 *
+	 * @return
+	 */
+	public long evictionCount() {
+		return evictionCounter.sum();
+	}
+
+	/**
+	 * 命中率
+	 *
+	 * @return 0 ~ 1，没有请求时为0
+	 */
+	public double hitRate() {
+		long hit = hitCounter.sum();
+		long total = hit + missCounter.sum();
+
+		return total == 0L ? 0D : (double) hit / total;
+	}
+
+	private void afterRead(Node<K, V> node) {
+		int stripe = (int) mix(Thread.currentThread().getId()) & readBufferMask;
+
+		// 缓冲区满时丢弃本次访问记录，并尝试由当前线程处理
+		if (!readBuffers[stripe].offer(node) && evictionLock.tryLock()) {
+			try {
+				drainReadBuffers();
+			} finally {
+				evictionLock.unlock();
+			}
+		}
+	}
+
+	private void remove(Node<K, V> node) {
+		evictionLock.lock();
+		try {
+			if (node.queue == REMOVED) {
+				return;
+			}
+
+			data.remove(node.key, node);
+			unlink(node);
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	/** 必须持有 evictionLock */
+	private void drainReadBuffers() {
+		for (int i = 0; i < readBuffers.length; i++) {
+			ReadBuffer<K, V> buffer = readBuffers[i];
+
+			for (;;) {
+				Node<K, V> node = buffer.poll();
+
+				if (node == null) {
+					break;
+				}
+
+				onAccess(node);
+			}
+		}
+	}
+
+	/** 必须持有 evictionLock */
+	private void onAccess(Node<K, V> node) {
+		switch (node.queue) {
+		case WINDOW:
+			sketch.increment(node.key.hashCode());
+			window.moveToLast(node);
+			break;
+
+		case PROBATION:
+			sketch.increment(node.key.hashCode());
+			probation.remove(node);
+			protectedDeque.addLast(node);
+			node.queue = PROTECTED;
+			protectedSize++;
+
+			// 保护区满时最久未访问的降级到试用区
+			while (protectedSize > protectedMaximum) {
+				Node<K, V> demoted = protectedDeque.pollFirst();
+				probation.addLast(demoted);
+				demoted.queue = PROBATION;
+				protectedSize--;
+			}
+			break;
+
+		case PROTECTED:
+			sketch.increment(node.key.hashCode());
+			protectedDeque.moveToLast(node);
+			break;
+
+		default:// 已经删除
+			break;
+		}
+	}
+
+	/** 必须持有 evictionLock */
+	private void evict() {
+		Node<K, V> candidate = null;
+
+		// 挤出窗口的进入试用区，作为候选者
+		while (windowSize > windowMaximum) {
+			candidate = window.pollFirst();
+			probation.addLast(candidate);
+			candidate.queue = PROBATION;
+			windowSize--;
+		}
+
+		while (data.size() > maximumSize) {
+			Node<K, V> victim = probation.peekFirst();
+
+			if (victim == null) {
+				victim = protectedDeque.peekFirst();
+			}
+
+			if (victim == null) {
+				victim = window.peekFirst();
+			}
+
+			if (victim == null) {
+				break;
+			}
+
+			Node<K, V> evicted = victim;
+
+			if (candidate != null && candidate != victim && candidate.queue == PROBATION) {
+				evicted = admit(candidate, victim) ? victim : candidate;
+			}
+
+			if (evicted == candidate) {
+				candidate = null;
+			}
+
+			data.remove(evicted.key, evicted);
+			unlink(evicted);
+			evictionCounter.increment();
+		}
+	}
+
+	/**
+	 * 候选者的频率高于受害者时才允许进入主区，过期的直接让位
+	 */
+	private boolean admit(Node<K, V> candidate, Node<K, V> victim) {
+		long now = System.nanoTime();
+
+		if (now - victim.expireNanos >= 0) {
+			return true;
+		}
+
+		if (now - candidate.expireNanos >= 0) {
+			return false;
+		}
+
+		return sketch.frequency(candidate.key.hashCode()) > sketch.frequency(victim.key.hashCode());
+	}
+
+	/** 必须持有 evictionLock */
+	private void unlink(Node<K, V> node) {
+		switch (node.queue) {
+		case WINDOW:
+			window.remove(node);
+			windowSize--;
+			break;
+
+		case PROBATION:
+			probation.remove(node);
+			break;
+
+		case PROTECTED:
+			protectedDeque.remove(node);
+			protectedSize--;
+			break;
+
+		default:
+			break;
+		}
+
+		node.queue = REMOVED;
+	}
+
+	private static long mix(long x) {
+		x = (x ^ (x >>> 33)) * 0xff51afd7ed558ccdL;
+		return x ^ (x >>> 33);
+	}
+
+	@Override
+	public String toString() {
+		return "TinyLfuCache{" + //
+				"maximumSize=" + maximumSize + //
+				", ttl=" + TimeUnit.NANOSECONDS.toMillis(ttlNanos) + //
+				", size=" + size() + //
+				", hit=" + hitCount() + //
+				", miss=" + missCount() + //
+				", eviction=" + evictionCount() + //
+				'}';
+	}
+
+	private static final class Node<K, V> {
+		private final K key;
+		private volatile V value;
+		private volatile long expireNanos;
+
+		/** 以下只在持有 evictionLock 时读写 */
+		private int queue = WINDOW;
+		private Node<K, V> prev;
+		private Node<K, V> next;
+
+		private Node(K key, V value, long expireNanos) {
+			this.key = key;
+			this.value = value;
+			this.expireNanos = expireNanos;
+		}
+	}
+
+	/**
+	 * 双向链表，头部为最久未访问的，非线程安全
+	 */
+	private static final class AccessOrderDeque<K, V> {
+		private Node<K, V> first;
+		private Node<K, V> last;
+
+		private Node<K, V> peekFirst() {
+			return first;
+		}
+
+		private Node<K, V> pollFirst() {
+			Node<K, V> node = first;
+
+			if (node != null) {
+				remove(node);
+			}
+
+			return node;
+		}
+
+		private void addLast(Node<K, V> node) {
+			node.prev = last;
+			node.next = null;
+
+			if (last == null) {
+				first = node;
+			} else {
+				last.next = node;
+			}
+
+			last = node;
+		}
+
+		private void moveToLast(Node<K, V> node) {
+			if (node != last) {
+				remove(node);
+				addLast(node);
+			}
+		}
+
+		private void remove(Node<K, V> node) {
+			Node<K, V> prev = node.prev;
+			Node<K, V> next = node.next;
+
+			if (prev == null) {
+				first = next;
+			} else {
+				prev.next = next;
+			}
+
+			if (next == null) {
+				last = prev;
+			} else {
+				next.prev = prev;
+			}
+
+			node.prev = null;
+			node.next = null;
+		}
+	}
+
+	/**
+	 * 多生产者单消费者的有损环形缓冲区，消费者必须持有 evictionLock
+	 */
+	private static final class ReadBuffer<K, V> {
+		private final AtomicLong writeCounter = new AtomicLong();
+		private final AtomicReferenceArray<Node<K, V>> buffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+		private volatile long readCounter;
+
+		/**
+		 *
+		 * @param node
+		 * @return 缓冲区已满时返回false
+		 */
+		private boolean offer(Node<K, V> node) {
+			long head = readCounter;
+			long tail = writeCounter.get();
+
+			if (tail - head >= READ_BUFFER_SIZE) {
+				return false;
+			}
+
+			if (!writeCounter.compareAndSet(tail, tail + 1)) {// 竞争时也直接丢弃
+				return true;
+			}
+
+			buffer.lazySet((int) tail & READ_BUFFER_MASK, node);
+			return true;
+		}
+
+		private Node<K, V> poll() {
+			long head = readCounter;
+
+			if (head == writeCounter.get()) {
+				return null;
+			}
+
+			int index = (int) head & READ_BUFFER_MASK;
+			Node<K, V> node = buffer.get(index);
+
+			if (node == null) {// 写入者还未设置
+				return null;
+			}
+
+			buffer.lazySet(index, null);
+			readCounter = head + 1;
+
+			return node;
+		}
+	}
+
+}
@@ -0,0 +1,87 @@
+package rpc.turbo.util.concurrent;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按比例限制额外请求(对冲、重试)的令牌桶，线程安全<br>
+ * 每个正常请求存入 ratio 个令牌，每个额外请求取出1个，令牌数有上限，<br>
+ * 所以额外请求长期不会超过正常请求的 ratio 倍，短时突发不超过上限
+ *
+ * @author Hank
+ *
+ */
+public class TokenBudget {
+	/** 定点数，1个令牌 */
+	private static final long UNIT = 1000L;
+
+	private final long depositPerRequest;
+	private final long maxBalance;
+	private final AtomicLong balance = new AtomicLong();
+
+	/**
+	 *
+	 * @param ratio
+	 *            额外请求占正常请求的最大比例，0 ~ 1
+	 * @param maxTokens
+	 *            最多积攒的令牌数，即允许的突发数量
+	 */
+	public TokenBudget(double ratio, int maxTokens) {
+		if (ratio < 0D || ratio > 1D) {
+			throw new IllegalArgumentException("ratio must in [0, 1], " + ratio);
+		}
+
+		if (maxTokens < 1) {
+			throw new IllegalArgumentException("maxTokens must > 0, " + maxTokens);
+		}
+
+		this.depositPerRequest = (long) (ratio * UNIT);
+		this.maxBalance = maxTokens * UNIT;
+	}
+
+	/**
+	 * 正常请求时调用，满了之后不再增加，并发时可能略微超过上限
+	 */
+	public void deposit() {
+		if (depositPerRequest != 0L && balance.get() < maxBalance) {
+			balance.addAndGet(depositPerRequest);
+		}
+	}
+
+	/**
+	 * 额外请求前调用
+	 *
+	 * @return 是否还有令牌
+	 */
+	public boolean tryWithdraw() {
+		for (;;) {
+			long current = balance.get();
+
+			if (current < UNIT) {
+				return false;
+			}
+
+			if (balance.compareAndSet(current, current - UNIT)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * 当前令牌数
+	 *
+	 * @return
+	 */
+	public double tokens() {
+		return (double) balance.get() / UNIT;
+	}
+
+	@Override
+	public String toString() {
+		return "TokenBudget{" + //
+				"ratio=" + ((double) depositPerRequest / UNIT) + //
+				", maxTokens=" + (maxBalance / UNIT) + //
+				", tokens=" + tokens() + //
+				'}';
+	}
+
+}
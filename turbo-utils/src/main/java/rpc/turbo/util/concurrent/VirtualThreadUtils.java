@@ -0,0 +1,95 @@
+package rpc.turbo.util.concurrent;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 虚拟线程工具，通过反射调用，运行时低于 jdk21 时不支持
+ * 
+ * @author Hank
+ *
+ */
+public final class VirtualThreadUtils {
+
+	private static final Method OF_VIRTUAL;
+	private static final Method BUILDER_NAME;
+	private static final Method BUILDER_FACTORY;
+
+	static {
+		Method ofVirtual = null;
+		Method builderName = null;
+		Method builderFactory = null;
+
+		try {
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+
+			ofVirtual = Thread.class.getMethod("ofVirtual");
+			builderName = builderClass.getMethod("name", String.class, long.class);
+			builderFactory = builderClass.getMethod("factory");
+
+			// 试用一下，预览特性未开启时会失败
+			builderFactory.invoke(ofVirtual.invoke(null));
+		} catch (Throwable t) {
+			ofVirtual = null;
+			builderName = null;
+			builderFactory = null;
+		}
+
+		OF_VIRTUAL = ofVirtual;
+		BUILDER_NAME = builderName;
+		BUILDER_FACTORY = builderFactory;
+	}
+
+	private VirtualThreadUtils() {
+	}
+
+	/**
+	 * 当前运行时是否支持虚拟线程
+	 * 
+	 * @return
+	 */
+	public static boolean isSupported() {
+		return OF_VIRTUAL != null;
+	}
+
+	/**
+	 * 创建虚拟线程工厂
+	 * 
+	 * @param prefix
+	 *            线程名前缀
+	 * @return 不支持时返回 null
+	 */
+	public static ThreadFactory factory(String prefix) {
+		if (!isSupported()) {
+			return null;
+		}
+
+		try {
+			Object builder = OF_VIRTUAL.invoke(null);
+			builder = BUILDER_NAME.invoke(builder, prefix + '-', 0L);
+
+			return (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+		} catch (Throwable t) {
+			return null;
+		}
+	}
+
+	/**
+	 * 创建每个任务一个虚拟线程的执行器，没有并发限制
+	 * 
+	 * @param prefix
+	 *            线程名前缀
+	 * @return 不支持时返回 null
+	 */
+	public static Executor executor(String prefix) {
+		ThreadFactory threadFactory = factory(prefix);
+
+		if (threadFactory == null) {
+			return null;
+		}
+
+		return command -> threadFactory.newThread(command).start();
+	}
+
+}
@@ -0,0 +1,95 @@
+package rpc.turbo.util.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TinyLfuCacheTest {
+
+	@Test
+	public void putAndGet() {
+		TinyLfuCache<String, String> cache = new TinyLfuCache<>(100, 60000);
+		cache.put("a", "1");
+
+		assertEquals("1", cache.get("a"));
+		assertNull(cache.get("b"));
+		assertEquals(1, cache.hitCount());
+		assertEquals(1, cache.missCount());
+		assertEquals(0.5D, cache.hitRate(), 0D);
+
+		cache.put("a", "2");// 覆盖
+		assertEquals("2", cache.get("a"));
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void expireAfterWrite() throws InterruptedException {
+		TinyLfuCache<String, String> cache = new TinyLfuCache<>(100, 20);
+		cache.put("a", "1");
+
+		TimeUnit.MILLISECONDS.sleep(40);
+
+		assertNull(cache.get("a"));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void invalidate() {
+		TinyLfuCache<String, String> cache = new TinyLfuCache<>(100, 60000);
+		cache.put("a", "1");
+		cache.put("b", "2");
+
+		cache.invalidate("a");
+		assertNull(cache.get("a"));
+		assertEquals("2", cache.get("b"));
+
+		cache.invalidateAll();
+		assertNull(cache.get("b"));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void boundedSize() {
+		TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<>(100, 60000);
+
+		for (int i = 0; i < 10000; i++) {
+			cache.put(i, i);
+		}
+
+		assertEquals(100, cache.size());
+		assertEquals(9900, cache.evictionCount());
+	}
+
+	@Test
+	public void keepFrequentKeys() {
+		TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<>(100, 60000);
+
+		// 热点数据
+		for (int round = 0; round < 10; round++) {
+			for (int i = 0; i < 50; i++) {
+				if (cache.get(i) == null) {
+					cache.put(i, i);
+				}
+			}
+		}
+
+		// 只访问一次的扫描不应挤掉热点数据
+		for (int i = 1000; i < 11000; i++) {
+			cache.put(i, i);
+		}
+
+		int hot = 0;
+		for (int i = 0; i < 50; i++) {
+			if (cache.get(i) != null) {
+				hot++;
+			}
+		}
+
+		assertTrue("hot keys kept: " + hot, hot >= 45);
+	}
+
+}